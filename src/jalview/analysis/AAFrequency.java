@@ -262,7 +262,7 @@ public class AAFrequency
          * shorter than alignment width
          */
         consensus.annotations[i] = null;
-        return;
+        break;
       }
 
       final int dp = getPercentageDp(nseq);
@@ -284,6 +284,7 @@ public class AAFrequency
       consensus.annotations[i] = new Annotation(modalResidue, description,
               ' ', value);
     }
+    consensus.annotationsChanged();
     // long elapsed = System.currentTimeMillis() - now;
     // System.out.println(-elapsed);
   }
@@ -326,7 +327,7 @@ public class AAFrequency
          * shorter than alignment width
          */
         gaprow.annotations[i] = null;
-        return;
+        break;
       }
 
       final int gapped = profile.getNonGapped();
@@ -337,6 +338,7 @@ public class AAFrequency
               jalview.util.ColorUtils.bleachColour(Color.DARK_GRAY,
                       (float) scale * gapped));
     }
+    gaprow.annotationsChanged();
   }
 
   /**
@@ -728,6 +730,7 @@ public class AAFrequency
       consensusAnnotation.annotations[col] = new Annotation(modalCodon,
               mouseOver.toString(), ' ', pid);
     }
+    consensusAnnotation.annotationsChanged();
   }
 
   /**
@@ -22,10 +22,8 @@ package jalview.analysis;
 
 import java.util.Locale;
 
-import jalview.analysis.scoremodels.PIDModel;
 import jalview.analysis.scoremodels.ScoreMatrix;
 import jalview.analysis.scoremodels.ScoreModels;
-import jalview.analysis.scoremodels.SimilarityParams;
 import jalview.datamodel.AlignmentAnnotation;
 import jalview.datamodel.AlignmentI;
 import jalview.datamodel.Mapping;
@@ -41,7 +39,9 @@ import java.awt.Graphics;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 
 /**
@@ -66,13 +66,120 @@ public class AlignSeq
 
   private static final String NEWLINE = System.lineSeparator();
 
-  float[][] score;
+  /*
+   * trace codes recorded for each cell of the dynamic programming matrix;
+   * CODE_TIE means 'up' if the previous trace step was 'up', else 'diagonal'
+   */
+  static final byte CODE_DIAG = 0;
+
+  static final byte CODE_LEFT = 1;
+
+  static final byte CODE_UP = 2;
+
+  static final byte CODE_TIE = 3;
+
+  /*
+   * alignments of up to this many cells keep trace codes for every cell;
+   * larger ones keep checkpoint rows and recompute blocks during traceback
+   */
+  static final long FULL_TRACE_CELLS = 1L << 24;
+
+  long fullTraceCells = FULL_TRACE_CELLS;
+
+  /*
+   * pairwise score (times 10) of each residue of s1 against each of s2,
+   * with one row per distinct residue in s1
+   */
+  private float[][] profile;
+
+  private int[] profileRow;
+
+  /*
+   * number of rows between checkpoints (or all rows if not checkpointed)
+   */
+  private int blockSize;
+
+  /*
+   * trace codes for all rows, or for the block of rows last recomputed
+   */
+  private byte[][] codes;
+
+  private int codesBlock = -1;
+
+  /*
+   * score and vertical gap (F) rows saved every blockSize rows
+   */
+  private float[][] checkpointScore;
+
+  private float[][] checkpointF;
+
+  /*
+   * scores of the last column and last row of the matrix
+   */
+  private float[] lastColumn;
+
+  private float[] lastRow;
+
+  private float maxScoreRaw;
 
-  float[][] E;
+  /*
+   * optional buffers to reuse for the calculation
+   */
+  private Workspace workspace;
+
+  /**
+   * Reusable buffers for score matrix calculation. When aligning many pairs of
+   * sequences on one thread, setting the same Workspace on each AlignSeq saves
+   * allocating new buffers for each pair. A Workspace must not be shared
+   * between threads, and an AlignSeq must have completed traceAlignment
+   * before its Workspace is used for another calculation.
+   */
+  public static class Workspace
+  {
+    private float[][] rows = new float[4][0];
+
+    private byte[][] codes = new byte[0][];
 
-  float[][] F;
+    /**
+     * Answers buffer k (0-3) with at least the given length
+     * 
+     * @param k
+     * @param length
+     * @return
+     */
+    float[] getRow(int k, int length)
+    {
+      if (rows[k].length < length)
+      {
+        rows[k] = new float[length];
+      }
+      return rows[k];
+    }
 
-  int[][] traceback; // todo is this actually used?
+    /**
+     * Answers at least the given number of trace code rows, each of at least
+     * the given length
+     * 
+     * @param height
+     * @param width
+     * @return
+     */
+    byte[][] getCodes(int height, int width)
+    {
+      if (codes.length < height)
+      {
+        codes = Arrays.copyOf(codes, height);
+      }
+      for (int i = 0; i < height; i++)
+      {
+        if (codes[i] == null || codes[i].length < width)
+        {
+          codes[i] = new byte[width];
+        }
+      }
+      return codes;
+    }
+  }
 
   int[] seq1;
 
@@ -325,13 +432,6 @@ public class AlignSeq
       return;
     }
 
-    score = new float[s1str.length()][s2str.length()];
-
-    E = new float[s1str.length()][s2str.length()];
-
-    F = new float[s1str.length()][s2str.length()];
-    traceback = new int[s1str.length()][s2str.length()];
-
     seq1 = indexEncode(s1str);
 
     seq2 = indexEncode(s2str);
@@ -360,30 +460,33 @@ public class AlignSeq
     // Find the maximum score along the rhs or bottom row
     float max = -Float.MAX_VALUE;
 
+    maxScoreRaw = profile[profileRow[0]][0];
     for (int i = 0; i < seq1.length; i++)
     {
-      if (score[i][seq2.length - 1] > max)
+      if (lastColumn[i] > max)
       {
-        max = score[i][seq2.length - 1];
+        max = lastColumn[i];
         maxi = i;
         maxj = seq2.length - 1;
+        maxScoreRaw = max;
       }
     }
 
     for (int j = 0; j < seq2.length; j++)
     {
-      if (score[seq1.length - 1][j] > max)
+      if (lastRow[j] > max)
       {
-        max = score[seq1.length - 1][j];
+        max = lastRow[j];
         maxi = seq1.length - 1;
         maxj = j;
+        maxScoreRaw = max;
       }
     }
 
     int i = maxi;
     int j = maxj;
     int trace;
-    maxscore = score[i][j] / 10f;
+    maxscore = maxScoreRaw / 10f;
 
     seq1end = maxi + 1;
     seq2end = maxj + 1;
@@ -450,9 +553,27 @@ public class AlignSeq
   }
 
   /**
-   * DOCUMENT ME!
+   * Formats the alignment (as by formatAlignment) and prints it to the given
+   * stream
+   * 
+   * @param os
    */
   public void printAlignment(PrintStream os)
+  {
+    formatAlignment();
+    try
+    {
+      os.print(output.toString());
+    } catch (Exception ex)
+    {
+    }
+  }
+
+  /**
+   * Appends a text rendering of the alignment, with its score and percentage
+   * identity, to the output returned by getOutput()
+   */
+  public void formatAlignment()
   {
     // TODO: Use original sequence characters rather than re-translated
     // characters in output
@@ -483,7 +604,7 @@ public class AlignSeq
             + ((aseq1.length - count) % len > 0 ? 1 : 0);
     float pid = 0f;
 
-    output.append("Score = ").append(score[maxi][maxj]).append(NEWLINE);
+    output.append("Score = ").append(maxScoreRaw).append(NEWLINE);
     output.append("Length of alignment = ")
             .append(String.valueOf(aseq1.length - count)).append(NEWLINE);
     output.append("Sequence ");
@@ -570,124 +691,282 @@ public class AlignSeq
     pid = pid / (aseq1.length - count) * 100;
     output.append(new Format("Percentage ID = %3.2f\n").form(pid));
     output.append(NEWLINE);
-    try
-    {
-      os.print(output.toString());
-    } catch (Exception ex)
-    {
-    }
   }
 
   /**
-   * DOCUMENT ME!
+   * Answers the direction of the traceback step from cell [i, j] (where i and
+   * j are both greater than zero): 0 for diagonal, 1 for left (gap in s1) or -1
+   * for up (gap in s2). Where scores are tied, the direction may depend on the
+   * previous step taken.
    * 
    * @param i
-   *          DOCUMENT ME!
    * @param j
-   *          DOCUMENT ME!
    * 
-   * @return DOCUMENT ME!
+   * @return
    */
   public int findTrace(int i, int j)
   {
-    int t = 0;
-    float pairwiseScore = scoreMatrix.getPairwiseScore(s1str.charAt(i),
-            s2str.charAt(j));
-    float max = score[i - 1][j - 1] + (pairwiseScore * 10);
+    int t = resolveTrace(getTraceCode(i, j), prev);
+    prev = t;
+    return t;
+  }
 
-    if (F[i][j] > max)
-    {
-      max = F[i][j];
-      t = -1;
-    }
-    else if (F[i][j] == max)
+  /**
+   * Answers the trace direction for a cell, given its trace code and the
+   * previous direction
+   * 
+   * @param code
+   * @param previous
+   * @return
+   */
+  static int resolveTrace(byte code, int previous)
+  {
+    switch (code)
     {
-      if (prev == -1)
-      {
-        max = F[i][j];
-        t = -1;
-      }
+    case CODE_LEFT:
+      return 1;
+    case CODE_UP:
+      return -1;
+    case CODE_TIE:
+      return previous == -1 ? -1 : 0;
+    default:
+      return 0;
     }
+  }
 
-    if (E[i][j] >= max)
+  /**
+   * Answers the trace code for a cell, given its diagonal, horizontal gap (E)
+   * and vertical gap (F) scores. A vertical gap is preferred to a diagonal
+   * match, and a horizontal gap to both, where scores are equal; except that
+   * the choice between equal vertical gap and diagonal scores depends on the
+   * previous step of the traceback.
+   * 
+   * @param diag
+   * @param e
+   * @param f
+   * @return
+   */
+  static byte traceCode(float diag, float e, float f)
+  {
+    if (e >= (f > diag ? f : diag))
     {
-      max = E[i][j];
-      t = 1;
+      return CODE_LEFT;
     }
-    else if (E[i][j] == max)
+    if (f > diag)
     {
-      if (prev == 1)
-      {
-        max = E[i][j];
-        t = 1;
-      }
+      return CODE_UP;
     }
-
-    prev = t;
-
-    return t;
+    return f == diag ? CODE_TIE : CODE_DIAG;
   }
 
   /**
-   * DOCUMENT ME!
+   * Fills the dynamic programming matrix for an affine gap alignment of s1 and
+   * s2. Only two rows of scores are held at a time. Trace codes (two bits of
+   * information per cell) are kept for the whole matrix if it is small enough;
+   * otherwise, score rows are saved at intervals of about sqrt(n) rows, and
+   * blocks of trace codes are recomputed from them as needed during
+   * traceback, so that memory used grows with the square root of the matrix
+   * size.
    */
   public void calcScoreMatrix()
   {
     int n = seq1.length;
     int m = seq2.length;
+    buildProfile();
+
+    boolean full = (long) n * m <= fullTraceCells;
+    blockSize = full ? n : Math.max(1, (int) Math.ceil(Math.sqrt(n)));
+    Workspace ws = workspace == null ? new Workspace() : workspace;
+    codes = ws.getCodes(full ? n : blockSize, m);
+    codesBlock = -1;
+    if (!full)
+    {
+      int checkpoints = (n - 1) / blockSize + 1;
+      checkpointScore = new float[checkpoints][];
+      checkpointF = new float[checkpoints][];
+    }
+    lastColumn = new float[n];
 
-    // top left hand element
-    score[0][0] = scoreMatrix.getPairwiseScore(s1str.charAt(0),
-            s2str.charAt(0)) * 10;
-    E[0][0] = -GAP_EXTEND_COST;
-    F[0][0] = 0;
+    float[] lastScore = ws.getRow(0, m);
+    float[] lastF = ws.getRow(1, m);
+    float[] score = ws.getRow(2, m);
+    float[] f = ws.getRow(3, m);
+
+    /*
+     * if checkpointing, codes are not kept until traceback,
+     * so the first row of the code buffer is reused for every row
+     */
+    byte[] rowCodes = codes[0];
 
-    // Calculate the top row first
-    for (int j = 1; j < m; j++)
+    computeFirstRow(score, f, m);
+    for (int i = 0; i < n; i++)
     {
-      // What should these values be? 0 maybe
-      E[0][j] = max(score[0][j - 1] - GAP_OPEN_COST,
-              E[0][j - 1] - GAP_EXTEND_COST);
-      F[0][j] = -GAP_EXTEND_COST;
+      if (i > 0)
+      {
+        if (full)
+        {
+          rowCodes = codes[i];
+        }
+        computeRow(i, lastScore, lastF, score, f, rowCodes, m);
+
+        /*
+         * follow the tie-breaking state through each cell in turn,
+         * as the traceback starts from the state left by the last cell
+         */
+        for (int j = 1; j < m; j++)
+        {
+          prev = resolveTrace(rowCodes[j], prev);
+        }
+      }
+      if (!full && i % blockSize == 0)
+      {
+        checkpointScore[i / blockSize] = Arrays.copyOf(score, m);
+        checkpointF[i / blockSize] = Arrays.copyOf(f, m);
+      }
+      lastColumn[i] = score[m - 1];
+
+      float[] tmp = lastScore;
+      lastScore = score;
+      score = tmp;
+      tmp = lastF;
+      lastF = f;
+      f = tmp;
+    }
+    lastRow = Arrays.copyOf(lastScore, m);
+  }
 
-      float pairwiseScore = scoreMatrix.getPairwiseScore(s1str.charAt(0),
-              s2str.charAt(j));
-      score[0][j] = max(pairwiseScore * 10, -GAP_OPEN_COST,
-              -GAP_EXTEND_COST);
+  /**
+   * Sets buffers to reuse for the score matrix calculation
+   * 
+   * @param ws
+   */
+  public void setWorkspace(Workspace ws)
+  {
+    workspace = ws;
+  }
+
+  /**
+   * Computes scores for the first row of the matrix
+   * 
+   * @param score
+   * @param f
+   * @param width
+   */
+  private void computeFirstRow(float[] score, float[] f, int width)
+  {
+    float[] p = profile[profileRow[0]];
+    score[0] = p[0];
+    f[0] = 0;
+    for (int j = 1; j < width; j++)
+    {
+      f[j] = -GAP_EXTEND_COST;
+      score[j] = max(p[j], -GAP_OPEN_COST, -GAP_EXTEND_COST);
+    }
+  }
 
-      traceback[0][j] = 1;
+  /**
+   * Computes scores and trace codes for row i of the matrix, up to (but not
+   * including) the given column, from the scores of the row above
+   * 
+   * @param i
+   * @param lastScore
+   * @param lastF
+   * @param score
+   * @param f
+   * @param rowCodes
+   * @param width
+   */
+  private void computeRow(int i, float[] lastScore, float[] lastF,
+          float[] score, float[] f, byte[] rowCodes, int width)
+  {
+    float[] p = profile[profileRow[i]];
+    float e = -GAP_OPEN_COST;
+    f[0] = max(lastScore[0] - GAP_OPEN_COST, lastF[0] - GAP_EXTEND_COST);
+    score[0] = max(p[0], e, f[0]);
+    for (int j = 1; j < width; j++)
+    {
+      e = max(score[j - 1] - GAP_OPEN_COST, e - GAP_EXTEND_COST);
+      float fj = max(lastScore[j] - GAP_OPEN_COST,
+              lastF[j] - GAP_EXTEND_COST);
+      float diag = lastScore[j - 1] + p[j];
+      f[j] = fj;
+      score[j] = max(diag, e, fj);
+      rowCodes[j] = traceCode(diag, e, fj);
     }
+  }
 
-    // Now do the left hand column
-    for (int i = 1; i < n; i++)
+  /**
+   * Answers the trace code for cell [i, j], recomputing the block of rows
+   * containing row i from the preceding checkpoint if necessary. This assumes
+   * that traceback visits rows and columns in non-increasing order, so only
+   * columns up to j are recomputed.
+   * 
+   * @param i
+   * @param j
+   * @return
+   */
+  private byte getTraceCode(int i, int j)
+  {
+    if (checkpointScore == null)
+    {
+      return codes[i][j];
+    }
+    int block = (i - 1) / blockSize;
+    int firstRow = block * blockSize + 1;
+    if (block != codesBlock)
     {
-      E[i][0] = -GAP_OPEN_COST;
-      F[i][0] = max(score[i - 1][0] - GAP_OPEN_COST,
-              F[i - 1][0] - GAP_EXTEND_COST);
-
-      float pairwiseScore = scoreMatrix.getPairwiseScore(s1str.charAt(i),
-              s2str.charAt(0));
-      score[i][0] = max(pairwiseScore * 10, E[i][0], F[i][0]);
-      traceback[i][0] = -1;
+      int lastRowInBlock = Math.min(firstRow + blockSize, seq1.length) - 1;
+      int width = j + 1;
+      float[] lastScore = Arrays.copyOf(checkpointScore[block], width);
+      float[] lastF = Arrays.copyOf(checkpointF[block], width);
+      float[] score = new float[width];
+      float[] f = new float[width];
+      for (int row = firstRow; row <= lastRowInBlock; row++)
+      {
+        computeRow(row, lastScore, lastF, score, f,
+                codes[row - firstRow], width);
+        float[] tmp = lastScore;
+        lastScore = score;
+        score = tmp;
+        tmp = lastF;
+        lastF = f;
+        f = tmp;
+      }
+      codesBlock = block;
     }
+    return codes[i - firstRow][j];
+  }
 
-    // Now do all the other rows
-    for (int i = 1; i < n; i++)
+  /**
+   * Computes the score profile: for each distinct residue of s1, its pairwise
+   * score (times 10) against each residue of s2
+   */
+  private void buildProfile()
+  {
+    int n = s1str.length();
+    int m = s2str.length();
+    profileRow = new int[n];
+    List<float[]> rows = new ArrayList<>();
+    Map<Character, Integer> rowIndex = new HashMap<>();
+    for (int i = 0; i < n; i++)
     {
-      for (int j = 1; j < m; j++)
+      char c = s1str.charAt(i);
+      Integer row = rowIndex.get(c);
+      if (row == null)
       {
-        E[i][j] = max(score[i][j - 1] - GAP_OPEN_COST,
-                E[i][j - 1] - GAP_EXTEND_COST);
-        F[i][j] = max(score[i - 1][j] - GAP_OPEN_COST,
-                F[i - 1][j] - GAP_EXTEND_COST);
-
-        float pairwiseScore = scoreMatrix.getPairwiseScore(s1str.charAt(i),
-                s2str.charAt(j));
-        score[i][j] = max(score[i - 1][j - 1] + (pairwiseScore * 10),
-                E[i][j], F[i][j]);
-        traceback[i][j] = findTrace(i, j);
+        float[] scores = new float[m];
+        for (int j = 0; j < m; j++)
+        {
+          scores[j] = scoreMatrix.getPairwiseScore(c, s2str.charAt(j))
+                  * 10;
+        }
+        row = rows.size();
+        rows.add(scores);
+        rowIndex.put(c, row);
       }
+      profileRow[i] = row;
     }
+    profile = rows.toArray(new float[rows.size()][]);
   }
 
   /**
@@ -1062,72 +1341,15 @@ public class AlignSeq
           int end, boolean ungapped)
   {
     int height = originalSequences.length;
-    float[] redundancy = new float[height];
-    int[] lngth = new int[height];
-    for (int i = 0; i < height; i++)
-    {
-      redundancy[i] = 0f;
-      lngth[i] = -1;
-    }
-
-    // long start = System.currentTimeMillis();
-
-    SimilarityParams pidParams = new SimilarityParams(true, true, true,
-            true);
-    float pid;
-    String seqi, seqj;
-    for (int i = 0; i < height; i++)
+    String[] seqs = omitHidden;
+    if (seqs == null)
     {
-
-      for (int j = 0; j < i; j++)
+      seqs = new String[height];
+      for (int i = 0; i < height; i++)
       {
-        if (i == j)
-        {
-          continue;
-        }
-
-        if (omitHidden == null)
-        {
-          seqi = originalSequences[i].getSequenceAsString(start, end);
-          seqj = originalSequences[j].getSequenceAsString(start, end);
-        }
-        else
-        {
-          seqi = omitHidden[i];
-          seqj = omitHidden[j];
-        }
-        if (lngth[i] == -1)
-        {
-          String ug = AlignSeq.extractGaps(Comparison.GapChars, seqi);
-          lngth[i] = ug.length();
-          if (ungapped)
-          {
-            seqi = ug;
-          }
-        }
-        if (lngth[j] == -1)
-        {
-          String ug = AlignSeq.extractGaps(Comparison.GapChars, seqj);
-          lngth[j] = ug.length();
-          if (ungapped)
-          {
-            seqj = ug;
-          }
-        }
-        pid = (float) PIDModel.computePID(seqi, seqj, pidParams);
-
-        // use real sequence length rather than string length
-        if (lngth[j] < lngth[i])
-        {
-          redundancy[j] = Math.max(pid, redundancy[j]);
-        }
-        else
-        {
-          redundancy[i] = Math.max(pid, redundancy[i]);
-        }
-
+        seqs[i] = originalSequences[i].getSequenceAsString(start, end);
       }
     }
-    return redundancy;
+    return new RedundancyCalculator(seqs, ungapped).compute();
   }
 }
@@ -0,0 +1,328 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jalview.datamodel.SequenceI;
+import jalview.util.Platform;
+import jalview.util.ThreadPools;
+
+/**
+ * Computes pairwise alignments (AlignSeq) for many pairs of sequences on a
+ * shared pool of worker threads. Each chunk of pairs reuses one
+ * AlignSeq.Workspace's buffers from one pair to the next, and the buffers are
+ * held only as long as the aligner. Progress may be queried, and the
+ * calculation cancelled, from another thread (for example, a Cancel button).
+ * In JalviewJS, pairs are aligned one after another on the calling thread.
+ */
+public class AllPairsAligner
+{
+  /**
+   * A callback for each completed pairwise alignment. This is called on a
+   * worker thread, so implementations must be safe for concurrent calls
+   * (typically by writing results for pair (i, j) to a distinct array cell).
+   * The AlignSeq's buffers are reused once the callback returns.
+   */
+  public interface PairConsumer
+  {
+    void aligned(int i, int j, AlignSeq as);
+  }
+
+  private static final int THREADS = ThreadPools.getComputeThreads();
+
+  /*
+   * pairs handed to a worker at a time
+   */
+  private static final int MIN_CHUNK = 8;
+
+  /*
+   * alignment buffers, taken by each chunk of pairs and returned when it is
+   * done, so no more are made than chunks running at once, and all are
+   * released with this aligner
+   */
+  private final Queue<AlignSeq.Workspace> workspaces = new ConcurrentLinkedQueue<>();
+
+  private final SequenceI[] seqs;
+
+  private final String[] seqStrings;
+
+  private final String type;
+
+  private volatile boolean cancelled;
+
+  private final AtomicInteger completed = new AtomicInteger();
+
+  private volatile int total;
+
+  /**
+   * Constructor given sequences to align. If seqStrings is not null, it
+   * provides the (upper-cased) sequence strings to align, else the sequences'
+   * own strings are used.
+   *
+   * @param seqs
+   * @param seqStrings
+   * @param type
+   *          AlignSeq.PEP or AlignSeq.DNA
+   */
+  public AllPairsAligner(SequenceI[] seqs, String[] seqStrings,
+          String type)
+  {
+    this.seqs = seqs;
+    this.seqStrings = seqStrings;
+    this.type = type;
+  }
+
+  /**
+   * Answers pairs {i, j} of sequence indices for j < i (or j <= i if
+   * includeSelf is true), ordered by i and then j
+   *
+   * @param count
+   * @param includeSelf
+   * @return
+   */
+  public static List<int[]> lowerTriangle(int count, boolean includeSelf)
+  {
+    List<int[]> pairs = new ArrayList<>();
+    for (int i = 0; i < count; i++)
+    {
+      for (int j = 0; j < (includeSelf ? i + 1 : i); j++)
+      {
+        pairs.add(new int[] { i, j });
+      }
+    }
+    return pairs;
+  }
+
+  /**
+   * Aligns each pair of sequences {i, j} in the list, and passes each
+   * alignment to the consumer. Pairs where either sequence is all gaps are
+   * skipped. Returns when all pairs are done, or the calculation is cancelled
+   * or the calling thread interrupted.
+   *
+   * @param pairs
+   * @param consumer
+   * @return true if all pairs were aligned, false if cancelled
+   */
+  public boolean align(final List<int[]> pairs,
+          final PairConsumer consumer)
+  {
+    total = pairs.size();
+    completed.set(0);
+    if (Platform.isJS() || ThreadPools.isPoolThread() || THREADS == 1
+            || pairs.size() < 2 * MIN_CHUNK)
+    {
+      alignPairs(pairs, 0, pairs.size(), consumer);
+      return !cancelled;
+    }
+
+    int chunk = getChunkSize(pairs.size());
+    List<Future<?>> futures = new ArrayList<>();
+    for (int from = 0; from < pairs.size(); from += chunk)
+    {
+      final int start = from;
+      final int end = Math.min(pairs.size(), from + chunk);
+      futures.add(ThreadPools.getComputePool().submit(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          alignPairs(pairs, start, end, consumer);
+        }
+      }));
+    }
+
+    for (Future<?> future : futures)
+    {
+      try
+      {
+        future.get();
+      } catch (InterruptedException e)
+      {
+        cancel();
+        Thread.currentThread().interrupt();
+        break;
+      } catch (ExecutionException e)
+      {
+        cancel();
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException)
+        {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error)
+        {
+          throw (Error) cause;
+        }
+        throw new RuntimeException(cause);
+      }
+    }
+    return !cancelled;
+  }
+
+  /**
+   * Aligns each pair of sequences {i, j} in the list on the compute pool, and
+   * passes each alignment to the consumer, as for
+   * {@link #align(List, PairConsumer)}, but returns without waiting. When all
+   * pairs are done, or the calculation is cancelled or fails, whenDone is run
+   * on the thread which finished last (or, in JavaScript, all pairs are
+   * aligned and whenDone run on the calling thread).
+   *
+   * @param pairs
+   * @param consumer
+   * @param whenDone
+   */
+  public void align(final List<int[]> pairs, final PairConsumer consumer,
+          final Runnable whenDone)
+  {
+    total = pairs.size();
+    completed.set(0);
+    if (Platform.isJS() || pairs.isEmpty())
+    {
+      alignPairs(pairs, 0, pairs.size(), consumer);
+      whenDone.run();
+      return;
+    }
+
+    int chunk = getChunkSize(pairs.size());
+    final AtomicInteger running = new AtomicInteger(
+            (pairs.size() + chunk - 1) / chunk);
+    for (int from = 0; from < pairs.size(); from += chunk)
+    {
+      final int start = from;
+      final int end = Math.min(pairs.size(), from + chunk);
+      ThreadPools.getComputePool().execute(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            alignPairs(pairs, start, end, consumer);
+          } catch (RuntimeException | Error e)
+          {
+            System.err.println("Pairwise alignment failed: " + e);
+            cancel();
+          } finally
+          {
+            if (running.decrementAndGet() == 0)
+            {
+              whenDone.run();
+            }
+          }
+        }
+      });
+    }
+  }
+
+  private static int getChunkSize(int pairCount)
+  {
+    return Math.max(MIN_CHUNK, pairCount / (THREADS * 4));
+  }
+
+  /**
+   * Aligns pairs from start (inclusive) to end (exclusive) of the list, until
+   * done or cancelled
+   *
+   * @param pairs
+   * @param start
+   * @param end
+   * @param consumer
+   */
+  protected void alignPairs(List<int[]> pairs, int start, int end,
+          PairConsumer consumer)
+  {
+    AlignSeq.Workspace ws = workspaces.poll();
+    if (ws == null)
+    {
+      ws = new AlignSeq.Workspace();
+    }
+    try
+    {
+      alignPairs(pairs, start, end, consumer, ws);
+    } finally
+    {
+      workspaces.add(ws);
+    }
+  }
+
+  private void alignPairs(List<int[]> pairs, int start, int end,
+          PairConsumer consumer, AlignSeq.Workspace ws)
+  {
+    for (int p = start; p < end && !cancelled; p++)
+    {
+      int i = pairs.get(p)[0];
+      int j = pairs.get(p)[1];
+      AlignSeq as = seqStrings == null
+              ? new AlignSeq(seqs[i], seqs[j], type)
+              : new AlignSeq(seqs[i], seqStrings[i], seqs[j],
+                      seqStrings[j], type);
+      if (as.s1str.length() > 0 && as.s2str.length() > 0)
+      {
+        as.setWorkspace(ws);
+        as.calcScoreMatrix();
+        as.traceAlignment();
+        consumer.aligned(i, j, as);
+      }
+      completed.incrementAndGet();
+    }
+  }
+
+  /**
+   * Requests the calculation to stop; pairs already being aligned are
+   * completed
+   */
+  public void cancel()
+  {
+    cancelled = true;
+  }
+
+  public boolean isCancelled()
+  {
+    return cancelled;
+  }
+
+  /**
+   * Answers the number of pairs aligned (or skipped) so far
+   *
+   * @return
+   */
+  public int getCompleted()
+  {
+    return completed.get();
+  }
+
+  /**
+   * Answers the number of pairs to align
+   *
+   * @return
+   */
+  public int getTotal()
+  {
+    return total;
+  }
+}
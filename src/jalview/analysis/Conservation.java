@@ -819,6 +819,14 @@ public class Conservation
                         minG + (maxG * vprop), minB + (maxB * vprop)));
       }
     }
+    if (conservation != null)
+    {
+      conservation.annotationsChanged();
+    }
+    if (quality2 != null)
+    {
+      quality2.annotationsChanged();
+    }
   }
 
   /**
@@ -31,12 +31,26 @@ import jalview.datamodel.SequenceFeature;
 import jalview.datamodel.SequenceI;
 import jalview.util.DBRefUtils;
 import jalview.util.MapList;
+import jalview.util.Platform;
+import jalview.util.ThreadPools;
 import jalview.ws.SequenceFetcherFactory;
 import jalview.ws.seqfetcher.ASequenceFetcher;
+import jalview.ws.seqfetcher.DbSourceProxy;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Functions for cross-referencing sequence databases.
@@ -46,6 +60,11 @@ import java.util.List;
  */
 public class CrossRef
 {
+  /*
+   * the most batches of cross-references fetched at once
+   */
+  private static final int FETCH_THREADS = 4;
+
   /*
    * the dataset of the alignment for which we are searching for 
    * cross-references; in some cases we may resolve xrefs by 
@@ -68,6 +87,39 @@ public class CrossRef
    */
   List<SequenceI> rseqs;
 
+  /*
+   * dataset sequences indexed by dbref, while finding cross-references
+   * (if null, the whole dataset is searched)
+   */
+  private DBRefIndex dbrefIndex;
+
+  /**
+   * Cross-references of a sequence which are not resolved in the dataset, so
+   * are to be fetched from the source database
+   */
+  private class PendingXrefs
+  {
+    final SequenceI seq;
+
+    final SequenceI dss;
+
+    final List<DBRefEntry> xrfs;
+
+    final List<DBRefEntry> sourceRefs;
+
+    final int datasetSize;
+
+    PendingXrefs(SequenceI seq, SequenceI dss, List<DBRefEntry> xrfs,
+            List<DBRefEntry> sourceRefs)
+    {
+      this.seq = seq;
+      this.dss = dss;
+      this.xrfs = xrfs;
+      this.sourceRefs = sourceRefs;
+      this.datasetSize = dataset.getHeight();
+    }
+  }
+
   /**
    * Constructor
    * 
@@ -100,12 +152,19 @@ public class CrossRef
   public List<String> findXrefSourcesForSequences(boolean dna)
   {
     List<String> sources = new ArrayList<>();
-    for (SequenceI seq : fromSeqs)
+    dbrefIndex = dataset == null ? null : new DBRefIndex(dataset);
+    try
     {
-      if (seq != null)
+      for (SequenceI seq : fromSeqs)
       {
-        findXrefSourcesForSequence(seq, dna, sources);
+        if (seq != null)
+        {
+          findXrefSourcesForSequence(seq, dna, sources);
+        }
       }
+    } finally
+    {
+      dbrefIndex = null;
     }
     sources.remove(DBRefSource.EMBL); // hack to prevent EMBL xrefs resulting in
                                       // redundant datasets
@@ -223,7 +282,40 @@ public class CrossRef
     rseqs = new ArrayList<>();
     AlignedCodonFrame cf = new AlignedCodonFrame();
     matcher = new SequenceIdMatcher(dataset.getSequences());
+    dbrefIndex = new DBRefIndex(dataset);
+    try
+    {
+      findXrefSequences(source, fromDna, cf);
+    } finally
+    {
+      dbrefIndex = null;
+    }
+
+    Alignment ral = null;
+    if (rseqs.size() > 0)
+    {
+      ral = new Alignment(rseqs.toArray(new SequenceI[rseqs.size()]));
+      if (!cf.isEmpty())
+      {
+        dataset.addCodonFrame(cf);
+      }
+    }
+    return ral;
+  }
 
+  /**
+   * Resolves cross-references of fromSeqs to the source database, first in the
+   * dataset, then by fetching any not found (in concurrent batches), and adds
+   * them to rseqs and their mappings to cf
+   * 
+   * @param source
+   * @param fromDna
+   * @param cf
+   */
+  private void findXrefSequences(String source, boolean fromDna,
+          AlignedCodonFrame cf)
+  {
+    List<PendingXrefs> pending = new ArrayList<>();
     for (SequenceI seq : fromSeqs)
     {
       SequenceI dss = seq;
@@ -263,149 +355,402 @@ public class CrossRef
       }
       List<DBRefEntry> sourceRefs = DBRefUtils.searchRefsForSource(xrfs,
               source);
-      Iterator<DBRefEntry> refIterator = sourceRefs.iterator();
-      // At this point, if we are retrieving Ensembl, we still don't filter out
-      // ENST when looking for protein crossrefs.
-      while (refIterator.hasNext())
+      resolveXrefs(seq, dss, sourceRefs, fromDna, cf);
+      if (!sourceRefs.isEmpty())
       {
-        DBRefEntry xref = refIterator.next();
-        found = false;
-        // we're only interested in coding cross-references, not
-        // locus->transcript
-        if (xref.hasMap() && xref.getMap().getMap().isTripletMap())
+        pending.add(new PendingXrefs(seq, dss, xrfs, sourceRefs));
+      }
+    }
+    if (pending.isEmpty())
+    {
+      return;
+    }
+
+    /*
+     * fetch from source database any dbrefs we haven't resolved up to here
+     */
+    Map<String, List<SequenceI>> fetched = fetchCrossRefs(pending,
+            fromDna);
+    for (PendingXrefs xrefs : pending)
+    {
+      if (dataset.getHeight() != xrefs.datasetSize)
+      {
+        /*
+         * sequences retrieved for earlier sequences may resolve these too
+         */
+        resolveXrefs(xrefs.seq, xrefs.dss, xrefs.sourceRefs, fromDna, cf);
+      }
+      if (!xrefs.sourceRefs.isEmpty())
+      {
+        retrieveCrossRef(xrefs.sourceRefs, xrefs.seq, xrefs.xrfs, fromDna,
+                cf, fetched);
+      }
+    }
+  }
+
+  /**
+   * Tries to resolve cross-references of a sequence from mappings on the
+   * dbrefs or from sequences in the dataset. Cross-references resolved are
+   * removed from sourceRefs.
+   * 
+   * @param seq
+   * @param dss
+   *          the dataset sequence of seq
+   * @param sourceRefs
+   * @param fromDna
+   * @param cf
+   */
+  private void resolveXrefs(SequenceI seq, SequenceI dss,
+          List<DBRefEntry> sourceRefs, boolean fromDna,
+          AlignedCodonFrame cf)
+  {
+    Iterator<DBRefEntry> refIterator = sourceRefs.iterator();
+    // At this point, if we are retrieving Ensembl, we still don't filter out
+    // ENST when looking for protein crossrefs.
+    while (refIterator.hasNext())
+    {
+      DBRefEntry xref = refIterator.next();
+      boolean found = false;
+      // we're only interested in coding cross-references, not
+      // locus->transcript
+      if (xref.hasMap() && xref.getMap().getMap().isTripletMap())
+      {
+        SequenceI mappedTo = xref.getMap().getTo();
+        if (mappedTo != null)
         {
-          SequenceI mappedTo = xref.getMap().getTo();
-          if (mappedTo != null)
+          /*
+           * dbref contains the sequence it maps to; add it to the
+           * results unless we have done so already (could happen if 
+           * fetching xrefs for sequences which have xrefs in common)
+           * for example: UNIPROT {P0CE19, P0CE20} -> EMBL {J03321, X06707}
+           */
+          found = true;
+          /*
+           * problem: matcher.findIdMatch() is lenient - returns a sequence
+           * with a dbref to the search arg e.g. ENST for ENSP - wrong
+           * but findInDataset() matches ENSP when looking for Uniprot...
+           */
+          SequenceI matchInDataset = findInDataset(xref);
+          if (matchInDataset != null && xref.getMap().getTo() != null
+                  && matchInDataset != xref.getMap().getTo())
           {
-            /*
-             * dbref contains the sequence it maps to; add it to the
-             * results unless we have done so already (could happen if 
-             * fetching xrefs for sequences which have xrefs in common)
-             * for example: UNIPROT {P0CE19, P0CE20} -> EMBL {J03321, X06707}
-             */
-            found = true;
-            /*
-             * problem: matcher.findIdMatch() is lenient - returns a sequence
-             * with a dbref to the search arg e.g. ENST for ENSP - wrong
-             * but findInDataset() matches ENSP when looking for Uniprot...
-             */
-            SequenceI matchInDataset = findInDataset(xref);
-            if (matchInDataset != null && xref.getMap().getTo() != null
-                    && matchInDataset != xref.getMap().getTo())
+            System.err.println(
+                    "Implementation problem (reopen JAL-2154): CrossRef.findInDataset seems to have recovered a different sequence than the one explicitly mapped for xref."
+                            + "Found:" + matchInDataset + "\nExpected:"
+                            + xref.getMap().getTo() + "\nFor xref:"
+                            + xref);
+          }
+          /*matcher.findIdMatch(mappedTo);*/
+          if (matchInDataset != null)
+          {
+            if (!rseqs.contains(matchInDataset))
             {
-              System.err.println(
-                      "Implementation problem (reopen JAL-2154): CrossRef.findInDataset seems to have recovered a different sequence than the one explicitly mapped for xref."
-                              + "Found:" + matchInDataset + "\nExpected:"
-                              + xref.getMap().getTo() + "\nFor xref:"
-                              + xref);
+              rseqs.add(matchInDataset);
             }
-            /*matcher.findIdMatch(mappedTo);*/
-            if (matchInDataset != null)
+            // even if rseqs contained matchInDataset - check mappings between
+            // these seqs are added
+            // need to try harder to only add unique mappings
+            if (xref.getMap().getMap().isTripletMap()
+                    && dataset.getMapping(seq, matchInDataset) == null
+                    && cf.getMappingBetween(seq, matchInDataset) == null)
             {
-              if (!rseqs.contains(matchInDataset))
-              {
-                rseqs.add(matchInDataset);
-              }
-              // even if rseqs contained matchInDataset - check mappings between
-              // these seqs are added
-              // need to try harder to only add unique mappings
-              if (xref.getMap().getMap().isTripletMap()
-                      && dataset.getMapping(seq, matchInDataset) == null
-                      && cf.getMappingBetween(seq, matchInDataset) == null)
-              {
-                // materialise a mapping for highlighting between these
-                // sequences
-                if (fromDna)
-                {
-                  cf.addMap(dss, matchInDataset, xref.getMap().getMap(),
-                          xref.getMap().getMappedFromId());
-                }
-                else
-                {
-                  cf.addMap(matchInDataset, dss,
-                          xref.getMap().getMap().getInverse(),
-                          xref.getMap().getMappedFromId());
-                }
-              }
-
-              refIterator.remove();
-              continue;
-            }
-            // TODO: need to determine if this should be a deriveSequence
-            SequenceI rsq = new Sequence(mappedTo);
-            rseqs.add(rsq);
-            if (xref.getMap().getMap().isTripletMap())
-            {
-              // get sense of map correct for adding to product alignment.
+              // materialise a mapping for highlighting between these
+              // sequences
               if (fromDna)
               {
-                // map is from dna seq to a protein product
-                cf.addMap(dss, rsq, xref.getMap().getMap(),
+                cf.addMap(dss, matchInDataset, xref.getMap().getMap(),
                         xref.getMap().getMappedFromId());
               }
               else
               {
-                // map should be from protein seq to its coding dna
-                cf.addMap(rsq, dss, xref.getMap().getMap().getInverse(),
+                cf.addMap(matchInDataset, dss,
+                        xref.getMap().getMap().getInverse(),
                         xref.getMap().getMappedFromId());
               }
             }
+
+            refIterator.remove();
+            continue;
+          }
+          // TODO: need to determine if this should be a deriveSequence
+          SequenceI rsq = new Sequence(mappedTo);
+          rseqs.add(rsq);
+          if (xref.getMap().getMap().isTripletMap())
+          {
+            // get sense of map correct for adding to product alignment.
+            if (fromDna)
+            {
+              // map is from dna seq to a protein product
+              cf.addMap(dss, rsq, xref.getMap().getMap(),
+                      xref.getMap().getMappedFromId());
+            }
+            else
+            {
+              // map should be from protein seq to its coding dna
+              cf.addMap(rsq, dss, xref.getMap().getMap().getInverse(),
+                      xref.getMap().getMappedFromId());
+            }
           }
         }
+      }
 
-        if (!found)
+      if (!found)
+      {
+        SequenceI matchedSeq = matcher.findIdMatch(
+                xref.getSource() + "|" + xref.getAccessionId());
+        // if there was a match, check it's at least the right type of
+        // molecule!
+        if (matchedSeq != null && matchedSeq.isProtein() == fromDna)
         {
-          SequenceI matchedSeq = matcher.findIdMatch(
-                  xref.getSource() + "|" + xref.getAccessionId());
-          // if there was a match, check it's at least the right type of
-          // molecule!
-          if (matchedSeq != null && matchedSeq.isProtein() == fromDna)
+          if (constructMapping(seq, matchedSeq, xref, cf, fromDna))
           {
-            if (constructMapping(seq, matchedSeq, xref, cf, fromDna))
-            {
-              found = true;
-            }
+            found = true;
           }
         }
+      }
+
+      if (!found)
+      {
+        // do a bit more work - search for sequences with references matching
+        // xrefs on this sequence.
+        found = searchDataset(fromDna, dss, xref, rseqs, cf, false,
+                DBRefUtils.SEARCH_MODE_FULL);
+      }
+      if (found)
+      {
+        refIterator.remove();
+      }
+    }
+  }
 
-        if (!found)
+  /**
+   * Fetches from the source database(s) the distinct cross-references not yet
+   * resolved. Cross-references are fetched in batches (of the maximum query
+   * size of the database), with batches fetched concurrently. Answers a map
+   * from the key of each cross-reference (see DBRefIndex.getKey) to the
+   * sequences retrieved for it.
+   * 
+   * @param pending
+   * @param fromDna
+   * @return
+   */
+  private Map<String, List<SequenceI>> fetchCrossRefs(
+          List<PendingXrefs> pending, final boolean fromDna)
+  {
+    /*
+     * collect distinct cross-references, grouped by source
+     */
+    Map<String, DBRefEntry> distinct = new LinkedHashMap<>();
+    for (PendingXrefs xrefs : pending)
+    {
+      List<DBRefEntry> refs = new ArrayList<>(xrefs.sourceRefs);
+      removeAlreadyRetrievedSeqs(refs, fromDna);
+      for (DBRefEntry ref : refs)
+      {
+        String key = DBRefIndex.getKey(ref.getSource(),
+                ref.getAccessionId());
+        if (!distinct.containsKey(key))
         {
-          // do a bit more work - search for sequences with references matching
-          // xrefs on this sequence.
-          found = searchDataset(fromDna, dss, xref, rseqs, cf, false,
-                  DBRefUtils.SEARCH_MODE_FULL);
+          distinct.put(key, ref);
         }
-        if (found)
+      }
+    }
+    Map<String, List<DBRefEntry>> bySource = new LinkedHashMap<>();
+    for (DBRefEntry ref : distinct.values())
+    {
+      String db = DBRefUtils.getCanonicalName(ref.getSource());
+      List<DBRefEntry> refs = bySource.get(db);
+      if (refs == null)
+      {
+        refs = new ArrayList<>();
+        bySource.put(db, refs);
+      }
+      refs.add(ref);
+    }
+
+    ASequenceFetcher sftch = SequenceFetcherFactory.getSequenceFetcher();
+    final Queue<List<DBRefEntry>> batches = new ConcurrentLinkedQueue<>();
+    for (Map.Entry<String, List<DBRefEntry>> entry : bySource.entrySet())
+    {
+      List<DBRefEntry> refs = entry.getValue();
+      int batchSize = getBatchSize(sftch, entry.getKey(), !fromDna);
+      for (int i = 0, n = refs.size(); i < n; i += batchSize)
+      {
+        batches.add(refs.subList(i, Math.min(n, i + batchSize)));
+      }
+    }
+
+    final Map<String, List<SequenceI>> fetched = new HashMap<>();
+    Runnable worker = new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        ASequenceFetcher fetcher = SequenceFetcherFactory
+                .getSequenceFetcher();
+        List<DBRefEntry> batch;
+        while ((batch = batches.poll()) != null)
         {
-          refIterator.remove();
+          SequenceI[] retrieved = null;
+          try
+          {
+            retrieved = fetcher.getSequences(batch, !fromDna);
+          } catch (Exception e)
+          {
+            System.err.println(
+                    "Problem whilst retrieving cross references : "
+                            + batch);
+            e.printStackTrace();
+          }
+          if (retrieved != null)
+          {
+            synchronized (fetched)
+            {
+              addFetched(batch, retrieved, fetched);
+            }
+          }
         }
       }
+    };
 
-      /*
-       * fetch from source database any dbrefs we haven't resolved up to here
-       */
-      if (!sourceRefs.isEmpty())
+    if (Platform.isJS() || ThreadPools.isPoolThread()
+            || batches.size() < 2)
+    {
+      worker.run();
+      return fetched;
+    }
+    ExecutorService pool = ThreadPools.getIOPool();
+    List<Future<?>> workers = new ArrayList<>();
+    for (int i = 0, n = Math.min(FETCH_THREADS, batches.size()); i < n; i++)
+    {
+      workers.add(pool.submit(worker));
+    }
+    for (Future<?> task : workers)
+    {
+      try
+      {
+        task.get();
+      } catch (InterruptedException e)
       {
-        retrieveCrossRef(sourceRefs, seq, xrfs, fromDna, cf);
+        Thread.currentThread().interrupt();
+        break;
+      } catch (ExecutionException e)
+      {
+        System.err.println("Problem whilst retrieving cross references");
+        e.getCause().printStackTrace();
       }
     }
+    return fetched;
+  }
 
-    Alignment ral = null;
-    if (rseqs.size() > 0)
+  /**
+   * Answers the number of accessions to request from a database in one query
+   * 
+   * @param sftch
+   * @param db
+   * @param dna
+   * @return
+   */
+  private static int getBatchSize(ASequenceFetcher sftch, String db,
+          boolean dna)
+  {
+    int size = 1;
+    List<DbSourceProxy> proxies = sftch.isFetchable(db)
+            ? sftch.getSourceProxy(db)
+            : null;
+    if (proxies != null)
     {
-      ral = new Alignment(rseqs.toArray(new SequenceI[rseqs.size()]));
-      if (!cf.isEmpty())
+      for (DbSourceProxy proxy : proxies)
       {
-        dataset.addCodonFrame(cf);
+        if (proxy.isDnaCoding() == dna)
+        {
+          size = Math.max(size, proxy.getMaximumQueryCount());
+        }
       }
     }
-    return ral;
+    return size;
   }
 
+  /**
+   * Saves the sequences retrieved for a batch of cross-references against each
+   * cross-reference that they have a dbref to. Any sequence with no dbref to
+   * one of the batch is saved against all of them.
+   * 
+   * @param batch
+   * @param retrieved
+   * @param fetched
+   */
+  static void addFetched(List<DBRefEntry> batch, SequenceI[] retrieved,
+          Map<String, List<SequenceI>> fetched)
+  {
+    Set<String> keys = new HashSet<>();
+    for (DBRefEntry ref : batch)
+    {
+      keys.add(DBRefIndex.getKey(ref.getSource(), ref.getAccessionId()));
+    }
+    for (SequenceI seq : retrieved)
+    {
+      if (seq == null)
+      {
+        continue;
+      }
+      boolean saved = false;
+      List<DBRefEntry> refs = seq.getDBRefs();
+      if (refs != null)
+      {
+        for (int i = 0, n = refs.size(); i < n; i++)
+        {
+          DBRefEntry ref = refs.get(i);
+          String key = DBRefIndex.getKey(ref.getSource(),
+                  ref.getAccessionId());
+          if (keys.contains(key))
+          {
+            addFetched(fetched, key, seq);
+            saved = true;
+          }
+        }
+      }
+      if (!saved)
+      {
+        for (String key : keys)
+        {
+          addFetched(fetched, key, seq);
+        }
+      }
+    }
+  }
+
+  private static void addFetched(Map<String, List<SequenceI>> fetched,
+          String key, SequenceI seq)
+  {
+    List<SequenceI> seqs = fetched.get(key);
+    if (seqs == null)
+    {
+      seqs = new ArrayList<>();
+      fetched.put(key, seqs);
+    }
+    if (!seqs.contains(seq))
+    {
+      seqs.add(seq);
+    }
+  }
+
+  /**
+   * Imports sequences fetched for cross-references of a sequence, adding them
+   * (and their mappings to the sequence) to the dataset
+   * 
+   * @param sourceRefs
+   * @param seq
+   * @param xrfs
+   * @param fromDna
+   * @param cf
+   * @param fetched
+   *          sequences fetched, by key of the cross-reference
+   */
   private void retrieveCrossRef(List<DBRefEntry> sourceRefs, SequenceI seq,
-          List<DBRefEntry> xrfs, boolean fromDna, AlignedCodonFrame cf)
+          List<DBRefEntry> xrfs, boolean fromDna, AlignedCodonFrame cf,
+          Map<String, List<SequenceI>> fetched)
   {
-    ASequenceFetcher sftch = SequenceFetcherFactory.getSequenceFetcher();
     SequenceI[] retrieved = null;
     SequenceI dss = seq.getDatasetSequence() == null ? seq
             : seq.getDatasetSequence();
@@ -419,15 +764,25 @@ public class CrossRef
       // the dataset.
       return;
     }
-    try
+    List<SequenceI> found = new ArrayList<>();
+    for (DBRefEntry ref : sourceRefs)
     {
-      retrieved = sftch.getSequences(sourceRefs, !fromDna);
-    } catch (Exception e)
+      List<SequenceI> seqs = fetched.get(
+              DBRefIndex.getKey(ref.getSource(), ref.getAccessionId()));
+      if (seqs != null)
+      {
+        for (SequenceI fetchedSeq : seqs)
+        {
+          if (!found.contains(fetchedSeq))
+          {
+            found.add(fetchedSeq);
+          }
+        }
+      }
+    }
+    if (!found.isEmpty())
     {
-      System.err.println(
-              "Problem whilst retrieving cross references for Sequence : "
-                      + seq.getName());
-      e.printStackTrace();
+      retrieved = found.toArray(new SequenceI[found.size()]);
     }
 
     if (retrieved != null)
@@ -491,6 +846,19 @@ public class CrossRef
   private void removeAlreadyRetrievedSeqs(List<DBRefEntry> sourceRefs,
           boolean fromDna)
   {
+    if (dbrefIndex != null)
+    {
+      dbrefIndex.refresh();
+      Iterator<DBRefEntry> it = sourceRefs.iterator();
+      while (it.hasNext())
+      {
+        if (isRetrieved(it.next(), fromDna))
+        {
+          it.remove();
+        }
+      }
+      return;
+    }
     List<DBRefEntry> dbrSourceSet = new ArrayList<>(sourceRefs);
     List<SequenceI> dsSeqs = dataset.getSequences();
     for (int ids = 0, nds = dsSeqs.size(); ids < nds; ids++)
@@ -523,6 +891,42 @@ public class CrossRef
     }
   }
 
+  /**
+   * Answers true if a dataset sequence of the type searched for has a primary
+   * reference matching the given reference
+   * 
+   * @param ref
+   * @param fromDna
+   * @return
+   */
+  private boolean isRetrieved(DBRefEntry ref, boolean fromDna)
+  {
+    if (ref.getSource() == null)
+    {
+      return false;
+    }
+    List<SequenceI> candidates = new ArrayList<>(dbrefIndex
+            .findSequences(ref.getSource(), ref.getAccessionId()));
+    candidates.addAll(dbrefIndex.findWildcards(ref.getSource()));
+    List<DBRefEntry> refs = Collections.singletonList(ref);
+    for (SequenceI sq : candidates)
+    {
+      if (sq.isProtein() == fromDna)
+      {
+        for (DBRefEntry dbr : sq.getPrimaryDBRefs())
+        {
+          if (!DBRefUtils
+                  .searchRefs(refs, dbr, DBRefUtils.SEARCH_MODE_FULL)
+                  .isEmpty())
+          {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
   /**
    * process sequence retrieved via a dbref on source sequence to resolve and
    * transfer data JBPNote: as of 2022-02-03 - this assumes retrievedSequence
@@ -623,6 +1027,10 @@ public class CrossRef
                       continue; // avoid overwriting the ref on source sequence
                     }
                     matched.addDBRef(ref); // add or update mapping
+                    if (dbrefIndex != null)
+                    {
+                      dbrefIndex.add(matched, ref);
+                    }
                   }
                 }
                 doNotAdd.add(map.getTo());
@@ -673,6 +1081,10 @@ public class CrossRef
     if (imported)
     {
       retrievedSequence.updatePDBIds();
+      if (dbrefIndex != null)
+      {
+        dbrefIndex.update(retrievedSequence);
+      }
       rseqs.add(retrievedSequence);
       if (dataset.findIndex(retrievedSequence) == -1)
       {
@@ -752,6 +1164,10 @@ public class CrossRef
     }
     DBRefEntry template = new DBRefEntry(xref.getSource(), null,
             xref.getAccessionId());
+    if (dbrefIndex != null && xref.getSource() != null && name != null)
+    {
+      return findInDatasetIndex(template, name, name2, dss);
+    }
     /**
      * remember the first ID match - in case we don't find a match to template
      */
@@ -782,6 +1198,40 @@ public class CrossRef
     return firstIdMatch;
   }
 
+  /**
+   * As findInDataset, but searching only the dataset sequences indexed with a
+   * dbref matching the template, or with a matching name
+   * 
+   * @param template
+   * @param name
+   * @param name2
+   * @param dss
+   * @return
+   */
+  private SequenceI findInDatasetIndex(DBRefEntry template, String name,
+          String name2, SequenceI dss)
+  {
+    dbrefIndex.refresh();
+    for (SequenceI seq : dbrefIndex.findSequences(template.getSource(),
+            name))
+    {
+      List<DBRefEntry> match = DBRefUtils.searchRefs(seq.getPrimaryDBRefs(),
+              template, DBRefUtils.SEARCH_MODE_FULL);
+      if (match != null && match.size() == 1 && sameSequence(seq, dss))
+      {
+        return seq;
+      }
+    }
+    for (SequenceI seq : dbrefIndex.findSequencesByName(name, name2))
+    {
+      if (sameSequence(seq, dss))
+      {
+        return seq;
+      }
+    }
+    return null;
+  }
+
   /**
    * Answers true if seq1 and seq2 contain exactly the same characters (ignoring
    * case), else false. This method compares the lengths, then each character in
@@ -1035,7 +1485,7 @@ public class CrossRef
     List<SequenceI> ds = dataset.getSequences();
     synchronized (ds)
     {
-      for (SequenceI nxt : ds)
+      for (SequenceI nxt : getCandidates(xrf, ds))
       {
         if (nxt != null)
         {
@@ -1122,4 +1572,24 @@ public class CrossRef
     }
     return found;
   }
+
+  /**
+   * Answers the dataset sequences which may have a dbref matching xrf - those
+   * indexed with its source and accession id if the index is in use, else all
+   * of them
+   * 
+   * @param xrf
+   * @param ds
+   * @return
+   */
+  private List<SequenceI> getCandidates(DBRefEntry xrf, List<SequenceI> ds)
+  {
+    if (dbrefIndex == null || xrf.getSource() == null
+            || xrf.getAccessionId() == null)
+    {
+      return ds;
+    }
+    dbrefIndex.refresh();
+    return dbrefIndex.findSequences(xrf.getSource(), xrf.getAccessionId());
+  }
 }
@@ -0,0 +1,286 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.analysis;
+
+import jalview.datamodel.AlignmentI;
+import jalview.datamodel.DBRefEntry;
+import jalview.datamodel.SequenceI;
+import jalview.util.DBRefUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An index of the sequences of an alignment dataset by the (canonical) source
+ * and accession id of their database references, and by name. This lets
+ * CrossRef find the dataset sequences sharing a reference with a sequence
+ * without searching every reference of every sequence in the dataset.
+ * <p>
+ * Sequences are always answered in dataset order, so results are the same as
+ * for a search of the whole dataset. Sequences added to the dataset are
+ * indexed on the next call to <code>refresh</code>; references added to an
+ * indexed sequence must be indexed by calling <code>add</code>.
+ */
+class DBRefIndex
+{
+  private final AlignmentI dataset;
+
+  /*
+   * sequences keyed by canonical source and accession id of any of their
+   * dbrefs
+   */
+  private final Map<String, List<SequenceI>> byAccession = new HashMap<>();
+
+  /*
+   * sequences with a dbref with no accession id, keyed by canonical source
+   */
+  private final Map<String, List<SequenceI>> wildcards = new HashMap<>();
+
+  private final TreeMap<String, List<SequenceI>> byName = new TreeMap<>();
+
+  /*
+   * position of each indexed sequence in the dataset
+   */
+  private final Map<SequenceI, Integer> positions = new IdentityHashMap<>();
+
+  private final Comparator<SequenceI> datasetOrder = new Comparator<SequenceI>()
+  {
+    @Override
+    public int compare(SequenceI o1, SequenceI o2)
+    {
+      return Integer.compare(positions.get(o1), positions.get(o2));
+    }
+  };
+
+  private int indexed;
+
+  /**
+   * Constructor
+   *
+   * @param dataset
+   */
+  DBRefIndex(AlignmentI dataset)
+  {
+    this.dataset = dataset;
+    refresh();
+  }
+
+  /**
+   * Indexes any sequences added to the dataset since the last refresh (or
+   * reindexes the dataset if sequences have been removed from it)
+   */
+  void refresh()
+  {
+    List<SequenceI> seqs = dataset.getSequences();
+    if (seqs == null)
+    {
+      return;
+    }
+    synchronized (seqs)
+    {
+      if (seqs.size() < indexed)
+      {
+        byAccession.clear();
+        wildcards.clear();
+        byName.clear();
+        positions.clear();
+        indexed = 0;
+      }
+      for (int i = indexed, n = seqs.size(); i < n; i++)
+      {
+        SequenceI seq = seqs.get(i);
+        if (seq == null || positions.containsKey(seq))
+        {
+          continue;
+        }
+        positions.put(seq, i);
+        if (seq.getName() != null)
+        {
+          addTo(byName, seq.getName(), seq);
+        }
+        update(seq);
+      }
+      indexed = seqs.size();
+    }
+  }
+
+  /**
+   * Indexes any database references added to a sequence in the dataset
+   *
+   * @param seq
+   */
+  void update(SequenceI seq)
+  {
+    List<DBRefEntry> refs = seq.getDBRefs();
+    if (refs != null && positions.containsKey(seq))
+    {
+      for (int i = 0, n = refs.size(); i < n; i++)
+      {
+        add(seq, refs.get(i));
+      }
+    }
+  }
+
+  /**
+   * Indexes a database reference of a sequence in the dataset
+   *
+   * @param seq
+   * @param ref
+   */
+  void add(SequenceI seq, DBRefEntry ref)
+  {
+    if (ref == null || ref.getSource() == null
+            || !positions.containsKey(seq))
+    {
+      return;
+    }
+    if (ref.getAccessionId() == null)
+    {
+      addTo(wildcards, DBRefUtils.getCanonicalName(ref.getSource()), seq);
+    }
+    else
+    {
+      addTo(byAccession, getKey(ref.getSource(), ref.getAccessionId()),
+              seq);
+    }
+  }
+
+  /**
+   * Answers the dataset sequences (in dataset order) with a database reference
+   * with the given source (or an equivalent) and accession id
+   *
+   * @param source
+   * @param accessionId
+   * @return
+   */
+  List<SequenceI> findSequences(String source, String accessionId)
+  {
+    List<SequenceI> seqs = byAccession.get(getKey(source, accessionId));
+    return seqs == null ? Collections.<SequenceI> emptyList() : seqs;
+  }
+
+  /**
+   * Answers the dataset sequences (in dataset order) with a database reference
+   * with the given source (or an equivalent) and no accession id
+   *
+   * @param source
+   * @return
+   */
+  List<SequenceI> findWildcards(String source)
+  {
+    List<SequenceI> seqs = wildcards
+            .get(DBRefUtils.getCanonicalName(source));
+    return seqs == null ? Collections.<SequenceI> emptyList() : seqs;
+  }
+
+  /**
+   * Answers the dataset sequences (in dataset order) whose name is equal to
+   * <code>name</code> or starts with <code>prefix</code>
+   *
+   * @param name
+   * @param prefix
+   * @return
+   */
+  List<SequenceI> findSequencesByName(String name, String prefix)
+  {
+    List<SequenceI> found = new ArrayList<>();
+    List<SequenceI> named = byName.get(name);
+    if (named != null)
+    {
+      found.addAll(named);
+    }
+    for (List<SequenceI> seqs : byName
+            .subMap(prefix, true, prefix + Character.MAX_VALUE, true)
+            .values())
+    {
+      for (SequenceI seq : seqs)
+      {
+        if (!containsSequence(found, seq))
+        {
+          found.add(seq);
+        }
+      }
+    }
+    Collections.sort(found, datasetOrder);
+    return found;
+  }
+
+  /**
+   * Answers the key under which a reference is indexed
+   *
+   * @param source
+   * @param accessionId
+   * @return
+   */
+  static String getKey(String source, String accessionId)
+  {
+    return DBRefUtils.getCanonicalName(source) + "|" + accessionId;
+  }
+
+  /**
+   * Adds a sequence to the list for a key (unless already present), keeping
+   * the list in dataset order
+   *
+   * @param map
+   * @param key
+   * @param seq
+   */
+  private void addTo(Map<String, List<SequenceI>> map, String key,
+          SequenceI seq)
+  {
+    List<SequenceI> seqs = map.get(key);
+    if (seqs == null)
+    {
+      seqs = new ArrayList<>(2);
+      map.put(key, seqs);
+    }
+    if (containsSequence(seqs, seq))
+    {
+      return;
+    }
+    int pos = positions.get(seq);
+    int i = seqs.size();
+    while (i > 0 && positions.get(seqs.get(i - 1)) > pos)
+    {
+      i--;
+    }
+    seqs.add(i, seq);
+  }
+
+  private static boolean containsSequence(List<SequenceI> seqs,
+          SequenceI seq)
+  {
+    for (int i = 0, n = seqs.size(); i < n; i++)
+    {
+      if (seqs.get(i) == seq)
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,331 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jalview.util.Comparison;
+import jalview.util.Platform;
+import jalview.util.ThreadPools;
+
+/**
+ * Computes the redundancy vector used by the redundancy filter: for each
+ * sequence, the highest percentage identity (as computed by
+ * PIDModel.computePID, matching gaps and dividing by the shorter length) with
+ * any other sequence that is at least as long (ungapped).
+ * <p>
+ * Each sequence is encoded once, with its residue composition. As only the
+ * maximum PID for each sequence is wanted, a pair is skipped if an upper bound
+ * on its PID (from the composition of the two sequences) cannot exceed the
+ * maximum found so far; and counting of mismatches stops as soon as it can no
+ * longer do so. Rows of the all-against-all comparison are shared out among
+ * worker threads, each keeping its own maxima, which are merged at the end;
+ * the result is the same as comparing every pair.
+ */
+public class RedundancyCalculator
+{
+  /*
+   * composition buckets: A-Z, and one for any other symbol
+   */
+  private static final int BUCKETS = 27;
+
+  private static final char GAP = 0;
+
+  private static final int THREADS = ThreadPools.getComputeThreads();
+
+  /*
+   * rows of the comparison handed to a worker at a time
+   */
+  private static final int ROWS_PER_TASK = 16;
+
+  private final char[][] residues;
+
+  private final int[][] composition;
+
+  /*
+   * count of non-gap characters in each sequence
+   */
+  private final int[] ungappedLength;
+
+  private final int height;
+
+  /**
+   * Constructor given the sequence strings to compare
+   *
+   * @param seqs
+   * @param ungapped
+   *          if true, gaps are removed before comparing sequences
+   */
+  public RedundancyCalculator(String[] seqs, boolean ungapped)
+  {
+    height = seqs.length;
+    residues = new char[height][];
+    composition = new int[height][];
+    ungappedLength = new int[height];
+    for (int i = 0; i < height; i++)
+    {
+      encode(i, ungapped ? AlignSeq.extractGaps(Comparison.GapChars,
+              seqs[i]) : seqs[i]);
+    }
+  }
+
+  /**
+   * Encodes sequence i as upper case characters, with gaps as zero, and counts
+   * its residue composition
+   *
+   * @param i
+   * @param seq
+   */
+  private void encode(int i, String seq)
+  {
+    char[] encoded = new char[seq.length()];
+    int[] counts = new int[BUCKETS];
+    int ungapped = 0;
+    for (int k = 0; k < encoded.length; k++)
+    {
+      char c = seq.charAt(k);
+      if (Comparison.isGap(c))
+      {
+        encoded[k] = GAP;
+        continue;
+      }
+      if ('a' <= c && c <= 'z')
+      {
+        c += 'A' - 'a';
+      }
+      encoded[k] = c;
+      counts['A' <= c && c <= 'Z' ? c - 'A' : BUCKETS - 1]++;
+      ungapped++;
+    }
+    residues[i] = encoded;
+    composition[i] = counts;
+    ungappedLength[i] = ungapped;
+  }
+
+  /**
+   * Answers the redundancy vector, containing for each sequence the maximum
+   * PID with any sequence that is not shorter
+   *
+   * @return
+   */
+  public float[] compute()
+  {
+    final AtomicInteger nextRow = new AtomicInteger(height - 1);
+    int workers = Platform.isJS() || ThreadPools.isPoolThread() ? 1
+            : Math.min(THREADS, Math.max(1, height / ROWS_PER_TASK));
+    if (workers == 1)
+    {
+      float[] redundancy = new float[height];
+      computeRows(nextRow, redundancy);
+      return redundancy;
+    }
+
+    ExecutorService pool = ThreadPools.getComputePool();
+    List<Future<float[]>> futures = new ArrayList<>();
+    for (int w = 0; w < workers; w++)
+    {
+      futures.add(pool.submit(new Callable<float[]>()
+      {
+        @Override
+        public float[] call()
+        {
+          float[] maxima = new float[height];
+          computeRows(nextRow, maxima);
+          return maxima;
+        }
+      }));
+    }
+
+    float[] redundancy = new float[height];
+    for (Future<float[]> future : futures)
+    {
+      float[] maxima;
+      try
+      {
+        maxima = future.get();
+      } catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        return redundancy;
+      } catch (ExecutionException e)
+      {
+        throw new RuntimeException(e.getCause());
+      }
+      for (int i = 0; i < height; i++)
+      {
+        redundancy[i] = Math.max(redundancy[i], maxima[i]);
+      }
+    }
+    return redundancy;
+  }
+
+  /**
+   * Takes rows (from the highest) until all are done, comparing sequence i
+   * with each sequence j < i, and recording the maximum PID found for each
+   * sequence
+   *
+   * @param nextRow
+   * @param maxima
+   */
+  protected void computeRows(AtomicInteger nextRow, float[] maxima)
+  {
+    int last;
+    while ((last = nextRow.getAndAdd(-ROWS_PER_TASK)) > 0)
+    {
+      int first = Math.max(1, last - ROWS_PER_TASK + 1);
+      for (int i = last; i >= first; i--)
+      {
+        for (int j = 0; j < i; j++)
+        {
+          /*
+           * PID is assigned to the (ungapped) shorter sequence
+           */
+          int target = ungappedLength[j] < ungappedLength[i] ? j : i;
+          float pid = computePID(i, j, maxima[target]);
+          if (pid > maxima[target])
+          {
+            maxima[target] = pid;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Answers the PID of sequences i and j, if it is greater than the given
+   * value; otherwise, returns a value no greater than it (without necessarily
+   * completing the comparison)
+   *
+   * @param i
+   * @param j
+   * @param toBeat
+   * @return
+   */
+  float computePID(int i, int j, float toBeat)
+  {
+    char[] s1 = residues[i];
+    char[] s2 = residues[j];
+    int length = Math.min(s1.length, s2.length);
+    if (length == 0)
+    {
+      return 0f;
+    }
+
+    /*
+     * skip the pair if the composition bound rules it out
+     */
+    if (pid(length, mismatchLowerBound(i, j, length)) <= toBeat)
+    {
+      return toBeat;
+    }
+
+    int limit = mismatchLimit(length, toBeat);
+    int mismatches = 0;
+    for (int k = 0; k < length; k++)
+    {
+      char c1 = s1[k];
+      char c2 = s2[k];
+      if (c1 != c2 && c1 != GAP && c2 != GAP)
+      {
+        if (++mismatches >= limit)
+        {
+          return toBeat;
+        }
+      }
+    }
+    return pid(length, mismatches);
+  }
+
+  /**
+   * Answers a lower bound on the number of mismatched residues when comparing
+   * sequences i and j. Residue-residue columns number at least (ungapped
+   * length i + ungapped length j - length), and at most the composition
+   * overlap of these can be identities. This is only computed when both
+   * sequences have the given length (else zero is returned).
+   *
+   * @param i
+   * @param j
+   * @param length
+   * @return
+   */
+  int mismatchLowerBound(int i, int j, int length)
+  {
+    if (residues[i].length != length || residues[j].length != length)
+    {
+      return 0;
+    }
+    int residuePairs = ungappedLength[i] + ungappedLength[j] - length;
+    if (residuePairs <= 0)
+    {
+      return 0;
+    }
+    int[] c1 = composition[i];
+    int[] c2 = composition[j];
+    int maxMatches = 0;
+    for (int b = 0; b < BUCKETS; b++)
+    {
+      maxMatches += Math.min(c1[b], c2[b]);
+    }
+    return Math.max(0, residuePairs - maxMatches);
+  }
+
+  /**
+   * Answers the least number of mismatches for which the PID is no greater
+   * than the given value
+   *
+   * @param length
+   * @param toBeat
+   * @return
+   */
+  static int mismatchLimit(int length, float toBeat)
+  {
+    int limit = (int) Math.ceil(length * (1D - toBeat / 100D));
+    limit = Math.max(0, Math.min(length, limit));
+    while (limit > 0 && pid(length, limit - 1) <= toBeat)
+    {
+      limit--;
+    }
+    while (limit < length && pid(length, limit) > toBeat)
+    {
+      limit++;
+    }
+    return limit;
+  }
+
+  /**
+   * Answers the percentage identity as computed by PIDModel.computePID (with
+   * gaps matched and included, dividing by the shorter sequence length)
+   *
+   * @param length
+   * @param mismatches
+   * @return
+   */
+  static float pid(int length, int mismatches)
+  {
+    return (float) (100D * (length - mismatches) / length);
+  }
+}
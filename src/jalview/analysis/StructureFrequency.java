@@ -20,20 +20,30 @@
  */
 package jalview.analysis;
 
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import jalview.datamodel.AlignmentAnnotation;
 import jalview.datamodel.Annotation;
 import jalview.datamodel.SequenceFeature;
 import jalview.datamodel.SequenceI;
+import jalview.datamodel.StructureProfiles;
 import jalview.util.Comparison;
 import jalview.util.Format;
-
-import java.util.Hashtable;
+import jalview.util.Platform;
+import jalview.util.ThreadPools;
 
 /**
- * Takes in a vector or array of sequences and column start and column end and
- * returns a new Hashtable[] of size maxSeqLength, if Hashtable not supplied.
- * This class is used extensively in calculating alignment colourschemes that
- * depend on the amount of conservation in each alignment column.
+ * Calculates a base pair consensus for an RNA alignment with a secondary
+ * structure annotation. For each base paired column, the pairs of residues at
+ * the 5' and 3' positions are counted, and the consensus records whether most
+ * pairs are canonical, wobble or other pairs.
+ * <p>
+ * Pair partners are looked up once for all columns, and results are held in
+ * primitive arrays in a StructureProfiles object. Counting of paired columns
+ * is shared out among worker threads for large alignments.
  * 
  * @author $author$
  * @version $Revision$
@@ -42,19 +52,30 @@ public class StructureFrequency
 {
   public static final int STRUCTURE_PROFILE_LENGTH = 74;
 
-  // No need to store 1000s of strings which are not
-  // visible to the user.
-  public static final String MAXCOUNT = "C";
+  /*
+   * indices of per-column tallies of base pairs
+   */
+  private static final int CANONICAL_OR_WOBBLE = 0;
+
+  private static final int CANONICAL = 1;
+
+  private static final int OTHER = 2;
 
-  public static final String MAXRESIDUE = "R";
+  private static final int NON_GAPPED = 3;
 
-  public static final String PID_GAPS = "G";
+  private static final int GAPPED = 4;
 
-  public static final String PID_NOGAPS = "N";
+  private static final int THREADS = ThreadPools.getComputeThreads();
 
-  public static final String PROFILE = "P";
+  /*
+   * paired columns handed to a worker at a time
+   */
+  private static final int COLUMNS_PER_TASK = 32;
 
-  public static final String PAIRPROFILE = "B";
+  /*
+   * minimum number of residue pairs to count before using worker threads
+   */
+  private static final int PARALLEL_THRESHOLD = 1 << 18;
 
   /**
    * Returns the 3' position of a base pair
@@ -81,202 +102,331 @@ public class StructureFrequency
     return -1;
   }
 
+  /**
+   * Answers an array holding, for each 5' position of a base pair, the 3'
+   * position (as found by findPair), or -1
+   * 
+   * @param pairs
+   * @param width
+   * @return
+   */
+  public static int[] findPairs(SequenceFeature[] pairs, int width)
+  {
+    int[] partners = new int[width];
+    Arrays.fill(partners, -1);
+    if (pairs != null)
+    {
+      /*
+       * work backwards so that the first pair for a position is kept
+       */
+      for (int i = pairs.length - 1; i >= 0; i--)
+      {
+        int begin = pairs[i].getBegin();
+        if (begin >= 0 && begin < width)
+        {
+          partners[begin] = pairs[i].getEnd();
+        }
+      }
+    }
+    return partners;
+  }
+
   /**
    * Method to calculate a 'base pair consensus row', very similar to nucleotide
-   * consensus but takes into account a given structure
+   * consensus but takes into account a given structure. Results for columns
+   * from start to end (exclusive), and their paired columns, are set in the
+   * result object (which determines whether base pair counts are saved).
    * 
    * @param sequences
    * @param start
    * @param end
    * @param result
-   * @param profile
    * @param rnaStruc
    */
   public static final void calculate(SequenceI[] sequences, int start,
-          int end, Hashtable<String, Object>[] result, boolean profile,
-          AlignmentAnnotation rnaStruc)
+          int end, StructureProfiles result, AlignmentAnnotation rnaStruc)
   {
-
-    Hashtable<String, Object> residueHash;
-    String maxResidue;
     char[] struc = rnaStruc.getRNAStruc().toCharArray();
-
-    SequenceFeature[] rna = rnaStruc._rnasecstr;
-    char c, s, cEnd;
-    int bpEnd = -1;
-    int jSize = sequences.length;
-    int[] values;
-    int[][] pairs;
-    float percentage;
-
-    for (int i = start; i < end; i++) // foreach column
+    int width = result.getWidth();
+    end = Math.min(end, width);
+    int[] partners = findPairs(rnaStruc._rnasecstr, width);
+
+    /*
+     * find and count the paired columns
+     */
+    int[] paired = new int[Math.max(0, end - start)];
+    int pairedCount = 0;
+    for (int i = start; i < end; i++)
     {
-      int canonicalOrWobblePairCount = 0, canonical = 0;
-      int otherPairCount = 0;
-      int nongap = 0;
-      maxResidue = "-";
-      values = new int[255];
-      pairs = new int[255][255];
-      bpEnd = -1;
-      if (i < struc.length)
+      if (i < struc.length && Rna.isOpeningParenthesis(struc[i])
+              && partners[i] > -1)
       {
-        s = struc[i];
-      }
-      else
-      {
-        s = '-';
+        paired[pairedCount++] = i;
       }
+    }
+    int[][] tallies = new int[5][width];
+    int[][] pairCounts = result.hasPairCounts() ? new int[width][] : null;
+    countPairs(sequences, paired, pairedCount, partners, tallies,
+            pairCounts);
+
+    for (int i = start; i < end; i++) // foreach column
+    {
+      char s = i < struc.length ? struc[i] : '-';
       if (s == '.' || s == ' ')
       {
         s = '-';
       }
-
-      if (!Rna.isOpeningParenthesis(s))
+      int bpEnd = Rna.isOpeningParenthesis(s) ? partners[i] : -1;
+      int canonicalOrWobblePairCount = 0, canonical = 0;
+      int otherPairCount = 0;
+      int nongap = 0;
+      int gapped = 0;
+      int[] pairs = null;
+      if (bpEnd > -1)
       {
-        if (s == '-')
-        {
-          values['-']++;
-        }
+        canonicalOrWobblePairCount = tallies[CANONICAL_OR_WOBBLE][i];
+        canonical = tallies[CANONICAL][i];
+        otherPairCount = tallies[OTHER][i];
+        nongap = tallies[NON_GAPPED][i];
+        gapped = tallies[GAPPED][i];
+        pairs = pairCounts == null ? null : pairCounts[i];
       }
-      else
+      else if (s == '-')
       {
-        bpEnd = findPair(rna, i);
-
-        if (bpEnd > -1)
-        {
-          for (int j = 0; j < jSize; j++) // foreach row
-          {
-            if (sequences[j] == null)
-            {
-              System.err.println(
-                      "WARNING: Consensus skipping null sequence - possible race condition.");
-              continue;
-            }
-
-            c = sequences[j].getCharAt(i);
-            cEnd = sequences[j].getCharAt(bpEnd);
-
-            if (Comparison.isGap(c) || Comparison.isGap(cEnd))
-            {
-              values['-']++;
-              continue;
-            }
-            nongap++;
-            /*
-             * ensure upper-case for counting purposes
-             */
-            if ('a' <= c && 'z' >= c)
-            {
-              c += 'A' - 'a';
-            }
-            if ('a' <= cEnd && 'z' >= cEnd)
-            {
-              cEnd += 'A' - 'a';
-            }
-            if (Rna.isCanonicalOrWobblePair(c, cEnd))
-            {
-              canonicalOrWobblePairCount++;
-              if (Rna.isCanonicalPair(c, cEnd))
-              {
-                canonical++;
-              }
-            }
-            else
-            {
-              otherPairCount++;
-            }
-            pairs[c][cEnd]++;
-          }
-        }
-      }
-
-      residueHash = new Hashtable<>();
-      if (profile)
-      {
-        // TODO 1-dim array with jsize in [0], nongapped in [1]; or Pojo
-        residueHash.put(PROFILE,
-                new int[][]
-                { values, new int[] { jSize, (jSize - values['-']) } });
-
-        residueHash.put(PAIRPROFILE, pairs);
+        gapped = 1;
       }
-      values['('] = canonicalOrWobblePairCount;
-      values['['] = canonical;
-      values['{'] = otherPairCount;
-      /*
-       * the count is the number of valid pairs (as a percentage, determines
-       * the relative size of the profile logo)
-       */
-      int count = canonicalOrWobblePairCount;
 
       /*
        * display '(' if most pairs are canonical, or as
        * '[' if there are more wobble pairs. 
        */
+      char maxResidue = '-';
       if (canonicalOrWobblePairCount > 0 || otherPairCount > 0)
       {
         if (canonicalOrWobblePairCount >= otherPairCount)
         {
           maxResidue = (canonicalOrWobblePairCount - canonical) < canonical
-                  ? "("
-                  : "[";
+                  ? '('
+                  : '[';
         }
         else
         {
-          maxResidue = "{";
+          maxResidue = '{';
         }
       }
-      residueHash.put(MAXCOUNT, Integer.valueOf(count));
-      residueHash.put(MAXRESIDUE, maxResidue);
 
-      percentage = ((float) count * 100) / jSize;
-      residueHash.put(PID_GAPS, Float.valueOf(percentage));
+      /*
+       * the count is the number of valid pairs (as a percentage, determines
+       * the relative size of the profile logo)
+       */
+      if (!result.isCalculated(i))
+      {
+        result.setColumn(i, maxResidue, canonicalOrWobblePairCount, nongap,
+                gapped, pairs);
+      }
+      if (bpEnd > 0 && bpEnd < width)
+      {
+        char closing = maxResidue == '(' ? ')'
+                : maxResidue == '[' ? ']' : '}';
+        result.setColumn(bpEnd, closing, canonicalOrWobblePairCount,
+                nongap, gapped, pairs);
+      }
+    }
+  }
 
-      percentage = ((float) count * 100) / nongap;
-      residueHash.put(PID_NOGAPS, Float.valueOf(percentage));
+  /**
+   * Counts base pairs for the given 5' columns and their partners, setting
+   * tallies for each column, and base pair counts if pairCounts is not null.
+   * Large calculations are divided among worker threads (each column's
+   * results are written by one thread only).
+   * 
+   * @param sequences
+   * @param paired
+   * @param pairedCount
+   * @param partners
+   * @param tallies
+   * @param pairCounts
+   */
+  static void countPairs(final SequenceI[] sequences, final int[] paired,
+          final int pairedCount, final int[] partners,
+          final int[][] tallies, final int[][] pairCounts)
+  {
+    final AtomicInteger next = new AtomicInteger();
+    int workers = Platform.isJS() || ThreadPools.isPoolThread() ? 1
+            : Math.min(THREADS, pairedCount / COLUMNS_PER_TASK);
+    if (workers < 2
+            || (long) pairedCount * sequences.length < PARALLEL_THRESHOLD)
+    {
+      countColumns(sequences, paired, pairedCount, partners, tallies,
+              pairCounts, next);
+      return;
+    }
 
-      if (result[i] == null)
+    Future<?>[] futures = new Future<?>[workers];
+    for (int w = 0; w < workers; w++)
+    {
+      futures[w] = ThreadPools.getComputePool().submit(new Runnable()
       {
-        result[i] = residueHash;
-      }
-      if (bpEnd > 0)
+        @Override
+        public void run()
+        {
+          countColumns(sequences, paired, pairedCount, partners, tallies,
+                  pairCounts, next);
+        }
+      });
+    }
+    for (Future<?> future : futures)
+    {
+      try
       {
-        values[')'] = values['('];
-        values[']'] = values['['];
-        values['}'] = values['{'];
-        values['('] = 0;
-        values['['] = 0;
-        values['{'] = 0;
-        maxResidue = maxResidue.equals("(") ? ")"
-                : maxResidue.equals("[") ? "]" : "}";
-
-        residueHash = new Hashtable<>();
-        if (profile)
+        future.get();
+      } catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e)
+      {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException)
+        {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error)
         {
-          residueHash.put(PROFILE,
-                  new int[][]
-                  { values, new int[] { jSize, (jSize - values['-']) } });
+          throw (Error) cause;
+        }
+        throw new RuntimeException(cause);
+      }
+    }
+  }
 
-          residueHash.put(PAIRPROFILE, pairs);
+  /**
+   * Takes blocks of paired columns until all are counted
+   */
+  private static void countColumns(SequenceI[] sequences, int[] paired,
+          int pairedCount, int[] partners, int[][] tallies,
+          int[][] pairCounts, AtomicInteger next)
+  {
+    int[] scratch = pairCounts == null
+            ? new int[StructureProfiles.PAIR_COUNTS_LENGTH]
+            : null;
+    int from;
+    while ((from = next.getAndAdd(COLUMNS_PER_TASK)) < pairedCount)
+    {
+      int to = Math.min(pairedCount, from + COLUMNS_PER_TASK);
+      for (int p = from; p < to; p++)
+      {
+        int i = paired[p];
+        int[] counts = scratch;
+        if (pairCounts != null)
+        {
+          counts = new int[StructureProfiles.PAIR_COUNTS_LENGTH];
+          pairCounts[i] = counts;
         }
+        countColumn(sequences, i, partners[i], tallies, counts,
+                scratch != null);
+      }
+    }
+  }
 
-        residueHash.put(MAXCOUNT, Integer.valueOf(count));
-        residueHash.put(MAXRESIDUE, maxResidue);
+  /**
+   * Counts the residue pairs at columns i and bpEnd. Pairs of letters are
+   * counted (upper-cased) in the counts array, and afterwards classified as
+   * canonical, wobble or other pairs; pairs involving any other symbol are
+   * other pairs. If clear is true, the counts array is reset to zero after
+   * use.
+   * 
+   * @param sequences
+   * @param i
+   * @param bpEnd
+   * @param tallies
+   * @param counts
+   * @param clear
+   */
+  private static void countColumn(SequenceI[] sequences, int i, int bpEnd,
+          int[][] tallies, int[] counts, boolean clear)
+  {
+    int otherPairCount = 0;
+    int nongap = 0;
+    int gapped = 0;
+    for (int j = 0; j < sequences.length; j++) // foreach row
+    {
+      SequenceI seq = sequences[j];
+      if (seq == null)
+      {
+        System.err.println(
+                "WARNING: Consensus skipping null sequence - possible race condition.");
+        continue;
+      }
 
-        percentage = ((float) count * 100) / jSize;
-        residueHash.put(PID_GAPS, Float.valueOf(percentage));
+      char c = seq.getCharAt(i);
+      char cEnd = seq.getCharAt(bpEnd);
 
-        percentage = ((float) count * 100) / nongap;
-        residueHash.put(PID_NOGAPS, Float.valueOf(percentage));
+      if (Comparison.isGap(c) || Comparison.isGap(cEnd))
+      {
+        gapped++;
+        continue;
+      }
+      nongap++;
+      /*
+       * ensure upper-case for counting purposes
+       */
+      if ('a' <= c && 'z' >= c)
+      {
+        c += 'A' - 'a';
+      }
+      if ('a' <= cEnd && 'z' >= cEnd)
+      {
+        cEnd += 'A' - 'a';
+      }
+      if ('A' <= c && c <= 'Z' && 'A' <= cEnd && cEnd <= 'Z')
+      {
+        counts[StructureProfiles.getPairIndex(c, cEnd)]++;
+      }
+      else
+      {
+        otherPairCount++;
+      }
+    }
 
-        result[bpEnd] = residueHash;
+    int canonicalOrWobblePairCount = 0;
+    int canonical = 0;
+    for (int p = 0; p < counts.length; p++)
+    {
+      int n = counts[p];
+      if (n == 0)
+      {
+        continue;
+      }
+      char c = (char) ('A' + p / 26);
+      char cEnd = (char) ('A' + p % 26);
+      if (Rna.isCanonicalOrWobblePair(c, cEnd))
+      {
+        canonicalOrWobblePairCount += n;
+        if (Rna.isCanonicalPair(c, cEnd))
+        {
+          canonical += n;
+        }
+      }
+      else
+      {
+        otherPairCount += n;
+      }
+      if (clear)
+      {
+        counts[p] = 0;
       }
     }
+    tallies[CANONICAL_OR_WOBBLE][i] = canonicalOrWobblePairCount;
+    tallies[CANONICAL][i] = canonical;
+    tallies[OTHER][i] = otherPairCount;
+    tallies[NON_GAPPED][i] = nongap;
+    tallies[GAPPED][i] = gapped;
   }
 
   /**
    * Compute all or part of the annotation row from the given consensus
-   * hashtable
+   * profiles
    * 
    * @param consensus
    *          - pre-allocated annotation row
@@ -287,7 +437,7 @@ public class StructureFrequency
    * @param includeAllConsSymbols
    */
   public static void completeConsensus(AlignmentAnnotation consensus,
-          Hashtable<String, Object>[] hconsensus, int iStart, int width,
+          StructureProfiles hconsensus, int iStart, int width,
           boolean ignoreGapsInConsensusCalculation,
           boolean includeAllConsSymbols, long nseq)
   {
@@ -314,77 +464,30 @@ public class StructureFrequency
 
     for (int i = iStart; i < width; i++)
     {
-      Hashtable<String, Object> hci;
-      if (i >= hconsensus.length || ((hci = hconsensus[i]) == null))
+      if (!hconsensus.isCalculated(i))
       {
         // happens if sequences calculated over were shorter than alignment
         // width
         consensus.annotations[i] = null;
         continue;
       }
-      value = 0;
-      Float fv;
-      if (ignoreGapsInConsensusCalculation)
-      {
-        fv = (Float) hci.get(StructureFrequency.PID_NOGAPS);
-      }
-      else
-      {
-        fv = (Float) hci.get(StructureFrequency.PID_GAPS);
-      }
-      if (fv == null)
-      {
-        consensus.annotations[i] = null;
-        // data has changed below us .. give up and
-        continue;
-      }
-      value = fv.floatValue();
-      String maxRes = hci.get(StructureFrequency.MAXRESIDUE).toString();
-      String mouseOver = hci.get(StructureFrequency.MAXRESIDUE) + " ";
-      if (maxRes.length() > 1)
-      {
-        mouseOver = "[" + maxRes + "] ";
-        maxRes = "+";
-      }
-      int[][] profile = (int[][]) hci.get(StructureFrequency.PROFILE);
-      int[][] pairs = (int[][]) hci.get(StructureFrequency.PAIRPROFILE);
+      value = hconsensus.getPercentageIdentity(i,
+              ignoreGapsInConsensusCalculation);
+      String maxRes = String.valueOf(hconsensus.getMaxResidue(i));
+      String mouseOver = maxRes + " ";
 
-      if (pairs != null && includeAllConsSymbols) // Just responsible for the
-      // tooltip
+      if (hconsensus.hasPairCounts() && includeAllConsSymbols) // Just
+      // responsible for the tooltip
       // TODO Update tooltips for Structure row
       {
         mouseOver = "";
-
-        /*
-         * TODO It's not sure what is the purpose of the alphabet and wheter it
-         * is useful for structure?
-         * 
-         * if (alphabet != null) { for (int c = 0; c < alphabet.length; c++) {
-         * tval = ((float) profile[0][alphabet[c]]) 100f / (float)
-         * profile[1][ignoreGapsInConsensusCalculation ? 1 : 0]; mouseOver +=
-         * ((c == 0) ? "" : "; ") + alphabet[c] + " " + ((int) tval) + "%"; } }
-         * else {
-         */
         int[][] ca = new int[625][];
         float[] vl = new float[625];
-        int x = 0;
-        for (int c = 65; c < 90; c++)
-        {
-          for (int d = 65; d < 90; d++)
-          {
-            ca[x] = new int[] { c, d };
-            vl[x] = pairs[c][d];
-            x++;
-          }
-        }
-        jalview.util.QuickSort.sort(vl, ca);
+        sortPairs(hconsensus.getPairCounts(i), ca, vl);
         int p = 0;
 
-        /*
-         * profile[1] is {total, ungappedTotal}
-         */
-        final int divisor = profile[1][ignoreGapsInConsensusCalculation ? 1
-                : 0];
+        final int divisor = getDivisor(hconsensus, i,
+                ignoreGapsInConsensusCalculation);
         for (int c = 624; c > 0; c--)
         {
           if (vl[c] > 0)
@@ -396,8 +499,6 @@ public class StructureFrequency
 
           }
         }
-
-        // }
       }
       else
       {
@@ -406,48 +507,79 @@ public class StructureFrequency
       consensus.annotations[i] = new Annotation(maxRes, mouseOver, ' ',
               value);
     }
+    consensus.annotationsChanged();
   }
 
   /**
-   * get the sorted base-pair profile for the given position of the consensus
+   * Answers the number of sequences, or of sequences without a gap at either
+   * position of the base pair, for the given column
    * 
    * @param hconsensus
-   * @return profile of the given column
+   * @param column
+   * @param ignoreGaps
+   * @return
    */
-  public static int[] extractProfile(Hashtable<String, Object> hconsensus,
-          boolean ignoreGapsInConsensusCalculation)
+  private static int getDivisor(StructureProfiles hconsensus, int column,
+          boolean ignoreGaps)
   {
-    int[] rtnval = new int[STRUCTURE_PROFILE_LENGTH]; // 2*(5*5)+2
-    int[][] profile = (int[][]) hconsensus.get(StructureFrequency.PROFILE);
-    int[][] pairs = (int[][]) hconsensus
-            .get(StructureFrequency.PAIRPROFILE);
-
-    if (profile == null)
-    {
-      return null;
-    }
+    return ignoreGaps
+            ? hconsensus.getHeight() - hconsensus.getGappedCount(column)
+            : hconsensus.getHeight();
+  }
 
-    // TODO fix the object length, also do it in completeConsensus
-    // Object[] ca = new Object[625];
-    int[][] ca = new int[625][];
-    float[] vl = new float[625];
+  /**
+   * Fills ca with base pairs {first, second} for A-Y by A-Y, and vl with their
+   * counts, and sorts both by ascending count
+   * 
+   * @param counts
+   *          pair counts (may be null if there are none)
+   * @param ca
+   * @param vl
+   */
+  private static void sortPairs(int[] counts, int[][] ca, float[] vl)
+  {
     int x = 0;
     for (int c = 65; c < 90; c++)
     {
       for (int d = 65; d < 90; d++)
       {
         ca[x] = new int[] { c, d };
-        vl[x] = pairs[c][d];
+        vl[x] = counts == null ? 0
+                : counts[StructureProfiles.getPairIndex((char) c,
+                        (char) d)];
         x++;
       }
     }
     jalview.util.QuickSort.sort(vl, ca);
+  }
+
+  /**
+   * get the sorted base-pair profile for the given position of the consensus
+   * 
+   * @param hconsensus
+   * @param column
+   * @param ignoreGapsInConsensusCalculation
+   * @return profile of the given column
+   */
+  public static int[] extractProfile(StructureProfiles hconsensus,
+          int column, boolean ignoreGapsInConsensusCalculation)
+  {
+    if (!hconsensus.hasPairCounts() || !hconsensus.isCalculated(column))
+    {
+      return null;
+    }
+    int[] rtnval = new int[STRUCTURE_PROFILE_LENGTH]; // 2*(5*5)+2
+
+    // TODO fix the object length, also do it in completeConsensus
+    int[][] ca = new int[625][];
+    float[] vl = new float[625];
+    sortPairs(hconsensus.getPairCounts(column), ca, vl);
 
     int valuesCount = 0;
     rtnval[1] = 0;
     int offset = 2;
-    final int divisor = profile[1][ignoreGapsInConsensusCalculation ? 1
-            : 0];
+    final int divisor = getDivisor(hconsensus, column,
+            ignoreGapsInConsensusCalculation);
     for (int c = 624; c > 0; c--)
     {
       if (vl[c] > 0)
@@ -29,18 +29,38 @@ import jalview.datamodel.SeqCigar;
 import jalview.datamodel.SequenceFeature;
 import jalview.math.Matrix;
 import jalview.math.MatrixI;
-import jalview.util.SetUtils;
+import jalview.util.Platform;
+import jalview.util.ThreadPools;
 
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class FeatureDistanceModel extends DistanceScoreModel
 {
   private static final String NAME = "Sequence Feature Similarity";
 
+  private static final int THREADS = ThreadPools.getComputeThreads();
+
+  /*
+   * the number of sequences per worker below which it is not worth
+   * computing distances in parallel
+   */
+  private static final int SEQS_PER_WORKER = 64;
+
+  /*
+   * bits per word of the feature type bitsets (int rather than long
+   * words, as these are safe in JalviewJS)
+   */
+  private static final int WORD_BITS = 32;
+
   private String description;
 
   FeatureRenderer fr;
@@ -89,18 +109,25 @@ public class FeatureDistanceModel extends DistanceScoreModel
    * The parameters argument provides settings for treatment of gap-residue
    * aligned positions, and whether the score is over the longer or shorter of
    * each pair of sequences
+   * <p>
+   * Each displayed feature type is given a bit, and the feature types present
+   * at each residue of each sequence are found (once) as a bitset. The count of
+   * types not shared at a column is then the number of bits set in the
+   * exclusive or of the two bitsets. Pairs of sequences are compared in
+   * parallel.
    * 
    * @param seqData
    * @param params
+   * @throws CancellationException
+   *           if interrupted before all pairs of sequences are compared
    */
   @Override
   public MatrixI findDistances(AlignmentView seqData,
           SimilarityParamsI params)
   {
     SeqCigar[] seqs = seqData.getSequences();
-    int noseqs = seqs.length;
-    int cpwidth = 0;// = seqData.getWidth();
-    double[][] distances = new double[noseqs][noseqs];
+    final int noseqs = seqs.length;
+    final double[][] distances = new double[noseqs][noseqs];
     List<String> dft = null;
     if (fr != null)
     {
@@ -113,49 +140,90 @@ public class FeatureDistanceModel extends DistanceScoreModel
 
     // need to get real position for view position
     int[] viscont = seqData.getVisibleContigs();
+    int cpwidth = 0;
+    for (int vc = 0; vc < viscont.length; vc += 2)
+    {
+      cpwidth += viscont[vc + 1] - viscont[vc] + 1;
+    }
 
     /*
-     * scan each column, compute and add to each distance[i, j]
-     * the number of feature types that seqi and seqj do not share
+     * assign a bit to each displayed feature type
      */
-    for (int vc = 0; vc < viscont.length; vc += 2)
+    Map<String, Integer> typeBits = new HashMap<>();
+    for (String type : dft)
     {
-      for (int cpos = viscont[vc]; cpos <= viscont[vc + 1]; cpos++)
+      if (!typeBits.containsKey(type))
       {
-        cpwidth++;
+        typeBits.put(type, typeBits.size());
+      }
+    }
+    final int words = (typeBits.size() + WORD_BITS - 1) / WORD_BITS;
 
-        /*
-         * first record feature types in this column for each sequence
-         */
-        Map<SeqCigar, Set<String>> sfap = findFeatureTypesAtColumn(seqs,
-                cpos);
+    /*
+     * for each sequence, find the residue (or gap) at each visible column,
+     * and the bitset of feature types at each residue
+     */
+    final int[][] rows = new int[noseqs][];
+    final int[][] bits = new int[noseqs][];
+    for (int i = 0; i < noseqs; i++)
+    {
+      rows[i] = new int[cpwidth];
+      bits[i] = findFeatureBits(seqs[i], viscont, typeBits, words,
+              rows[i]);
+    }
 
-        /*
-         * count feature types on either i'th or j'th sequence but not both
-         * and add this 'distance' measure to the total for [i, j] for j > i
-         */
-        for (int i = 0; i < (noseqs - 1); i++)
+    /*
+     * count feature types on either i'th or j'th sequence but not both
+     * at each column, and add this 'distance' measure to the total 
+     * for [i, j] for j > i
+     */
+    final boolean includeGaps = params.includeGaps();
+    final AtomicInteger nextRow = new AtomicInteger();
+    int workers = Platform.isJS() || ThreadPools.isPoolThread() ? 1
+            : Math.min(THREADS, Math.max(1, noseqs / SEQS_PER_WORKER));
+    if (workers == 1)
+    {
+      computeRows(nextRow, rows, bits, words, includeGaps, distances);
+    }
+    else
+    {
+      ExecutorService pool = ThreadPools.getComputePool();
+      List<Future<?>> futures = new ArrayList<>();
+      for (int w = 0; w < workers; w++)
+      {
+        futures.add(pool.submit(new Callable<Void>()
+        {
+          @Override
+          public Void call()
+          {
+            computeRows(nextRow, rows, bits, words, includeGaps,
+                    distances);
+            return null;
+          }
+        }));
+      }
+      for (Future<?> future : futures)
+      {
+        try
+        {
+          future.get();
+        } catch (InterruptedException e)
         {
-          for (int j = i + 1; j < noseqs; j++)
+          /*
+           * the matrix is incomplete; stop the workers, and let the caller
+           * know to abandon the calculation
+           */
+          nextRow.set(noseqs);
+          for (Future<?> f : futures)
           {
-            SeqCigar sc1 = seqs[i];
-            SeqCigar sc2 = seqs[j];
-            Set<String> set1 = sfap.get(sc1);
-            Set<String> set2 = sfap.get(sc2);
-            boolean gap1 = set1 == null;
-            boolean gap2 = set2 == null;
-
-            /*
-             * gap-gap always scores zero
-             * residue-residue is always scored
-             * include gap-residue score if params say to do so
-             */
-            if ((!gap1 && !gap2) || params.includeGaps())
-            {
-              int seqDistance = SetUtils.countDisjunction(set1, set2);
-              distances[i][j] += seqDistance;
-            }
+            f.cancel(true);
           }
+          Thread.currentThread().interrupt();
+          throw new CancellationException(
+                  "Feature distance calculation interrupted");
+        } catch (ExecutionException e)
+        {
+          throw new RuntimeException(e.getCause());
         }
       }
     }
@@ -178,39 +246,171 @@ public class FeatureDistanceModel extends DistanceScoreModel
   }
 
   /**
-   * Builds and returns a map containing a (possibly empty) list (one per
-   * SeqCigar) of visible feature types at the given column position. The map
-   * does not include entries for features which straddle a gapped column
-   * positions.
+   * Finds the residue position at each visible column of the sequence, and
+   * answers a bitset of the visible feature types at each residue (words per
+   * residue, from the first to the last residue in visible columns). The
+   * residue offset into the bitsets is saved for each visible column in rows,
+   * or -1 for a gap. Features which straddle a gapped column are not counted
+   * at the gap.
    * 
-   * @param seqs
-   * @param columnPosition
-   *          (0..)
+   * @param seq
+   * @param viscont
+   *          start-end pairs of visible columns
+   * @param typeBits
+   *          the bit for each displayed feature type
+   * @param words
+   *          words per residue
+   * @param rows
+   *          array to save the residue offset for each visible column
    * @return
    */
-  protected Map<SeqCigar, Set<String>> findFeatureTypesAtColumn(
-          SeqCigar[] seqs, int columnPosition)
+  protected int[] findFeatureBits(SeqCigar seq, int[] viscont,
+          Map<String, Integer> typeBits, int words, int[] rows)
   {
-    Map<SeqCigar, Set<String>> sfap = new HashMap<>();
-    for (SeqCigar seq : seqs)
+    int minPos = Integer.MAX_VALUE;
+    int maxPos = Integer.MIN_VALUE;
+    int k = 0;
+    for (int vc = 0; vc < viscont.length; vc += 2)
+    {
+      int[] positions = seq.findPositions(viscont[vc], viscont[vc + 1]);
+      for (int pos : positions)
+      {
+        rows[k++] = pos;
+        if (pos != -1)
+        {
+          minPos = Math.min(minPos, pos);
+          maxPos = Math.max(maxPos, pos);
+        }
+      }
+    }
+    if (minPos > maxPos)
+    {
+      return new int[0]; // all gaps
+    }
+    for (k = 0; k < rows.length; k++)
     {
-      int spos = seq.findPosition(columnPosition);
-      if (spos != -1)
+      if (rows[k] != -1)
+      {
+        rows[k] -= minPos;
+      }
+    }
+
+    int[] bits = new int[(maxPos - minPos + 1) * words];
+    List<SequenceFeature> sfs = fr.findFeaturesAtResidue(seq.getRefSeq(),
+            minPos, maxPos);
+    for (SequenceFeature sf : sfs)
+    {
+      Integer bit = typeBits.get(sf.getType());
+      if (bit == null)
+      {
+        continue;
+      }
+      int word = bit / WORD_BITS;
+      int mask = 1 << (bit % WORD_BITS);
+      if (sf.isContactFeature())
       {
         /*
-         * position is not a gap
+         * contact features are only 'at' their two contact positions
          */
-        Set<String> types = new HashSet<>();
-        List<SequenceFeature> sfs = fr
-                .findFeaturesAtResidue(seq.getRefSeq(), spos, spos);
-        for (SequenceFeature sf : sfs)
+        setBit(bits, sf.getBegin(), minPos, maxPos, words, word, mask);
+        setBit(bits, sf.getEnd(), minPos, maxPos, words, word, mask);
+      }
+      else
+      {
+        int from = Math.max(minPos, sf.getBegin());
+        int to = Math.min(maxPos, sf.getEnd());
+        for (int pos = from; pos <= to; pos++)
         {
-          types.add(sf.getType());
+          bits[(pos - minPos) * words + word] |= mask;
         }
-        sfap.put(seq, types);
       }
     }
-    return sfap;
+    return bits;
+  }
+
+  private static void setBit(int[] bits, int pos, int minPos, int maxPos,
+          int words, int word, int mask)
+  {
+    if (pos >= minPos && pos <= maxPos)
+    {
+      bits[(pos - minPos) * words + word] |= mask;
+    }
+  }
+
+  /**
+   * Takes rows until all are done, adding to distances[i][j] for j > i the
+   * count of feature types at each column on sequence i or j but not both
+   * 
+   * @param nextRow
+   * @param rows
+   * @param bits
+   * @param words
+   * @param includeGaps
+   * @param distances
+   */
+  static void computeRows(AtomicInteger nextRow, int[][] rows,
+          int[][] bits, int words, boolean includeGaps,
+          double[][] distances)
+  {
+    int n = rows.length;
+    int i;
+    while ((i = nextRow.getAndIncrement()) < n - 1)
+    {
+      for (int j = i + 1; j < n; j++)
+      {
+        distances[i][j] += countDisjunction(rows[i], bits[i], rows[j],
+                bits[j], words, includeGaps);
+      }
+    }
+  }
+
+  /**
+   * Answers the total over columns of the number of feature types present on
+   * one sequence but not the other. Gap-gap columns always score zero;
+   * gap-residue columns are scored only if includeGaps is true.
+   * 
+   * @param rows1
+   *          offset into bits1 at each column, or -1 for a gap
+   * @param bits1
+   * @param rows2
+   * @param bits2
+   * @param words
+   * @param includeGaps
+   * @return
+   */
+  static int countDisjunction(int[] rows1, int[] bits1, int[] rows2,
+          int[] bits2, int words, boolean includeGaps)
+  {
+    int count = 0;
+    for (int k = 0; k < rows1.length; k++)
+    {
+      int r1 = rows1[k];
+      int r2 = rows2[k];
+      if (r1 == -1 && r2 == -1)
+      {
+        continue;
+      }
+      if (r1 == -1 || r2 == -1)
+      {
+        if (includeGaps)
+        {
+          int[] bits = r1 == -1 ? bits2 : bits1;
+          int offset = (r1 == -1 ? r2 : r1) * words;
+          for (int w = 0; w < words; w++)
+          {
+            count += Integer.bitCount(bits[offset + w]);
+          }
+        }
+        continue;
+      }
+      int o1 = r1 * words;
+      int o2 = r2 * words;
+      for (int w = 0; w < words; w++)
+      {
+        count += Integer.bitCount(bits1[o1 + w] ^ bits2[o2 + w]);
+      }
+    }
+    return count;
   }
 
   @Override
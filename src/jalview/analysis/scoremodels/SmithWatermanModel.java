@@ -21,6 +21,7 @@
 package jalview.analysis.scoremodels;
 
 import jalview.analysis.AlignSeq;
+import jalview.analysis.AllPairsAligner;
 import jalview.api.AlignmentViewPanel;
 import jalview.api.analysis.ScoreModelI;
 import jalview.api.analysis.SimilarityParamsI;
@@ -30,6 +31,9 @@ import jalview.math.Matrix;
 import jalview.math.MatrixI;
 import jalview.util.Comparison;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * A class that computes pairwise similarity scores using the Smith-Waterman
  * alignment algorithm
@@ -54,28 +58,31 @@ public class SmithWatermanModel extends SimilarityScoreModel
     SequenceI[] sequenceString = seqData
             .getVisibleAlignment(Comparison.GAP_SPACE).getSequencesArray();
     int noseqs = sequenceString.length;
-    double[][] distances = new double[noseqs][noseqs];
-
-    double max = -1;
+    final double[][] distances = new double[noseqs][noseqs];
 
+    List<int[]> pairs = new ArrayList<>();
     for (int i = 0; i < (noseqs - 1); i++)
     {
       for (int j = i; j < noseqs; j++)
       {
-        AlignSeq as = new AlignSeq(sequenceString[i], sequenceString[j],
-                seqData.isNa() ? "dna" : "pep");
-        as.calcScoreMatrix();
-        as.traceAlignment();
-        as.printAlignment(System.out);
-        distances[i][j] = as.maxscore;
-
-        if (max < distances[i][j])
-        {
-          max = distances[i][j];
-        }
+        pairs.add(new int[] { i, j });
       }
     }
 
+    /*
+     * alignments are computed in parallel; only the score is kept
+     */
+    AllPairsAligner aligner = new AllPairsAligner(sequenceString, null,
+            seqData.isNa() ? AlignSeq.DNA : AlignSeq.PEP);
+    aligner.align(pairs, new AllPairsAligner.PairConsumer()
+    {
+      @Override
+      public void aligned(int i, int j, AlignSeq as)
+      {
+        distances[i][j] = as.maxscore;
+      }
+    });
+
     return new Matrix(distances);
   }
 
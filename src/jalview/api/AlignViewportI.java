@@ -32,6 +32,7 @@ import jalview.datamodel.SearchResultsI;
 import jalview.datamodel.SequenceCollectionI;
 import jalview.datamodel.SequenceGroup;
 import jalview.datamodel.SequenceI;
+import jalview.datamodel.StructureProfiles;
 import jalview.renderer.ResidueShaderI;
 import jalview.schemes.ColourSchemeI;
 import jalview.viewmodel.ViewportRanges;
@@ -111,10 +112,19 @@ public interface AlignViewportI extends ViewStyleI
    */
   Hashtable<String, Object>[] getComplementConsensusHash();
 
-  Hashtable<String, Object>[] getRnaStructureConsensusHash();
+  StructureProfiles getRnaStructureConsensusHash();
 
   boolean isIgnoreGapsConsensus();
 
+  /**
+   * Answers true if consensus should be computed with full symbol counts (as
+   * needed for sequence logos), false if only the modal residue is needed (for
+   * example, when memory is short)
+   * 
+   * @return
+   */
+  boolean isSaveFullProfiles();
+
   boolean isCalculationInProgress(AlignmentAnnotation alignmentAnnotation);
 
   AlignmentAnnotation getAlignmentQualityAnnot();
@@ -193,8 +203,7 @@ public interface AlignViewportI extends ViewStyleI
    * 
    * @param hStrucConsensus
    */
-  void setRnaStructureConsensusHash(
-          Hashtable<String, Object>[] hStrucConsensus);
+  void setRnaStructureConsensusHash(StructureProfiles hStrucConsensus);
 
   /**
    * Sets the colour scheme for the background alignment (as distinct from
@@ -24,7 +24,7 @@ import jalview.datamodel.SequenceI;
 import jalview.structure.StructureMapping;
 import jalview.ws.sifts.MappingOutputPojo;
 import jalview.ws.sifts.SiftsException;
-import jalview.xml.binding.sifts.Entry.Entity;
+import jalview.ws.sifts.SiftsIndex.Entity;
 
 import java.util.HashMap;
 import java.util.HashSet;
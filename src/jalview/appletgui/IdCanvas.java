@@ -20,6 +20,7 @@
  */
 package jalview.appletgui;
 
+import jalview.datamodel.HiddenSequences;
 import jalview.datamodel.SequenceI;
 import jalview.viewmodel.ViewportListenerI;
 import jalview.viewmodel.ViewportRanges;
@@ -346,11 +347,10 @@ public class IdCanvas extends Panel implements ViewportListenerI
 
   void drawMarker(int i, int starty, int yoffset)
   {
-    SequenceI[] hseqs = av.getAlignment()
-            .getHiddenSequences().hiddenSequences;
+    HiddenSequences hseqs = av.getAlignment().getHiddenSequences();
     // Use this method here instead of calling hiddenSeq adjust
     // 3 times.
-    int hSize = hseqs.length;
+    int hSize = hseqs.getRowCount();
 
     int hiddenIndex = i;
     int lastIndex = i - 1;
@@ -358,7 +358,7 @@ public class IdCanvas extends Panel implements ViewportListenerI
 
     for (int j = 0; j < hSize; j++)
     {
-      if (hseqs[j] != null)
+      if (hseqs.isHidden(j))
       {
         if (j - 1 < hiddenIndex)
         {
@@ -371,23 +371,11 @@ public class ScalePanel extends Panel
     {
       gg.setColor(new Color(220, 0, 0));
       boolean hasHiddenColumns = hidden.hasHiddenColumns();
-      for (int sel : cs.getSelected())
+      for (int sel = startx; sel <= endx; sel++)
       {
-        // TODO: JAL-2001 - provide a fast method to list visible selected in a
-        // given range
-        if (hasHiddenColumns)
-        {
-          if (hidden.isVisible(sel))
-          {
-            sel = hidden.absoluteToVisibleColumn(sel);
-          }
-          else
-          {
-            continue;
-          }
-        }
-
-        if ((sel >= startx) && (sel <= endx))
+        int col = hasHiddenColumns ? hidden.visibleToAbsoluteColumn(sel)
+                : sel;
+        if (cs.contains(col))
         {
           gg.fillRect((sel - startx) * avCharWidth, 0, avCharWidth,
                   getSize().height);
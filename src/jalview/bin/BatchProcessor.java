@@ -0,0 +1,404 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.bin;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import jalview.gui.AlignFrame;
+import jalview.io.AppletFormatAdapter;
+import jalview.io.DataSourceType;
+import jalview.io.FileFormatException;
+import jalview.io.FileFormatI;
+import jalview.io.FileLoader;
+import jalview.io.IdentifyFile;
+import jalview.io.NewickFile;
+import jalview.schemes.ColourSchemeI;
+import jalview.schemes.ColourSchemeProperty;
+import jalview.util.HttpUtils;
+
+/**
+ * Applies the same headless command line recipe (load, colour, add features,
+ * annotations and tree, then write outputs) to many input files in one JVM.
+ * Files are processed one at a time, as alignment frames share the Desktop,
+ * Cache and Jalview singletons; calculations within each frame still run on
+ * the shared thread pools. Inputs are given by a manifest file (one
+ * file or URL per line, '#' for comments) or a glob pattern such as
+ * <code>data/*.fa</code>.
+ * <p>
+ * Any file argument of the recipe may include the token <code>{name}</code>,
+ * which is replaced by the input file name without its extension, for example
+ * <code>-fasta out/{name}.fa -features gff/{name}.gff</code>.
+ */
+public class BatchProcessor
+{
+  /**
+   * token in recipe file arguments replaced by the input file base name
+   */
+  public static final String NAME_TOKEN = "{name}";
+
+  /**
+   * A bean holding the outcome of processing one input file
+   */
+  public static class BatchResult
+  {
+    public final String input;
+
+    public final long millis;
+
+    /*
+     * null if the file was processed successfully
+     */
+    public final String error;
+
+    BatchResult(String input, long millis, String error)
+    {
+      this.input = input;
+      this.millis = millis;
+      this.error = error;
+    }
+
+    public boolean isSuccess()
+    {
+      return error == null;
+    }
+  }
+
+  private String colour;
+
+  private String groups;
+
+  private String features;
+
+  private String annotations;
+
+  private String tree;
+
+  private Boolean sortByTree;
+
+  private boolean noAnnotation;
+
+  private boolean reportMemory;
+
+  /*
+   * pairs of {outputFormat, fileTemplate}
+   */
+  private final List<String[]> outputs = new ArrayList<>();
+
+  /**
+   * Constructor given the command line arguments (after removal of -batch).
+   * The recipe arguments are consumed from the parser, as are any trailing
+   * output format and file pairs.
+   *
+   * @param aparser
+   */
+  public BatchProcessor(ArgsParser aparser)
+  {
+    colour = aparser.getValue("colour", true);
+    groups = aparser.getValue("groups", true);
+    features = aparser.getValue("features", true);
+    annotations = aparser.getValue("annotations", true);
+    tree = aparser.getValue("tree", true);
+    if (aparser.contains("sortbytree"))
+    {
+      sortByTree = Boolean.TRUE;
+    }
+    if (aparser.contains("nosortbytree"))
+    {
+      sortByTree = Boolean.FALSE;
+    }
+    noAnnotation = aparser.contains("no-annotation");
+    while (aparser.getSize() > 1)
+    {
+      outputs.add(new String[] { aparser.nextValue(), aparser.nextValue() });
+    }
+    while (aparser.getSize() > 0)
+    {
+      System.out.println("Unknown arg: " + aparser.nextValue());
+    }
+  }
+
+  /**
+   * Sets whether to report the estimated memory used by each alignment after
+   * processing it
+   *
+   * @param report
+   */
+  public void setReportMemory(boolean report)
+  {
+    reportMemory = report;
+  }
+
+  /**
+   * Answers the input files or URLs for a batch specification, which may be a
+   * glob pattern (containing * or ?) or the path to a manifest file
+   *
+   * @param spec
+   * @return
+   * @throws IOException
+   */
+  public static List<String> resolveInputs(String spec) throws IOException
+  {
+    List<String> inputs = new ArrayList<>();
+    if (spec.indexOf('*') > -1 || spec.indexOf('?') > -1)
+    {
+      Path pattern = Paths.get(spec);
+      Path dir = pattern.getParent() == null ? Paths.get(".")
+              : pattern.getParent();
+      try (DirectoryStream<Path> paths = Files.newDirectoryStream(dir,
+              pattern.getFileName().toString()))
+      {
+        for (Path path : paths)
+        {
+          if (Files.isRegularFile(path))
+          {
+            inputs.add(path.toString());
+          }
+        }
+      }
+      Collections.sort(inputs);
+      return inputs;
+    }
+
+    try (BufferedReader reader = new BufferedReader(new FileReader(spec)))
+    {
+      String line;
+      while ((line = reader.readLine()) != null)
+      {
+        line = line.trim();
+        if (line.length() > 0 && !line.startsWith("#"))
+        {
+          inputs.add(line);
+        }
+      }
+    }
+    return inputs;
+  }
+
+  /**
+   * Processes all inputs, and answers the results in input order
+   *
+   * @param inputs
+   * @return
+   */
+  public List<BatchResult> process(List<String> inputs)
+  {
+    List<BatchResult> results = new ArrayList<>();
+    for (String input : inputs)
+    {
+      results.add(processFile(input));
+    }
+    return results;
+  }
+
+  /**
+   * Loads one input file, applies the recipe to it, and writes the outputs.
+   * Any failure is recorded in the result rather than thrown.
+   *
+   * @param input
+   * @return
+   */
+  BatchResult processFile(String input)
+  {
+    long start = System.currentTimeMillis();
+    AlignFrame af = null;
+    String error = null;
+    try
+    {
+      if (!HttpUtils.startsWithHttpOrHttps(input)
+              && !new File(input).exists())
+      {
+        throw new IOException("Can't find " + input);
+      }
+      DataSourceType protocol = AppletFormatAdapter.checkProtocol(input);
+      FileFormatI format = null;
+      try
+      {
+        format = new IdentifyFile().identify(input, protocol);
+      } catch (FileFormatException e)
+      {
+        throw new IOException("Unrecognised format: " + e.getMessage());
+      }
+      af = new FileLoader(false).LoadFileWaitTillLoaded(input, protocol,
+              format);
+      if (af == null)
+      {
+        throw new IOException("Failed to load alignment");
+      }
+      applyRecipe(af, input);
+      String imageName = "unnamed.png";
+      for (String[] output : outputs)
+      {
+        String outputFile = substitute(output[1], input);
+        if (!Jalview.writeOutput(af, output[0], outputFile, imageName))
+        {
+          error = "Failed to write " + output[0] + " to " + outputFile;
+        }
+        if (Jalview.isImageOutput(output[0]))
+        {
+          imageName = new File(outputFile).getName();
+        }
+      }
+      if (reportMemory)
+      {
+        System.out.println("BATCH [" + input + "] memory "
+                + af.getViewport().getMemoryFootprint() + "; "
+                + MemoryMonitor.getInstance().getStatus());
+      }
+    } catch (Throwable t)
+    {
+      error = t.toString();
+    } finally
+    {
+      if (af != null)
+      {
+        af.closeMenuItem_actionPerformed(true);
+      }
+    }
+    long millis = System.currentTimeMillis() - start;
+    if (error == null)
+    {
+      System.out.println("BATCH [" + input + "] processed in " + millis
+              + "ms");
+    }
+    else
+    {
+      System.err.println("BATCH [" + input + "] FAILED after " + millis
+              + "ms: " + error);
+    }
+    return new BatchResult(input, millis, error);
+  }
+
+  /**
+   * Applies colour scheme, groups, features, annotations and tree (if
+   * specified) to the alignment
+   *
+   * @param af
+   * @param input
+   * @throws IOException
+   */
+  protected void applyRecipe(AlignFrame af, String input) throws IOException
+  {
+    if (colour != null)
+    {
+      ColourSchemeI cs = ColourSchemeProperty.getColourScheme(
+              af.getViewport(), af.getViewport().getAlignment(), colour);
+      af.changeColour(cs);
+    }
+    if (groups != null)
+    {
+      String data = substitute(groups, input);
+      af.parseFeaturesFile(data, AppletFormatAdapter.checkProtocol(data));
+    }
+    if (features != null)
+    {
+      String data = substitute(features, input);
+      af.parseFeaturesFile(data, AppletFormatAdapter.checkProtocol(data));
+    }
+    if (annotations != null)
+    {
+      af.loadJalviewDataFile(substitute(annotations, input), null, null,
+              null);
+    }
+    if (sortByTree != null)
+    {
+      af.getViewport().setSortByTree(sortByTree.booleanValue());
+    }
+    if (noAnnotation)
+    {
+      af.getViewport().setShowAnnotation(false);
+    }
+    if (tree != null)
+    {
+      String data = substitute(tree, input);
+      NewickFile nf = new NewickFile(data,
+              AppletFormatAdapter.checkProtocol(data));
+      af.getViewport().setCurrentTree(af.showNewickTree(nf, data).getTree());
+    }
+  }
+
+  /**
+   * Replaces any occurrence of {name} in the template with the name of the
+   * input file, without directory path or extension
+   *
+   * @param template
+   * @param input
+   * @return
+   */
+  static String substitute(String template, String input)
+  {
+    if (template.indexOf(NAME_TOKEN) == -1)
+    {
+      return template;
+    }
+    String name = input;
+    int slash = Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\'));
+    name = name.substring(slash + 1);
+    int dot = name.lastIndexOf('.');
+    if (dot > 0)
+    {
+      name = name.substring(0, dot);
+    }
+    return template.replace(NAME_TOKEN, name);
+  }
+
+  /**
+   * Prints a summary of timings and failures for a completed batch
+   *
+   * @param results
+   * @param elapsed
+   *          total elapsed time in milliseconds
+   */
+  public static void report(List<BatchResult> results, long elapsed)
+  {
+    int failed = 0;
+    long total = 0L;
+    for (BatchResult result : results)
+    {
+      total += result.millis;
+      if (!result.isSuccess())
+      {
+        failed++;
+      }
+    }
+    System.out.println("BATCH processed " + results.size() + " files ("
+            + failed + " failed) in " + elapsed + "ms; mean "
+            + (results.isEmpty() ? 0 : total / results.size())
+            + "ms per file");
+    for (BatchResult result : results)
+    {
+      if (!result.isSuccess())
+      {
+        System.out.println("BATCH FAILED " + result.input + ": "
+                + result.error);
+      }
+    }
+  }
+}
@@ -28,6 +28,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.net.BindException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -38,6 +39,7 @@ import java.security.PermissionCollection;
 import java.security.Permissions;
 import java.security.Policy;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Vector;
@@ -61,6 +63,7 @@ import jalview.ext.so.SequenceOntology;
 import jalview.gui.AlignFrame;
 import jalview.gui.Desktop;
 import jalview.gui.PromptUserConfig;
+import jalview.httpserver.HttpServer;
 import jalview.io.AppletFormatAdapter;
 import jalview.io.BioJsHTMLOutput;
 import jalview.io.DataSourceType;
@@ -73,6 +76,7 @@ import jalview.io.HtmlSvgOutput;
 import jalview.io.IdentifyFile;
 import jalview.io.NewickFile;
 import jalview.io.gff.SequenceOntologyFactory;
+import jalview.rest.RestHandler;
 import jalview.schemes.ColourSchemeI;
 import jalview.schemes.ColourSchemeProperty;
 import jalview.util.ChannelProperties;
@@ -388,6 +392,12 @@ public class Jalview
       System.exit(0);
     }
 
+    if (!Platform.isJS())
+    {
+      MemoryMonitor.getInstance().start();
+    }
+    boolean memstats = aparser.contains("memstats");
+
     desktop = null;
 
     setLookAndFeel();
@@ -522,6 +532,12 @@ public class Jalview
         {
           BioJsHTMLOutput.updateBioJS();
         }
+
+        if (aparser.contains("restserver")
+                || Cache.getDefault(RestHandler.REST_SERVER, false))
+        {
+          startRestServer();
+        }
       }
     }
 
@@ -563,6 +579,42 @@ public class Jalview
     // completed one way or another
     // extract groovy argument and execute if necessary
     groovyscript = aparser.getValue("groovy", true);
+
+    String batch = aparser.getValue("batch", true);
+    if (batch != null && !headless)
+    {
+      System.err.println(
+              "-batch is only available with -nodisplay or -headless; ignoring "
+                      + batch);
+    }
+    else if (batch != null)
+    {
+      if (groovyscript != null)
+      {
+        System.err.println("Ignoring groovy script " + groovyscript
+                + " in batch mode");
+      }
+      try
+      {
+        List<String> inputs = BatchProcessor.resolveInputs(batch);
+        System.out.println("CMD [-batch " + batch + "] processing "
+                + inputs.size() + " files");
+        long start = System.currentTimeMillis();
+        BatchProcessor processor = new BatchProcessor(aparser);
+        processor.setReportMemory(memstats);
+        List<BatchProcessor.BatchResult> results = processor
+                .process(inputs);
+        BatchProcessor.report(results,
+                System.currentTimeMillis() - start);
+      } catch (IOException e)
+      {
+        System.err.println("Couldn't read batch inputs " + batch + ": "
+                + e.getMessage());
+        System.exit(1);
+      }
+      return;
+    }
+
     file = aparser.getValue("open", true);
 
     if (file == null && desktop == null)
@@ -727,106 +779,28 @@ public class Jalview
         {
           String outputFormat = aparser.nextValue();
           file = aparser.nextValue();
-
-          if (outputFormat.equalsIgnoreCase("png"))
-          {
-            af.createPNG(new File(file));
-            imageName = (new File(file)).getName();
-            System.out.println("Creating PNG image: " + file);
-            continue;
-          }
-          else if (outputFormat.equalsIgnoreCase("svg"))
-          {
-            File imageFile = new File(file);
-            imageName = imageFile.getName();
-            af.createSVG(imageFile);
-            System.out.println("Creating SVG image: " + file);
-            continue;
-          }
-          else if (outputFormat.equalsIgnoreCase("html"))
-          {
-            File imageFile = new File(file);
-            imageName = imageFile.getName();
-            HtmlSvgOutput htmlSVG = new HtmlSvgOutput(af.alignPanel);
-            htmlSVG.exportHTML(file);
-
-            System.out.println("Creating HTML image: " + file);
-            continue;
-          }
-          else if (outputFormat.equalsIgnoreCase("biojsmsa"))
-          {
-            if (file == null)
-            {
-              System.err.println("The output html file must not be null");
-              return;
-            }
-            try
-            {
-              BioJsHTMLOutput.refreshVersionInfo(
-                      BioJsHTMLOutput.BJS_TEMPLATES_LOCAL_DIRECTORY);
-            } catch (URISyntaxException e)
-            {
-              e.printStackTrace();
-            }
-            BioJsHTMLOutput bjs = new BioJsHTMLOutput(af.alignPanel);
-            bjs.exportHTML(file);
-            System.out
-                    .println("Creating BioJS MSA Viwer HTML file: " + file);
-            continue;
-          }
-          else if (outputFormat.equalsIgnoreCase("imgMap"))
+          if (outputFormat.equalsIgnoreCase("biojsmsa") && file == null)
           {
-            af.createImageMap(new File(file), imageName);
-            System.out.println("Creating image map: " + file);
-            continue;
+            System.err.println("The output html file must not be null");
+            return;
           }
-          else if (outputFormat.equalsIgnoreCase("eps"))
+          writeOutput(af, outputFormat, file, imageName);
+          if (isImageOutput(outputFormat))
           {
-            File outputFile = new File(file);
-            System.out.println(
-                    "Creating EPS file: " + outputFile.getAbsolutePath());
-            af.createEPS(outputFile);
-            continue;
-          }
-          FileFormatI outFormat = null;
-          try
-          {
-            outFormat = FileFormats.getInstance().forName(outputFormat);
-          } catch (Exception formatP)
-          {
-            System.out.println("Couldn't parse " + outFormat
-                    + " as a valid Jalview format string.");
-          }
-          if (outFormat != null)
-          {
-            if (!outFormat.isWritable())
-            {
-              System.out.println(
-                      "This version of Jalview does not support alignment export as "
-                              + outputFormat);
-            }
-            else
-            {
-              af.saveAlignment(file, outFormat);
-              if (af.isSaveAlignmentSuccessful())
-              {
-                System.out.println("Written alignment in "
-                        + outFormat.getName() + " format to " + file);
-              }
-              else
-              {
-                System.out.println("Error writing file " + file + " in "
-                        + outFormat.getName() + " format!!");
-              }
-            }
+            imageName = (new File(file)).getName();
           }
-
         }
 
         while (aparser.getSize() > 0)
         {
           System.out.println("Unknown arg: " + aparser.nextValue());
         }
+        if (memstats)
+        {
+          System.out.println("CMD [-memstats] alignment "
+                  + af.getViewport().getMemoryFootprint() + "; "
+                  + MemoryMonitor.getInstance().getStatus());
+        }
       }
     }
     AlignFrame startUpAlframe = null;
@@ -905,6 +879,122 @@ public class Jalview
     }
   }
 
+  /**
+   * Answers true if the command line output format names an image (or html
+   * file) that an image map may subsequently refer to
+   * 
+   * @param outputFormat
+   * @return
+   */
+  static boolean isImageOutput(String outputFormat)
+  {
+    return "png".equalsIgnoreCase(outputFormat)
+            || "svg".equalsIgnoreCase(outputFormat)
+            || "html".equalsIgnoreCase(outputFormat);
+  }
+
+  /**
+   * Writes the alignment in the given frame to a file, as for the command line
+   * output arguments. The output format may be an image or html type (png,
+   * svg, html, biojsmsa, imgMap, eps), or the name of a writable alignment
+   * file format.
+   * 
+   * @param af
+   * @param outputFormat
+   * @param file
+   * @param imageName
+   *          the file name of the last image written (for imgMap output)
+   * @return true if the output was written, false if not
+   */
+  static boolean writeOutput(AlignFrame af, String outputFormat,
+          String file, String imageName)
+  {
+    if (outputFormat.equalsIgnoreCase("png"))
+    {
+      af.createPNG(new File(file));
+      System.out.println("Creating PNG image: " + file);
+      return true;
+    }
+    else if (outputFormat.equalsIgnoreCase("svg"))
+    {
+      af.createSVG(new File(file));
+      System.out.println("Creating SVG image: " + file);
+      return true;
+    }
+    else if (outputFormat.equalsIgnoreCase("html"))
+    {
+      HtmlSvgOutput htmlSVG = new HtmlSvgOutput(af.alignPanel);
+      htmlSVG.exportHTML(file);
+
+      System.out.println("Creating HTML image: " + file);
+      return true;
+    }
+    else if (outputFormat.equalsIgnoreCase("biojsmsa"))
+    {
+      if (file == null)
+      {
+        System.err.println("The output html file must not be null");
+        return false;
+      }
+      try
+      {
+        BioJsHTMLOutput.refreshVersionInfo(
+                BioJsHTMLOutput.BJS_TEMPLATES_LOCAL_DIRECTORY);
+      } catch (URISyntaxException e)
+      {
+        e.printStackTrace();
+      }
+      BioJsHTMLOutput bjs = new BioJsHTMLOutput(af.alignPanel);
+      bjs.exportHTML(file);
+      System.out.println("Creating BioJS MSA Viwer HTML file: " + file);
+      return true;
+    }
+    else if (outputFormat.equalsIgnoreCase("imgMap"))
+    {
+      af.createImageMap(new File(file), imageName);
+      System.out.println("Creating image map: " + file);
+      return true;
+    }
+    else if (outputFormat.equalsIgnoreCase("eps"))
+    {
+      File outputFile = new File(file);
+      System.out.println(
+              "Creating EPS file: " + outputFile.getAbsolutePath());
+      af.createEPS(outputFile);
+      return true;
+    }
+    FileFormatI outFormat = null;
+    try
+    {
+      outFormat = FileFormats.getInstance().forName(outputFormat);
+    } catch (Exception formatP)
+    {
+      System.out.println("Couldn't parse " + outFormat
+              + " as a valid Jalview format string.");
+    }
+    if (outFormat == null)
+    {
+      return false;
+    }
+    if (!outFormat.isWritable())
+    {
+      System.out.println(
+              "This version of Jalview does not support alignment export as "
+                      + outputFormat);
+      return false;
+    }
+    af.saveAlignment(file, outFormat);
+    if (af.isSaveAlignmentSuccessful())
+    {
+      System.out.println("Written alignment in " + outFormat.getName()
+              + " format to " + file);
+      return true;
+    }
+    System.out.println("Error writing file " + file + " in "
+            + outFormat.getName() + " format!!");
+    return false;
+  }
+
   private static void setLookAndFeel()
   {
     // property laf = "crossplatform", "system", "gtk", "metal", "nimbus",
@@ -1155,6 +1245,24 @@ public class Jalview
     return set;
   }
 
+  /**
+   * Starts the Jalview HTTP server (if not already running), which serves the
+   * REST API over the open alignments on /jalview/rest
+   */
+  private static void startRestServer()
+  {
+    try
+    {
+      HttpServer.getInstance();
+      System.out.println("REST API listening on "
+              + RestHandler.getInstance().getUri() + "/alignments");
+    } catch (BindException e)
+    {
+      System.err.println(
+              "Unable to start REST API server: " + e.getMessage());
+    }
+  }
+
   private static void showUsage()
   {
     System.out.println(
@@ -1165,6 +1273,8 @@ public class Jalview
                     + "-annotations FILE\tAdd precalculated annotations to the alignment.\n"
                     + "-tree FILE\tLoad the given newick format tree file onto the alignment\n"
                     + "-features FILE\tUse the given file to mark features on the alignment.\n"
+                    + "-batch MANIFEST|GLOB\tWith -nodisplay, apply the other arguments to each file listed in MANIFEST (one per line) or matching GLOB (e.g. 'data/*.fa'). {name} in file arguments is replaced by each input's name without extension.\n"
+                    + "-memstats\tReport the estimated memory used by the alignment (sequences, features, annotations, history and consensus) and the current heap usage.\n"
                     + "-fasta FILE\tCreate alignment file FILE in Fasta format.\n"
                     + "-clustal FILE\tCreate alignment file FILE in Clustal format.\n"
                     + "-pfam FILE\tCreate alignment file FILE in PFAM format.\n"
@@ -1183,6 +1293,7 @@ public class Jalview
                     + "-questionnaire URL\tQueries the given URL for information about any Jalview user questionnaires.\n"
                     + "-noquestionnaire\tTurn off questionnaire check.\n"
                     + "-nonews\tTurn off check for Jalview news.\n"
+                    + "-restserver\tStart the local REST API on the Jalview HTTP server.\n"
                     + "-nousagestats\tTurn off google analytics tracking for this session.\n"
                     + "-sortbytree OR -nosortbytree\tEnable or disable sorting of the given alignment by the given tree\n"
                     // +
@@ -0,0 +1,319 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.bin;
+
+import java.awt.EventQueue;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+import jalview.util.Platform;
+import jalview.util.ThreadPools;
+
+/**
+ * Watches heap usage through the collection usage thresholds of the JVM's
+ * heap memory pools, and notifies listeners when memory pressure changes, so
+ * that they can release memory before an OutOfMemoryError occurs.
+ * <p>
+ * Pressure is HIGH when the heap remaining in use after garbage collection
+ * exceeds MEMORY_HIGH_PERCENT (default 80) of the maximum, and CRITICAL above
+ * MEMORY_CRITICAL_PERCENT (default 92). While pressure is raised, usage is
+ * polled so that listeners are told when it falls again. Listeners are held
+ * weakly, and are notified on the AWT event dispatch thread.
+ */
+public class MemoryMonitor
+{
+  public enum Pressure
+  {
+    NORMAL, HIGH, CRITICAL
+  }
+
+  /**
+   * A listener for changes in memory pressure
+   */
+  public interface PressureListener
+  {
+    void memoryPressureChanged(Pressure pressure);
+  }
+
+  public static final String MONITOR_MEMORY = MemorySetting.NS
+          + "_MONITOR";
+
+  public static final String HIGH_PERCENT = MemorySetting.NS
+          + "_HIGH_PERCENT";
+
+  public static final String CRITICAL_PERCENT = MemorySetting.NS
+          + "_CRITICAL_PERCENT";
+
+  private static final int HIGH_PERCENT_DEFAULT = 80;
+
+  private static final int CRITICAL_PERCENT_DEFAULT = 92;
+
+  private static final int POLL_SECONDS = 5;
+
+  private static MemoryMonitor instance;
+
+  private final Set<PressureListener> listeners = Collections
+          .synchronizedSet(Collections.newSetFromMap(
+                  new WeakHashMap<PressureListener, Boolean>()));
+
+  private volatile Pressure pressure = Pressure.NORMAL;
+
+  private boolean started;
+
+  private ScheduledFuture<?> polling;
+
+  /**
+   * Answers the singleton instance
+   *
+   * @return
+   */
+  public static synchronized MemoryMonitor getInstance()
+  {
+    if (instance == null)
+    {
+      instance = new MemoryMonitor();
+    }
+    return instance;
+  }
+
+  private MemoryMonitor()
+  {
+  }
+
+  /**
+   * Sets usage thresholds on heap memory pools and starts listening for
+   * threshold notifications, unless disabled by preference MEMORY_MONITOR.
+   * Does nothing in JalviewJS, or if already started.
+   */
+  public synchronized void start()
+  {
+    if (started || Platform.isJS()
+            || !Cache.getDefault(MONITOR_MEMORY, true))
+    {
+      return;
+    }
+    started = true;
+    int highPercent = getHighPercent();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+    {
+      long max = pool.getUsage().getMax();
+      if (pool.getType() == MemoryType.HEAP
+              && pool.isCollectionUsageThresholdSupported() && max > 0)
+      {
+        pool.setCollectionUsageThreshold(max / 100 * highPercent);
+      }
+    }
+    NotificationEmitter emitter = (NotificationEmitter) ManagementFactory
+            .getMemoryMXBean();
+    emitter.addNotificationListener(new NotificationListener()
+    {
+      @Override
+      public void handleNotification(Notification notification,
+              Object handback)
+      {
+        if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED
+                .equals(notification.getType()))
+        {
+          check();
+        }
+      }
+    }, null, null);
+  }
+
+  public void addListener(PressureListener listener)
+  {
+    listeners.add(listener);
+  }
+
+  public void removeListener(PressureListener listener)
+  {
+    listeners.remove(listener);
+  }
+
+  public Pressure getPressure()
+  {
+    return pressure;
+  }
+
+  /**
+   * Recomputes memory pressure from current heap usage, and notifies listeners
+   * if it has changed
+   */
+  public void check()
+  {
+    setPressure(getPressure(getUsedPercent(), getHighPercent(),
+            getCriticalPercent()));
+  }
+
+  /**
+   * Answers the memory pressure for the given percentage of the heap in use
+   *
+   * @param usedPercent
+   * @param highPercent
+   * @param criticalPercent
+   * @return
+   */
+  static Pressure getPressure(int usedPercent, int highPercent,
+          int criticalPercent)
+  {
+    if (usedPercent >= criticalPercent)
+    {
+      return Pressure.CRITICAL;
+    }
+    return usedPercent >= highPercent ? Pressure.HIGH : Pressure.NORMAL;
+  }
+
+  /**
+   * Updates the current pressure; if it has changed, logs it, notifies
+   * listeners, and starts or stops polling for recovery
+   *
+   * @param newPressure
+   */
+  synchronized void setPressure(Pressure newPressure)
+  {
+    if (newPressure == pressure)
+    {
+      return;
+    }
+    pressure = newPressure;
+    if (newPressure == Pressure.NORMAL)
+    {
+      Console.info("Memory pressure back to normal: " + getStatus());
+      if (polling != null)
+      {
+        polling.cancel(false);
+        polling = null;
+      }
+    }
+    else
+    {
+      Console.warn("Memory pressure " + newPressure
+              + "; releasing caches and history: " + getStatus());
+      if (polling == null && !Platform.isJS())
+      {
+        ScheduledExecutorService scheduler = ThreadPools.getScheduler();
+        polling = scheduler.scheduleWithFixedDelay(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            check();
+          }
+        }, POLL_SECONDS, POLL_SECONDS, TimeUnit.SECONDS);
+      }
+    }
+
+    final List<PressureListener> toNotify;
+    synchronized (listeners)
+    {
+      toNotify = new ArrayList<>(listeners);
+    }
+    EventQueue.invokeLater(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        for (PressureListener listener : toNotify)
+        {
+          listener.memoryPressureChanged(newPressure);
+        }
+      }
+    });
+  }
+
+  /**
+   * Answers the percentage of the maximum heap in use. This is the highest
+   * post-collection usage of any heap pool that reports it, or overall heap
+   * usage if none does.
+   *
+   * @return
+   */
+  static int getUsedPercent()
+  {
+    int percent = -1;
+    if (!Platform.isJS())
+    {
+      for (MemoryPoolMXBean pool : ManagementFactory
+              .getMemoryPoolMXBeans())
+      {
+        MemoryUsage afterGc = pool.getCollectionUsage();
+        long max = pool.getUsage().getMax();
+        if (pool.getType() == MemoryType.HEAP && afterGc != null
+                && max > 0)
+        {
+          percent = Math.max(percent,
+                  (int) (afterGc.getUsed() * 100 / max));
+        }
+      }
+    }
+    if (percent < 0)
+    {
+      Runtime runtime = Runtime.getRuntime();
+      long used = runtime.totalMemory() - runtime.freeMemory();
+      percent = (int) (used * 100 / runtime.maxMemory());
+    }
+    return percent;
+  }
+
+  /**
+   * Answers a summary of heap usage such as
+   *
+   * <pre>
+   * heap 1.2G used of 3.5G max (34%), pressure NORMAL
+   * </pre>
+   *
+   * @return
+   */
+  public String getStatus()
+  {
+    Runtime runtime = Runtime.getRuntime();
+    long used = runtime.totalMemory() - runtime.freeMemory();
+    long max = runtime.maxMemory();
+    return "heap " + MemorySetting.memoryLongToString(used, "%.1f")
+            + " used of " + MemorySetting.memoryLongToString(max, "%.1f")
+            + " max (" + (used * 100 / max) + "%), pressure " + pressure;
+  }
+
+  static int getHighPercent()
+  {
+    return Cache.getDefault(HIGH_PERCENT, HIGH_PERCENT_DEFAULT);
+  }
+
+  static int getCriticalPercent()
+  {
+    return Cache.getDefault(CRITICAL_PERCENT, CRITICAL_PERCENT_DEFAULT);
+  }
+}
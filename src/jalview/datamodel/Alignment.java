@@ -1493,7 +1493,7 @@ public class Alignment implements AlignmentI, AutoCloseable
     char oldc = toappend.getGapCharacter();
     boolean samegap = oldc == getGapCharacter();
     boolean hashidden = toappend.getHiddenSequences() != null
-            && toappend.getHiddenSequences().hiddenSequences != null;
+            && toappend.getHiddenSequences().getSize() > 0;
     // get all sequences including any hidden ones
     List<SequenceI> sqs = (hashidden)
             ? toappend.getHiddenSequences().getFullAlignment()
@@ -1543,16 +1543,10 @@ public class Alignment implements AlignmentI, AutoCloseable
       {
         hiddenSequences = new HiddenSequences(this);
       }
-      if (hs.hiddenSequences != null)
+      for (SequenceI hidden : hs.getHiddenSequencesInOrder())
       {
-        for (int s = 0; s < hs.hiddenSequences.length; s++)
-        {
-          // hide the newly appended sequence in the alignment
-          if (hs.hiddenSequences[s] != null)
-          {
-            hiddenSequences.hideSequence(hs.hiddenSequences[s]);
-          }
-        }
+        // hide the newly appended sequence in the alignment
+        hiddenSequences.hideSequence(hidden);
       }
     }
     if (toappend.getProperties() != null)
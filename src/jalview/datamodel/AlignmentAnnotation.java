@@ -82,6 +82,11 @@ public class AlignmentAnnotation
   /** Array of annotations placed in the current coordinate system */
   public Annotation[] annotations;
 
+  /*
+   * incremented whenever elements of annotations are changed in place
+   */
+  private volatile int changeCount;
+
   public List<SimpleBP> bps = null;
 
   /**
@@ -635,6 +640,7 @@ public class AlignmentAnnotation
    */
   public void validateRangeAndDisplay()
   {
+    annotationsChanged();
 
     if (annotations == null)
     {
@@ -1165,6 +1171,27 @@ public class AlignmentAnnotation
     this.score = score;
   }
 
+  /**
+   * Records that elements of the annotations array have been changed in place.
+   * Code which sets annotation values directly should call this (or
+   * validateRangeAndDisplay) when it has finished.
+   */
+  public void annotationsChanged()
+  {
+    changeCount++;
+  }
+
+  /**
+   * Answers a count which is incremented whenever annotation values are changed
+   * in place; replacing the annotations array is detected by its identity
+   * 
+   * @return
+   */
+  public int getChangeCount()
+  {
+    return changeCount;
+  }
+
   /**
    * 
    * @return true if annotation has an associated score
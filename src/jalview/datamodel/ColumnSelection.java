@@ -23,9 +23,11 @@ package jalview.datamodel;
 import jalview.viewmodel.annotationfilter.AnnotationFilterParameter;
 import jalview.viewmodel.annotationfilter.AnnotationFilterParameter.SearchableAnnotationField;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
-import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.regex.PatternSyntaxException;
 
@@ -36,32 +38,85 @@ import java.util.regex.PatternSyntaxException;
 public class ColumnSelection
 {
   /**
-   * A class to hold an efficient representation of selected columns
+   * A class to hold an efficient representation of selected columns. Columns
+   * are held in a bitfield, so that ranges of columns may be added, removed
+   * or inverted a word at a time. The order of selection is recorded only as
+   * runs of columns, and the list of columns in selection order is built only
+   * if it is asked for.
    */
   private class IntList
   {
+    /**
+     * bitfield for column selection - allows quick lookup
+     */
+    private BitSet selected;
+
+    /*
+     * the number of selected columns
+     */
+    private int count;
+
+    /*
+     * runs of columns {first, last} in the order they were added to the
+     * selection; a run is ascending, or descending if first > last; as adding
+     * a column already selected has no effect, the place of a column in
+     * selection order is given by the last run which includes it
+     */
+    private List<int[]> runs;
+
     /*
-     * list of selected columns (ordered by selection order, not column order)
+     * the total number of columns in runs
+     */
+    private int runColumns;
+
+    /*
+     * the selected columns in selection order (null until needed, or after any
+     * change)
      */
     private List<Integer> order;
 
     /*
-     * an unmodifiable view of the selected columns list
+     * a read-only view of the selected columns in selection order
      */
-    private List<Integer> _uorder;
+    private final OrderView view = new OrderView();
 
     /**
-     * bitfield for column selection - allows quick lookup
+     * A read-only view of the selected columns in selection order, which
+     * follows changes to the selection. As for other lists, iterating over it
+     * while the selection is changed throws ConcurrentModificationException.
      */
-    private BitSet selected;
+    private class OrderView extends AbstractList<Integer>
+    {
+      @Override
+      public Integer get(int index)
+      {
+        if (order == null)
+        {
+          order = buildOrder();
+        }
+        return order.get(index);
+      }
+
+      @Override
+      public int size()
+      {
+        return count;
+      }
+
+      void changed()
+      {
+        order = null;
+        modCount++;
+        changeCount++;
+      }
+    }
 
     /**
      * Constructor
      */
     IntList()
     {
-      order = new ArrayList<>();
-      _uorder = Collections.unmodifiableList(order);
+      runs = new ArrayList<>();
       selected = new BitSet();
     }
 
@@ -75,11 +130,14 @@ public class ColumnSelection
       this();
       if (other != null)
       {
-        int j = other.size();
-        for (int i = 0; i < j; i++)
+        selected = (BitSet) other.selected.clone();
+        count = other.count;
+        for (int[] run : other.runs)
         {
-          add(other.elementAt(i));
+          runs.add(new int[] { run[0], run[1] });
         }
+        runColumns = other.runColumns;
+        order = other.order;
       }
     }
 
@@ -92,29 +150,140 @@ public class ColumnSelection
     {
       if (!selected.get(i))
       {
-        order.add(Integer.valueOf(i));
         selected.set(i);
+        count++;
+        addRun(i, i);
+        compactRuns();
       }
     }
 
+    /**
+     * Adds the given columns to the selection (those not already selected), in
+     * ascending order
+     * 
+     * @param columns
+     */
+    void addAll(BitSet columns)
+    {
+      BitSet added = (BitSet) columns.clone();
+      added.andNot(selected);
+      if (added.isEmpty())
+      {
+        return;
+      }
+      selected.or(added);
+      count += added.cardinality();
+      int first = added.nextSetBit(0);
+      while (first != -1)
+      {
+        int last = added.nextClearBit(first) - 1;
+        addRun(first, last);
+        first = added.nextSetBit(last + 1);
+      }
+      compactRuns();
+    }
+
+    /**
+     * Records that a run of columns was added to the selection, extending the
+     * last run if the columns continue it
+     * 
+     * @param first
+     * @param last
+     */
+    private void addRun(int first, int last)
+    {
+      view.changed();
+      runColumns += last - first + 1;
+      int[] lastRun = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+      if (lastRun != null && first == last && lastRun[0] <= lastRun[1]
+              && first == lastRun[1] + 1)
+      {
+        lastRun[1] = first;
+      }
+      else if (lastRun != null && first == last && lastRun[0] >= lastRun[1]
+              && first == lastRun[1] - 1)
+      {
+        lastRun[1] = first;
+      }
+      else if (lastRun != null && first <= last && lastRun[0] <= lastRun[1]
+              && first == lastRun[1] + 1)
+      {
+        lastRun[1] = last;
+      }
+      else
+      {
+        runs.add(new int[] { first, last });
+      }
+    }
+
+    /**
+     * If columns have been removed and added many times, rebuilds the runs of
+     * selected columns to hold only currently selected columns
+     */
+    private void compactRuns()
+    {
+      if (runColumns <= 2 * count + 64)
+      {
+        return;
+      }
+      List<Integer> cols = buildOrder();
+      runs.clear();
+      runColumns = 0;
+      for (int col : cols)
+      {
+        addRun(col, col);
+      }
+      order = cols;
+    }
+
     void clear()
     {
-      order.clear();
       selected.clear();
+      count = 0;
+      runs.clear();
+      runColumns = 0;
+      view.changed();
     }
 
     void remove(int col)
     {
-
-      Integer colInt = Integer.valueOf(col);
-
       if (selected.get(col))
       {
-        // if this ever changes to List.remove(), ensure Integer not int
-        // argument
-        // as List.remove(int i) removes the i'th item which is wrong
-        order.remove(colInt);
         selected.clear(col);
+        count--;
+        view.changed();
+      }
+    }
+
+    /**
+     * Removes the given columns from the selection
+     * 
+     * @param columns
+     */
+    void removeAll(BitSet columns)
+    {
+      if (selected.intersects(columns))
+      {
+        selected.andNot(columns);
+        count = selected.cardinality();
+        view.changed();
+      }
+    }
+
+    /**
+     * Removes columns from start to end inclusive from the selection
+     * 
+     * @param start
+     * @param end
+     */
+    void removeRange(int start, int end)
+    {
+      if (start <= end && selected.nextSetBit(start) != -1
+              && selected.nextSetBit(start) <= end)
+      {
+        selected.clear(start, end + 1);
+        count = selected.cardinality();
+        view.changed();
       }
     }
 
@@ -125,90 +294,91 @@ public class ColumnSelection
 
     boolean isEmpty()
     {
-      return order.isEmpty();
+      return count == 0;
     }
 
     /**
-     * Returns a read-only view of the selected columns list
+     * Returns a read-only view of the selected columns, in the order in which
+     * they were selected
      * 
      * @return
      */
     List<Integer> getList()
     {
-      return _uorder;
-    }
-
-    int size()
-    {
-      return order.size();
+      return view;
     }
 
     /**
-     * gets the column that was selected first, second or i'th
+     * Builds the list of selected columns in selection order. Working back
+     * from the last run, each selected column is placed by the last run that
+     * includes it.
      * 
-     * @param i
      * @return
      */
-    int elementAt(int i)
+    private List<Integer> buildOrder()
     {
-      return order.get(i);
-    }
-
-    protected boolean pruneColumnList(final List<int[]> shifts)
-    {
-      int s = 0, t = shifts.size();
-      int[] sr = shifts.get(s++);
-      boolean pruned = false;
-      int i = 0, j = order.size();
-      while (i < j && s <= t)
+      Integer[] cols = new Integer[count];
+      int pos = count;
+      BitSet placed = new BitSet();
+      for (int r = runs.size() - 1; r >= 0 && pos > 0; r--)
       {
-        int c = order.get(i++).intValue();
-        if (sr[0] <= c)
+        int[] run = runs.get(r);
+        int step = run[0] <= run[1] ? -1 : 1;
+        for (int col = run[1];; col += step)
         {
-          if (sr[1] + sr[0] >= c)
-          { // sr[1] -ve means inseriton.
-            order.remove(--i);
-            selected.clear(c);
-            j--;
+          if (selected.get(col) && !placed.get(col))
+          {
+            placed.set(col);
+            cols[--pos] = Integer.valueOf(col);
           }
-          else
+          if (col == run[0])
           {
-            if (s < t)
-            {
-              sr = shifts.get(s);
-            }
-            s++;
+            break;
           }
         }
       }
-      return pruned;
+      return Arrays.asList(cols);
+    }
+
+    int size()
+    {
+      return count;
     }
 
     /**
-     * shift every selected column at or above start by change
+     * gets the column that was selected first, second or i'th
      * 
-     * @param start
-     *          - leftmost column to be shifted
-     * @param change
-     *          - delta for shift
+     * @param i
+     * @return
      */
-    void compensateForEdits(int start, int change)
+    int elementAt(int i)
     {
-      BitSet mask = new BitSet();
-      for (int i = 0; i < order.size(); i++)
-      {
-        int temp = order.get(i);
+      return getList().get(i);
+    }
 
-        if (temp >= start)
-        {
-          // clear shifted bits and update List of selected columns
-          selected.clear(temp);
-          mask.set(temp - change);
-          order.set(i, Integer.valueOf(temp - change));
-        }
+    /**
+     * Inverts the selection of columns from first to end-1, except that
+     * columns in the hidden set are not selected
+     * 
+     * @param first
+     * @param end
+     * @param hidden
+     */
+    void invert(int first, int end, BitSet hidden)
+    {
+      if (first >= end)
+      {
+        return;
       }
-      // lastly update the bitfield all at once
-      selected.or(mask);
+      BitSet added = new BitSet();
+      added.set(first, end);
+      added.andNot(selected);
+      if (hidden != null)
+      {
+        added.andNot(hidden);
+      }
+      removeRange(first, end - 1);
+      addAll(added);
     }
 
     boolean isSelected(int column)
@@ -266,6 +436,11 @@ public class ColumnSelection
 
   private IntList selection = new IntList();
 
+  /*
+   * incremented on any change to the selected columns
+   */
+  private volatile int changeCount;
+
   /**
    * Add a column to the selection
    * 
@@ -306,15 +481,7 @@ public class ColumnSelection
    */
   public void removeElements(int start, int end)
   {
-    Integer colInt;
-    for (int i = start; i < end; i++)
-    {
-      colInt = Integer.valueOf(i);
-      if (selection.contains(colInt))
-      {
-        selection.remove(colInt);
-      }
-    }
+    selection.removeRange(start, end - 1);
   }
 
   /**
@@ -326,12 +493,28 @@ public class ColumnSelection
    * <p>
    * The list is not thread-safe: iterating over it could result in
    * ConcurrentModificationException if it is modified by another thread.
+   * <p>
+   * Selection order is built (with a boxed Integer per column) only when the
+   * list is read. Callers which do not need it should prefer
+   * {@link #contains(int)} or {@link #getSelectedRanges()}, which are much
+   * cheaper for large selections.
    */
   public List<Integer> getSelected()
   {
     return selection.getList();
   }
 
+  /**
+   * Answers a count which is incremented whenever the selected columns change,
+   * so may be compared to detect a change without reading the selection
+   * 
+   * @return
+   */
+  public int getChangeCount()
+  {
+    return changeCount;
+  }
+
   /**
    * @return list of int arrays containing start and end column position for
    *         runs of selected columns ordered from right to left.
@@ -473,21 +656,25 @@ public class ColumnSelection
    */
   public void invertColumnSelection(int first, int width, AlignmentI al)
   {
-    boolean hasHidden = al.getHiddenColumns().hasHiddenColumns();
-    for (int i = first; i < width; i++)
-    {
-      if (contains(i))
+    HiddenColumns hiddenColumns = al.getHiddenColumns();
+    BitSet hidden = null;
+    if (hiddenColumns.hasHiddenColumns() && first < width)
+    {
+      hidden = new BitSet();
+      Iterator<int[]> regions = hiddenColumns.getBoundedIterator(first,
+              width - 1);
+      while (regions.hasNext())
       {
-        removeElement(i);
-      }
-      else
-      {
-        if (!hasHidden || al.getHiddenColumns().isVisible(i))
+        int[] region = regions.next();
+        int from = Math.max(first, region[0]);
+        int to = Math.min(width - 1, region[1]);
+        if (from <= to)
         {
-          addElement(i);
+          hidden.set(from, to + 1);
         }
       }
     }
+    selection.invert(first, width, hidden);
   }
 
   /**
@@ -500,27 +687,21 @@ public class ColumnSelection
           HiddenColumns hiddenColumns)
   {
     selection = new IntList();
+    changeCount++;
     if (colsel.selection != null && colsel.selection.size() > 0)
     {
-      if (hiddenColumns.hasHiddenColumns())
+      selection = new IntList(colsel.selection);
+      if (hiddenColumns != null && hiddenColumns.hasHiddenColumns())
       {
         // only select visible columns in this columns selection
-        for (Integer col : colsel.getSelected())
+        BitSet hidden = new BitSet();
+        Iterator<int[]> regions = hiddenColumns.iterator();
+        while (regions.hasNext())
         {
-          if (hiddenColumns != null
-                  && hiddenColumns.isVisible(col.intValue()))
-          {
-            selection.add(col);
-          }
-        }
-      }
-      else
-      {
-        // add everything regardless
-        for (Integer col : colsel.getSelected())
-        {
-          addElement(col);
+          int[] region = regions.next();
+          hidden.set(region[0], region[1] + 1);
         }
+        selection.removeAll(hidden);
       }
     }
   }
@@ -707,50 +888,40 @@ public class ColumnSelection
       changed = !this.isEmpty();
       clear();
     }
+    if (endCol < startCol)
+    {
+      return changed;
+    }
+
+    /*
+     * the columns to operate on are those marked (or unmarked if inverting)
+     * in the range
+     */
+    BitSet columns = new BitSet();
+    columns.set(startCol, endCol + 1);
     if (invert)
     {
       // invert only in the currently selected sequence region
-      int i = markedColumns.nextClearBit(startCol);
-      int ibs = markedColumns.nextSetBit(startCol);
-      while (i >= startCol && i <= endCol)
-      {
-        if (ibs < 0 || i < ibs)
-        {
-          changed = true;
-          if (toggle && contains(i))
-          {
-            removeElement(i++);
-          }
-          else
-          {
-            addElement(i++);
-          }
-        }
-        else
-        {
-          i = markedColumns.nextClearBit(ibs);
-          ibs = markedColumns.nextSetBit(i);
-        }
-      }
+      columns.andNot(markedColumns);
     }
     else
     {
-      int i = markedColumns.nextSetBit(startCol);
-      while (i >= startCol && i <= endCol)
-      {
-        changed = true;
-        if (toggle && contains(i))
-        {
-          removeElement(i);
-        }
-        else
-        {
-          addElement(i);
-        }
-        i = markedColumns.nextSetBit(i + 1);
-      }
+      columns.and(markedColumns);
+    }
+    if (columns.isEmpty())
+    {
+      return changed;
     }
-    return changed;
+
+    if (toggle)
+    {
+      BitSet deselect = (BitSet) columns.clone();
+      deselect.and(selection.selected);
+      selection.removeAll(deselect);
+      columns.andNot(deselect);
+    }
+    selection.addAll(columns);
+    return true;
   }
 
   /**
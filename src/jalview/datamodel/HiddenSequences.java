@@ -21,18 +21,37 @@
 package jalview.datamodel;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class HiddenSequences
 {
-  /**
-   * holds a list of hidden sequences associated with an alignment.
+  /*
+   * the hidden sequences associated with an alignment, at their positions in
+   * the full alignment (null for visible rows); this must be kept in step with
+   * hiddenCounts, so is only modified by methods of this class
    */
-  public SequenceI[] hiddenSequences;
+  private SequenceI[] hiddenSequences;
 
   AlignmentI alignment;
 
+  /*
+   * a Fenwick (binary indexed) tree of counts of hidden sequences, over the
+   * positions of hiddenSequences, so that conversions between visible and
+   * absolute row indices take O(log n) time; element i (1-based) holds the
+   * count of hidden rows in positions (i - lowbit(i), i]
+   */
+  private int[] hiddenCounts;
+
+  /*
+   * the total number of hidden sequences
+   */
+  private int hiddenCount;
+
   /**
    * Constructor given a reference to an alignment (with no hidden sequences)
    * 
@@ -50,20 +69,7 @@ public class HiddenSequences
    */
   public int getSize()
   {
-    if (hiddenSequences == null)
-    {
-      return 0;
-    }
-    int count = 0;
-    for (SequenceI seq : hiddenSequences)
-    {
-      if (seq != null)
-      {
-        count++;
-      }
-    }
-
-    return count;
+    return hiddenCount;
   }
 
   /**
@@ -122,7 +128,7 @@ public class HiddenSequences
     }
 
     hiddenSequences = tmp;
-
+    buildIndex();
   }
 
   /**
@@ -140,6 +146,7 @@ public class HiddenSequences
     SequenceI[] tmp = new SequenceI[alHeight + getSize()];
     System.arraycopy(hiddenSequences, 0, tmp, 0, hiddenSequences.length);
     hiddenSequences = tmp;
+    buildIndex();
   }
 
   /**
@@ -152,6 +159,7 @@ public class HiddenSequences
     if (hiddenSequences == null)
     {
       hiddenSequences = new SequenceI[alignment.getHeight()];
+      buildIndex();
     }
 
     int absAlignmentIndex = alignment.findIndex(sequence);
@@ -164,31 +172,198 @@ public class HiddenSequences
     }
 
     hiddenSequences[alignmentIndex] = sequence;
+    updateIndex(alignmentIndex, 1);
 
     alignment.deleteHiddenSequence(absAlignmentIndex);
   }
 
+  /**
+   * Marks the specified sequences as hidden. This gives the same result as
+   * hiding each in turn, but in a single pass over the alignment, so is much
+   * faster for hiding many sequences (for example a clade of a tree).
+   * Sequences not in the (visible) alignment are ignored.
+   * 
+   * @param sequences
+   */
+  public void hideSequences(SequenceI[] sequences)
+  {
+    if (hiddenSequences == null)
+    {
+      hiddenSequences = new SequenceI[alignment.getHeight()];
+    }
+
+    Set<SequenceI> toHide = Collections
+            .newSetFromMap(new IdentityHashMap<SequenceI, Boolean>());
+    for (SequenceI seq : sequences)
+    {
+      if (seq != null)
+      {
+        toHide.add(seq);
+      }
+    }
+
+    /*
+     * walk the visible sequences, and their absolute positions, together
+     */
+    List<SequenceI> asequences = alignment.getSequences();
+    synchronized (asequences)
+    {
+      List<SequenceI> visible = new ArrayList<>(asequences.size());
+      int absIndex = 0;
+      for (SequenceI seq : asequences)
+      {
+        while (hiddenSequences[absIndex] != null)
+        {
+          absIndex++;
+        }
+        if (toHide.contains(seq))
+        {
+          hiddenSequences[absIndex] = seq;
+        }
+        else
+        {
+          visible.add(seq);
+        }
+        absIndex++;
+      }
+      if (visible.size() < asequences.size())
+      {
+        asequences.clear();
+        asequences.addAll(visible);
+      }
+    }
+    buildIndex();
+  }
+
+  /**
+   * Reveals all hidden sequences, in a single pass over the alignment. The
+   * revealed sequences are answered, including any visible representative
+   * sequences, which are removed from hiddenRepSequences.
+   * 
+   * @param hiddenRepSequences
+   *          a map of representative sequences to the sequences they represent
+   * @return
+   */
   public List<SequenceI> showAll(
           Map<SequenceI, SequenceCollectionI> hiddenRepSequences)
   {
-    List<SequenceI> revealedSeqs = new ArrayList<>();
+    if (hiddenSequences == null)
+    {
+      return new ArrayList<>();
+    }
+    boolean[] reveal = new boolean[alignment.getHeight() + 1];
+    Arrays.fill(reveal, true);
+    return showSequences(reveal, hiddenRepSequences);
+  }
 
+  /**
+   * Reveals the consecutive hidden sequences just above each of the given
+   * (visible) alignment indices, as for showSequence, but in a single pass over
+   * the alignment, so is much faster for revealing many rows. An index equal
+   * to the alignment height reveals any hidden sequences after the last
+   * visible row. Other indices outside the alignment are ignored.
+   * 
+   * @param alignmentIndices
+   * @param hiddenRepSequences
+   *          a map of representative sequences to the sequences they represent
+   * @return
+   */
+  public List<SequenceI> showSequences(int[] alignmentIndices,
+          Map<SequenceI, SequenceCollectionI> hiddenRepSequences)
+  {
     if (hiddenSequences == null)
     {
-      return revealedSeqs;
+      return new ArrayList<>();
+    }
+    boolean[] reveal = new boolean[alignment.getHeight() + 1];
+    for (int index : alignmentIndices)
+    {
+      if (index >= 0 && index < reveal.length)
+      {
+        reveal[index] = true;
+      }
     }
+    return showSequences(reveal, hiddenRepSequences);
+  }
 
-    for (int i = 0; i < hiddenSequences.length; i++)
+  /**
+   * Reveals the hidden sequences above each visible row i for which reveal[i]
+   * is true (or after the last visible row, for the last element of reveal),
+   * by merging the visible and revealed sequences into a new list of
+   * sequences for the alignment, then rebuilding the index once
+   * 
+   * @param reveal
+   * @param hiddenRepSequences
+   * @return
+   */
+  private List<SequenceI> showSequences(boolean[] reveal,
+          Map<SequenceI, SequenceCollectionI> hiddenRepSequences)
+  {
+    List<SequenceI> revealedSeqs = new ArrayList<>();
+    List<SequenceI> asequences = alignment.getSequences();
+    synchronized (asequences)
     {
-      if (hiddenSequences[i] != null)
+      int height = Math.min(asequences.size(), reveal.length - 1);
+      if (hiddenRepSequences != null && !hiddenRepSequences.isEmpty())
       {
-        List<SequenceI> tmp = showSequence(i, hiddenRepSequences);
-        for (SequenceI seq : tmp)
+        for (int i = 0; i < height; i++)
+        {
+          SequenceI repSequence = asequences.get(i);
+          if (reveal[i] && hiddenRepSequences.containsKey(repSequence))
+          {
+            hiddenRepSequences.remove(repSequence);
+            revealedSeqs.add(repSequence);
+          }
+        }
+      }
+
+      /*
+       * walk the absolute rows, taking visible sequences in turn from the
+       * alignment; hidden rows are either merged in or kept hidden
+       */
+      List<SequenceI> merged = new ArrayList<>(hiddenSequences.length);
+      SequenceI[] stillHidden = new SequenceI[hiddenSequences.length];
+      int row = 0;
+      int visibleIndex = 0;
+      for (SequenceI seq : hiddenSequences)
+      {
+        if (seq == null)
+        {
+          if (visibleIndex < asequences.size())
+          {
+            merged.add(asequences.get(visibleIndex++));
+            row++;
+          }
+        }
+        else if (reveal[Math.min(visibleIndex, height)])
+        {
+          if (seq.getLength() > 0)
+          {
+            revealedSeqs.add(seq);
+            merged.add(seq);
+            row++;
+          }
+          else
+          {
+            System.out.println(
+                    seq.getName() + " has been deleted whilst hidden");
+          }
+        }
+        else
         {
-          revealedSeqs.add(seq);
+          stillHidden[row++] = seq;
         }
       }
+      while (visibleIndex < asequences.size())
+      {
+        merged.add(asequences.get(visibleIndex++));
+        row++;
+      }
+      asequences.clear();
+      asequences.addAll(merged);
+      hiddenSequences = Arrays.copyOf(stillHidden, row);
     }
+    buildIndex();
     return revealedSeqs;
   }
 
@@ -232,6 +407,7 @@ public class HiddenSequences
 
         if (seq != null)
         {
+          updateIndex(index, -1);
           if (seq.getLength() > 0)
           {
             revealedSeqs.add(seq);
@@ -248,9 +424,50 @@ public class HiddenSequences
     return revealedSeqs;
   }
 
+  /**
+   * Answers the hidden sequence at the given (absolute) row of the alignment,
+   * or null if the row is not hidden
+   * 
+   * @param alignmentIndex
+   * @return
+   */
   public SequenceI getHiddenSequence(int alignmentIndex)
   {
-    return hiddenSequences == null ? null : hiddenSequences[alignmentIndex];
+    return hiddenSequences == null || alignmentIndex < 0
+            || alignmentIndex >= hiddenSequences.length ? null
+                    : hiddenSequences[alignmentIndex];
+  }
+
+  /**
+   * Answers the number of rows (hidden or visible) of the full alignment, or
+   * zero if no sequence has been hidden
+   * 
+   * @return
+   */
+  public int getRowCount()
+  {
+    return hiddenSequences == null ? 0 : hiddenSequences.length;
+  }
+
+  /**
+   * Answers a new list of the hidden sequences, in alignment order
+   * 
+   * @return
+   */
+  public List<SequenceI> getHiddenSequencesInOrder()
+  {
+    List<SequenceI> hidden = new ArrayList<>(hiddenCount);
+    if (hiddenSequences != null)
+    {
+      for (SequenceI seq : hiddenSequences)
+      {
+        if (seq != null)
+        {
+          hidden.add(seq);
+        }
+      }
+    }
+    return hidden;
   }
 
   /**
@@ -266,8 +483,6 @@ public class HiddenSequences
     {
       return alignmentIndex;
     }
-    int index = 0;
-    int hiddenSeqs = 0;
     int diff = 0;
     if (hiddenSequences.length <= alignmentIndex)
     {
@@ -279,16 +494,7 @@ public class HiddenSequences
       alignmentIndex = hiddenSequences.length - 1;
     }
 
-    while (index <= alignmentIndex)
-    {
-      if (hiddenSequences[index] != null)
-      {
-        hiddenSeqs++;
-      }
-      index++;
-    }
-
-    return (alignmentIndex - hiddenSeqs + diff);
+    return (alignmentIndex - countHidden(alignmentIndex) + diff);
   }
 
   /**
@@ -313,17 +519,21 @@ public class HiddenSequences
     }
 
     int index = Math.min(startRow, hiddenSequences.length - 1);
-    int count = 0;
-    while ((index > -1) && (count < visibleDistance))
+    if (index < 0 || visibleDistance <= 0)
     {
-      if (hiddenSequences[index] == null)
-      {
-        // count visible sequences
-        count++;
-      }
-      index--;
+      return index;
+    }
+
+    /*
+     * the answer is the row above the visibleDistance'th visible row counting
+     * up from index, i.e. the row above the n'th visible row from the top
+     */
+    int visibleRows = index + 1 - countHidden(index);
+    if (visibleDistance > visibleRows)
+    {
+      return -1;
     }
-    return index;
+    return findVisibleRow(visibleRows - visibleDistance + 1) - 1;
   }
 
   /**
@@ -338,19 +548,102 @@ public class HiddenSequences
     {
       return alignmentIndex;
     }
-    int index = 0;
-    int hSize = hiddenSequences.length;
-    while (index <= alignmentIndex && index < hSize)
+    if (alignmentIndex < 0)
     {
-      if (hiddenSequences[index] != null)
+      return alignmentIndex;
+    }
+    int visibleRows = hiddenSequences.length - hiddenCount;
+    if (alignmentIndex >= visibleRows)
+    {
+      // past the last visible row within hiddenSequences
+      return alignmentIndex + hiddenCount;
+    }
+    return findVisibleRow(alignmentIndex + 1);
+  }
+
+  /**
+   * Rebuilds the index of hidden rows from hiddenSequences, in O(n) time
+   */
+  private void buildIndex()
+  {
+    int n = hiddenSequences.length;
+    hiddenCounts = new int[n + 1];
+    hiddenCount = 0;
+    for (int i = 1; i <= n; i++)
+    {
+      if (hiddenSequences[i - 1] != null)
       {
-        alignmentIndex++;
+        hiddenCounts[i]++;
+        hiddenCount++;
+      }
+      int parent = i + (i & -i);
+      if (parent <= n)
+      {
+        hiddenCounts[parent] += hiddenCounts[i];
       }
-      index++;
     }
-    ;
+  }
 
-    return alignmentIndex;
+  /**
+   * Adds delta to the count of hidden rows at the given position
+   * 
+   * @param index
+   * @param delta
+   */
+  private void updateIndex(int index, int delta)
+  {
+    hiddenCount += delta;
+    for (int i = index + 1; i < hiddenCounts.length; i += i & -i)
+    {
+      hiddenCounts[i] += delta;
+    }
+  }
+
+  /**
+   * Answers the number of hidden rows at positions 0 to index inclusive
+   * 
+   * @param index
+   * @return
+   */
+  private int countHidden(int index)
+  {
+    int count = 0;
+    for (int i = index + 1; i > 0; i -= i & -i)
+    {
+      count += hiddenCounts[i];
+    }
+    return count;
+  }
+
+  /**
+   * Answers the position in hiddenSequences of the n'th visible row (counting
+   * from 1), which must be no more than the number of visible rows there
+   * 
+   * @param n
+   * @return
+   */
+  private int findVisibleRow(int n)
+  {
+    /*
+     * descend the tree to find the last position with fewer than n visible
+     * rows up to and including it; the next position is the one wanted
+     */
+    int pos = 0;
+    int step = Integer.highestOneBit(hiddenCounts.length - 1);
+    for (; step > 0; step >>= 1)
+    {
+      int next = pos + step;
+      if (next < hiddenCounts.length)
+      {
+        int visible = step - hiddenCounts[next];
+        if (visible < n)
+        {
+          pos = next;
+          n -= visible;
+        }
+      }
+    }
+    return pos;
   }
 
   /**
@@ -421,10 +714,6 @@ public class HiddenSequences
    */
   public boolean isHidden(int seq)
   {
-    if (hiddenSequences != null)
-    {
-      return (hiddenSequences[seq] != null);
-    }
-    return false;
+    return getHiddenSequence(seq) != null;
   }
 }
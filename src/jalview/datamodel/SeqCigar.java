@@ -25,6 +25,7 @@ import jalview.analysis.SeqsetUtils;
 import jalview.util.MessageManager;
 import jalview.util.ShiftList;
 
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.Hashtable;
 
@@ -105,6 +106,48 @@ public class SeqCigar extends CigarSimple
     return -1;
   }
 
+  /**
+   * Answers the positions in the sequence for a range of columns, as for
+   * findPosition, but in a single pass over the cigar operations
+   * 
+   * @param fromColumn
+   * @param toColumn
+   *          (inclusive)
+   * @return positions in sequence for each column (or -1 if no match state
+   *         exists)
+   */
+  public int[] findPositions(int fromColumn, int toColumn)
+  {
+    int[] positions = new int[Math.max(0, toColumn - fromColumn + 1)];
+    Arrays.fill(positions, -1);
+    if (range == null)
+    {
+      return positions;
+    }
+    int w = 0, ew, p = refseq.findPosition(start);
+    for (int i = 0; i < length && w <= toColumn; i++)
+    {
+      if (operation[i] == M || operation[i] == D)
+      {
+        p += range[i];
+      }
+      if (operation[i] == M || operation[i] == I)
+      {
+        ew = w + range[i];
+        if (operation[i] == M)
+        {
+          for (int col = Math.max(Math.max(w, fromColumn), 0); col < ew
+                  && col <= toColumn; col++)
+          {
+            positions[col - fromColumn] = p - (ew - col);
+          }
+        }
+        w = ew;
+      }
+    }
+    return positions;
+  }
+
   /**
    * Returns sequence as a string with cigar operations applied to it
    * 
@@ -31,6 +31,7 @@ import jalview.util.StringUtils;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Iterator;
@@ -392,6 +393,18 @@ public class Sequence extends ASequence implements SequenceI
     return sequenceFeatureStore.add(sf);
   }
 
+  @Override
+  public synchronized int addSequenceFeatures(
+          Collection<SequenceFeature> sfs)
+  {
+    if (datasetSequence != null)
+    {
+      return datasetSequence.addSequenceFeatures(sfs);
+    }
+
+    return sequenceFeatureStore.addFeatures(sfs);
+  }
+
   @Override
   public void deleteFeature(SequenceFeature sf)
   {
@@ -2009,6 +2022,12 @@ public class Sequence extends ASequence implements SequenceI
     changeCount++;
   }
 
+  @Override
+  public int getChangeCount()
+  {
+    return changeCount;
+  }
+
   /**
    * {@inheritDoc}
    */
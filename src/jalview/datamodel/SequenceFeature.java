@@ -21,18 +21,19 @@
 package jalview.datamodel;
 
 import java.util.Comparator;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.Vector;
 
+import jalview.datamodel.features.FeatureAttributeMap;
 import jalview.datamodel.features.FeatureAttributeType;
 import jalview.datamodel.features.FeatureAttributes;
 import jalview.datamodel.features.FeatureLocationI;
 import jalview.datamodel.features.FeatureSourceI;
 import jalview.datamodel.features.FeatureSources;
+import jalview.datamodel.features.FeatureStrings;
 import jalview.util.StringUtils;
 
 /**
@@ -81,7 +82,8 @@ public class SequenceFeature implements FeatureLocationI
 
   /*
    * a map of key-value pairs; may be populated from GFF 'column 9' data,
-   * other data sources (e.g. GenBank file), or programmatically
+   * other data sources (e.g. GenBank file), or programmatically;
+   * a FeatureAttributeMap shares attribute names with other features
    */
   public Map<String, Object> otherDetails;
 
@@ -134,11 +136,15 @@ public class SequenceFeature implements FeatureLocationI
   public SequenceFeature(String theType, String theDesc, int theBegin,
           int theEnd, float theScore, String group)
   {
-    this.type = theType;
-    this.description = theDesc;
+    /*
+     * type, group and (short) description strings recur across many
+     * features, so are shared via a dictionary
+     */
+    this.type = FeatureStrings.intern(theType);
+    this.description = FeatureStrings.intern(theDesc);
     this.begin = theBegin;
     this.end = theEnd;
-    this.featureGroup = group;
+    this.featureGroup = FeatureStrings.intern(group);
     this.score = theScore;
 
     /*
@@ -168,13 +174,11 @@ public class SequenceFeature implements FeatureLocationI
 
     if (sf.otherDetails != null)
     {
-      otherDetails = new LinkedHashMap<>();
-      otherDetails.putAll(sf.otherDetails);
+      otherDetails = new FeatureAttributeMap<>(sf.otherDetails);
     }
     if (sf.links != null && sf.links.size() > 0)
     {
-      links = new Vector<>();
-      links.addAll(sf.links);
+      links = new Vector<>(sf.links);
     }
   }
 
@@ -325,7 +329,7 @@ public class SequenceFeature implements FeatureLocationI
 
   public void setDescription(String desc)
   {
-    description = desc;
+    description = FeatureStrings.intern(desc);
   }
 
   public String getFeatureGroup()
@@ -342,7 +346,7 @@ public class SequenceFeature implements FeatureLocationI
   {
     if (links == null)
     {
-      links = new Vector<>();
+      links = new Vector<>(2);
     }
 
     if (!links.contains(labelLink))
@@ -429,9 +433,9 @@ public class SequenceFeature implements FeatureLocationI
       if (otherDetails == null)
       {
         /*
-         * LinkedHashMap preserves insertion order of attributes
+         * FeatureAttributeMap preserves insertion order of attributes
          */
-        otherDetails = new LinkedHashMap<>();
+        otherDetails = new FeatureAttributeMap<>();
       }
 
       otherDetails.put(key, value);
@@ -743,7 +747,7 @@ public class SequenceFeature implements FeatureLocationI
    */
   public void setSource(String theSource)
   {
-    source = theSource;
+    source = FeatureStrings.intern(theSource);
   }
 }
 
@@ -26,6 +26,7 @@ import jalview.util.MapList;
 import jalview.ws.params.InvalidArgumentException;
 
 import java.util.BitSet;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Vector;
@@ -387,6 +388,16 @@ public interface SequenceI extends ASequenceI
    */
   public boolean addSequenceFeature(SequenceFeature sf);
 
+  /**
+   * Adds the given sequence features, omitting any already present on the
+   * sequence or with a null type, and returns the number added. This is much
+   * faster than adding many features one at a time.
+   * 
+   * @param sfs
+   * @return
+   */
+  public int addSequenceFeatures(Collection<SequenceFeature> sfs);
+
   public void deleteFeature(SequenceFeature sf);
 
   public void setDatasetSequence(SequenceI seq);
@@ -542,6 +553,14 @@ public interface SequenceI extends ASequenceI
    */
   void sequenceChanged();
 
+  /**
+   * Answers a count which is incremented each time the sequence (characters or
+   * alignment/gaps) is modified, so can be used to detect changes
+   * 
+   * @return
+   */
+  int getChangeCount();
+
   /**
    * 
    * @return BitSet corresponding to index [0,length) where Comparison.isGap()
@@ -0,0 +1,189 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.datamodel;
+
+/**
+ * Holds the results of an RNA base pair consensus calculation, in primitive
+ * arrays indexed by column. For each column this records the consensus symbol
+ * (one of ([{ for the 5' position of a pair, or )]} for the 3' position, or -
+ * for an unpaired column), the count of valid (canonical or wobble) pairs, the
+ * counts of gapped and non-gapped pairs, and optionally the counts of each base
+ * pair (shared by both columns of the pair).
+ */
+public class StructureProfiles
+{
+  /**
+   * the number of distinct base pairs counted (A-Z by A-Z)
+   */
+  public static final int PAIR_COUNTS_LENGTH = 26 * 26;
+
+  private final int height;
+
+  private final char[] maxResidue;
+
+  private final int[] count;
+
+  private final int[] nonGapped;
+
+  private final int[] gapped;
+
+  private final int[][] pairCounts;
+
+  /**
+   * Constructor
+   *
+   * @param width
+   *          number of columns
+   * @param height
+   *          number of sequences
+   * @param savePairCounts
+   *          if true, counts of each base pair are saved (for logos and
+   *          tooltips)
+   */
+  public StructureProfiles(int width, int height, boolean savePairCounts)
+  {
+    this.height = height;
+    maxResidue = new char[width];
+    count = new int[width];
+    nonGapped = new int[width];
+    gapped = new int[width];
+    pairCounts = savePairCounts ? new int[width][] : null;
+  }
+
+  /**
+   * Answers the index of the base pair in the pair counts array, for upper
+   * case letters first and second
+   *
+   * @param first
+   * @param second
+   * @return
+   */
+  public static int getPairIndex(char first, char second)
+  {
+    return (first - 'A') * 26 + (second - 'A');
+  }
+
+  /**
+   * Sets the results for one column
+   *
+   * @param column
+   * @param symbol
+   *          consensus symbol
+   * @param pairs
+   *          count of canonical or wobble pairs
+   * @param nonGappedCount
+   *          count of sequences with residues at both positions of the pair
+   * @param gappedCount
+   * @param counts
+   *          base pair counts (indexed by getPairIndex), or null
+   */
+  public void setColumn(int column, char symbol, int pairs,
+          int nonGappedCount, int gappedCount, int[] counts)
+  {
+    maxResidue[column] = symbol;
+    count[column] = pairs;
+    nonGapped[column] = nonGappedCount;
+    gapped[column] = gappedCount;
+    if (pairCounts != null)
+    {
+      pairCounts[column] = counts;
+    }
+  }
+
+  public int getWidth()
+  {
+    return maxResidue.length;
+  }
+
+  public int getHeight()
+  {
+    return height;
+  }
+
+  /**
+   * Answers true if the column has been calculated
+   *
+   * @param column
+   * @return
+   */
+  public boolean isCalculated(int column)
+  {
+    return column >= 0 && column < maxResidue.length
+            && maxResidue[column] != 0;
+  }
+
+  public char getMaxResidue(int column)
+  {
+    return maxResidue[column];
+  }
+
+  /**
+   * Answers the count of canonical or wobble pairs for the column
+   *
+   * @param column
+   * @return
+   */
+  public int getCount(int column)
+  {
+    return count[column];
+  }
+
+  public int getGappedCount(int column)
+  {
+    return gapped[column];
+  }
+
+  /**
+   * Answers the percentage of sequences (or of non-gapped pairs, if
+   * ignoreGaps is true) that have a canonical or wobble pair at the column
+   *
+   * @param column
+   * @param ignoreGaps
+   * @return
+   */
+  public float getPercentageIdentity(int column, boolean ignoreGaps)
+  {
+    return ((float) count[column] * 100)
+            / (ignoreGaps ? nonGapped[column] : height);
+  }
+
+  /**
+   * Answers true if base pair counts were saved
+   *
+   * @return
+   */
+  public boolean hasPairCounts()
+  {
+    return pairCounts != null;
+  }
+
+  /**
+   * Answers the base pair counts for the column, indexed by getPairIndex, or
+   * null if not saved or the column is not paired
+   *
+   * @param column
+   * @return
+   */
+  public int[] getPairCounts(int column)
+  {
+    return pairCounts == null ? null : pairCounts[column];
+  }
+}
@@ -0,0 +1,414 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.datamodel.features;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A compact map of feature attribute names to values, which preserves the
+ * order in which attributes were added (as LinkedHashMap does).
+ * <p>
+ * Features loaded from one source tend to have the same attributes, added in
+ * the same order. So the attribute names are held in a schema (an ordered list
+ * of names) shared by all maps with the same names, and each map holds just
+ * its schema and an array of values. This takes a fraction of the memory of a
+ * hash map's table and entries. Schemas are held weakly, so are dropped once
+ * no map uses them. String values are interned in the FeatureStrings
+ * dictionary.
+ * <p>
+ * Lookup is by a scan of the schema's names, or (for schemas with more than a
+ * few names) by a shared index. Null keys are not supported. This class is not
+ * thread-safe.
+ *
+ * @param <V>
+ */
+public class FeatureAttributeMap<V> extends AbstractMap<String, V>
+{
+  /**
+   * An ordered list of attribute names, with links to the schemas made by
+   * adding one more name to it
+   */
+  static final class Schema
+  {
+    private static final int SCAN_SIZE = 8;
+
+    static final Schema EMPTY = new Schema(null, new String[0]);
+
+    final String[] names;
+
+    /*
+     * the schema this one extends, held so that it (and so its link to this
+     * schema) is not dropped while this schema is in use
+     */
+    private final Schema parent;
+
+    /*
+     * schemas made by adding a name to this one, keyed by the name; these are
+     * held weakly, so a schema is dropped once no map uses it
+     */
+    private Map<String, WeakReference<Schema>> next;
+
+    /*
+     * the size of next at which to purge links to dropped schemas
+     */
+    private int purgeAt = SCAN_SIZE;
+
+    /*
+     * position of each name, if there are too many to scan
+     */
+    private volatile Map<String, Integer> index;
+
+    private Schema(Schema parent, String[] names)
+    {
+      this.parent = parent;
+      this.names = names;
+    }
+
+    /**
+     * Answers the position of the name, or -1 if not present
+     * 
+     * @param name
+     * @return
+     */
+    int indexOf(Object name)
+    {
+      if (name == null)
+      {
+        return -1;
+      }
+      if (names.length <= SCAN_SIZE)
+      {
+        for (int i = 0; i < names.length; i++)
+        {
+          if (names[i] == name || names[i].equals(name))
+          {
+            return i;
+          }
+        }
+        return -1;
+      }
+      Map<String, Integer> positions = index;
+      if (positions == null)
+      {
+        positions = new HashMap<>();
+        for (int i = 0; i < names.length; i++)
+        {
+          positions.put(names[i], i);
+        }
+        index = positions;
+      }
+      Integer i = positions.get(name);
+      return i == null ? -1 : i.intValue();
+    }
+
+    /**
+     * Answers the schema with the given name added to this one's names
+     * 
+     * @param name
+     * @return
+     */
+    Schema with(String name)
+    {
+      synchronized (this)
+      {
+        WeakReference<Schema> ref = next == null ? null : next.get(name);
+        Schema schema = ref == null ? null : ref.get();
+        if (schema != null)
+        {
+          return schema;
+        }
+        String[] names2 = Arrays.copyOf(names, names.length + 1);
+        names2[names.length] = FeatureStrings.intern(name);
+        schema = new Schema(this, names2);
+        if (next == null)
+        {
+          next = new HashMap<>(4);
+        }
+        else if (next.size() >= purgeAt)
+        {
+          purge();
+        }
+        next.put(names2[names.length], new WeakReference<>(schema));
+        return schema;
+      }
+    }
+
+    /**
+     * Removes links to schemas which have been garbage collected. The purge
+     * threshold is then set to twice the remaining size, so purging takes
+     * amortised constant time per schema added.
+     */
+    private void purge()
+    {
+      Iterator<WeakReference<Schema>> it = next.values().iterator();
+      while (it.hasNext())
+      {
+        if (it.next().get() == null)
+        {
+          it.remove();
+        }
+      }
+      purgeAt = Math.max(SCAN_SIZE, 2 * next.size());
+    }
+  }
+
+  private Schema schema;
+
+  private Object[] values;
+
+  /**
+   * Constructor for an empty map
+   */
+  public FeatureAttributeMap()
+  {
+    schema = Schema.EMPTY;
+    values = new Object[0];
+  }
+
+  /**
+   * Constructs a map with the same entries as the given map
+   * 
+   * @param map
+   */
+  public FeatureAttributeMap(Map<String, ? extends V> map)
+  {
+    this();
+    if (map instanceof FeatureAttributeMap<?>)
+    {
+      FeatureAttributeMap<?> fam = (FeatureAttributeMap<?>) map;
+      schema = fam.schema;
+      values = fam.values.clone();
+    }
+    else
+    {
+      putAll(map);
+    }
+  }
+
+  @Override
+  public int size()
+  {
+    return values.length;
+  }
+
+  @Override
+  public boolean containsKey(Object key)
+  {
+    return schema.indexOf(key) > -1;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public V get(Object key)
+  {
+    int i = schema.indexOf(key);
+    return i == -1 ? null : (V) values[i];
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public V put(String key, V value)
+  {
+    if (key == null)
+    {
+      throw new NullPointerException("Null attribute name");
+    }
+    Object v = FeatureStrings.internValue(value);
+    int i = schema.indexOf(key);
+    if (i > -1)
+    {
+      V old = (V) values[i];
+      values[i] = v;
+      return old;
+    }
+    schema = schema.with(key);
+    values = Arrays.copyOf(values, values.length + 1);
+    values[values.length - 1] = v;
+    return null;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public V remove(Object key)
+  {
+    int i = schema.indexOf(key);
+    if (i == -1)
+    {
+      return null;
+    }
+    V old = (V) values[i];
+    removeAt(i);
+    return old;
+  }
+
+  @Override
+  public void clear()
+  {
+    schema = Schema.EMPTY;
+    values = new Object[0];
+  }
+
+  /**
+   * Removes the entry at the given position, by rebuilding the schema without
+   * its name
+   * 
+   * @param pos
+   */
+  private void removeAt(int pos)
+  {
+    String[] names = schema.names;
+    Schema newSchema = Schema.EMPTY;
+    Object[] newValues = new Object[values.length - 1];
+    for (int i = 0, j = 0; i < names.length; i++)
+    {
+      if (i != pos)
+      {
+        newSchema = newSchema.with(names[i]);
+        newValues[j++] = values[i];
+      }
+    }
+    schema = newSchema;
+    values = newValues;
+  }
+
+  @Override
+  public Set<Entry<String, V>> entrySet()
+  {
+    return new AbstractSet<Entry<String, V>>()
+    {
+      @Override
+      public int size()
+      {
+        return values.length;
+      }
+
+      @Override
+      public Iterator<Entry<String, V>> iterator()
+      {
+        return new Iterator<Entry<String, V>>()
+        {
+          private int next = 0;
+
+          private int last = -1;
+
+          @Override
+          public boolean hasNext()
+          {
+            return next < values.length;
+          }
+
+          @Override
+          public Entry<String, V> next()
+          {
+            if (!hasNext())
+            {
+              throw new NoSuchElementException();
+            }
+            last = next++;
+            return new AttributeEntry(last);
+          }
+
+          @Override
+          public void remove()
+          {
+            if (last == -1)
+            {
+              throw new IllegalStateException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * An entry which reads and writes through to the map's value array
+   */
+  private class AttributeEntry implements Entry<String, V>
+  {
+    private final int pos;
+
+    AttributeEntry(int pos)
+    {
+      this.pos = pos;
+    }
+
+    @Override
+    public String getKey()
+    {
+      return schema.names[pos];
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V getValue()
+    {
+      return (V) values[pos];
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V setValue(V value)
+    {
+      V old = (V) values[pos];
+      values[pos] = FeatureStrings.internValue(value);
+      return old;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+      if (!(o instanceof Entry<?, ?>))
+      {
+        return false;
+      }
+      Entry<?, ?> e = (Entry<?, ?>) o;
+      Object value = getValue();
+      return getKey().equals(e.getKey()) && (value == null
+              ? e.getValue() == null
+              : value.equals(e.getValue()));
+    }
+
+    @Override
+    public int hashCode()
+    {
+      Object value = getValue();
+      return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+    }
+
+    @Override
+    public String toString()
+    {
+      return getKey() + "=" + getValue();
+    }
+  }
+}
@@ -21,7 +21,9 @@
 package jalview.datamodel.features;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -171,6 +173,134 @@ public class FeatureStore
     return true;
   }
 
+  /**
+   * Adds a batch of sequence features to the store, omitting any which are
+   * already contained in the store or duplicated in the batch, and returns the
+   * number of features added. This is equivalent to calling
+   * <code>addFeature</code> for each feature, but much faster for large
+   * batches: duplicates are found by hashing, contact features are sorted once,
+   * and the interval store is (if the batch is large relative to the store)
+   * rebuilt in one pass rather than by repeated insertion.
+   *
+   * @param toAdd
+   * @return
+   */
+  public synchronized int addFeatures(Collection<SequenceFeature> toAdd)
+  {
+    /*
+     * hash the features already stored, to detect duplicates
+     */
+    Set<SequenceFeature> stored = new HashSet<>();
+    if (!isEmpty())
+    {
+      stored.addAll(getPositionalFeatures());
+      stored.addAll(getNonPositionalFeatures());
+    }
+
+    List<SequenceFeature> nested = new ArrayList<>();
+    List<SequenceFeature> contacts = new ArrayList<>();
+    int added = 0;
+    for (SequenceFeature feature : toAdd)
+    {
+      if (!stored.add(feature))
+      {
+        continue;
+      }
+      added++;
+      float score = feature.getScore();
+      if (feature.isNonPositional())
+      {
+        addNonPositionalFeature(feature);
+        nonPositionalMinScore = min(nonPositionalMinScore, score);
+        nonPositionalMaxScore = max(nonPositionalMaxScore, score);
+        continue;
+      }
+      positionalFeatureGroups.add(feature.getFeatureGroup());
+      positionalMinScore = min(positionalMinScore, score);
+      positionalMaxScore = max(positionalMaxScore, score);
+      totalExtent += getFeatureLength(feature);
+      if (feature.isContactFeature())
+      {
+        contacts.add(feature);
+      }
+      else
+      {
+        nested.add(feature);
+      }
+    }
+
+    /*
+     * features are stored in the same order as if added one at a time, where
+     * a feature is placed before any already stored at the same position;
+     * so list the batch in reverse, ahead of those already stored, and
+     * (stable) sort
+     */
+    Collections.reverse(contacts);
+    Collections.reverse(nested);
+    if (!contacts.isEmpty())
+    {
+      addContactFeatures(contacts);
+    }
+
+    if (!nested.isEmpty())
+    {
+      int size = features == null ? 0 : features.size();
+      if (nested.size() * 4 >= size)
+      {
+        if (size > 0)
+        {
+          nested.addAll(features);
+        }
+        features = new IntervalStore<>(nested);
+      }
+      else
+      {
+        for (int i = nested.size() - 1; i >= 0; i--)
+        {
+          features.add(nested.get(i), true);
+        }
+      }
+    }
+
+    return added;
+  }
+
+  /**
+   * Adds contact features to the lists that hold them ordered by start and by
+   * end position, by merging them ahead of those already stored and sorting
+   * each list once
+   *
+   * @param contacts
+   */
+  protected void addContactFeatures(List<SequenceFeature> contacts)
+  {
+    List<SequenceFeature> starts = new ArrayList<>(contacts);
+    List<SequenceFeature> ends = new ArrayList<>(contacts);
+    if (contactFeatureStarts != null)
+    {
+      starts.addAll(contactFeatureStarts);
+      ends.addAll(contactFeatureEnds);
+    }
+    contactFeatureStarts = starts;
+    contactFeatureEnds = ends;
+    Collections.sort(contactFeatureStarts, new Comparator<SequenceFeature>()
+    {
+      @Override
+      public int compare(SequenceFeature o1, SequenceFeature o2)
+      {
+        return Integer.compare(o1.getBegin(), o2.getBegin());
+      }
+    });
+    Collections.sort(contactFeatureEnds, new Comparator<SequenceFeature>()
+    {
+      @Override
+      public int compare(SequenceFeature o1, SequenceFeature o2)
+      {
+        return Integer.compare(o1.getEnd(), o2.getEnd());
+      }
+    });
+  }
+
   /**
    * Answers true if this store contains the given feature (testing by
    * SequenceFeature.equals), else false
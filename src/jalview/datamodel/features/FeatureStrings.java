@@ -0,0 +1,87 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.datamodel.features;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A dictionary of the strings that recur across many sequence features -
+ * feature types, groups and sources, attribute names, and short attribute
+ * values such as alleles, frequencies or consequence terms - so that each
+ * distinct value is held once however many features refer to it.
+ * <p>
+ * Long strings are not interned, as they are unlikely to recur. Strings are
+ * held weakly, so a string is dropped from the dictionary once no feature
+ * refers to it, and the dictionary does not outlive the features loaded.
+ */
+public class FeatureStrings
+{
+  /**
+   * strings longer than this are not interned
+   */
+  public static final int MAX_LENGTH = 64;
+
+  private static final Map<String, WeakReference<String>> strings =
+          new WeakHashMap<>();
+
+  private FeatureStrings()
+  {
+  }
+
+  /**
+   * Answers the dictionary's copy of a string equal to s (adding s to the
+   * dictionary if not already present), or s itself if it is null or too long
+   * 
+   * @param s
+   * @return
+   */
+  public static String intern(String s)
+  {
+    if (s == null || s.length() > MAX_LENGTH)
+    {
+      return s;
+    }
+    synchronized (strings)
+    {
+      WeakReference<String> ref = strings.get(s);
+      String interned = ref == null ? null : ref.get();
+      if (interned == null)
+      {
+        interned = s;
+        strings.put(s, new WeakReference<>(s));
+      }
+      return interned;
+    }
+  }
+
+  /**
+   * Answers the interned string if value is a String, else value
+   * 
+   * @param value
+   * @return
+   */
+  public static Object internValue(Object value)
+  {
+    return value instanceof String ? intern((String) value) : value;
+  }
+}
@@ -21,7 +21,9 @@
 package jalview.datamodel.features;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -50,6 +52,11 @@ public class SequenceFeatures implements SequenceFeaturesI
    */
   private Map<String, FeatureStore> featureStore;
 
+  /*
+   * incremented on any add, delete or shift of features
+   */
+  private volatile int changeCount;
+
   /**
    * Constructor
    */
@@ -72,10 +79,7 @@ public class SequenceFeatures implements SequenceFeaturesI
     this();
     if (features != null)
     {
-      for (SequenceFeature feature : features)
-      {
-        add(feature);
-      }
+      addFeatures(features);
     }
   }
 
@@ -96,7 +100,59 @@ public class SequenceFeatures implements SequenceFeaturesI
     {
       featureStore.put(type, new FeatureStore());
     }
-    return featureStore.get(type).addFeature(sf);
+    boolean added = featureStore.get(type).addFeature(sf);
+    if (added)
+    {
+      changeCount++;
+    }
+    return added;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int addFeatures(Collection<SequenceFeature> sfs)
+  {
+    /*
+     * group features by type, preserving their order, so each
+     * feature store is looked up (and bulk loaded) once
+     */
+    Map<String, List<SequenceFeature>> byType = new HashMap<>();
+    for (SequenceFeature sf : sfs)
+    {
+      String type = sf.getType();
+      if (type == null)
+      {
+        System.err
+                .println("Feature type may not be null: " + sf.toString());
+        continue;
+      }
+      List<SequenceFeature> ofType = byType.get(type);
+      if (ofType == null)
+      {
+        ofType = new ArrayList<>();
+        byType.put(type, ofType);
+      }
+      ofType.add(sf);
+    }
+
+    int added = 0;
+    for (Entry<String, List<SequenceFeature>> ofType : byType.entrySet())
+    {
+      FeatureStore store = featureStore.get(ofType.getKey());
+      if (store == null)
+      {
+        store = new FeatureStore();
+        featureStore.put(ofType.getKey(), store);
+      }
+      added += store.addFeatures(ofType.getValue());
+    }
+    if (added > 0)
+    {
+      changeCount++;
+    }
+    return added;
   }
 
   /**
@@ -270,6 +326,7 @@ public class SequenceFeatures implements SequenceFeaturesI
     {
       if (featureSet.delete(sf))
       {
+        changeCount++;
         return true;
       }
     }
@@ -457,6 +514,10 @@ public class SequenceFeatures implements SequenceFeaturesI
     {
       modified |= fs.shiftFeatures(fromPosition, shiftBy);
     }
+    if (modified)
+    {
+      changeCount++;
+    }
     return modified;
   }
 
@@ -467,5 +528,15 @@ public class SequenceFeatures implements SequenceFeaturesI
   public void deleteAll()
   {
     featureStore.clear();
+    changeCount++;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getChangeCount()
+  {
+    return changeCount;
   }
 }
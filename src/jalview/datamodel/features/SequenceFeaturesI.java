@@ -22,6 +22,7 @@ package jalview.datamodel.features;
 
 import jalview.datamodel.SequenceFeature;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -39,6 +40,17 @@ public interface SequenceFeaturesI
    */
   boolean add(SequenceFeature sf);
 
+  /**
+   * Adds a batch of sequence features to the store, omitting any already
+   * contained in the store (or duplicated in the batch), or with a null type,
+   * and returns the number of features added. This is much faster than adding
+   * features one at a time when loading large numbers of features.
+   * 
+   * @param sfs
+   * @return
+   */
+  int addFeatures(Collection<SequenceFeature> sfs);
+
   /**
    * Returns a (possibly empty) list of features, optionally restricted to
    * specified types, which overlap the given (inclusive) sequence position
@@ -225,4 +237,12 @@ public interface SequenceFeaturesI
    * Deletes all positional and non-positional features
    */
   void deleteAll();
+
+  /**
+   * Answers a count which is incremented whenever features are added, deleted
+   * or shifted, so may be compared to detect any such change
+   * 
+   * @return
+   */
+  int getChangeCount();
 }
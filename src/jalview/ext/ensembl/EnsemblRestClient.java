@@ -22,22 +22,26 @@ package jalview.ext.ensembl;
 
 import java.io.BufferedReader;
 import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.ProtocolException;
 import java.net.URL;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.ws.rs.HttpMethod;
 
 import org.json.simple.parser.ParseException;
 
+import jalview.util.HttpTransport;
 import jalview.util.Platform;
 import jalview.util.StringUtils;
+import jalview.ws.utils.ResponseCache;
 
 /**
  * Base class for Ensembl REST service clients
@@ -59,10 +63,6 @@ abstract class EnsemblRestClient extends EnsemblSequenceFetcher
 
   private static final int MAX_RETRIES = 3;
 
-  private static final int HTTP_OK = 200;
-
-  private static final int HTTP_OVERLOAD = 429;
-
   /*
    * update these constants when Jalview has been checked / updated for
    * changes to Ensembl REST API, and updated JAL-3018
@@ -85,7 +85,7 @@ abstract class EnsemblRestClient extends EnsemblSequenceFetcher
 
   static
   {
-    domainData = new HashMap<>();
+    domainData = new ConcurrentHashMap<>();
     domainData.put(DEFAULT_ENSEMBL_BASEURL, new EnsemblData(
             DEFAULT_ENSEMBL_BASEURL, LATEST_ENSEMBL_REST_VERSION));
     domainData.put(DEFAULT_ENSEMBL_GENOMES_BASEURL,
@@ -279,52 +279,136 @@ abstract class EnsemblRestClient extends EnsemblSequenceFetcher
    * @throws IOException
    * @throws ParseException
    */
-  private Object getJSON(URL url, List<String> ids, int readTimeout)
-          throws IOException, ParseException
+  private Object getJSON(final URL url, final List<String> ids,
+          int readTimeout) throws IOException, ParseException
   {
-
-    if (readTimeout < 0)
-    {
-      readTimeout = DEFAULT_READ_TIMEOUT;
-    }
-    int retriesLeft = MAX_RETRIES;
-    HttpURLConnection connection = null;
-    int responseCode = 0;
+    final int timeout = readTimeout < 0 ? DEFAULT_READ_TIMEOUT
+            : readTimeout;
 
     Platform.setAjaxJSON(url);
 
-    while (retriesLeft > 0)
+    /*
+     * queries for ids are served from the local response cache if it is
+     * enabled and has a current copy (or any copy if offline);
+     * service queries (ping, versions) are always sent
+     */
+    ResponseCache cache = ids == null || ids.isEmpty() ? null
+            : ResponseCache.getInstance();
+    String cacheKey = cache == null ? null
+            : url.toString() + " " + String.join(",", ids);
+    ResponseCache.Entry cached = cache == null ? null
+            : cache.lookup(getDbSource(), cacheKey);
+    try
+    {
+      return getJSON(url, ids, timeout, cache, cacheKey, cached);
+    } finally
     {
-      connection = tryConnection(url, ids, readTimeout);
-      responseCode = connection.getResponseCode();
-      if (responseCode == HTTP_OVERLOAD) // 429
+      if (cached != null)
       {
-        retriesLeft--;
-        checkRetryAfter(connection);
+        cache.release(cached.getFile());
       }
-      else
+    }
+  }
+
+  /**
+   * Answers the parsed JSON response to the request, from the cached entry if
+   * it is current (or if offline), else from the server (saving it to the
+   * cache if not null)
+   * 
+   * @param url
+   * @param ids
+   * @param timeout
+   * @param cache
+   *          may be null
+   * @param cacheKey
+   * @param cached
+   *          the cached response, or null
+   * @return
+   * @throws IOException
+   * @throws ParseException
+   */
+  private Object getJSON(final URL url, final List<String> ids,
+          final int timeout, ResponseCache cache, String cacheKey,
+          ResponseCache.Entry cached) throws IOException, ParseException
+  {
+    if (cached != null && (ResponseCache.isOffline()
+            || cache.isFresh(cached, getDbSource())))
+    {
+      return parseJSON(cached.getFile());
+    }
+    if (cache != null)
+    {
+      ResponseCache.checkOnline(getDbSource(), cacheKey);
+    }
+
+    /*
+     * the shared transport limits concurrent requests to the host, waits for
+     * its rate limit if exhausted, and retries on 429 or 503 responses
+     */
+    HttpTransport.Response response;
+    try
+    {
+      response = HttpTransport.getInstance().execute(url,
+              new HttpTransport.Request()
+              {
+                @Override
+                public HttpURLConnection open() throws IOException
+                {
+                  return tryConnection(url, ids, timeout);
+                }
+              }, MAX_RETRIES);
+    } catch (IOException e)
+    {
+      if (cached == null)
       {
-        retriesLeft = 0;
+        throw e;
       }
+      System.err.println("Using cached response as " + e.getMessage());
+      return parseJSON(cached.getFile());
     }
-    if (responseCode != HTTP_OK) // 200
+    try
     {
+      int responseCode = response.getResponseCode();
+      if (responseCode != HttpTransport.HTTP_OK) // 200
+      {
+        /*
+         * note: a GET request for an invalid id returns an error code e.g. 415
+         * but POST request returns 200 and an empty Fasta response 
+         */
+        System.err.println("Response code " + responseCode);
+        return null;
+      }
+
+      if (cache != null)
+      {
+        File file = cache.put(getDbSource(), cacheKey,
+                response.getInputStream(), null, null);
+        try
+        {
+          return parseJSON(file);
+        } finally
+        {
+          cache.release(file);
+        }
+      }
+
       /*
-       * note: a GET request for an invalid id returns an error code e.g. 415
-       * but POST request returns 200 and an empty Fasta response 
+       * parse the response as it is read
        */
-      System.err.println("Response code " + responseCode);// + " for " + url);
-      return null;
+      return Platform.parseJSON(response.getInputStream());
+    } finally
+    {
+      response.close();
     }
+  }
 
-    InputStream response = connection.getInputStream();
-
-    // Platform.timeCheck(null, Platform.TIME_MARK);
-    Object ret = Platform.parseJSON(response);
-    // Platform.timeCheck("EnsemblRestClient.getJSON " + url,
-    // Platform.TIME_MARK);
-
-    return ret;
+  private static Object parseJSON(File file)
+          throws IOException, ParseException
+  {
+    try (InputStream is = new FileInputStream(file))
+    {
+      return Platform.parseJSON(is);
+    }
   }
 
   /**
@@ -366,39 +450,6 @@ abstract class EnsemblRestClient extends EnsemblSequenceFetcher
     return connection;
   }
 
-  /**
-   * Inspects response headers for a 'retry-after' directive, and waits for the
-   * directed period (if less than 10 seconds)
-   * 
-   * @see https://github.com/Ensembl/ensembl-rest/wiki/Rate-Limits
-   * @param connection
-   */
-  void checkRetryAfter(HttpURLConnection connection)
-  {
-    String retryDelay = connection.getHeaderField("Retry-After");
-
-    // to test:
-    // retryDelay = "5";
-
-    if (retryDelay != null)
-    {
-      try
-      {
-        int retrySecs = Integer.valueOf(retryDelay);
-        if (retrySecs > 0 && retrySecs < 10)
-        {
-          System.err.println(
-                  "Ensembl REST service rate limit exceeded, waiting "
-                          + retryDelay + " seconds before retrying");
-          Thread.sleep(1000 * retrySecs);
-        }
-      } catch (NumberFormatException | InterruptedException e)
-      {
-        System.err.println("Error handling Retry-After: " + e.getMessage());
-      }
-    }
-  }
-
   /**
    * Rechecks if Ensembl is responding, unless the last check was successful and
    * the retest interval has not yet elapsed. Returns true if Ensembl is up,
@@ -409,6 +460,13 @@ abstract class EnsemblRestClient extends EnsemblSequenceFetcher
    */
   protected boolean isEnsemblAvailable()
   {
+    if (ResponseCache.isOffline())
+    {
+      /*
+       * queries will be answered from the local cache only
+       */
+      return true;
+    }
     EnsemblData info = domainData.get(getDomain());
 
     long now = System.currentTimeMillis();
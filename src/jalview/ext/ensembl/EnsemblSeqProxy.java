@@ -26,8 +26,13 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.json.simple.parser.ParseException;
 
@@ -51,6 +56,8 @@ import jalview.util.Comparison;
 import jalview.util.DBRefUtils;
 import jalview.util.IntRangeComparator;
 import jalview.util.MapList;
+import jalview.util.Platform;
+import jalview.util.ThreadPools;
 
 /**
  * Base class for Ensembl sequence fetchers
@@ -168,22 +175,91 @@ public abstract class EnsemblSeqProxy extends EnsemblRestClient
 
     /*
      * fetch and transfer genomic sequence features,
-     * fetch protein product and add as cross-reference
+     * fetch protein product and add as cross-reference;
+     * concurrently, fetch database cross-references
      */
-    for (int i = 0, n = allIds.size(); i < n; i++)
+    List<SequenceI> seqs = alignment.getSequences();
+    if (Platform.isJS() || ThreadPools.isPoolThread())
     {
-      addFeaturesAndProduct(allIds.get(i), alignment);
+      for (int i = 0, n = allIds.size(); i < n; i++)
+      {
+        addFeaturesAndProduct(allIds.get(i), alignment);
+      }
+      for (int i = 0, n = seqs.size(); i < n; i++)
+      {
+        getCrossReferences(seqs.get(i));
+      }
+      return alignment;
     }
 
-    List<SequenceI> seqs = alignment.getSequences();
+    ExecutorService pool = ThreadPools.getIOPool();
+    List<Future<?>> productTasks = new ArrayList<>();
+    final AlignmentI al = alignment;
+    for (final String accId : new LinkedHashSet<>(allIds))
+    {
+      productTasks.add(pool.submit(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          addFeaturesAndProduct(accId, al);
+        }
+      }));
+    }
+    List<Future<List<DBRefEntry>>> xrefTasks = new ArrayList<>();
+    for (int i = 0, n = seqs.size(); i < n; i++)
+    {
+      final String name = getDatasetRoot(seqs.get(i)).getName();
+      xrefTasks.add(pool.submit(new Callable<List<DBRefEntry>>()
+      {
+        @Override
+        public List<DBRefEntry> call()
+        {
+          return fetchCrossReferences(name);
+        }
+      }));
+    }
+
+    /*
+     * wait for features and products (which may create dataset sequences)
+     * before adding cross-references to the sequences
+     */
+    for (Future<?> task : productTasks)
+    {
+      getResult(task);
+    }
     for (int i = 0, n = seqs.size(); i < n; i++)
     {
-      getCrossReferences(seqs.get(i));
+      addCrossReferences(seqs.get(i), getResult(xrefTasks.get(i)));
     }
 
     return alignment;
   }
 
+  /**
+   * Waits for and answers the result of a fetch task, rethrowing any exception
+   * it threw
+   * 
+   * @param task
+   * @return
+   * @throws Exception
+   */
+  private static <T> T getResult(Future<T> task) throws Exception
+  {
+    try
+    {
+      return task.get();
+    } catch (ExecutionException e)
+    {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception)
+      {
+        throw (Exception) cause;
+      }
+      throw (Error) cause;
+    }
+  }
+
   /**
    * Fetches Ensembl features using the /overlap REST endpoint, and adds them to
    * the sequence in the alignment. Also fetches the protein product, maps it
@@ -356,24 +432,36 @@ public abstract class EnsemblSeqProxy extends EnsemblRestClient
    */
   protected void getCrossReferences(SequenceI seq)
   {
+    addCrossReferences(seq,
+            fetchCrossReferences(getDatasetRoot(seq).getName()));
+  }
 
-    // Platform.timeCheck("ESP. getdataseq ", Platform.TIME_MARK);
-
-    while (seq.getDatasetSequence() != null)
-    {
-      seq = seq.getDatasetSequence();
-    }
-
-    // Platform.timeCheck("ESP. getxref ", Platform.TIME_MARK);
-
+  /**
+   * Fetches database xrefs from Ensembl for the given sequence name
+   * 
+   * @param name
+   * @return
+   */
+  protected List<DBRefEntry> fetchCrossReferences(String name)
+  {
     EnsemblXref xrefFetcher = new EnsemblXref(getDomain(), getDbSource(),
             getEnsemblDataVersion());
-    List<DBRefEntry> xrefs = xrefFetcher.getCrossReferences(seq.getName());
+    return xrefFetcher.getCrossReferences(name);
+  }
+
+  /**
+   * Attaches the xrefs, and a reference to itself, to the (dataset of the)
+   * sequence
+   * 
+   * @param seq
+   * @param xrefs
+   */
+  protected void addCrossReferences(SequenceI seq, List<DBRefEntry> xrefs)
+  {
+    seq = getDatasetRoot(seq);
 
     for (int i = 0, n = xrefs.size(); i < n; i++)
     {
-      // Platform.timeCheck("ESP. getxref + " + (i) + "/" + n,
-      // Platform.TIME_MARK);
       // BH 2019.01.25 this next method was taking 174 ms PER addition for a
       // 266-reference example.
       // DBRefUtils.ensurePrimaries(seq)
@@ -382,21 +470,21 @@ public abstract class EnsemblSeqProxy extends EnsemblRestClient
       seq.addDBRef(xrefs.get(i));
     }
 
-    // System.out.println("primaries are " + seq.getPrimaryDBRefs().toString());
     /*
      * and add a reference to itself
      */
-
-    // Platform.timeCheck("ESP. getxref self ", Platform.TIME_MARK);
-
     DBRefEntry self = new DBRefEntry(getDbSource(), getEnsemblDataVersion(),
             seq.getName());
-
-    // Platform.timeCheck("ESP. getxref self add ", Platform.TIME_MARK);
-
     seq.addDBRef(self);
+  }
 
-    // Platform.timeCheck("ESP. seqprox done ", Platform.TIME_MARK);
+  private static SequenceI getDatasetRoot(SequenceI seq)
+  {
+    while (seq.getDatasetSequence() != null)
+    {
+      seq = seq.getDatasetSequence();
+    }
+    return seq;
   }
 
   /**
@@ -48,11 +48,16 @@ import java.awt.event.MouseEvent;
 import java.awt.print.PageFormat;
 import java.awt.print.PrinterJob;
 import java.beans.PropertyChangeEvent;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Deque;
@@ -139,6 +144,7 @@ import jalview.io.JalviewFileView;
 import jalview.io.JnetAnnotationMaker;
 import jalview.io.NewickFile;
 import jalview.io.ScoreMatrixFile;
+import jalview.io.SnapshotFile;
 import jalview.io.TCoffeeScoreFile;
 import jalview.io.vcf.VCFLoader;
 import jalview.jbgui.GAlignFrame;
@@ -1266,6 +1272,18 @@ public class AlignFrame extends GAlignFrame implements DropTargetListener,
       return;
     }
 
+    if (FileFormat.JalviewSnapshot.equals(format))
+    {
+      lastSaveSuccessful = saveSnapshot(file);
+      if (lastSaveSuccessful)
+      {
+        statusBar.setText(MessageManager.formatMessage(
+                "label.successfully_saved_to_file_in_format", new Object[]
+                { file, format.getName() }));
+      }
+      return;
+    }
+
     AlignExportSettingsI options = new AlignExportSettingsAdapter(false);
     Runnable cancelAction = new Runnable()
     {
@@ -1280,82 +1298,101 @@ public class AlignFrame extends GAlignFrame implements DropTargetListener,
       @Override
       public void run()
       {
-        // todo defer this to inside formatSequences (or later)
         AlignmentExportData exportData = viewport
                 .getAlignExportData(options);
-        String output = new FormatAdapter(alignPanel, options)
-                .formatSequences(format, exportData.getAlignment(),
-                        exportData.getOmitHidden(),
-                        exportData.getStartEndPostions(),
-                        viewport.getAlignment().getHiddenColumns());
-        if (output == null)
+
+        // create backupfiles object and get new temp filename destination
+        boolean doBackup = BackupFiles.getEnabled();
+        BackupFiles backupfiles = null;
+        if (doBackup)
         {
-          lastSaveSuccessful = false;
+          Console.trace("ALIGNFRAME making backupfiles object for " + file);
+          backupfiles = new BackupFiles(file);
         }
-        else
+
+        /*
+         * the alignment is always written to a temporary file first, and only
+         * replaces the existing file once it has all been written
+         */
+        File tempFile = null;
+        boolean written = false;
+        try
         {
-          // create backupfiles object and get new temp filename destination
-          boolean doBackup = BackupFiles.getEnabled();
-          BackupFiles backupfiles = null;
-          if (doBackup)
-          {
-            Console.trace(
-                    "ALIGNFRAME making backupfiles object for " + file);
-            backupfiles = new BackupFiles(file);
-          }
+          tempFile = doBackup ? backupfiles.getTempFile()
+                  : createTempFile(file);
+          Console.trace("ALIGNFRAME setting Writer");
+          Writer out = new BufferedWriter(new FileWriter(tempFile));
+          Console.trace("ALIGNFRAME about to write to temp file "
+                  + tempFile.getPath());
+
+          /*
+           * write the alignment to the file as it is formatted,
+           * rather than building it all in memory first
+           */
           try
           {
-            String tempFilePath = doBackup ? backupfiles.getTempFilePath()
-                    : file;
-            Console.trace("ALIGNFRAME setting PrintWriter");
-            PrintWriter out = new PrintWriter(new FileWriter(tempFilePath));
-
-            if (backupfiles != null)
-            {
-              Console.trace("ALIGNFRAME about to write to temp file "
-                      + backupfiles.getTempFilePath());
-            }
-
-            out.print(output);
+            written = new FormatAdapter(alignPanel, options)
+                    .formatSequences(format, exportData.getAlignment(),
+                            exportData.getOmitHidden(),
+                            exportData.getStartEndPostions(),
+                            viewport.getAlignment().getHiddenColumns(),
+                            out);
+          } finally
+          {
             Console.trace("ALIGNFRAME about to close file");
             out.close();
             Console.trace("ALIGNFRAME closed file");
-            AlignFrame.this.setTitle(file);
-            statusBar.setText(MessageManager.formatMessage(
-                    "label.successfully_saved_to_file_in_format",
-                    new Object[]
-                    { fileName, format.getName() }));
-            lastSaveSuccessful = true;
-          } catch (IOException e)
-          {
-            lastSaveSuccessful = false;
-            Console.error(
-                    "ALIGNFRAME Something happened writing the temp file");
-            Console.error(e.getMessage());
-            Console.debug(Cache.getStackTraceString(e));
-          } catch (Exception ex)
-          {
-            lastSaveSuccessful = false;
-            Console.error(
-                    "ALIGNFRAME Something unexpected happened writing the temp file");
-            Console.error(ex.getMessage());
-            Console.debug(Cache.getStackTraceString(ex));
           }
+        } catch (IOException e)
+        {
+          written = false;
+          Console.error(
+                  "ALIGNFRAME Something happened writing the temp file");
+          Console.error(e.getMessage());
+          Console.debug(Cache.getStackTraceString(e));
+        } catch (Exception ex)
+        {
+          written = false;
+          Console.error(
+                  "ALIGNFRAME Something unexpected happened writing the temp file");
+          Console.error(ex.getMessage());
+          Console.debug(Cache.getStackTraceString(ex));
+        }
 
-          if (doBackup)
+        if (!written)
+        {
+          /*
+           * the alignment could not be written; leave existing files alone
+           */
+          lastSaveSuccessful = false;
+          if (tempFile != null)
           {
-            backupfiles.setWriteSuccess(lastSaveSuccessful);
-            Console.debug("ALIGNFRAME writing temp file was "
-                    + (lastSaveSuccessful ? "" : "NOT ") + "successful");
-            // do the backup file roll and rename the temp file to actual file
-            Console.trace(
-                    "ALIGNFRAME about to rollBackupsAndRenameTempFile");
-            lastSaveSuccessful = backupfiles.rollBackupsAndRenameTempFile();
-            Console.debug(
-                    "ALIGNFRAME performed rollBackupsAndRenameTempFile "
-                            + (lastSaveSuccessful ? "" : "un")
-                            + "successfully");
+            tempFile.delete();
           }
+          return;
+        }
+
+        if (doBackup)
+        {
+          backupfiles.setWriteSuccess(true);
+          Console.debug("ALIGNFRAME writing temp file was successful");
+          // do the backup file roll and rename the temp file to actual file
+          Console.trace("ALIGNFRAME about to rollBackupsAndRenameTempFile");
+          lastSaveSuccessful = backupfiles.rollBackupsAndRenameTempFile();
+          Console.debug("ALIGNFRAME performed rollBackupsAndRenameTempFile "
+                  + (lastSaveSuccessful ? "" : "un") + "successfully");
+        }
+        else
+        {
+          lastSaveSuccessful = replaceFile(tempFile, new File(file));
+        }
+        if (lastSaveSuccessful)
+        {
+          AlignFrame.this.setTitle(file);
+          statusBar.setText(MessageManager.formatMessage(
+                  "label.successfully_saved_to_file_in_format",
+                  new Object[]
+                  { fileName, format.getName() }));
         }
       }
     };
@@ -1377,6 +1414,104 @@ public class AlignFrame extends GAlignFrame implements DropTargetListener,
     }
   }
 
+  /**
+   * Creates an empty temporary file in the same directory as the given file
+   * path, to write to before replacing the file
+   * 
+   * @param file
+   * @return
+   * @throws IOException
+   */
+  static File createTempFile(String file) throws IOException
+  {
+    File target = new File(file).getAbsoluteFile();
+    return File.createTempFile(target.getName(), ".tmp",
+            target.getParentFile());
+  }
+
+  /**
+   * Renames the temporary file to the target file, replacing any existing
+   * file. Answers true if successful, else logs an error, deletes the
+   * temporary file and answers false.
+   * 
+   * @param tempFile
+   * @param target
+   * @return
+   */
+  static boolean replaceFile(File tempFile, File target)
+  {
+    try
+    {
+      try
+      {
+        Files.move(tempFile.toPath(), target.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e)
+      {
+        Files.move(tempFile.toPath(), target.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+      }
+      return true;
+    } catch (IOException e)
+    {
+      Console.error("ALIGNFRAME could not replace " + target.getPath()
+              + ": " + e.getMessage());
+      tempFile.delete();
+      return false;
+    }
+  }
+
+  /**
+   * Writes a binary snapshot of this view to the given file path, rolling any
+   * backup files if so configured. Answers true if the save succeeded, else
+   * false.
+   * 
+   * @param file
+   * @return
+   */
+  protected boolean saveSnapshot(String file)
+  {
+    boolean doBackup = BackupFiles.getEnabled();
+    BackupFiles backupfiles = doBackup ? new BackupFiles(file) : null;
+    boolean success = false;
+    File tempFile = null;
+    try
+    {
+      tempFile = doBackup ? backupfiles.getTempFile()
+              : createTempFile(file);
+      try (FileOutputStream fos = new FileOutputStream(tempFile))
+      {
+        SnapshotFile snapshot = new SnapshotFile();
+        snapshot.configureForView(alignPanel);
+        snapshot.write(fos);
+        success = true;
+      }
+    } catch (IOException e)
+    {
+      Console.error("Error writing snapshot to " + file + ": "
+              + e.getMessage());
+      Console.debug(Cache.getStackTraceString(e));
+    }
+    if (!success)
+    {
+      /*
+       * leave any existing file alone
+       */
+      if (tempFile != null)
+      {
+        tempFile.delete();
+      }
+      return false;
+    }
+    if (doBackup)
+    {
+      backupfiles.setWriteSuccess(true);
+      return backupfiles.rollBackupsAndRenameTempFile();
+    }
+    return replaceFile(tempFile, new File(file));
+  }
+
   /**
    * Outputs the alignment to textbox in the requested format, if necessary
    * first prompting the user for whether to include hidden regions or
@@ -3712,11 +3847,37 @@ public class AlignFrame extends GAlignFrame implements DropTargetListener,
     }
     else
     {
-      JInternalFrame frame = new JInternalFrame();
-      frame.setContentPane(new PairwiseAlignPanel(viewport));
-      Desktop.addInternalFrame(frame,
-              MessageManager.getString("action.pairwise_alignment"), 600,
-              500);
+      /*
+       * compute alignments on the compute pool, with a (cancellable)
+       * progress bar on this frame, then show them on the event thread
+       */
+      final PairwiseAlignPanel.Calculation calculation = new PairwiseAlignPanel.Calculation(
+              viewport);
+      calculation.start(this, new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          if (calculation.isCancelled())
+          {
+            return;
+          }
+          SwingUtilities.invokeLater(new Runnable()
+          {
+            @Override
+            public void run()
+            {
+              PairwiseAlignPanel panel = new PairwiseAlignPanel(viewport,
+                      calculation);
+              JInternalFrame frame = new JInternalFrame();
+              frame.setContentPane(panel);
+              Desktop.addInternalFrame(frame,
+                      MessageManager.getString("action.pairwise_alignment"),
+                      600, 500);
+            }
+          });
+        }
+      });
     }
   }
 
@@ -36,8 +36,10 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.BufferedWriter;
 import java.io.FileWriter;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.io.Writer;
 
 import javax.swing.BoxLayout;
 import javax.swing.ButtonGroup;
@@ -179,14 +181,10 @@ public class AnnotationExporter extends JPanel
 
     if (value == JalviewFileChooser.APPROVE_OPTION)
     {
-      String text = getText();
-
-      try
+      try (Writer out = new BufferedWriter(
+              new FileWriter(chooser.getSelectedFile())))
       {
-        PrintWriter out = new PrintWriter(
-                new FileWriter(chooser.getSelectedFile()));
-        out.print(text);
-        out.close();
+        writeText(out);
       } catch (Exception ex)
       {
         ex.printStackTrace();
@@ -207,6 +205,44 @@ public class AnnotationExporter extends JPanel
     return exportFeatures ? getFeaturesText() : getAnnotationsText();
   }
 
+  /**
+   * Writes features (in GFF or Jalview format) or annotations (in CSV or
+   * Jalview format) to the writer. Features, and Jalview format annotations
+   * for the whole view, are written as they are formatted.
+   * 
+   * @param out
+   * @throws IOException
+   */
+  private void writeText(Writer out) throws IOException
+  {
+    if (exportFeatures)
+    {
+      SequenceI[] sequences = ap.av.getAlignment().getSequencesArray();
+      boolean includeNonPositional = ap.av.isShowNPFeats();
+      FeaturesFile formatter = new FeaturesFile();
+      final FeatureRenderer fr = ap.getFeatureRenderer();
+      boolean includeComplement = includeLinkedFeatures.isSelected();
+      if (GFFFormat.isSelected())
+      {
+        formatter.printGffFormat(out, sequences, fr, includeNonPositional,
+                includeComplement);
+      }
+      else
+      {
+        formatter.printJalviewFormat(out, sequences, fr,
+                includeNonPositional, includeComplement);
+      }
+    }
+    else if (!CSVFormat.isSelected() && wholeView)
+    {
+      new AnnotationFile().printAnnotationsForView(ap.av, out);
+    }
+    else
+    {
+      out.write(getAnnotationsText());
+    }
+  }
+
   /**
    * Returns the text contents for output of annotations in either CSV or
    * Jalview format
@@ -58,6 +58,7 @@ import java.lang.reflect.Field;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
@@ -101,6 +102,8 @@ import jalview.api.AlignViewportI;
 import jalview.api.AlignmentViewPanel;
 import jalview.bin.Cache;
 import jalview.bin.Jalview;
+import jalview.bin.MemoryMonitor;
+import jalview.bin.MemoryMonitor.Pressure;
 import jalview.gui.ImageExporter.ImageWriterI;
 import jalview.io.BackupFiles;
 import jalview.io.DataSourceType;
@@ -2277,6 +2280,11 @@ public class Desktop extends jalview.jbgui.GDesktop
     float maxMemory, allocatedMemory, freeMemory, totalFreeMemory,
             percentUsage;
 
+    /*
+     * estimated size of the current alignment, if any
+     */
+    String alignmentMemory;
+
     public MyDesktopPane(boolean showMemoryUsage)
     {
       showMemoryUsage(showMemoryUsage);
@@ -2316,6 +2324,20 @@ public class Desktop extends jalview.jbgui.GDesktop
 
           percentUsage = (totalFreeMemory / maxMemory) * 100;
 
+          alignmentMemory = null;
+          AlignFrame af = Jalview.getCurrentAlignFrame();
+          if (af != null && af.getViewport() != null)
+          {
+            try
+            {
+              alignmentMemory = af.getViewport().getMemoryFootprint()
+                      .toString();
+            } catch (ConcurrentModificationException e)
+            {
+              // alignment or history being edited - try again next time
+            }
+          }
+
           // if (percentUsage < 20)
           {
             // border1 = BorderFactory.createMatteBorder(12, 12, 12, 12,
@@ -2337,7 +2359,8 @@ public class Desktop extends jalview.jbgui.GDesktop
     {
       if (showMemoryUsage && g != null && df != null)
       {
-        if (percentUsage < 20)
+        Pressure pressure = MemoryMonitor.getInstance().getPressure();
+        if (percentUsage < 20 || pressure != Pressure.NORMAL)
         {
           g.setColor(Color.red);
         }
@@ -2349,6 +2372,13 @@ public class Desktop extends jalview.jbgui.GDesktop
                   { df.format(totalFreeMemory), df.format(maxMemory),
                       df.format(percentUsage) }),
                   10, getHeight() - fm.getHeight());
+          if (alignmentMemory != null)
+          {
+            g.drawString(MessageManager.formatMessage(
+                    "label.memory_stats_alignment", new Object[]
+                    { alignmentMemory, pressure }), 10,
+                    getHeight() - 2 * fm.getHeight());
+          }
         }
       }
 
@@ -33,6 +33,7 @@ import java.util.List;
 
 import javax.swing.JPanel;
 
+import jalview.datamodel.HiddenSequences;
 import jalview.datamodel.SequenceI;
 import jalview.viewmodel.ViewportListenerI;
 import jalview.viewmodel.ViewportRanges;
@@ -451,11 +452,10 @@ public class IdCanvas extends JPanel implements ViewportListenerI
   void drawMarker(Graphics2D g, AlignViewport alignViewport, int seqIndex,
           int starty, int yoffset)
   {
-    SequenceI[] hseqs = alignViewport.getAlignment()
-            .getHiddenSequences().hiddenSequences;
+    HiddenSequences hseqs = alignViewport.getAlignment().getHiddenSequences();
     // Use this method here instead of calling hiddenSeq adjust
     // 3 times.
-    int hSize = hseqs.length;
+    int hSize = hseqs.getRowCount();
 
     int hiddenIndex = seqIndex;
     int lastIndex = seqIndex - 1;
@@ -463,7 +463,7 @@ public class IdCanvas extends JPanel implements ViewportListenerI
 
     for (int j = 0; j < hSize; j++)
     {
-      if (hseqs[j] != null)
+      if (hseqs.isHidden(j))
       {
         if (j - 1 < hiddenIndex)
         {
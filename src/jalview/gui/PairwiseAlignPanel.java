@@ -21,6 +21,7 @@
 package jalview.gui;
 
 import jalview.analysis.AlignSeq;
+import jalview.analysis.AllPairsAligner;
 import jalview.datamodel.Alignment;
 import jalview.datamodel.AlignmentView;
 import jalview.datamodel.SequenceGroup;
@@ -30,6 +31,7 @@ import jalview.util.MessageManager;
 import jalview.viewmodel.AlignmentViewport;
 
 import java.awt.event.ActionEvent;
+import java.util.List;
 import java.util.Vector;
 
 /**
@@ -47,83 +49,249 @@ public class PairwiseAlignPanel extends GPairwiseAlignPanel
 
   Vector<SequenceI> sequences;
 
+  private boolean cancelled;
+
   /**
-   * Creates a new PairwiseAlignPanel object.
-   * 
-   * @param viewport
-   *          DOCUMENT ME!
+   * The pairwise alignments of the selected (or all) sequences of a view. The
+   * sequences are read from the view when this is constructed, which should
+   * be on the Swing event thread; alignments are then computed on the shared
+   * compute pool.
    */
-  public PairwiseAlignPanel(AlignmentViewport viewport)
+  public static class Calculation
   {
-    super();
-    this.av = viewport;
+    final SequenceI[] seqs;
 
-    sequences = new Vector<SequenceI>();
+    final List<int[]> pairs;
+
+    /*
+     * the output for each pair (i, j) at index i * (i - 1) / 2 + j, so that
+     * it can be shown in order
+     */
+    final String[] outputs;
 
-    SequenceGroup selectionGroup = viewport.getSelectionGroup();
-    boolean isSelection = selectionGroup != null
-            && selectionGroup.getSize() > 0;
-    AlignmentView view = viewport.getAlignmentView(isSelection);
-    // String[] seqStrings = viewport.getViewAsString(true);
-    String[] seqStrings = view
-            .getSequenceStrings(viewport.getGapCharacter());
+    final SequenceI[][] alignedSeqs;
 
-    SequenceI[] seqs;
-    if (isSelection)
+    final float[][] scores;
+
+    private final AllPairsAligner aligner;
+
+    /**
+     * Constructor given the view whose selected sequences (or all sequences if
+     * none are selected) are to be aligned
+     * 
+     * @param viewport
+     */
+    public Calculation(AlignmentViewport viewport)
     {
-      seqs = (SequenceI[]) view
-              .getAlignmentAndHiddenColumns(viewport.getGapCharacter())[0];
+      SequenceGroup selectionGroup = viewport.getSelectionGroup();
+      boolean isSelection = selectionGroup != null
+              && selectionGroup.getSize() > 0;
+      AlignmentView view = viewport.getAlignmentView(isSelection);
+      String[] seqStrings = view
+              .getSequenceStrings(viewport.getGapCharacter());
+
+      if (isSelection)
+      {
+        seqs = (SequenceI[]) view
+                .getAlignmentAndHiddenColumns(viewport.getGapCharacter())[0];
+      }
+      else
+      {
+        seqs = viewport.getAlignment().getSequencesArray();
+      }
+
+      String type = (viewport.getAlignment().isNucleotide()) ? AlignSeq.DNA
+              : AlignSeq.PEP;
+      scores = new float[seqs.length][seqs.length];
+      pairs = AllPairsAligner.lowerTriangle(seqs.length, false);
+      outputs = new String[pairs.size()];
+      alignedSeqs = new SequenceI[pairs.size()][];
+      aligner = new AllPairsAligner(seqs, seqStrings, type);
     }
-    else
+
+    /**
+     * Computes the alignments, returning when done or cancelled
+     * 
+     * @param progress
+     *          if not null, shows a progress bar (with a Cancel button) while
+     *          the alignments are computed
+     */
+    public void align(IProgressIndicator progress)
     {
-      seqs = av.getAlignment().getSequencesArray();
+      long progId = startProgress(progress);
+      try
+      {
+        aligner.align(pairs, getConsumer());
+      } finally
+      {
+        if (progress != null)
+        {
+          progress.setProgressBar(null, progId);
+        }
+      }
     }
 
-    String type = (viewport.getAlignment().isNucleotide()) ? AlignSeq.DNA
-            : AlignSeq.PEP;
+    /**
+     * Starts computing the alignments on the compute pool, and returns without
+     * waiting for them. When all are done (or the calculation is cancelled),
+     * whenDone is run on the thread that completed the calculation.
+     * 
+     * @param progress
+     *          if not null, shows a progress bar (with a Cancel button) while
+     *          the alignments are computed
+     * @param whenDone
+     */
+    public void start(final IProgressIndicator progress,
+            final Runnable whenDone)
+    {
+      final long progId = startProgress(progress);
+      aligner.align(pairs, getConsumer(), new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          if (progress != null)
+          {
+            progress.setProgressBar(null, progId);
+          }
+          whenDone.run();
+        }
+      });
+    }
 
-    float[][] scores = new float[seqs.length][seqs.length];
-    double totscore = 0D;
-    int count = seqs.length;
-    boolean first = true;
+    /**
+     * Answers true if the calculation was cancelled before all pairs were
+     * aligned
+     * 
+     * @return
+     */
+    public boolean isCancelled()
+    {
+      return aligner.isCancelled();
+    }
 
-    for (int i = 1; i < count; i++)
+    private long startProgress(IProgressIndicator progress)
     {
-      for (int j = 0; j < i; j++)
+      long progId = System.currentTimeMillis();
+      if (progress != null)
       {
-        AlignSeq as = new AlignSeq(seqs[i], seqStrings[i], seqs[j],
-                seqStrings[j], type);
-
-        if (as.s1str.length() == 0 || as.s2str.length() == 0)
+        progress.setProgressBar(MessageManager.formatMessage(
+                "status.calculating_pairwise_alignments", seqs.length),
+                progId);
+        progress.registerHandler(progId, new IProgressIndicatorHandler()
         {
-          continue;
-        }
+          @Override
+          public boolean canCancel()
+          {
+            return true;
+          }
 
-        as.calcScoreMatrix();
-        as.traceAlignment();
+          @Override
+          public boolean cancelActivity(long id)
+          {
+            aligner.cancel();
+            return true;
+          }
+        });
+      }
+      return progId;
+    }
 
-        if (!first)
+    private AllPairsAligner.PairConsumer getConsumer()
+    {
+      return new AllPairsAligner.PairConsumer()
+      {
+        @Override
+        public void aligned(int i, int j, AlignSeq as)
         {
-          System.out.println(DASHES);
-          textarea.append(DASHES);
+          int index = i * (i - 1) / 2 + j;
+          as.formatAlignment();
+          outputs[index] = as.getOutput();
+          alignedSeqs[index] = new SequenceI[] { as.getAlignedSeq1(),
+              as.getAlignedSeq2() };
+          scores[i][j] = as.getMaxScore() / as.getASeq1().length;
         }
-        first = false;
-        as.printAlignment(System.out);
-        scores[i][j] = as.getMaxScore() / as.getASeq1().length;
-        totscore = totscore + scores[i][j];
-
-        textarea.append(as.getOutput());
-        sequences.add(as.getAlignedSeq1());
-        sequences.add(as.getAlignedSeq2());
+      };
+    }
+  }
+
+  /**
+   * Creates a new PairwiseAlignPanel object, computing the pairwise alignments
+   * of the selected (or all) sequences of the view
+   * 
+   * @param viewport
+   */
+  public PairwiseAlignPanel(AlignmentViewport viewport)
+  {
+    this(viewport, calculate(viewport));
+  }
+
+  /**
+   * Creates a new PairwiseAlignPanel object showing already computed
+   * alignments
+   * 
+   * @param viewport
+   * @param calculation
+   */
+  public PairwiseAlignPanel(AlignmentViewport viewport,
+          Calculation calculation)
+  {
+    super();
+    this.av = viewport;
+
+    sequences = new Vector<SequenceI>();
+
+    SequenceI[] seqs = calculation.seqs;
+    float[][] scores = calculation.scores;
+    double totscore = 0D;
+    int count = seqs.length;
+    boolean first = true;
+
+    for (int p = 0; p < calculation.pairs.size(); p++)
+    {
+      String output = calculation.outputs[p];
+      if (output == null)
+      {
+        continue;
+      }
+      if (!first)
+      {
+        textarea.append(DASHES);
       }
+      first = false;
+      int[] pair = calculation.pairs.get(p);
+      totscore = totscore + scores[pair[0]][pair[1]];
+
+      textarea.append(output);
+      sequences.add(calculation.alignedSeqs[p][0]);
+      sequences.add(calculation.alignedSeqs[p][1]);
     }
 
-    if (count > 2)
+    cancelled = calculation.isCancelled();
+    if (count > 2 && !cancelled)
     {
       printScoreMatrix(seqs, scores, totscore);
     }
   }
 
+  private static Calculation calculate(AlignmentViewport viewport)
+  {
+    Calculation calculation = new Calculation(viewport);
+    calculation.align(null);
+    return calculation;
+  }
+
+  /**
+   * Answers true if the calculation was cancelled before all pairs were
+   * aligned
+   * 
+   * @return
+   */
+  public boolean isCancelled()
+  {
+    return cancelled;
+  }
+
   /**
    * Prints a matrix of seqi-seqj pairwise alignment scores to sysout
    * 
@@ -476,24 +476,12 @@ public class ScalePanel extends JPanel
     {
       gg.setColor(new Color(220, 0, 0));
 
-      for (int sel : cs.getSelected())
+      boolean hasHiddenColumns = hidden.hasHiddenColumns();
+      for (int sel = startx; sel <= endx; sel++)
       {
-        // TODO: JAL-2001 - provide a fast method to list visible selected in a
-        // given range
-
-        if (av.hasHiddenColumns())
-        {
-          if (hidden.isVisible(sel))
-          {
-            sel = hidden.absoluteToVisibleColumn(sel);
-          }
-          else
-          {
-            continue;
-          }
-        }
-
-        if ((sel >= startx) && (sel <= endx))
+        int col = hasHiddenColumns ? hidden.visibleToAbsoluteColumn(sel)
+                : sel;
+        if (cs.contains(col))
         {
           gg.fillRect((sel - startx) * avCharWidth, 0, avCharWidth,
                   getHeight());
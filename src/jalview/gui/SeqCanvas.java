@@ -68,6 +68,12 @@ public class SeqCanvas extends JPanel implements ViewportListenerI
 
   BufferedImage img;
 
+  /*
+   * a second image to repaint into, so that img can still be shown if the
+   * repaint is not complete (while waiting for tiles to be rendered)
+   */
+  private BufferedImage spareImg;
+
   AlignViewport av;
 
   int cursorX = 0;
@@ -76,6 +82,8 @@ public class SeqCanvas extends JPanel implements ViewportListenerI
 
   private final SequenceRenderer seqRdr;
 
+  private final SeqCanvasTileRenderer tileRenderer;
+
   boolean fastPaint = false;
 
   private boolean fastpainting = false;
@@ -108,6 +116,7 @@ public class SeqCanvas extends JPanel implements ViewportListenerI
     this.av = ap.av;
     fr = new FeatureRenderer(ap);
     seqRdr = new SequenceRenderer(av);
+    tileRenderer = new SeqCanvasTileRenderer(this);
     setLayout(new BorderLayout());
     PaintRefresher.Register(this, av.getSequenceSetId());
     setBackground(Color.white);
@@ -433,15 +442,18 @@ public class SeqCanvas extends JPanel implements ViewportListenerI
     else
     {
       // img is a cached version of the last view we drew.
-      // If we have no img or the size has changed, make a new one.
+      // Draw into the spare image (making a new one if we have none or the
+      // size has changed), and show it in place of img if it is complete
       //
-      if (img == null || width != img.getWidth()
-              || height != img.getHeight())
+      BufferedImage buffer = spareImg;
+      if (buffer == null || width != buffer.getWidth()
+              || height != buffer.getHeight())
       {
-        img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        buffer = new BufferedImage(width, height,
+                BufferedImage.TYPE_INT_RGB);
       }
 
-      Graphics2D gg = (Graphics2D) img.getGraphics();
+      Graphics2D gg = (Graphics2D) buffer.getGraphics();
       gg.setFont(av.getFont());
 
       if (av.antiAlias)
@@ -451,20 +463,52 @@ public class SeqCanvas extends JPanel implements ViewportListenerI
       }
 
       gg.setColor(Color.white);
-      gg.fillRect(0, 0, img.getWidth(), img.getHeight());
+      gg.fillRect(0, 0, buffer.getWidth(), buffer.getHeight());
 
-      if (av.getWrapAlignment())
+      tileRenderer.beginRepaint();
+      try
+      {
+        if (av.getWrapAlignment())
+        {
+          drawWrappedPanel(gg, getWidth(), getHeight(),
+                  ranges.getStartRes());
+        }
+        else
+        {
+          drawPanel(gg, startRes, endRes, startSeq, endSeq, 0);
+        }
+      } finally
+      {
+        if (tileRenderer.endRepaint())
+        {
+          spareImg = img;
+          img = buffer;
+        }
+        else
+        {
+          spareImg = buffer;
+        }
+      }
+
+      if (img == buffer)
       {
-        drawWrappedPanel(gg, getWidth(), getHeight(), ranges.getStartRes());
+        drawSelectionGroup(gg, startRes, endRes, startSeq, endSeq);
+        g.drawImage(img, 0, 0, this);
+      }
+      else if (img != null)
+      {
+        /*
+         * still rendering: show the last complete image meanwhile
+         */
+        g.drawImage(img, 0, 0, this);
+        drawSelectionGroup((Graphics2D) g, startRes, endRes, startSeq,
+                endSeq);
       }
       else
       {
-        drawPanel(gg, startRes, endRes, startSeq, endSeq, 0);
+        g.setColor(Color.white);
+        g.fillRect(0, 0, width, height);
       }
-
-      drawSelectionGroup(gg, startRes, endRes, startSeq, endSeq);
-
-      g.drawImage(img, 0, 0, this);
       gg.dispose();
     }
 
@@ -474,6 +518,20 @@ public class SeqCanvas extends JPanel implements ViewportListenerI
     }
   }
 
+  /**
+   * Notes any repaint request, so that tiles being rendered when it is made are
+   * known to be possibly out of date
+   */
+  @Override
+  public void repaint(long tm, int x, int y, int width, int height)
+  {
+    if (tileRenderer != null)
+    {
+      tileRenderer.repaintRequested();
+    }
+    super.repaint(tm, x, y, width, height);
+  }
+
   /**
    * Draw an alignment panel for printing
    * 
@@ -1035,17 +1093,59 @@ public class SeqCanvas extends JPanel implements ViewportListenerI
    */
   private void draw(Graphics g, int startRes, int endRes, int startSeq,
           int endSeq, int offset)
+  {
+    g.setFont(av.getFont());
+
+    // / First draw the sequences
+    // ///////////////////////////
+    if (tileRenderer.isTiled(g, startRes, endRes, startSeq, endSeq))
+    {
+      tileRenderer.drawTiled(g, startRes, endRes, startSeq, endSeq, offset);
+    }
+    else
+    {
+      drawSequences(g, seqRdr, fr, startRes, endRes, startSeq, endSeq,
+              offset);
+    }
+
+    if (av.getSelectionGroup() != null
+            || av.getAlignment().getGroups().size() > 0)
+    {
+      drawGroupsBoundaries(g, startRes, endRes, startSeq, endSeq, offset);
+    }
+
+  }
+
+  /**
+   * Draws sequences, with features and search results if shown, for a region
+   * of the visible alignment, using the given renderers. Renderers may be
+   * confined to a tile rendering thread, or be those of this canvas.
+   * 
+   * @param g
+   * @param sr
+   * @param featureRenderer
+   * @param startRes
+   *          offset of the first column in the visible region (0..)
+   * @param endRes
+   *          offset of the last column in the visible region (0..)
+   * @param startSeq
+   *          offset of the first sequence in the visible region (0..)
+   * @param endSeq
+   *          offset of the last sequence in the visible region (0..)
+   * @param offset
+   *          vertical offset at which to draw
+   */
+  void drawSequences(Graphics g, SequenceRenderer sr,
+          jalview.renderer.seqfeatures.FeatureRenderer featureRenderer,
+          int startRes, int endRes, int startSeq, int endSeq, int offset)
   {
     int charHeight = av.getCharHeight();
     int charWidth = av.getCharWidth();
 
-    g.setFont(av.getFont());
-    seqRdr.prepare(g, av.isRenderGaps());
+    sr.prepare(g, av.isRenderGaps());
 
     SequenceI nextSeq;
 
-    // / First draw the sequences
-    // ///////////////////////////
     for (int i = startSeq; i <= endSeq; i++)
     {
       nextSeq = av.getAlignment().getSequenceAt(i);
@@ -1055,12 +1155,12 @@ public class SeqCanvas extends JPanel implements ViewportListenerI
         // empty
         continue;
       }
-      seqRdr.drawSequence(nextSeq, av.getAlignment().findAllGroups(nextSeq),
+      sr.drawSequence(nextSeq, av.getAlignment().findAllGroups(nextSeq),
               startRes, endRes, offset + ((i - startSeq) * charHeight));
 
-      if (av.isShowSequenceFeatures())
+      if (av.isShowSequenceFeatures() && featureRenderer != null)
       {
-        fr.drawSequence(g, nextSeq, startRes, endRes,
+        featureRenderer.drawSequence(g, nextSeq, startRes, endRes,
                 offset + ((i - startSeq) * charHeight), false);
       }
 
@@ -1076,7 +1176,7 @@ public class SeqCanvas extends JPanel implements ViewportListenerI
         {
           for (int r = 0; r < visibleResults.length; r += 2)
           {
-            seqRdr.drawHighlightedText(nextSeq, visibleResults[r],
+            sr.drawHighlightedText(nextSeq, visibleResults[r],
                     visibleResults[r + 1],
                     (visibleResults[r] - startRes) * charWidth,
                     offset + ((i - startSeq) * charHeight));
@@ -1084,13 +1184,6 @@ public class SeqCanvas extends JPanel implements ViewportListenerI
         }
       }
     }
-
-    if (av.getSelectionGroup() != null
-            || av.getAlignment().getGroups().size() > 0)
-    {
-      drawGroupsBoundaries(g, startRes, endRes, startSeq, endSeq, offset);
-    }
-
   }
 
   /**
@@ -0,0 +1,621 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.gui;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+
+import jalview.bin.Cache;
+import jalview.bin.Console;
+import jalview.renderer.seqfeatures.FeatureRenderer;
+import jalview.util.Platform;
+import jalview.util.ThreadPools;
+
+/**
+ * Draws a region of the alignment on a SeqCanvas by splitting it into tiles of
+ * rows and columns, rendering each tile on a worker thread into its own
+ * image, and then compositing the tiles onto the target graphics. Each worker
+ * draws with its own SequenceRenderer and FeatureRenderer, so no renderer
+ * state is shared between threads.
+ * <p>
+ * When the canvas is repainted, the event thread does not wait for tiles:
+ * the canvas keeps showing its previous image while tiles are rendered, and
+ * is repainted from the rendered tiles when they are all ready.
+ * <p>
+ * Tiling is only used for raster targets (screen buffer, PNG export), and only
+ * when the region is large enough to be worth it; vector targets (SVG, EPS)
+ * and printers are always drawn serially. Group outlines and the selection are
+ * drawn afterwards by SeqCanvas, over the composited tiles.
+ */
+class SeqCanvasTileRenderer
+{
+  /*
+   * preference key to enable or disable tiled rendering
+   */
+  static final String PARALLEL_RENDERING = "PARALLEL_SEQUENCE_RENDERING";
+
+  /*
+   * the minimum number of residue cells in a region before it is tiled
+   */
+  static final int MIN_TILED_CELLS = 50000;
+
+  /*
+   * the minimum width in columns of a column tile
+   */
+  private static final int MIN_TILE_COLUMNS = 64;
+
+  private static final int THREADS = ThreadPools.getComputeThreads();
+
+  private final SeqCanvas seqCanvas;
+
+  /*
+   * state of repainting, accessed only on the event thread: tiles rendered
+   * and ready to draw, by region; regions not ready when last drawn, and
+   * those drawn, by the repaint in progress; whether tiles are being
+   * rendered; whether the tiles ready may predate a change; and a count of
+   * repaint requests, to detect changes while tiles are being rendered
+   */
+  private final Map<Region, BufferedImage[]> prepared = new HashMap<>();
+
+  private final List<Region> missing = new ArrayList<>();
+
+  private final List<Region> drawn = new ArrayList<>();
+
+  private boolean repainting;
+
+  private boolean rendering;
+
+  private boolean stale;
+
+  private volatile int repaintRequests;
+
+  /*
+   * rendering hints of the graphics being repainted
+   */
+  private RenderingHints repaintHints;
+
+  /*
+   * regions with fewer cells than this are drawn serially
+   * (always, if there is only one processor)
+   */
+  private int minTiledCells = THREADS > 1 ? MIN_TILED_CELLS
+          : Integer.MAX_VALUE;
+
+  /**
+   * Constructor
+   *
+   * @param canvas
+   */
+  SeqCanvasTileRenderer(SeqCanvas canvas)
+  {
+    this.seqCanvas = canvas;
+  }
+
+  /**
+   * Answers true if the given region should be drawn in tiles on to the given
+   * graphics, else false
+   *
+   * @param g
+   * @param startRes
+   * @param endRes
+   * @param startSeq
+   * @param endSeq
+   * @return
+   */
+  boolean isTiled(Graphics g, int startRes, int endRes, int startSeq,
+          int endSeq)
+  {
+    if (Platform.isJS() || ThreadPools.isPoolThread()
+            || !Cache.getDefault(PARALLEL_RENDERING, true))
+    {
+      return false;
+    }
+    long cells = (long) (endRes - startRes + 1) * (endSeq - startSeq + 1);
+    if (cells < minTiledCells)
+    {
+      return false;
+    }
+    return isRasterTarget(g);
+  }
+
+  /**
+   * Answers true if the graphics draws on to an image buffer, so that
+   * compositing pre-rendered images gives the same result as drawing directly
+   *
+   * @param g
+   * @return
+   */
+  static boolean isRasterTarget(Graphics g)
+  {
+    if (!(g instanceof Graphics2D))
+    {
+      return false;
+    }
+    GraphicsConfiguration gc = ((Graphics2D) g).getDeviceConfiguration();
+    return gc != null && gc.getDevice() != null
+            && gc.getDevice().getType() == GraphicsDevice.TYPE_IMAGE_BUFFER
+            && !(g instanceof org.jfree.graphics2d.svg.SVGGraphics2D)
+            && !(g instanceof org.jibble.epsgraphics.EpsGraphics2D);
+  }
+
+  /**
+   * Prepares to repaint the canvas. Until {@link #endRepaint()}, regions drawn
+   * with {@link #drawTiled} are drawn from tiles already rendered off the event
+   * thread if available, else are left undrawn and rendered for a later
+   * repaint, so that the event thread is never waiting for tiles.
+   */
+  void beginRepaint()
+  {
+    repainting = true;
+    missing.clear();
+    drawn.clear();
+  }
+
+  /**
+   * Ends a repaint, answering true if all regions were drawn, or false if some
+   * are still to be rendered (in which case the canvas will be repainted when
+   * they are ready). If the tiles drawn were rendered before the latest change
+   * to the view, they are rendered again (and repainted) in case of changes.
+   *
+   * @return
+   */
+  boolean endRepaint()
+  {
+    repainting = false;
+    if (!missing.isEmpty())
+    {
+      if (!rendering)
+      {
+        startRendering(new ArrayList<>(missing));
+      }
+      return false;
+    }
+    boolean wasStale = stale;
+    prepared.clear();
+    stale = false;
+    if (wasStale && !drawn.isEmpty() && !rendering)
+    {
+      startRendering(new ArrayList<>(drawn));
+    }
+    return true;
+  }
+
+  /**
+   * Notifies that a repaint of the canvas has been requested, so any tiles
+   * now being rendered may not reflect the latest state of the view
+   */
+  void repaintRequested()
+  {
+    repaintRequests++;
+  }
+
+  /**
+   * Draws sequences (with features and search results if shown) for the given
+   * region. Between {@link #beginRepaint()} and {@link #endRepaint()}, this
+   * draws previously rendered tiles if available, else queues the region to be
+   * rendered. Otherwise, tiles are rendered in parallel and drawn when all are
+   * done, and any tile that fails to render in parallel is drawn directly.
+   *
+   * @param g
+   * @param startRes
+   *          first (absolute) column to draw
+   * @param endRes
+   *          last (absolute) column to draw
+   * @param startSeq
+   *          first sequence to draw
+   * @param endSeq
+   *          last sequence to draw
+   * @param offset
+   *          vertical offset at which to draw
+   */
+  void drawTiled(final Graphics g, final int startRes, final int endRes,
+          final int startSeq, final int endSeq, final int offset)
+  {
+    Region region = new Region(seqCanvas.av, startRes, endRes, startSeq,
+            endSeq, offset);
+    if (repainting)
+    {
+      repaintHints = ((Graphics2D) g).getRenderingHints();
+      BufferedImage[] images = prepared.get(region);
+      if (images == null)
+      {
+        missing.add(region);
+      }
+      else
+      {
+        drawn.add(region);
+        drawImages(g, region, images);
+      }
+      return;
+    }
+
+    TileSet tileSet = new TileSet(Collections.singletonList(region),
+            ((Graphics2D) g).getRenderingHints());
+    List<Future<?>> workers = tileSet.submit();
+    for (Future<?> worker : workers)
+    {
+      try
+      {
+        worker.get();
+      } catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (ExecutionException e)
+      {
+        Console.warn("Tile rendering failed: " + e.getCause());
+      }
+    }
+    drawImages(g, region, tileSet.getImages(region));
+  }
+
+  /**
+   * Starts rendering tiles for the given regions off the event thread, and
+   * repaints the canvas when they are all ready
+   *
+   * @param regions
+   */
+  private void startRendering(List<Region> regions)
+  {
+    rendering = true;
+    final int requestsAtStart = repaintRequests;
+    final TileSet tileSet = new TileSet(regions, repaintHints);
+    tileSet.whenDone = new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        SwingUtilities.invokeLater(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            rendering = false;
+            for (Region region : tileSet.regions)
+            {
+              prepared.put(region, tileSet.getImages(region));
+            }
+            stale |= repaintRequests != requestsAtStart;
+            seqCanvas.fastPaint = false;
+            seqCanvas.repaint();
+          }
+        });
+      }
+    };
+    tileSet.submit();
+  }
+
+  /**
+   * Draws the tile images for a region; any tile without an image (that failed
+   * to render) is drawn directly
+   *
+   * @param g
+   * @param region
+   * @param images
+   */
+  private void drawImages(Graphics g, Region region, BufferedImage[] images)
+  {
+    int charWidth = region.charWidth;
+    int charHeight = region.charHeight;
+    for (int i = 0; i < region.tiles.size(); i++)
+    {
+      Tile tile = region.tiles.get(i);
+      int x = (tile.startRes - region.startRes) * charWidth;
+      int y = region.offset + (tile.startSeq - region.startSeq) * charHeight;
+      if (images[i] != null)
+      {
+        g.drawImage(images[i], x, y, null);
+      }
+      else
+      {
+        /*
+         * fall back to drawing the tile directly
+         */
+        g.translate(x, 0);
+        seqCanvas.drawSequences(g, seqCanvas.getSequenceRenderer(),
+                seqCanvas.fr, tile.startRes, tile.endRes, tile.startSeq,
+                tile.endSeq, y);
+        g.translate(-x, 0);
+      }
+    }
+  }
+
+  /**
+   * Renders one tile into a new (transparent) image, using renderers confined
+   * to the calling thread
+   *
+   * @param tile
+   * @param hints
+   *          rendering hints of the graphics the tile will be drawn on
+   * @param tileSr
+   *          sequence renderer for the calling thread
+   * @param tileFr
+   *          feature renderer for the calling thread, or null if features not
+   *          shown
+   * @param charWidth
+   * @param charHeight
+   * @return
+   */
+  protected BufferedImage renderTile(Tile tile, RenderingHints hints,
+          SequenceRenderer tileSr, FeatureRenderer tileFr, int charWidth,
+          int charHeight)
+  {
+    int width = (tile.endRes - tile.startRes + 1) * charWidth;
+    int height = (tile.endSeq - tile.startSeq + 1) * charHeight;
+    BufferedImage image = new BufferedImage(width, height,
+            BufferedImage.TYPE_INT_ARGB);
+    Graphics2D tg = image.createGraphics();
+    try
+    {
+      tg.setRenderingHints(hints);
+      tg.setFont(seqCanvas.av.getFont());
+      seqCanvas.drawSequences(tg, tileSr, tileFr, tile.startRes,
+              tile.endRes, tile.startSeq, tile.endSeq, 0);
+    } finally
+    {
+      tg.dispose();
+    }
+    return image;
+  }
+
+  /**
+   * A bean holding the (inclusive) rows and columns of one tile
+   */
+  static class Tile
+  {
+    final int startSeq;
+
+    final int endSeq;
+
+    final int startRes;
+
+    final int endRes;
+
+    Tile(int startSeq, int endSeq, int startRes, int endRes)
+    {
+      this.startSeq = startSeq;
+      this.endSeq = endSeq;
+      this.startRes = startRes;
+      this.endRes = endRes;
+    }
+  }
+
+  /**
+   * A region of the alignment drawn in tiles, identified by its rows, columns,
+   * vertical offset and character size, so that tiles rendered for it are only
+   * drawn for the same region
+   */
+  static class Region
+  {
+    final int startRes;
+
+    final int endRes;
+
+    final int startSeq;
+
+    final int endSeq;
+
+    final int offset;
+
+    final int charWidth;
+
+    final int charHeight;
+
+    final List<Tile> tiles;
+
+    Region(AlignViewport av, int startRes, int endRes, int startSeq,
+            int endSeq, int offset)
+    {
+      this.startRes = startRes;
+      this.endRes = endRes;
+      this.startSeq = startSeq;
+      this.endSeq = endSeq;
+      this.offset = offset;
+      this.charWidth = av.getCharWidth();
+      this.charHeight = av.getCharHeight();
+      this.tiles = makeTiles();
+    }
+
+    /**
+     * Splits the region into about two tiles per thread; by rows first, and
+     * then by columns if there are too few rows
+     *
+     * @return
+     */
+    private List<Tile> makeTiles()
+    {
+      int rows = endSeq - startSeq + 1;
+      int cols = endRes - startRes + 1;
+      int rowTiles = Math.min(rows, 2 * THREADS);
+      int colTiles = Math.max(1, Math.min(cols / MIN_TILE_COLUMNS,
+              (2 * THREADS + rowTiles - 1) / rowTiles));
+      int rowsPerTile = (rows + rowTiles - 1) / rowTiles;
+      int colsPerTile = (cols + colTiles - 1) / colTiles;
+
+      List<Tile> result = new ArrayList<>();
+      for (int r = startSeq; r <= endSeq; r += rowsPerTile)
+      {
+        for (int c = startRes; c <= endRes; c += colsPerTile)
+        {
+          result.add(new Tile(r, Math.min(endSeq, r + rowsPerTile - 1), c,
+                  Math.min(endRes, c + colsPerTile - 1)));
+        }
+      }
+      return result;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+      if (!(obj instanceof Region))
+      {
+        return false;
+      }
+      Region r = (Region) obj;
+      return r.startRes == startRes && r.endRes == endRes
+              && r.startSeq == startSeq && r.endSeq == endSeq
+              && r.offset == offset && r.charWidth == charWidth
+              && r.charHeight == charHeight;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      int hash = startRes;
+      hash = 31 * hash + endRes;
+      hash = 31 * hash + startSeq;
+      hash = 31 * hash + endSeq;
+      hash = 31 * hash + offset;
+      hash = 31 * hash + charWidth;
+      return 31 * hash + charHeight;
+    }
+  }
+
+  /**
+   * The tiles of one or more regions, rendered by up to one worker per compute
+   * thread. Each worker takes tiles in turn, drawing them with its own
+   * renderers, which are made on the event thread when the workers are
+   * submitted so that no renderer state is shared between threads.
+   */
+  class TileSet
+  {
+    final List<Region> regions;
+
+    private final List<Tile> tiles = new ArrayList<>();
+
+    private final BufferedImage[] images;
+
+    private final RenderingHints hints;
+
+    private final AtomicInteger nextTile = new AtomicInteger();
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    /*
+     * if not null, run when all workers have finished
+     */
+    Runnable whenDone;
+
+    TileSet(List<Region> regions, RenderingHints hints)
+    {
+      this.regions = regions;
+      this.hints = hints;
+      for (Region region : regions)
+      {
+        tiles.addAll(region.tiles);
+      }
+      images = new BufferedImage[tiles.size()];
+    }
+
+    /**
+     * Submits workers to render the tiles on the compute pool, and answers
+     * their futures
+     *
+     * @return
+     */
+    List<Future<?>> submit()
+    {
+      final AlignViewport av = seqCanvas.av;
+      final int charWidth = av.getCharWidth();
+      final int charHeight = av.getCharHeight();
+      FeatureRenderer featureSource = av.isShowSequenceFeatures()
+              ? seqCanvas.fr
+              : null;
+      int workers = Math.min(THREADS, tiles.size());
+      running.set(workers);
+      ExecutorService pool = ThreadPools.getComputePool();
+      List<Future<?>> futures = new ArrayList<>();
+      for (int w = 0; w < workers; w++)
+      {
+        final SequenceRenderer workerSr = new SequenceRenderer(av);
+        final FeatureRenderer workerFr = featureSource == null ? null
+                : featureSource.copyForThread();
+        futures.add(pool.submit(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            try
+            {
+              int t;
+              while ((t = nextTile.getAndIncrement()) < tiles.size())
+              {
+                try
+                {
+                  images[t] = renderTile(tiles.get(t), hints, workerSr,
+                          workerFr, charWidth, charHeight);
+                } catch (RuntimeException e)
+                {
+                  Console.warn("Tile rendering failed: " + e);
+                }
+              }
+            } finally
+            {
+              if (running.decrementAndGet() == 0 && whenDone != null)
+              {
+                whenDone.run();
+              }
+            }
+          }
+        }));
+      }
+      return futures;
+    }
+
+    /**
+     * Answers the images rendered for the tiles of a region, with null for
+     * any tile not rendered
+     *
+     * @param region
+     * @return
+     */
+    BufferedImage[] getImages(Region region)
+    {
+      int first = 0;
+      for (Region r : regions)
+      {
+        if (r == region)
+        {
+          break;
+        }
+        first += r.tiles.size();
+      }
+      return Arrays.copyOfRange(images, first,
+              first + region.tiles.size());
+    }
+  }
+}
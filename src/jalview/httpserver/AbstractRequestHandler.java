@@ -83,7 +83,13 @@ public abstract class AbstractRequestHandler extends AbstractHandler
       }
     } finally
     {
-      response.getWriter().flush();
+      /*
+       * an asynchronous request is completed (and flushed) by its processor
+       */
+      if (!request.isAsyncStarted())
+      {
+        response.flushBuffer();
+      }
       baseRequest.setHandled(true);
     }
   }
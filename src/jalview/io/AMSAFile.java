@@ -114,6 +114,7 @@ public class AMSAFile extends jalview.io.FastaFile
           }
           out.append(newline);
         }
+        flushOutput(out);
       }
     }
     return out.toString();
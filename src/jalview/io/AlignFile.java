@@ -21,6 +21,8 @@
 package jalview.io;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Hashtable;
@@ -81,6 +83,17 @@ public abstract class AlignFile extends FileParse
 
   private boolean dataClosed = false;
 
+  /**
+   * the number of characters of output buffered before it is written, when
+   * printing to a Writer
+   */
+  static final int FLUSH_SIZE = 64 * 1024;
+
+  /*
+   * the writer output is flushed to as it is generated, if printing to one
+   */
+  private Writer printWriter;
+
   /**
    * @return if doParse() was called at construction time
    */
@@ -451,4 +464,106 @@ public abstract class AlignFile extends FileParse
   {
     seqs.add(seq);
   }
+
+  /**
+   * Writes the sequences in this format to the given writer. Output is written
+   * whenever the format's <code>print</code> method calls
+   * <code>flushOutput</code> with more than <code>FLUSH_SIZE</code> characters
+   * buffered, so only a bounded amount of output is held in memory.
+   */
+  @Override
+  public void print(Writer out, final SequenceI[] seqs,
+          final boolean jvsuffix) throws IOException
+  {
+    printTo(out, new Printer()
+    {
+      @Override
+      public String print()
+      {
+        return AlignFile.this.print(seqs, jvsuffix);
+      }
+    });
+  }
+
+  /**
+   * A method that answers output as a String, flushing output to the print
+   * writer as it goes
+   */
+  protected interface Printer
+  {
+    String print();
+  }
+
+  /**
+   * Runs the printer with output flushed to the given writer as it is
+   * generated, and then writes any output remaining
+   * 
+   * @param out
+   * @param printer
+   * @throws IOException
+   */
+  protected void printTo(Writer out, Printer printer) throws IOException
+  {
+    printWriter = out;
+    try
+    {
+      String remaining = printer.print();
+      if (remaining != null)
+      {
+        out.write(remaining);
+      }
+    } catch (UncheckedIOException e)
+    {
+      throw e.getCause();
+    } finally
+    {
+      printWriter = null;
+    }
+  }
+
+  /**
+   * If printing to a Writer, and more than FLUSH_SIZE characters of output are
+   * buffered, writes the output and clears the buffer. Formats should call
+   * this only between records of their output.
+   * 
+   * @param buffer
+   */
+  protected void flushOutput(StringBuffer buffer)
+  {
+    if (writeOutput(buffer))
+    {
+      buffer.setLength(0);
+    }
+  }
+
+  /**
+   * If printing to a Writer, and more than FLUSH_SIZE characters of output are
+   * buffered, writes the output and clears the buffer. Formats should call
+   * this only between records of their output.
+   * 
+   * @param buffer
+   */
+  protected void flushOutput(StringBuilder buffer)
+  {
+    if (writeOutput(buffer))
+    {
+      buffer.setLength(0);
+    }
+  }
+
+  private boolean writeOutput(CharSequence buffer)
+  {
+    if (printWriter == null || buffer.length() < FLUSH_SIZE)
+    {
+      return false;
+    }
+    try
+    {
+      printWriter.append(buffer);
+    } catch (IOException e)
+    {
+      throw new UncheckedIOException(e);
+    }
+    return true;
+  }
 }
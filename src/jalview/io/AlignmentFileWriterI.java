@@ -26,6 +26,9 @@ import jalview.api.FeatureSettingsModelI;
 import jalview.datamodel.AlignmentI;
 import jalview.datamodel.SequenceI;
 
+import java.io.IOException;
+import java.io.Writer;
+
 public interface AlignmentFileWriterI
 {
 
@@ -37,6 +40,27 @@ public interface AlignmentFileWriterI
 
   String print(SequenceI[] seqs, boolean jvsuffix);
 
+  /**
+   * Writes the sequences in this format to the given writer. The default
+   * writes the output of <code>print(seqs, jvsuffix)</code>; formats may
+   * override this to write output as it is generated, rather than holding all
+   * of it in memory.
+   * 
+   * @param out
+   * @param seqs
+   * @param jvsuffix
+   * @throws IOException
+   */
+  default void print(Writer out, SequenceI[] seqs, boolean jvsuffix)
+          throws IOException
+  {
+    String output = print(seqs, jvsuffix);
+    if (output != null)
+    {
+      out.write(output);
+    }
+  }
+
   boolean hasWarningMessage();
 
   String getWarningMessage();
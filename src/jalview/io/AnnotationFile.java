@@ -22,6 +22,9 @@ package jalview.io;
 
 import java.awt.Color;
 import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Enumeration;
@@ -57,6 +60,11 @@ public class AnnotationFile
 
   private StringBuffer text;
 
+  /*
+   * if not null, the writer that text is flushed to as it is generated
+   */
+  private Writer writer;
+
   private SequenceI refSeq = null;
 
   private String refSeqId = null;
@@ -369,6 +377,7 @@ public class AnnotationFile
         }
 
         text.append(newline);
+        flushText();
 
         if (color != null && color != java.awt.Color.black && oneColour)
         {
@@ -1763,6 +1772,48 @@ public class AnnotationFile
             viewport.getAlignment(), null);
   }
 
+  /**
+   * Writes annotations for the view to the given writer, as they are formatted
+   * 
+   * @param viewport
+   * @param out
+   * @throws IOException
+   */
+  public void printAnnotationsForView(AlignViewportI viewport, Writer out)
+          throws IOException
+  {
+    writer = out;
+    try
+    {
+      out.write(printAnnotationsForView(viewport));
+    } catch (UncheckedIOException e)
+    {
+      throw e.getCause();
+    } finally
+    {
+      writer = null;
+    }
+  }
+
+  /**
+   * If writing to a Writer, writes and clears the text buffered so far once it
+   * exceeds AlignFile.FLUSH_SIZE characters
+   */
+  private void flushText()
+  {
+    if (writer != null && text.length() >= AlignFile.FLUSH_SIZE)
+    {
+      try
+      {
+        writer.append(text);
+      } catch (IOException e)
+      {
+        throw new UncheckedIOException(e);
+      }
+      text.setLength(0);
+    }
+  }
+
   public String printAnnotationsForAlignment(AlignmentI al)
   {
     return printAnnotations(al.getAlignmentAnnotation(), al.getGroups(),
@@ -37,6 +37,7 @@ import jalview.util.Platform;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Writer;
 import java.util.List;
 
 /**
@@ -395,40 +396,93 @@ public class AppletFormatAdapter
   {
     try
     {
-      AlignmentFileWriterI afile = format.getWriter(alignment);
-
-      afile.setNewlineString(newline);
-      afile.setExportSettings(exportSettings);
-      afile.configureForView(viewpanel);
-
-      // check whether we were given a specific alignment to export, rather than
-      // the one in the viewpanel
-      SequenceI[] seqs = null;
-      if (viewpanel == null || viewpanel.getAlignment() == null
-              || viewpanel.getAlignment() != alignment)
-      {
-        seqs = alignment.getSequencesArray();
-      }
-      else
+      AlignmentFileWriterI afile = getWriter(format, alignment);
+      String afileresp = afile.print(getSequencesToWrite(alignment),
+              jvsuffix);
+      if (afile.hasWarningMessage())
       {
-        seqs = viewpanel.getAlignment().getSequencesArray();
+        System.err.println("Warning raised when writing as " + format
+                + " : " + afile.getWarningMessage());
       }
+      return afileresp;
+    } catch (Exception e)
+    {
+      System.err.println("Failed to write alignment as a '"
+              + format.getName() + "' file\n");
+      e.printStackTrace();
+    }
+
+    return null;
+  }
 
-      String afileresp = afile.print(seqs, jvsuffix);
+  /**
+   * Writes an alignment in a particular filetype to the given writer. Formats
+   * which support it write their output as it is generated, rather than
+   * building all of it in memory first.
+   *
+   * @param format
+   * @param alignment
+   * @param jvsuffix
+   * @param out
+   * @return true if the alignment was written, false if an error occurred
+   */
+  public boolean formatSequences(FileFormatI format, AlignmentI alignment,
+          boolean jvsuffix, Writer out)
+  {
+    try
+    {
+      AlignmentFileWriterI afile = getWriter(format, alignment);
+      afile.print(out, getSequencesToWrite(alignment), jvsuffix);
       if (afile.hasWarningMessage())
       {
         System.err.println("Warning raised when writing as " + format
                 + " : " + afile.getWarningMessage());
       }
-      return afileresp;
+      return true;
     } catch (Exception e)
     {
       System.err.println("Failed to write alignment as a '"
               + format.getName() + "' file\n");
       e.printStackTrace();
     }
+    return false;
+  }
 
-    return null;
+  /**
+   * Answers a writer for the format, configured for this adapter's export
+   * settings and view
+   * 
+   * @param format
+   * @param alignment
+   * @return
+   */
+  private AlignmentFileWriterI getWriter(FileFormatI format,
+          AlignmentI alignment)
+  {
+    AlignmentFileWriterI afile = format.getWriter(alignment);
+
+    afile.setNewlineString(newline);
+    afile.setExportSettings(exportSettings);
+    afile.configureForView(viewpanel);
+    return afile;
+  }
+
+  /**
+   * Answers the sequences to write for the alignment
+   * 
+   * @param alignment
+   * @return
+   */
+  private SequenceI[] getSequencesToWrite(AlignmentI alignment)
+  {
+    // check whether we were given a specific alignment to export, rather than
+    // the one in the viewpanel
+    if (viewpanel == null || viewpanel.getAlignment() == null
+            || viewpanel.getAlignment() != alignment)
+    {
+      return alignment.getSequencesArray();
+    }
+    return viewpanel.getAlignment().getSequencesArray();
   }
 
   /**
@@ -273,6 +273,7 @@ public class BLCFile extends AlignFile
       }
 
       out.append(newline);
+      flushOutput(out);
     }
 
     out.append("*");
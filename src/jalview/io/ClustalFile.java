@@ -261,6 +261,7 @@ public class ClustalFile extends AlignFile
       }
 
       out.append(newline);
+      flushOutput(out);
     }
 
     return out.toString();
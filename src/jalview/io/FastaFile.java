@@ -225,6 +225,7 @@ public class FastaFile extends AlignFile
                   + newline);
         }
       }
+      flushOutput(out);
 
       i++;
     }
@@ -24,15 +24,23 @@ import java.util.Locale;
 
 import java.awt.Color;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import jalview.analysis.AlignmentUtils;
 import jalview.analysis.SequenceIdMatcher;
@@ -56,7 +64,9 @@ import jalview.schemes.FeatureColour;
 import jalview.util.ColorUtils;
 import jalview.util.MapList;
 import jalview.util.ParseHtmlBodyAndLinks;
+import jalview.util.Platform;
 import jalview.util.StringUtils;
+import jalview.util.ThreadPools;
 
 /**
  * Parses and writes features files, which may be in Jalview, GFF2 or GFF3
@@ -78,7 +88,15 @@ public class FeaturesFile extends AlignFile implements FeaturesSourceI
 {
   private static final String EQUALS = "=";
 
-  private static final String TAB_REGEX = "\\t";
+  /*
+   * the number of lines tokenised as one task, and the most tasks read ahead
+   * of those being processed
+   */
+  private static final int CHUNK_LINES = 2000;
+
+  private static final int THREADS = ThreadPools.getComputeThreads();
+
+  private static final int MAX_PENDING_CHUNKS = 2 * THREADS;
 
   private static final String STARTGROUP = "STARTGROUP";
 
@@ -100,6 +118,43 @@ public class FeaturesFile extends AlignFile implements FeaturesSourceI
 
   protected int gffVersion;
 
+  /*
+   * features parsed but not yet added to their sequences; they are added in
+   * one batch per sequence, which is much faster than one at a time
+   */
+  private Map<SequenceI, List<SequenceFeature>> parsedFeatures;
+
+  /**
+   * A line of a features file with its tab-delimited columns (null for a
+   * comment or blank line), and for a GFF feature line, the helper to process
+   * it, with its attributes already parsed
+   */
+  protected static class ParsedLine
+  {
+    final String line;
+
+    final String[] columns;
+
+    final GffHelperI helper;
+
+    ParsedLine(String line, boolean gff)
+    {
+      this.line = line;
+      columns = line.length() == 0 || line.charAt(0) == '#' ? null
+              : StringUtils.split(line, '\t');
+      GffHelperI gffHelper = null;
+      if (gff && columns != null && columns.length >= 5)
+      {
+        gffHelper = GffHelperFactory.getHelper(columns);
+        if (gffHelper != null)
+        {
+          gffHelper.parseAttributes(columns);
+        }
+      }
+      helper = gffHelper;
+    }
+  }
+
   /**
    * Creates a new FeaturesFile object.
    */
@@ -228,88 +283,61 @@ public class FeaturesFile extends AlignFile implements FeaturesSourceI
     String line = null;
     try
     {
-      String[] gffColumns;
       String featureGroup = null;
 
-      while ((line = nextLine()) != null)
+      /*
+       * lines are read in chunks, which are tokenised (and GFF attributes
+       * parsed) in parallel; sequence lookup and feature creation are then
+       * done in file order as each chunk completes; pragmas and filters
+       * (which may read further lines, or change the format) are processed
+       * between chunks
+       */
+      Deque<Future<ParsedLine[]>> pending = new ArrayDeque<>();
+      List<String> chunk = new ArrayList<>();
+      boolean endOfFile = false;
+      while (!endOfFile)
       {
-        // skip comments/process pragmas
-        if (line.length() == 0 || line.startsWith("#"))
+        String nextLine = nextLine();
+        endOfFile = nextLine == null;
+        boolean boundary = endOfFile || nextLine.startsWith("##")
+                || isStartFilters(nextLine);
+        if (!boundary)
         {
-          if (line.toLowerCase(Locale.ROOT).startsWith("##"))
-          {
-            processGffPragma(line, gffProps, align, newseqs);
-          }
-          continue;
+          chunk.add(nextLine);
         }
-
-        gffColumns = line.split(TAB_REGEX);
-        if (gffColumns.length == 1)
+        if (!chunk.isEmpty() && (boundary || chunk.size() == CHUNK_LINES))
         {
-          if (line.trim().equalsIgnoreCase("GFF"))
-          {
-            /*
-             * Jalview features file with appended GFF
-             * assume GFF2 (though it may declare ##gff-version 3)
-             */
-            gffVersion = 2;
-            continue;
-          }
+          pending.add(tokenise(chunk, gffVersion != 0));
+          chunk = new ArrayList<>();
         }
-
-        if (gffColumns.length > 0 && gffColumns.length < 4)
+        while (!pending.isEmpty()
+                && (boundary || pending.size() > MAX_PENDING_CHUNKS))
         {
-          /*
-           * if 2 or 3 tokens, we anticipate either 'startgroup', 'endgroup' or
-           * a feature type colour specification
-           */
-          String ft = gffColumns[0];
-          if (ft.equalsIgnoreCase(STARTFILTERS))
+          for (ParsedLine parsed : getParsedLines(pending.remove()))
           {
-            parseFilters(filters);
-            continue;
+            line = parsed.line;
+            featureGroup = parseLine(parsed, align, colours, removeHTML,
+                    relaxedIdmatching, newseqs, featureGroup);
           }
-          if (ft.equalsIgnoreCase(STARTGROUP))
-          {
-            featureGroup = gffColumns[1];
-          }
-          else if (ft.equalsIgnoreCase(ENDGROUP))
+        }
+        if (boundary && !endOfFile)
+        {
+          line = nextLine;
+          if (line.startsWith("##"))
           {
-            // We should check whether this is the current group,
-            // but at present there's no way of showing more than 1 group
-            featureGroup = null;
+            processGffPragma(line, gffProps, align, newseqs);
           }
           else
           {
-            String colscheme = gffColumns[1];
-            FeatureColourI colour = FeatureColour
-                    .parseJalviewFeatureColour(colscheme);
-            if (colour != null)
-            {
-              colours.put(ft, colour);
-            }
+            parseFilters(filters);
           }
-          continue;
-        }
-
-        /*
-         * if not a comment, GFF pragma, startgroup, endgroup or feature
-         * colour specification, that just leaves a feature details line
-         * in either Jalview or GFF format
-         */
-        if (gffVersion == 0)
-        {
-          parseJalviewFeature(line, gffColumns, align, colours, removeHTML,
-                  relaxedIdmatching, featureGroup);
-        }
-        else
-        {
-          parseGff(gffColumns, align, relaxedIdmatching, newseqs);
         }
       }
+      addParsedFeatures();
       resetMatcher();
     } catch (Exception ex)
     {
+      addParsedFeatures();
       // should report somewhere useful for UI if necessary
       warningMessage = ((warningMessage == null) ? "" : warningMessage)
               + "Parsing error at\n" + line;
@@ -333,6 +361,181 @@ public class FeaturesFile extends AlignFile implements FeaturesSourceI
     return true;
   }
 
+  /**
+   * Processes one line of a features file, given its tab-delimited columns
+   * and, for a GFF feature line, possibly the helper to process it. Answers
+   * the feature group for following lines (changed by STARTGROUP and
+   * ENDGROUP lines).
+   * 
+   * @param parsed
+   * @param align
+   * @param colours
+   * @param removeHTML
+   * @param relaxedIdmatching
+   * @param newseqs
+   * @param featureGroup
+   * @return
+   */
+  protected String parseLine(ParsedLine parsed, AlignmentI align,
+          Map<String, FeatureColourI> colours, boolean removeHTML,
+          boolean relaxedIdmatching, List<SequenceI> newseqs,
+          String featureGroup)
+  {
+    String line = parsed.line;
+    String[] gffColumns = parsed.columns;
+
+    // skip comments
+    if (gffColumns == null)
+    {
+      return featureGroup;
+    }
+
+    if (gffColumns.length == 1)
+    {
+      if (line.trim().equalsIgnoreCase("GFF"))
+      {
+        /*
+         * Jalview features file with appended GFF
+         * assume GFF2 (though it may declare ##gff-version 3)
+         */
+        gffVersion = 2;
+        return featureGroup;
+      }
+    }
+
+    if (gffColumns.length > 0 && gffColumns.length < 4)
+    {
+      /*
+       * if 2 or 3 tokens, we anticipate either 'startgroup', 'endgroup' or
+       * a feature type colour specification
+       */
+      String ft = gffColumns[0];
+      if (ft.equalsIgnoreCase(STARTGROUP))
+      {
+        featureGroup = gffColumns[1];
+      }
+      else if (ft.equalsIgnoreCase(ENDGROUP))
+      {
+        // We should check whether this is the current group,
+        // but at present there's no way of showing more than 1 group
+        featureGroup = null;
+      }
+      else
+      {
+        String colscheme = gffColumns[1];
+        FeatureColourI colour = FeatureColour
+                .parseJalviewFeatureColour(colscheme);
+        if (colour != null)
+        {
+          colours.put(ft, colour);
+        }
+      }
+      return featureGroup;
+    }
+
+    /*
+     * if not a comment, GFF pragma, startgroup, endgroup or feature
+     * colour specification, that just leaves a feature details line
+     * in either Jalview or GFF format
+     */
+    if (gffVersion == 0)
+    {
+      parseJalviewFeature(line, gffColumns, align, colours, removeHTML,
+              relaxedIdmatching, featureGroup);
+    }
+    else
+    {
+      GffHelperI helper = parsed.helper;
+      if (helper == null && gffColumns.length >= 5)
+      {
+        helper = GffHelperFactory.getHelper(gffColumns);
+      }
+      parseGff(gffColumns, helper, align, relaxedIdmatching, newseqs);
+    }
+    return featureGroup;
+  }
+
+  /**
+   * Answers true if the line is a STARTFILTERS line, which is followed by
+   * feature filter lines up to ENDFILTERS
+   * 
+   * @param line
+   * @return
+   */
+  protected static boolean isStartFilters(String line)
+  {
+    if (!line.regionMatches(true, 0, STARTFILTERS, 0,
+            STARTFILTERS.length()))
+    {
+      return false;
+    }
+    String[] tokens = StringUtils.split(line, '\t');
+    return tokens.length > 0 && tokens.length < 4
+            && tokens[0].equalsIgnoreCase(STARTFILTERS);
+  }
+
+  /**
+   * Returns a task, already started, which splits each line into its
+   * tab-delimited columns. If the lines are GFF, the GFF helper for each
+   * feature line is also chosen, and its attributes (column 9) parsed. The
+   * task is run on a pool thread, or on this thread in JavaScript.
+   * 
+   * @param lines
+   * @param gff
+   * @return
+   */
+  protected static Future<ParsedLine[]> tokenise(final List<String> lines,
+          final boolean gff)
+  {
+    FutureTask<ParsedLine[]> task = new FutureTask<>(
+            new Callable<ParsedLine[]>()
+            {
+              @Override
+              public ParsedLine[] call()
+              {
+                ParsedLine[] parsed = new ParsedLine[lines.size()];
+                for (int i = 0; i < parsed.length; i++)
+                {
+                  parsed[i] = new ParsedLine(lines.get(i), gff);
+                }
+                return parsed;
+              }
+            });
+    if (Platform.isJS() || ThreadPools.isPoolThread())
+    {
+      task.run();
+    }
+    else
+    {
+      ThreadPools.getComputePool().execute(task);
+    }
+    return task;
+  }
+
+  /**
+   * Waits for and returns the result of a tokenising task, rethrowing any
+   * exception it threw
+   * 
+   * @param task
+   * @return
+   * @throws Exception
+   */
+  private static ParsedLine[] getParsedLines(Future<ParsedLine[]> task)
+          throws Exception
+  {
+    try
+    {
+      return task.get();
+    } catch (ExecutionException e)
+    {
+      if (e.getCause() instanceof Exception)
+      {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    }
+  }
+
   /**
    * Reads input lines from STARTFILTERS to ENDFILTERS and adds a feature type
    * filter to the map for each line parsed. After exit from this method,
@@ -352,7 +555,7 @@ public class FeaturesFile extends AlignFile implements FeaturesSourceI
       {
         return;
       }
-      String[] tokens = line.split(TAB_REGEX);
+      String[] tokens = StringUtils.split(line, '\t');
       if (tokens.length != 2)
       {
         System.err.println(String.format("Invalid token count %d for %d",
@@ -461,16 +664,55 @@ public class FeaturesFile extends AlignFile implements FeaturesSourceI
 
     parseDescriptionHTML(sf, removeHTML);
 
-    seq.addSequenceFeature(sf);
+    addParsedFeature(seq, sf);
 
     while (seqId != null
             && (seq = alignment.findName(seq, seqId, false)) != null)
     {
-      seq.addSequenceFeature(new SequenceFeature(sf));
+      addParsedFeature(seq, new SequenceFeature(sf));
     }
     return true;
   }
 
+  /**
+   * Saves a parsed feature, to be added to the sequence (with any others parsed
+   * for it) by <code>addParsedFeatures</code>
+   * 
+   * @param seq
+   * @param sf
+   */
+  protected void addParsedFeature(SequenceI seq, SequenceFeature sf)
+  {
+    if (parsedFeatures == null)
+    {
+      parsedFeatures = new IdentityHashMap<>();
+    }
+    List<SequenceFeature> features = parsedFeatures.get(seq);
+    if (features == null)
+    {
+      features = new ArrayList<>();
+      parsedFeatures.put(seq, features);
+    }
+    features.add(sf);
+  }
+
+  /**
+   * Adds any features parsed (and not yet added) to their sequences
+   */
+  protected void addParsedFeatures()
+  {
+    if (parsedFeatures == null)
+    {
+      return;
+    }
+    for (Entry<SequenceI, List<SequenceFeature>> features : parsedFeatures
+            .entrySet())
+    {
+      features.getKey().addSequenceFeatures(features.getValue());
+    }
+    parsedFeatures = null;
+  }
+
   /**
    * clear any temporary handles used to speed up ID matching
    */
@@ -630,6 +872,33 @@ public class FeaturesFile extends AlignFile implements FeaturesSourceI
     return count > 0 ? out.toString() : "No Features Visible";
   }
 
+  /**
+   * Writes features in Jalview format to the given writer, as they are
+   * formatted
+   * 
+   * @param out
+   * @param sequences
+   * @param fr
+   * @param includeNonPositional
+   * @param includeComplement
+   * @throws IOException
+   * @see #printJalviewFormat(SequenceI[], FeatureRenderer, boolean, boolean)
+   */
+  public void printJalviewFormat(Writer out, final SequenceI[] sequences,
+          final FeatureRenderer fr, final boolean includeNonPositional,
+          final boolean includeComplement) throws IOException
+  {
+    printTo(out, new Printer()
+    {
+      @Override
+      public String print()
+      {
+        return printJalviewFormat(sequences, fr, includeNonPositional,
+                includeComplement);
+      }
+    });
+  }
+
   /**
    * Outputs any visible complementary (CDS/peptide) positional features as
    * Jalview format, within feature group. The coordinates of the linked
@@ -888,6 +1157,7 @@ public class FeaturesFile extends AlignFile implements FeaturesSourceI
             }
             firstInGroup = false;
             formatJalviewFeature(out, sequenceName, sf);
+            flushOutput(out);
           }
         }
       }
@@ -1085,11 +1355,39 @@ public class FeaturesFile extends AlignFile implements FeaturesSourceI
         formatGffFeature(out, seq, sf);
         out.append(newline);
       }
+      flushOutput(out);
     }
 
     return out.toString();
   }
 
+  /**
+   * Writes features in GFF format to the given writer, as they are formatted
+   * 
+   * @param out
+   * @param sequences
+   * @param fr
+   * @param includeNonPositionalFeatures
+   * @param includeComplement
+   * @throws IOException
+   * @see #printGffFormat(SequenceI[], FeatureRenderer, boolean, boolean)
+   */
+  public void printGffFormat(Writer out, final SequenceI[] sequences,
+          final FeatureRenderer fr,
+          final boolean includeNonPositionalFeatures,
+          final boolean includeComplement) throws IOException
+  {
+    printTo(out, new Printer()
+    {
+      @Override
+      public String print()
+      {
+        return printGffFormat(sequences, fr, includeNonPositionalFeatures,
+                includeComplement);
+      }
+    });
+  }
+
   /**
    * Formats one feature as GFF and appends to the string buffer
    */
@@ -1328,6 +1626,26 @@ public class FeaturesFile extends AlignFile implements FeaturesSourceI
    */
   protected SequenceI parseGff(String[] gffColumns, AlignmentI alignment,
           boolean relaxedIdMatching, List<SequenceI> newseqs)
+  {
+    return parseGff(gffColumns, gffColumns.length < 5 ? null
+            : GffHelperFactory.getHelper(gffColumns), alignment,
+            relaxedIdMatching, newseqs);
+  }
+
+  /**
+   * As {@link #parseGff(String[], AlignmentI, boolean, List)}, using the given
+   * helper (which may be null) to process the line
+   * 
+   * @param gffColumns
+   * @param helper
+   * @param alignment
+   * @param relaxedIdMatching
+   * @param newseqs
+   * @return
+   */
+  protected SequenceI parseGff(String[] gffColumns, GffHelperI helper,
+          AlignmentI alignment, boolean relaxedIdMatching,
+          List<SequenceI> newseqs)
   {
     /*
      * GFF: seqid source type start end score strand phase [attributes]
@@ -1348,7 +1666,6 @@ public class FeaturesFile extends AlignFile implements FeaturesSourceI
             relaxedIdMatching);
 
     SequenceFeature sf = null;
-    GffHelperI helper = GffHelperFactory.getHelper(gffColumns);
     if (helper != null)
     {
       try
@@ -1357,10 +1674,10 @@ public class FeaturesFile extends AlignFile implements FeaturesSourceI
                 relaxedIdMatching);
         if (sf != null)
         {
-          seq.addSequenceFeature(sf);
+          addParsedFeature(seq, sf);
           while ((seq = alignment.findName(seq, seqId, true)) != null)
           {
-            seq.addSequenceFeature(new SequenceFeature(sf));
+            addParsedFeature(seq, new SequenceFeature(sf));
           }
         }
       } catch (IOException e)
@@ -1385,6 +1702,11 @@ public class FeaturesFile extends AlignFile implements FeaturesSourceI
   protected void processAsFasta(AlignmentI align, List<SequenceI> newseqs)
           throws IOException
   {
+    /*
+     * features must be on the dummy sequences before they become real ones
+     */
+    addParsedFeatures();
+
     try
     {
       mark();
@@ -405,6 +405,33 @@ public enum FileFormat implements FileFormatI
     {
       return true;
     }
+  },
+  JalviewSnapshot("JalviewSnapshot", "jvs", true, true)
+  {
+    @Override
+    public AlignmentFileReaderI getReader(FileParse source)
+            throws IOException
+    {
+      return new SnapshotFile(source);
+    }
+
+    @Override
+    public AlignmentFileWriterI getWriter(AlignmentI al)
+    {
+      return new SnapshotFile();
+    }
+
+    @Override
+    public boolean isComplexAlignFile()
+    {
+      return true;
+    }
+
+    @Override
+    public boolean isTextFormat()
+    {
+      return false;
+    }
   };
 
   private boolean writable;
@@ -36,6 +36,7 @@ import jalview.util.Comparison;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 
 /**
  * Additional formatting methods used by the application in a number of places.
@@ -195,6 +196,40 @@ public class FormatAdapter extends AppletFormatAdapter
   public String formatSequences(FileFormatI format, AlignmentI alignment,
           String[] omitHidden, int[] exportRange, boolean suffix,
           HiddenColumns hidden, SequenceGroup selgp)
+  {
+    return this.formatSequences(format, getExportAlignment(alignment,
+            omitHidden, exportRange, hidden, selgp), suffix);
+  }
+
+  /**
+   * Writes the alignment (with sequences replaced by visible sequence strings
+   * if omitHidden is not null) in the given format to a writer. Formats which
+   * support it write their output as it is generated.
+   * 
+   * @param format
+   * @param alignment
+   * @param omitHidden
+   * @param exportRange
+   * @param hidden
+   * @param out
+   * @return true if the alignment was written, false if an error occurred
+   */
+  public boolean formatSequences(FileFormatI format, AlignmentI alignment,
+          String[] omitHidden, int[] exportRange, HiddenColumns hidden,
+          Writer out)
+  {
+    return formatSequences(format, getExportAlignment(alignment, omitHidden,
+            exportRange, hidden, null), getCacheSuffixDefault(format), out);
+  }
+
+  /**
+   * Answers the alignment to export: the given alignment, or if omitHidden is
+   * not null, a copy with sequences replaced by the visible sequence strings
+   * and annotations restricted to visible columns
+   */
+  private AlignmentI getExportAlignment(AlignmentI alignment,
+          String[] omitHidden, int[] exportRange, HiddenColumns hidden,
+          SequenceGroup selgp)
   {
     if (omitHidden != null)
     {
@@ -222,9 +257,9 @@ public class FormatAdapter extends AppletFormatAdapter
           alv.addAnnotation(na);
         }
       }
-      return this.formatSequences(format, alv, suffix);
+      return alv;
     }
-    return this.formatSequences(format, alignment, suffix);
+    return alignment;
   }
 
   @Override
@@ -162,6 +162,11 @@ public class IdentifyFile
             // for certain blast ids
           }
         }
+        if (!lineswereskipped && data.startsWith(SnapshotFile.MAGIC))
+        {
+          reply = FileFormat.JalviewSnapshot;
+          break;
+        }
         if (isBinary)
         {
           // jar files are special - since they contain all sorts of random
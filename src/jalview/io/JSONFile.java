@@ -247,12 +247,13 @@ public class JSONFile extends AlignFile implements ComplexAlignFile
     // hidden rows/seqs business
     HiddenSequences hiddenSeqsObj = getViewport().getAlignment()
             .getHiddenSequences();
-    if (hiddenSeqsObj == null || hiddenSeqsObj.hiddenSequences == null)
+    if (hiddenSeqsObj == null || hiddenSeqsObj.getRowCount() == 0)
     {
       return hiddenSections;
     }
 
-    SequenceI[] hiddenSeqs = hiddenSeqsObj.hiddenSequences;
+    List<SequenceI> hiddenSeqs = hiddenSeqsObj
+            .getHiddenSequencesInOrder();
     StringBuilder hiddenSeqsBuilder = new StringBuilder();
     for (SequenceI hiddenSeq : hiddenSeqs)
     {
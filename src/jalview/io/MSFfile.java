@@ -406,6 +406,7 @@ public class MSFfile extends AlignFile
       }
 
       out.append(newline);
+      flushOutput(out);
     }
 
     return out.toString();
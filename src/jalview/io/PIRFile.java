@@ -192,6 +192,7 @@ public class PIRFile extends AlignFile
           out.append(newline);
         }
       }
+      flushOutput(out);
 
       i++;
     }
@@ -181,6 +181,7 @@ public class PfamFile extends AlignFile
 
       out.append(s[j].getSequenceAsString());
       out.append(newline);
+      flushOutput(out);
       j++;
     }
 
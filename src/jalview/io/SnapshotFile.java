@@ -0,0 +1,2102 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.io;
+
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.GZIPInputStream;
+
+import jalview.api.AlignViewportI;
+import jalview.api.AlignmentViewPanel;
+import jalview.api.ComplexAlignFile;
+import jalview.api.FeatureColourI;
+import jalview.api.FeatureRenderer;
+import jalview.api.FeatureSettingsModelI;
+import jalview.api.FeaturesDisplayedI;
+import jalview.datamodel.AlignmentAnnotation;
+import jalview.datamodel.AlignmentI;
+import jalview.datamodel.Annotation;
+import jalview.datamodel.DBRefEntry;
+import jalview.datamodel.GraphLine;
+import jalview.datamodel.HiddenColumns;
+import jalview.datamodel.Mapping;
+import jalview.datamodel.PDBEntry;
+import jalview.datamodel.Sequence;
+import jalview.datamodel.SequenceFeature;
+import jalview.datamodel.SequenceGroup;
+import jalview.datamodel.SequenceI;
+import jalview.json.binding.biojson.v1.ColourSchemeMapper;
+import jalview.schemes.ColourSchemeProperty;
+import jalview.schemes.FeatureColour;
+import jalview.schemes.FeatureSettingsAdapter;
+import jalview.util.MapList;
+import jalview.util.Platform;
+import jalview.viewmodel.seqfeatures.FeatureRendererModel;
+import jalview.viewmodel.seqfeatures.FeaturesDisplayed;
+
+/**
+ * A compact binary snapshot of an alignment view, for fast save and restore of
+ * large alignments. A snapshot holds the sequences and their dataset sequences
+ * (with database references and PDB entries), sequence features, non-computed
+ * annotation, groups, hidden columns and sequences, alignment properties, and
+ * the colour scheme and feature display settings of the view.
+ * <p>
+ * The file is the magic string <code>JVSNAP</code> and a version number,
+ * followed by a series of sections, each prefixed by an integer tag and
+ * terminated by a zero tag. From version 3, each section is written as a
+ * series of chunks of at most {@link #CHUNK_SIZE} bytes, each prefixed by its
+ * length, and ended by an empty chunk, so that neither writer nor reader need
+ * hold a whole section in memory; earlier versions prefix each section with
+ * its length. All values are big-endian.
+ * Strings are written as a byte length (or -1 for null) followed by UTF-8
+ * bytes; residues are written one byte per character where possible.
+ * Feature types, groups and attribute names are written once to a string
+ * table, and referred to by index.
+ * <p>
+ * On reading, each section is decoded as it is streamed from the file.
+ * Sections with an unrecognised tag are skipped, so that later versions may
+ * add sections which older readers ignore. Version 3 added the mapping of
+ * each database reference and the properties of each PDB entry.
+ */
+public class SnapshotFile extends AlignFile implements ComplexAlignFile
+{
+  /**
+   * the first bytes of any snapshot file
+   */
+  public static final String MAGIC = "JVSNAP";
+
+  static final int VERSION = 3;
+
+  /*
+   * section tags, in the order in which they are written
+   */
+  static final int END = 0;
+
+  static final int STRINGS = 1;
+
+  static final int SEQUENCES = 2;
+
+  static final int FEATURES = 3;
+
+  static final int ANNOTATIONS = 4;
+
+  static final int GROUPS = 5;
+
+  static final int HIDDEN = 6;
+
+  static final int PROPERTIES = 7;
+
+  static final int VIEW = 8;
+
+  /*
+   * the largest chunk of a section written in one piece (version 3 onwards)
+   */
+  static final int CHUNK_SIZE = 64 * 1024;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /*
+   * residue encodings
+   */
+  private static final byte LATIN1 = 0;
+
+  private static final byte UTF8 = 1;
+
+  /*
+   * feature attribute value types; a map whose keys and values are all
+   * strings is written as MAP_VALUE, any other map as TYPED_MAP_VALUE
+   * (version 2 onwards), with keys and values each written with their type
+   */
+  private static final byte STRING_VALUE = 0;
+
+  private static final byte MAP_VALUE = 1;
+
+  private static final byte NULL_VALUE = 2;
+
+  private static final byte INTEGER_VALUE = 3;
+
+  private static final byte LONG_VALUE = 4;
+
+  private static final byte FLOAT_VALUE = 5;
+
+  private static final byte DOUBLE_VALUE = 6;
+
+  private static final byte BOOLEAN_VALUE = 7;
+
+  private static final byte TYPED_MAP_VALUE = 8;
+
+  /*
+   * kinds of reference to a sequence (the owner of a block of sequence
+   * features, or the sequence a database reference is mapped to)
+   */
+  private static final byte DATASET_OWNER = 0;
+
+  private static final byte SEQUENCE_OWNER = 1;
+
+  private static final byte NO_SEQUENCE = 2;
+
+  private String globalColourScheme;
+
+  private boolean showSeqFeatures;
+
+  private HiddenColumns hiddenColumns;
+
+  private List<SequenceI> hiddenSequences;
+
+  private FeaturesDisplayedI displayedFeatures;
+
+  private SnapshotFeatureSettings featureSettings;
+
+  /*
+   * decoded on reading
+   */
+  private List<String> strings;
+
+  private SequenceI[] datasetSeqs;
+
+  private int version;
+
+  public SnapshotFile()
+  {
+    super();
+  }
+
+  public SnapshotFile(FileParse source) throws IOException
+  {
+    super(source);
+  }
+
+  public SnapshotFile(String inFile, DataSourceType sourceType)
+          throws IOException
+  {
+    super(inFile, sourceType);
+  }
+
+  /**
+   * Snapshots are binary, so can't be output as text; use
+   * {@link #write(OutputStream)} instead
+   *
+   * @return null
+   */
+  @Override
+  public String print(SequenceI[] seqs, boolean jvsuffix)
+  {
+    warningMessage = "A Jalview snapshot can't be output as text";
+    return null;
+  }
+
+  @Override
+  public void configureForView(AlignmentViewPanel avpanel)
+  {
+    if (avpanel == null)
+    {
+      return;
+    }
+    super.configureForView(avpanel);
+    AlignViewportI viewport = avpanel.getAlignViewport();
+    AlignmentI alignment = viewport.getAlignment();
+
+    seqGroups = alignment.getGroups();
+    AlignmentAnnotation[] annots = alignment.getAlignmentAnnotation();
+    if (annots != null)
+    {
+      for (AlignmentAnnotation annot : annots)
+      {
+        if (annot != null && !annot.autoCalculated)
+        {
+          annotations.add(annot);
+        }
+      }
+    }
+    globalColourScheme = ColourSchemeProperty
+            .getColourName(viewport.getGlobalColourScheme());
+    showSeqFeatures = viewport.isShowSequenceFeatures();
+    displayedFeatures = viewport.getFeaturesDisplayed();
+    if (viewport.hasHiddenColumns())
+    {
+      hiddenColumns = alignment.getHiddenColumns();
+    }
+    featureSettings = new SnapshotFeatureSettings(
+            avpanel.getFeatureRenderer());
+  }
+
+  /**
+   * Writes a snapshot of the sequences (and, if configured for a view, the
+   * view's annotation, groups, hidden regions and display settings) to the
+   * output stream. The stream is flushed but not closed.
+   *
+   * @param os
+   * @throws IOException
+   */
+  public void write(OutputStream os) throws IOException
+  {
+    SequenceI[] sqs;
+    AlignViewportI viewport = getViewport();
+    if (viewport != null)
+    {
+      sqs = viewport.getAlignment().getHiddenSequences().getFullAlignment()
+              .getSequencesArray();
+    }
+    else
+    {
+      sqs = getSeqsAsArray();
+    }
+    Map<SequenceI, Integer> seqIndex = new IdentityHashMap<>();
+    for (int i = 0; i < sqs.length; i++)
+    {
+      seqIndex.put(sqs[i], i);
+    }
+    List<SequenceI> datasets = new ArrayList<>();
+    Map<SequenceI, Integer> datasetIndex = new IdentityHashMap<>();
+    for (SequenceI seq : sqs)
+    {
+      SequenceI ds = seq.getDatasetSequence();
+      if (ds != null && !datasetIndex.containsKey(ds))
+      {
+        datasetIndex.put(ds, datasets.size());
+        datasets.add(ds);
+      }
+    }
+    addMappedSequences(sqs, seqIndex, datasets, datasetIndex);
+
+    DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(os));
+    out.write(MAGIC.getBytes(StandardCharsets.US_ASCII));
+    out.writeInt(VERSION);
+
+    /*
+     * the string table must precede the features that refer to it, so is
+     * collected before anything is written
+     */
+    StringTable table = new StringTable();
+    collectStrings(sqs, datasets, table);
+    table.freeze();
+
+    DataOutputStream data = startSection(out, STRINGS);
+    data.writeInt(table.strings.size());
+    for (String s : table.strings)
+    {
+      writeString(data, s);
+    }
+    data.close();
+
+    data = startSection(out, SEQUENCES);
+    writeSequences(data, sqs, seqIndex, datasets, datasetIndex);
+    data.close();
+
+    data = startSection(out, FEATURES);
+    writeFeatures(data, sqs, datasets, table);
+    data.close();
+
+    data = startSection(out, ANNOTATIONS);
+    writeAnnotations(data, seqIndex);
+    data.close();
+
+    data = startSection(out, GROUPS);
+    writeGroups(data, seqIndex);
+    data.close();
+
+    data = startSection(out, HIDDEN);
+    writeHidden(data, viewport, seqIndex);
+    data.close();
+
+    data = startSection(out, PROPERTIES);
+    writeProperties(data, viewport);
+    data.close();
+
+    data = startSection(out, VIEW);
+    writeView(data);
+    data.close();
+
+    out.writeInt(END);
+    out.flush();
+  }
+
+  /**
+   * Writes the tag of a section, and answers a stream to write its content
+   * to. Closing the returned stream ends the section, but does not close the
+   * underlying stream.
+   *
+   * @param out
+   * @param tag
+   * @return
+   * @throws IOException
+   */
+  protected DataOutputStream startSection(DataOutputStream out, int tag)
+          throws IOException
+  {
+    out.writeInt(tag);
+    return new DataOutputStream(new SectionOutputStream(out));
+  }
+
+  /**
+   * Adds to the dataset sequences any sequence that a database reference maps
+   * to, but which is not otherwise in the snapshot (including those mapped to
+   * from sequences so added), so that every mapping can be written as a
+   * reference to a sequence in the snapshot
+   *
+   * @param sqs
+   * @param seqIndex
+   * @param datasets
+   * @param datasetIndex
+   */
+  protected static void addMappedSequences(SequenceI[] sqs,
+          Map<SequenceI, Integer> seqIndex, List<SequenceI> datasets,
+          Map<SequenceI, Integer> datasetIndex)
+  {
+    List<SequenceI> toVisit = new ArrayList<>(datasets);
+    for (SequenceI seq : sqs)
+    {
+      if (seq.getDatasetSequence() == null)
+      {
+        toVisit.add(seq);
+      }
+    }
+    for (int i = 0; i < toVisit.size(); i++)
+    {
+      List<DBRefEntry> dbrefs = toVisit.get(i).getDBRefs();
+      if (dbrefs == null)
+      {
+        continue;
+      }
+      for (DBRefEntry dbref : dbrefs)
+      {
+        SequenceI to = dbref.getMap() == null ? null
+                : dbref.getMap().getTo();
+        if (to != null && !seqIndex.containsKey(to)
+                && !datasetIndex.containsKey(to))
+        {
+          datasetIndex.put(to, datasets.size());
+          datasets.add(to);
+          toVisit.add(to);
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds to the string table the feature types, groups and attribute names
+   * (including the keys of attribute maps) of all features to be written
+   *
+   * @param sqs
+   * @param datasets
+   * @param table
+   */
+  protected static void collectStrings(SequenceI[] sqs,
+          List<SequenceI> datasets, StringTable table)
+  {
+    for (SequenceI ds : datasets)
+    {
+      collectStrings(ds.getFeatures().getAllFeatures(), table);
+    }
+    for (SequenceI seq : sqs)
+    {
+      if (seq.getDatasetSequence() == null)
+      {
+        collectStrings(seq.getFeatures().getAllFeatures(), table);
+      }
+    }
+  }
+
+  private static void collectStrings(List<SequenceFeature> features,
+          StringTable table)
+  {
+    for (SequenceFeature sf : features)
+    {
+      table.indexOf(sf.getType());
+      table.indexOf(sf.getFeatureGroup());
+      Map<String, Object> details = sf.otherDetails;
+      if (details != null)
+      {
+        for (Entry<String, Object> detail : details.entrySet())
+        {
+          table.indexOf(detail.getKey());
+          collectStrings(detail.getValue(), table);
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds to the string table any strings that writeValue would write as
+   * indices into the table
+   *
+   * @param value
+   * @param table
+   */
+  private static void collectStrings(Object value, StringTable table)
+  {
+    if (value instanceof Map)
+    {
+      Map<?, ?> map = (Map<?, ?>) value;
+      boolean stringMap = isStringMap(map);
+      for (Entry<?, ?> e : map.entrySet())
+      {
+        if (stringMap)
+        {
+          table.indexOf((String) e.getKey());
+        }
+        else
+        {
+          collectStrings(e.getKey(), table);
+          collectStrings(e.getValue(), table);
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the dataset sequences, followed by the aligned sequences each with
+   * the index of its dataset sequence (or -1 if it has none), followed by the
+   * database references and PDB entries of each dataset sequence and of each
+   * aligned sequence with no dataset sequence. References are written last,
+   * as mappings may refer to any sequence.
+   *
+   * @param out
+   * @param sqs
+   * @param seqIndex
+   * @param datasets
+   * @param datasetIndex
+   * @throws IOException
+   */
+  protected void writeSequences(DataOutputStream out, SequenceI[] sqs,
+          Map<SequenceI, Integer> seqIndex, List<SequenceI> datasets,
+          Map<SequenceI, Integer> datasetIndex) throws IOException
+  {
+    out.writeInt(datasets.size());
+    for (SequenceI ds : datasets)
+    {
+      writeSequence(out, ds);
+    }
+    out.writeInt(sqs.length);
+    for (SequenceI seq : sqs)
+    {
+      writeSequence(out, seq);
+      SequenceI ds = seq.getDatasetSequence();
+      out.writeInt(ds == null ? -1 : datasetIndex.get(ds));
+    }
+    for (SequenceI ds : datasets)
+    {
+      writeReferences(out, ds, seqIndex, datasetIndex);
+    }
+    for (SequenceI seq : sqs)
+    {
+      if (seq.getDatasetSequence() == null)
+      {
+        writeReferences(out, seq, seqIndex, datasetIndex);
+      }
+    }
+  }
+
+  /**
+   * Writes name, start, end, description and residues of one sequence
+   *
+   * @param out
+   * @param seq
+   * @throws IOException
+   */
+  protected void writeSequence(DataOutputStream out, SequenceI seq)
+          throws IOException
+  {
+    writeString(out, seq.getName());
+    out.writeInt(seq.getStart());
+    out.writeInt(seq.getEnd());
+    writeString(out, seq.getDescription());
+    char[] residues = seq.getSequence();
+    boolean latin1 = true;
+    for (int i = 0; latin1 && i < residues.length; i++)
+    {
+      latin1 = residues[i] < 256;
+    }
+    if (latin1)
+    {
+      out.writeByte(LATIN1);
+      out.writeInt(residues.length);
+      byte[] bytes = new byte[residues.length];
+      for (int i = 0; i < residues.length; i++)
+      {
+        bytes[i] = (byte) residues[i];
+      }
+      out.write(bytes);
+    }
+    else
+    {
+      out.writeByte(UTF8);
+      writeString(out, new String(residues));
+    }
+  }
+
+  /**
+   * Writes the database references (with any mapping) and PDB entries (with
+   * their properties) of a sequence
+   *
+   * @param out
+   * @param seq
+   * @param seqIndex
+   * @param datasetIndex
+   * @throws IOException
+   */
+  protected void writeReferences(DataOutputStream out, SequenceI seq,
+          Map<SequenceI, Integer> seqIndex,
+          Map<SequenceI, Integer> datasetIndex) throws IOException
+  {
+    List<DBRefEntry> dbrefs = seq.getDBRefs();
+    out.writeInt(dbrefs == null ? 0 : dbrefs.size());
+    if (dbrefs != null)
+    {
+      for (DBRefEntry dbref : dbrefs)
+      {
+        writeString(out, dbref.getSource());
+        writeString(out, dbref.getVersion());
+        writeString(out, dbref.getAccessionId());
+        out.writeBoolean(dbref.isCanonical());
+        Mapping map = dbref.getMap();
+        out.writeBoolean(map != null);
+        if (map != null)
+        {
+          writeMapping(out, map, seqIndex, datasetIndex);
+        }
+      }
+    }
+    List<PDBEntry> pdbs = seq.getAllPDBEntries();
+    out.writeInt(pdbs == null ? 0 : pdbs.size());
+    if (pdbs != null)
+    {
+      for (PDBEntry pdb : pdbs)
+      {
+        writeString(out, pdb.getId());
+        writeString(out, pdb.getChainCode());
+        writeString(out, pdb.getType());
+        writeString(out, pdb.getFile());
+        List<String> keys = Collections.list(pdb.getProperties());
+        out.writeInt(keys.size());
+        for (String key : keys)
+        {
+          writeString(out, key);
+          writePropertyValue(out, pdb.getProperty(key));
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the sequence mapped to, the mapped from id, and the ranges and
+   * ratios of a mapping
+   *
+   * @param out
+   * @param map
+   * @param seqIndex
+   * @param datasetIndex
+   * @throws IOException
+   */
+  protected void writeMapping(DataOutputStream out, Mapping map,
+          Map<SequenceI, Integer> seqIndex,
+          Map<SequenceI, Integer> datasetIndex) throws IOException
+  {
+    SequenceI to = map.getTo();
+    if (to == null)
+    {
+      out.writeByte(NO_SEQUENCE);
+    }
+    else if (seqIndex.containsKey(to))
+    {
+      out.writeByte(SEQUENCE_OWNER);
+      out.writeInt(seqIndex.get(to));
+    }
+    else
+    {
+      out.writeByte(DATASET_OWNER);
+      out.writeInt(datasetIndex.get(to));
+    }
+    writeString(out, map.getMappedFromId());
+    MapList ml = map.getMap();
+    out.writeBoolean(ml != null);
+    if (ml != null)
+    {
+      out.writeInt(ml.getFromRatio());
+      out.writeInt(ml.getToRatio());
+      writeRanges(out, ml.getFromRanges());
+      writeRanges(out, ml.getToRanges());
+    }
+  }
+
+  private static void writeRanges(DataOutputStream out, List<int[]> ranges)
+          throws IOException
+  {
+    out.writeInt(ranges.size());
+    for (int[] range : ranges)
+    {
+      out.writeInt(range[0]);
+      out.writeInt(range[1]);
+    }
+  }
+
+  /**
+   * Writes a PDB entry property value with its type. Strings, numbers and
+   * booleans are read back as the same type; any other value is written as
+   * its string form.
+   *
+   * @param out
+   * @param value
+   * @throws IOException
+   */
+  private static void writePropertyValue(DataOutputStream out,
+          Object value) throws IOException
+  {
+    if (value instanceof Map || value == null)
+    {
+      out.writeByte(STRING_VALUE);
+      writeString(out, value == null ? null : value.toString());
+    }
+    else
+    {
+      writeValue(out, value, null);
+    }
+  }
+
+  /**
+   * Writes the features of each dataset sequence, and of any aligned sequence
+   * which has no dataset sequence. Feature types, groups and attribute names
+   * are added to the string table and written as indices.
+   *
+   * @param out
+   * @param sqs
+   * @param datasets
+   * @param table
+   * @throws IOException
+   */
+  protected void writeFeatures(DataOutputStream out, SequenceI[] sqs,
+          List<SequenceI> datasets, StringTable table) throws IOException
+  {
+    int owners = datasets.size();
+    for (SequenceI seq : sqs)
+    {
+      if (seq.getDatasetSequence() == null)
+      {
+        owners++;
+      }
+    }
+    out.writeInt(owners);
+    for (int i = 0; i < datasets.size(); i++)
+    {
+      out.writeByte(DATASET_OWNER);
+      out.writeInt(i);
+      writeFeatures(out, datasets.get(i).getFeatures().getAllFeatures(),
+              table);
+    }
+    for (int i = 0; i < sqs.length; i++)
+    {
+      if (sqs[i].getDatasetSequence() == null)
+      {
+        out.writeByte(SEQUENCE_OWNER);
+        out.writeInt(i);
+        writeFeatures(out, sqs[i].getFeatures().getAllFeatures(), table);
+      }
+    }
+  }
+
+  private void writeFeatures(DataOutputStream out,
+          List<SequenceFeature> features, StringTable table)
+          throws IOException
+  {
+    out.writeInt(features.size());
+    for (SequenceFeature sf : features)
+    {
+      out.writeInt(table.indexOf(sf.getType()));
+      out.writeInt(table.indexOf(sf.getFeatureGroup()));
+      out.writeInt(sf.getBegin());
+      out.writeInt(sf.getEnd());
+      out.writeFloat(sf.getScore());
+      writeString(out, sf.getDescription());
+      List<String> links = sf.links;
+      out.writeInt(links == null ? 0 : links.size());
+      if (links != null)
+      {
+        for (String link : links)
+        {
+          writeString(out, link);
+        }
+      }
+      Map<String, Object> details = sf.otherDetails;
+      out.writeInt(details == null ? 0 : details.size());
+      if (details != null)
+      {
+        for (Entry<String, Object> detail : details.entrySet())
+        {
+          out.writeInt(table.indexOf(detail.getKey()));
+          writeValue(out, detail.getValue(), table);
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes a feature attribute value with its type. Strings, numbers,
+   * booleans, nulls and maps (nested to any depth) are read back as the same
+   * type; any other value is written as its string form.
+   *
+   * @param out
+   * @param value
+   * @param table
+   * @throws IOException
+   */
+  private static void writeValue(DataOutputStream out, Object value,
+          StringTable table) throws IOException
+  {
+    if (value == null)
+    {
+      out.writeByte(NULL_VALUE);
+    }
+    else if (value instanceof Integer)
+    {
+      out.writeByte(INTEGER_VALUE);
+      out.writeInt((Integer) value);
+    }
+    else if (value instanceof Long)
+    {
+      out.writeByte(LONG_VALUE);
+      out.writeLong((Long) value);
+    }
+    else if (value instanceof Float)
+    {
+      out.writeByte(FLOAT_VALUE);
+      out.writeFloat((Float) value);
+    }
+    else if (value instanceof Double)
+    {
+      out.writeByte(DOUBLE_VALUE);
+      out.writeDouble((Double) value);
+    }
+    else if (value instanceof Boolean)
+    {
+      out.writeByte(BOOLEAN_VALUE);
+      out.writeBoolean((Boolean) value);
+    }
+    else if (value instanceof Map)
+    {
+      Map<?, ?> map = (Map<?, ?>) value;
+      if (isStringMap(map))
+      {
+        out.writeByte(MAP_VALUE);
+        out.writeInt(map.size());
+        for (Entry<?, ?> e : map.entrySet())
+        {
+          out.writeInt(table.indexOf((String) e.getKey()));
+          writeString(out, (String) e.getValue());
+        }
+      }
+      else
+      {
+        out.writeByte(TYPED_MAP_VALUE);
+        out.writeInt(map.size());
+        for (Entry<?, ?> e : map.entrySet())
+        {
+          writeValue(out, e.getKey(), table);
+          writeValue(out, e.getValue(), table);
+        }
+      }
+    }
+    else
+    {
+      out.writeByte(STRING_VALUE);
+      writeString(out, value.toString());
+    }
+  }
+
+  /**
+   * Answers true if all keys of the map are non-null strings, and all its
+   * values are strings or null
+   *
+   * @param map
+   * @return
+   */
+  private static boolean isStringMap(Map<?, ?> map)
+  {
+    for (Entry<?, ?> e : map.entrySet())
+    {
+      if (!(e.getKey() instanceof String) || (e.getValue() != null
+              && !(e.getValue() instanceof String)))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes alignment annotations, with any associated sequence written as its
+   * index in the alignment
+   *
+   * @param out
+   * @param seqIndex
+   * @throws IOException
+   */
+  protected void writeAnnotations(DataOutputStream out,
+          Map<SequenceI, Integer> seqIndex) throws IOException
+  {
+    out.writeInt(annotations.size());
+    for (AlignmentAnnotation aa : annotations)
+    {
+      writeString(out, aa.label);
+      writeString(out, aa.description);
+      writeString(out, aa.getCalcId());
+      Integer seqRef = aa.sequenceRef == null ? null
+              : seqIndex.get(aa.sequenceRef);
+      out.writeInt(seqRef == null ? -1 : seqRef);
+      out.writeInt(aa.graph);
+      out.writeInt(aa.graphGroup);
+      out.writeInt(aa.graphHeight);
+      out.writeFloat(aa.graphMin);
+      out.writeFloat(aa.graphMax);
+      out.writeDouble(aa.score);
+      out.writeBoolean(aa.visible);
+      out.writeBoolean(aa.belowAlignment);
+      out.writeBoolean(aa.centreColLabels);
+      out.writeBoolean(aa.scaleColLabel);
+      out.writeBoolean(aa.showAllColLabels);
+      out.writeBoolean(aa.hasIcons);
+      out.writeBoolean(aa.hasText);
+      out.writeBoolean(aa.padGaps);
+      out.writeBoolean(aa.threshold != null);
+      if (aa.threshold != null)
+      {
+        out.writeFloat(aa.threshold.value);
+        writeString(out, aa.threshold.label);
+        writeColour(out, aa.threshold.colour);
+      }
+      Collection<String> props = aa.getProperties();
+      out.writeInt(props.size());
+      for (String prop : props)
+      {
+        writeString(out, prop);
+        writeString(out, aa.getProperty(prop));
+      }
+      Annotation[] anns = aa.annotations;
+      out.writeInt(anns == null ? -1 : anns.length);
+      if (anns != null)
+      {
+        for (Annotation ann : anns)
+        {
+          out.writeBoolean(ann != null);
+          if (ann != null)
+          {
+            writeString(out, ann.displayCharacter);
+            writeString(out, ann.description);
+            out.writeChar(ann.secondaryStructure);
+            out.writeFloat(ann.value);
+            writeColour(out, ann.colour);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes sequence groups, with member sequences as alignment indices
+   *
+   * @param out
+   * @param seqIndex
+   * @throws IOException
+   */
+  protected void writeGroups(DataOutputStream out,
+          Map<SequenceI, Integer> seqIndex) throws IOException
+  {
+    List<SequenceGroup> groups = seqGroups == null
+            ? new ArrayList<SequenceGroup>()
+            : seqGroups;
+    out.writeInt(groups.size());
+    for (SequenceGroup sg : groups)
+    {
+      writeString(out, sg.getName());
+      writeString(out, sg.getDescription());
+      out.writeInt(sg.getStartRes());
+      out.writeInt(sg.getEndRes());
+      List<SequenceI> members = sg.getSequences();
+      List<Integer> indices = new ArrayList<>();
+      for (SequenceI seq : members)
+      {
+        Integer index = seqIndex.get(seq);
+        if (index != null)
+        {
+          indices.add(index);
+        }
+      }
+      out.writeInt(indices.size());
+      for (Integer index : indices)
+      {
+        out.writeInt(index);
+      }
+      writeString(out, ColourSchemeProperty
+              .getColourName(sg.getColourScheme()));
+      out.writeBoolean(sg.getDisplayBoxes());
+      out.writeBoolean(sg.getDisplayText());
+      out.writeBoolean(sg.getColourText());
+      out.writeBoolean(sg.getShowNonconserved());
+      out.writeBoolean(sg.getIgnoreGapsConsensus());
+      writeColour(out, sg.getOutlineColour());
+      writeColour(out, sg.textColour);
+      writeColour(out, sg.textColour2);
+      out.writeInt(sg.thresholdTextColour);
+    }
+  }
+
+  /**
+   * Writes hidden column ranges and the indices of hidden sequences
+   *
+   * @param out
+   * @param viewport
+   * @param seqIndex
+   * @throws IOException
+   */
+  protected void writeHidden(DataOutputStream out, AlignViewportI viewport,
+          Map<SequenceI, Integer> seqIndex) throws IOException
+  {
+    List<int[]> ranges = new ArrayList<>();
+    if (hiddenColumns != null)
+    {
+      Iterator<int[]> it = hiddenColumns.iterator();
+      while (it.hasNext())
+      {
+        ranges.add(it.next());
+      }
+    }
+    out.writeInt(ranges.size());
+    for (int[] range : ranges)
+    {
+      out.writeInt(range[0]);
+      out.writeInt(range[1]);
+    }
+
+    List<Integer> hidden = new ArrayList<>();
+    List<SequenceI> hiddenSeqs = viewport == null ? null
+            : viewport.getAlignment().getHiddenSequences()
+                    .getHiddenSequencesInOrder();
+    if (hiddenSeqs != null)
+    {
+      for (SequenceI seq : hiddenSeqs)
+      {
+        if (seq != null && seqIndex.containsKey(seq))
+        {
+          hidden.add(seqIndex.get(seq));
+        }
+      }
+    }
+    out.writeInt(hidden.size());
+    for (Integer index : hidden)
+    {
+      out.writeInt(index);
+    }
+  }
+
+  /**
+   * Writes any alignment properties whose keys and values are strings
+   *
+   * @param out
+   * @param viewport
+   * @throws IOException
+   */
+  protected void writeProperties(DataOutputStream out,
+          AlignViewportI viewport) throws IOException
+  {
+    Map<String, String> props = new LinkedHashMap<>();
+    Hashtable<?, ?> alProps = viewport == null ? null
+            : viewport.getAlignment().getProperties();
+    if (alProps != null)
+    {
+      for (Entry<?, ?> e : alProps.entrySet())
+      {
+        if (e.getKey() instanceof String && e.getValue() instanceof String)
+        {
+          props.put((String) e.getKey(), (String) e.getValue());
+        }
+      }
+    }
+    out.writeInt(props.size());
+    for (Entry<String, String> e : props.entrySet())
+    {
+      writeString(out, e.getKey());
+      writeString(out, e.getValue());
+    }
+  }
+
+  /**
+   * Writes the colour scheme name, whether features are shown, and the
+   * feature display settings (render order, colours, visible types and
+   * hidden groups, transparency)
+   *
+   * @param out
+   * @throws IOException
+   */
+  protected void writeView(DataOutputStream out) throws IOException
+  {
+    writeString(out, globalColourScheme);
+    out.writeBoolean(showSeqFeatures);
+    SnapshotFeatureSettings settings = featureSettings == null
+            ? new SnapshotFeatureSettings(null)
+            : featureSettings;
+    out.writeInt(settings.order.size());
+    for (String type : settings.order)
+    {
+      writeString(out, type);
+      FeatureColourI colour = settings.colours.get(type);
+      String descriptor = null;
+      if (colour != null)
+      {
+        /*
+         * as for a features file, minus the leading "type<tab>"
+         */
+        descriptor = colour.toJalviewFormat(type)
+                .substring(type.length() + 1);
+      }
+      writeString(out, descriptor);
+      out.writeBoolean(displayedFeatures != null
+              && displayedFeatures.isVisible(type));
+    }
+    out.writeInt(settings.hiddenGroups.size());
+    for (String group : settings.hiddenGroups)
+    {
+      writeString(out, group);
+    }
+    out.writeFloat(settings.transparency);
+  }
+
+  static void writeString(DataOutputStream out, String s)
+          throws IOException
+  {
+    if (s == null)
+    {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static void writeColour(DataOutputStream out, Color c) throws IOException
+  {
+    out.writeBoolean(c != null);
+    if (c != null)
+    {
+      out.writeInt(c.getRGB());
+    }
+  }
+
+  /**
+   * Reads the whole snapshot into the sequences, annotations, groups and view
+   * settings of this parser
+   */
+  @Override
+  public void parse() throws IOException
+  {
+    strings = new ArrayList<>();
+    hiddenSequences = new ArrayList<>();
+    featureSettings = new SnapshotFeatureSettings(null);
+    displayedFeatures = new FeaturesDisplayed();
+
+    try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(getInputStream(), BUFFER_SIZE)))
+    {
+      byte[] magic = new byte[MAGIC.length()];
+      try
+      {
+        in.readFully(magic);
+        version = in.readInt();
+      } catch (EOFException e)
+      {
+        throw new IOException("Not a Jalview snapshot");
+      }
+      if (!MAGIC.equals(new String(magic, StandardCharsets.US_ASCII)))
+      {
+        throw new IOException("Not a Jalview snapshot");
+      }
+      if (version > VERSION)
+      {
+        warningMessage = "Snapshot version " + version
+                + " is newer than this reader (" + VERSION
+                + "); some content may not be read";
+      }
+
+      /*
+       * sections are decoded in the order they were written, as each depends
+       * only on those before it
+       */
+      while (true)
+      {
+        int tag;
+        try
+        {
+          tag = in.readInt();
+        } catch (EOFException e)
+        {
+          break;
+        }
+        if (tag == END)
+        {
+          break;
+        }
+        SectionInputStream section = new SectionInputStream(in,
+                version > 2);
+        readSection(tag, new DataInputStream(
+                new BufferedInputStream(section, BUFFER_SIZE)));
+        section.skipToEnd();
+      }
+    }
+    if (datasetSeqs == null)
+    {
+      throw new IOException("Snapshot has no sequences");
+    }
+  }
+
+  /**
+   * Decodes one section; sections with an unrecognised tag are ignored
+   *
+   * @param tag
+   * @param in
+   * @throws IOException
+   */
+  protected void readSection(int tag, DataInputStream in)
+          throws IOException
+  {
+    switch (tag)
+    {
+    case STRINGS:
+      readStrings(in);
+      break;
+    case SEQUENCES:
+      readSequences(in);
+      break;
+    case FEATURES:
+      readFeatures(in);
+      break;
+    case ANNOTATIONS:
+      readAnnotations(in);
+      break;
+    case GROUPS:
+      readGroups(in);
+      break;
+    case HIDDEN:
+      readHidden(in);
+      break;
+    case PROPERTIES:
+      readProperties(in);
+      break;
+    case VIEW:
+      readView(in);
+      break;
+    default:
+      // a section added by a later version
+    }
+  }
+
+  /**
+   * Answers a stream of the (uncompressed) snapshot data
+   *
+   * @return
+   * @throws IOException
+   */
+  protected InputStream getInputStream() throws IOException
+  {
+    InputStream is = null;
+    if (inFile != null)
+    {
+      byte[] bytes = Platform.getFileBytes(inFile);
+      // bytes are provided in JavaScript
+      is = bytes != null ? new ByteArrayInputStream(bytes)
+              : new FileInputStream(inFile);
+    }
+    else if (dataSourceType == DataSourceType.URL)
+    {
+      is = new URL(getDataName()).openStream();
+    }
+    else if (dataSourceType == DataSourceType.CLASSLOADER)
+    {
+      is = getClass().getResourceAsStream("/" + getDataName());
+    }
+    if (is == null)
+    {
+      throw new IOException("Can't read a Jalview snapshot from "
+              + dataSourceType + " " + getDataName());
+    }
+    BufferedInputStream in = new BufferedInputStream(is, BUFFER_SIZE);
+    return isGzipStream(in) ? new GZIPInputStream(in) : in;
+  }
+
+  private void readStrings(DataInputStream in) throws IOException
+  {
+    int count = in.readInt();
+    for (int i = 0; i < count; i++)
+    {
+      strings.add(readString(in));
+    }
+  }
+
+  private void readSequences(DataInputStream in) throws IOException
+  {
+    int count = in.readInt();
+    datasetSeqs = new SequenceI[count];
+    for (int i = 0; i < count; i++)
+    {
+      datasetSeqs[i] = readSequence(in);
+      if (version < 3)
+      {
+        readReferences(in, datasetSeqs[i]);
+      }
+    }
+    count = in.readInt();
+    for (int i = 0; i < count; i++)
+    {
+      SequenceI seq = readSequence(in);
+      int ds = in.readInt();
+      if (ds == -1)
+      {
+        if (version < 3)
+        {
+          readReferences(in, seq);
+        }
+      }
+      else
+      {
+        seq.setDatasetSequence(datasetSeqs[ds]);
+      }
+      seqs.add(seq);
+    }
+
+    /*
+     * from version 3, references follow all the sequences, as
+     * mappings may refer to any of them
+     */
+    if (version >= 3)
+    {
+      for (SequenceI ds : datasetSeqs)
+      {
+        readReferences(in, ds);
+      }
+      for (SequenceI seq : seqs)
+      {
+        if (seq.getDatasetSequence() == null)
+        {
+          readReferences(in, seq);
+        }
+      }
+    }
+  }
+
+  private SequenceI readSequence(DataInputStream in) throws IOException
+  {
+    String name = readString(in);
+    int start = in.readInt();
+    int end = in.readInt();
+    String description = readString(in);
+    String residues;
+    if (in.readByte() == LATIN1)
+    {
+      byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      residues = new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+    else
+    {
+      residues = readString(in);
+    }
+    Sequence seq = new Sequence(name, residues, start, end);
+    /*
+     * don't let any /start-end in the name override the saved values
+     */
+    seq.setStart(start);
+    seq.setEnd(end);
+    seq.setDescription(description);
+    return seq;
+  }
+
+  private void readReferences(DataInputStream in, SequenceI seq)
+          throws IOException
+  {
+    int count = in.readInt();
+    for (int i = 0; i < count; i++)
+    {
+      DBRefEntry dbref = new DBRefEntry(readString(in), readString(in),
+              readString(in));
+      if (version >= 3)
+      {
+        dbref.setCanonical(in.readBoolean());
+        if (in.readBoolean())
+        {
+          dbref.setMap(readMapping(in));
+        }
+      }
+      seq.addDBRef(dbref);
+    }
+    count = in.readInt();
+    for (int i = 0; i < count; i++)
+    {
+      PDBEntry pdb = new PDBEntry();
+      pdb.setId(readString(in));
+      pdb.setChainCode(readString(in));
+      pdb.setType(readString(in));
+      pdb.setFile(readString(in));
+      if (version >= 3)
+      {
+        int props = in.readInt();
+        for (int j = 0; j < props; j++)
+        {
+          String key = readString(in);
+          Object value = readValue(in);
+          if (key != null && value != null)
+          {
+            pdb.setProperty(key, value);
+          }
+        }
+      }
+      seq.addPDBId(pdb);
+    }
+  }
+
+  private Mapping readMapping(DataInputStream in) throws IOException
+  {
+    byte kind = in.readByte();
+    SequenceI to = null;
+    if (kind != NO_SEQUENCE)
+    {
+      int index = in.readInt();
+      to = kind == DATASET_OWNER ? datasetSeqs[index] : seqs.get(index);
+    }
+    String mappedFromId = readString(in);
+    MapList ml = null;
+    if (in.readBoolean())
+    {
+      int fromRatio = in.readInt();
+      int toRatio = in.readInt();
+      List<int[]> fromRanges = readRanges(in);
+      ml = new MapList(fromRanges, readRanges(in), fromRatio, toRatio);
+    }
+    Mapping map = new Mapping(to, ml);
+    map.setMappedFromId(mappedFromId);
+    return map;
+  }
+
+  private static List<int[]> readRanges(DataInputStream in)
+          throws IOException
+  {
+    int count = in.readInt();
+    List<int[]> ranges = new ArrayList<>(count);
+    for (int i = 0; i < count; i++)
+    {
+      ranges.add(new int[] { in.readInt(), in.readInt() });
+    }
+    return ranges;
+  }
+
+  /**
+   * Reads blocks of features, adding each block to its sequence in one batch
+   *
+   * @param in
+   * @throws IOException
+   */
+  private void readFeatures(DataInputStream in) throws IOException
+  {
+    int owners = in.readInt();
+    for (int i = 0; i < owners; i++)
+    {
+      byte kind = in.readByte();
+      int index = in.readInt();
+      SequenceI owner = kind == DATASET_OWNER ? datasetSeqs[index]
+              : seqs.get(index);
+      int count = in.readInt();
+      List<SequenceFeature> features = new ArrayList<>(count);
+      for (int j = 0; j < count; j++)
+      {
+        features.add(readFeature(in));
+      }
+      owner.addSequenceFeatures(features);
+    }
+  }
+
+  private SequenceFeature readFeature(DataInputStream in) throws IOException
+  {
+    String type = lookup(in.readInt());
+    String group = lookup(in.readInt());
+    int begin = in.readInt();
+    int end = in.readInt();
+    float score = in.readFloat();
+    String description = readString(in);
+    SequenceFeature sf = new SequenceFeature(type, description, begin, end,
+            score, group);
+    int links = in.readInt();
+    for (int i = 0; i < links; i++)
+    {
+      sf.addLink(readString(in));
+    }
+    int details = in.readInt();
+    for (int i = 0; i < details; i++)
+    {
+      String key = lookup(in.readInt());
+      sf.setValue(key, readValue(in));
+    }
+    return sf;
+  }
+
+  /**
+   * Reads a feature attribute value written by writeValue
+   *
+   * @param in
+   * @return
+   * @throws IOException
+   *           if the value type is not recognised
+   */
+  private Object readValue(DataInputStream in) throws IOException
+  {
+    byte type = in.readByte();
+    switch (type)
+    {
+    case STRING_VALUE:
+      return readString(in);
+    case NULL_VALUE:
+      return null;
+    case INTEGER_VALUE:
+      return in.readInt();
+    case LONG_VALUE:
+      return in.readLong();
+    case FLOAT_VALUE:
+      return in.readFloat();
+    case DOUBLE_VALUE:
+      return in.readDouble();
+    case BOOLEAN_VALUE:
+      return in.readBoolean();
+    case MAP_VALUE:
+    {
+      int size = in.readInt();
+      Map<String, String> map = new LinkedHashMap<>();
+      for (int j = 0; j < size; j++)
+      {
+        map.put(lookup(in.readInt()), readString(in));
+      }
+      return map;
+    }
+    case TYPED_MAP_VALUE:
+    {
+      int size = in.readInt();
+      Map<Object, Object> map = new LinkedHashMap<>();
+      for (int j = 0; j < size; j++)
+      {
+        Object mapKey = readValue(in);
+        map.put(mapKey, readValue(in));
+      }
+      return map;
+    }
+    default:
+      throw new IOException("Unknown feature attribute type " + type);
+    }
+  }
+
+  private void readAnnotations(DataInputStream in) throws IOException
+  {
+    int count = in.readInt();
+    for (int i = 0; i < count; i++)
+    {
+      String label = readString(in);
+      String description = readString(in);
+      String calcId = readString(in);
+      int seqRef = in.readInt();
+      int graph = in.readInt();
+      int graphGroup = in.readInt();
+      int graphHeight = in.readInt();
+      float graphMin = in.readFloat();
+      float graphMax = in.readFloat();
+      double score = in.readDouble();
+      boolean visible = in.readBoolean();
+      boolean belowAlignment = in.readBoolean();
+      boolean centreColLabels = in.readBoolean();
+      boolean scaleColLabel = in.readBoolean();
+      boolean showAllColLabels = in.readBoolean();
+      boolean hasIcons = in.readBoolean();
+      boolean hasText = in.readBoolean();
+      boolean padGaps = in.readBoolean();
+      GraphLine threshold = null;
+      if (in.readBoolean())
+      {
+        float value = in.readFloat();
+        threshold = new GraphLine(value, readString(in), readColour(in));
+      }
+      Map<String, String> props = new LinkedHashMap<>();
+      int propCount = in.readInt();
+      for (int j = 0; j < propCount; j++)
+      {
+        props.put(readString(in), readString(in));
+      }
+      Annotation[] anns = null;
+      int width = in.readInt();
+      if (width > -1)
+      {
+        anns = new Annotation[width];
+        for (int j = 0; j < width; j++)
+        {
+          if (in.readBoolean())
+          {
+            String displayChar = readString(in);
+            String desc = readString(in);
+            char ss = in.readChar();
+            float value = in.readFloat();
+            anns[j] = new Annotation(displayChar, desc, ss, value);
+            anns[j].colour = readColour(in);
+          }
+        }
+      }
+
+      AlignmentAnnotation aa = graph == AlignmentAnnotation.NO_GRAPH
+              ? new AlignmentAnnotation(label, description, anns)
+              : new AlignmentAnnotation(label, description, anns,
+                      graphMin, graphMax, graph);
+      aa.setCalcId(calcId);
+      aa.graphGroup = graphGroup;
+      aa.graphHeight = graphHeight;
+      aa.graphMin = graphMin;
+      aa.graphMax = graphMax;
+      if (!Double.isNaN(score))
+      {
+        aa.setScore(score);
+      }
+      aa.visible = visible;
+      aa.belowAlignment = belowAlignment;
+      aa.centreColLabels = centreColLabels;
+      aa.scaleColLabel = scaleColLabel;
+      aa.showAllColLabels = showAllColLabels;
+      aa.hasIcons = hasIcons;
+      aa.hasText = hasText;
+      aa.padGaps = padGaps;
+      aa.threshold = threshold;
+      for (Entry<String, String> prop : props.entrySet())
+      {
+        aa.setProperty(prop.getKey(), prop.getValue());
+      }
+      if (seqRef > -1)
+      {
+        SequenceI seq = seqs.get(seqRef);
+        aa.createSequenceMapping(seq, 1, true);
+        seq.addAlignmentAnnotation(aa);
+      }
+      annotations.add(aa);
+    }
+  }
+
+  private void readGroups(DataInputStream in) throws IOException
+  {
+    int count = in.readInt();
+    for (int i = 0; i < count; i++)
+    {
+      String name = readString(in);
+      String description = readString(in);
+      int startRes = in.readInt();
+      int endRes = in.readInt();
+      int size = in.readInt();
+      List<SequenceI> members = new ArrayList<>();
+      for (int j = 0; j < size; j++)
+      {
+        members.add(seqs.get(in.readInt()));
+      }
+      String colourScheme = readString(in);
+      boolean displayBoxes = in.readBoolean();
+      boolean displayText = in.readBoolean();
+      boolean colourText = in.readBoolean();
+      SequenceGroup sg = new SequenceGroup(members, name, null,
+              displayBoxes, displayText, colourText, startRes, endRes);
+      sg.setDescription(description);
+      sg.setShowNonconserved(in.readBoolean());
+      sg.setIgnoreGapsConsensus(in.readBoolean());
+      sg.setOutlineColour(readColour(in));
+      sg.textColour = readColour(in);
+      sg.textColour2 = readColour(in);
+      sg.thresholdTextColour = in.readInt();
+      if (colourScheme != null)
+      {
+        sg.setColourScheme(ColourSchemeMapper
+                .getJalviewColourScheme(colourScheme, sg));
+      }
+      seqGroups.add(sg);
+    }
+  }
+
+  private void readHidden(DataInputStream in) throws IOException
+  {
+    int count = in.readInt();
+    if (count > 0)
+    {
+      hiddenColumns = new HiddenColumns();
+      for (int i = 0; i < count; i++)
+      {
+        hiddenColumns.hideColumns(in.readInt(), in.readInt());
+      }
+    }
+    count = in.readInt();
+    for (int i = 0; i < count; i++)
+    {
+      hiddenSequences.add(seqs.get(in.readInt()));
+    }
+  }
+
+  private void readProperties(DataInputStream in) throws IOException
+  {
+    int count = in.readInt();
+    for (int i = 0; i < count; i++)
+    {
+      setAlignmentProperty(readString(in), readString(in));
+    }
+  }
+
+  private void readView(DataInputStream in) throws IOException
+  {
+    globalColourScheme = readString(in);
+    showSeqFeatures = in.readBoolean();
+    int count = in.readInt();
+    for (int i = 0; i < count; i++)
+    {
+      String type = readString(in);
+      String colour = readString(in);
+      featureSettings.order.add(type);
+      if (colour != null)
+      {
+        try
+        {
+          featureSettings.colours.put(type,
+                  FeatureColour.parseJalviewFeatureColour(colour));
+        } catch (IllegalArgumentException e)
+        {
+          warningMessage = "Invalid colour for " + type + ": " + colour;
+        }
+      }
+      if (in.readBoolean())
+      {
+        displayedFeatures.setVisible(type);
+        featureSettings.visible.add(type);
+      }
+    }
+    count = in.readInt();
+    for (int i = 0; i < count; i++)
+    {
+      featureSettings.hiddenGroups.add(readString(in));
+    }
+    featureSettings.transparency = in.readFloat();
+  }
+
+  private String lookup(int index)
+  {
+    return index < 0 ? null : strings.get(index);
+  }
+
+  static String readString(DataInputStream in) throws IOException
+  {
+    int length = in.readInt();
+    if (length < 0)
+    {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  static Color readColour(DataInputStream in) throws IOException
+  {
+    return in.readByte() == 0 ? null : new Color(in.readInt(), true);
+  }
+
+  @Override
+  public String getGlobalColourScheme()
+  {
+    return globalColourScheme;
+  }
+
+  @Override
+  public boolean isShowSeqFeatures()
+  {
+    return showSeqFeatures;
+  }
+
+  @Override
+  public HiddenColumns getHiddenColumns()
+  {
+    return hiddenColumns;
+  }
+
+  @Override
+  public SequenceI[] getHiddenSequences()
+  {
+    if (hiddenSequences == null)
+    {
+      return new SequenceI[] {};
+    }
+    return hiddenSequences.toArray(new SequenceI[hiddenSequences.size()]);
+  }
+
+  @Override
+  public FeaturesDisplayedI getDisplayedFeatures()
+  {
+    return displayedFeatures;
+  }
+
+  /**
+   * Answers the feature colours, order, visibility and transparency read from
+   * the snapshot
+   */
+  @Override
+  public FeatureSettingsModelI getFeatureColourScheme()
+  {
+    return featureSettings;
+  }
+
+  /**
+   * An output stream that writes the content of a section as a series of
+   * chunks, each prefixed by its length, and ends the section with an empty
+   * chunk when closed. So a section of any size is written without being held
+   * in memory.
+   */
+  static class SectionOutputStream extends OutputStream
+  {
+    private final DataOutputStream out;
+
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+
+    private int count;
+
+    SectionOutputStream(DataOutputStream out)
+    {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+      if (count == chunk.length)
+      {
+        writeChunk();
+      }
+      chunk[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+      while (len > 0)
+      {
+        if (count == chunk.length)
+        {
+          writeChunk();
+        }
+        int n = Math.min(len, chunk.length - count);
+        System.arraycopy(b, off, chunk, count, n);
+        count += n;
+        off += n;
+        len -= n;
+      }
+    }
+
+    /**
+     * Writes any remaining content and the end of the section, without closing
+     * the underlying stream
+     */
+    @Override
+    public void close() throws IOException
+    {
+      writeChunk();
+      out.writeInt(0);
+    }
+
+    private void writeChunk() throws IOException
+    {
+      if (count > 0)
+      {
+        out.writeInt(count);
+        out.write(chunk, 0, count);
+        count = 0;
+      }
+    }
+  }
+
+  /**
+   * An input stream over the content of one section. From version 3, the
+   * content is a series of chunks each prefixed by its length, ending with an
+   * empty chunk; before that, it was prefixed by its total length.
+   */
+  static class SectionInputStream extends InputStream
+  {
+    private final DataInputStream in;
+
+    private final boolean chunked;
+
+    /*
+     * bytes left in the current chunk (or the section, if not chunked)
+     */
+    private int remaining;
+
+    private boolean ended;
+
+    SectionInputStream(DataInputStream in, boolean chunked)
+            throws IOException
+    {
+      this.in = in;
+      this.chunked = chunked;
+      if (!chunked)
+      {
+        remaining = readLength();
+      }
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+      if (!hasMore())
+      {
+        return -1;
+      }
+      int b = in.read();
+      if (b == -1)
+      {
+        throw new EOFException("Truncated snapshot section");
+      }
+      remaining--;
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+      if (len == 0)
+      {
+        return 0;
+      }
+      if (!hasMore())
+      {
+        return -1;
+      }
+      int n = in.read(b, off, Math.min(len, remaining));
+      if (n == -1)
+      {
+        throw new EOFException("Truncated snapshot section");
+      }
+      remaining -= n;
+      return n;
+    }
+
+    /**
+     * Skips any content of the section that has not been read
+     *
+     * @throws IOException
+     */
+    void skipToEnd() throws IOException
+    {
+      while (hasMore())
+      {
+        int n = in.skipBytes(remaining);
+        if (n == 0)
+        {
+          if (in.read() == -1)
+          {
+            throw new EOFException("Truncated snapshot section");
+          }
+          n = 1;
+        }
+        remaining -= n;
+      }
+    }
+
+    /**
+     * Answers true if there is more content in the section, reading the next
+     * chunk length if needed
+     *
+     * @return
+     * @throws IOException
+     */
+    private boolean hasMore() throws IOException
+    {
+      while (remaining == 0 && !ended)
+      {
+        if (chunked)
+        {
+          remaining = readLength();
+        }
+        ended = remaining == 0;
+      }
+      return !ended;
+    }
+
+    private int readLength() throws IOException
+    {
+      int length = in.readInt();
+      if (length < 0)
+      {
+        throw new IOException("Invalid snapshot section length " + length);
+      }
+      return length;
+    }
+  }
+
+  /**
+   * A table of distinct strings, each written once and referred to by index
+   */
+  static class StringTable
+  {
+    final List<String> strings = new ArrayList<>();
+
+    private final Map<String, Integer> indices = new HashMap<>();
+
+    private boolean frozen;
+
+    /**
+     * Answers the index of the string in the table, adding it if not already
+     * present, or -1 for null
+     *
+     * @param s
+     * @return
+     * @throws IllegalStateException
+     *           if the string is not present and the table has been frozen
+     */
+    int indexOf(String s)
+    {
+      if (s == null)
+      {
+        return -1;
+      }
+      Integer index = indices.get(s);
+      if (index == null)
+      {
+        if (frozen)
+        {
+          throw new IllegalStateException(
+                  "String not collected before writing: " + s);
+        }
+        index = strings.size();
+        strings.add(s);
+        indices.put(s, index);
+      }
+      return index;
+    }
+
+    /**
+     * Prevents any further strings being added, once the table is written
+     */
+    void freeze()
+    {
+      frozen = true;
+    }
+  }
+
+  /**
+   * Feature display settings captured from a feature renderer when writing,
+   * or read from a snapshot and applied to the new view when loading
+   */
+  static class SnapshotFeatureSettings extends FeatureSettingsAdapter
+  {
+    /*
+     * feature types in render order
+     */
+    final List<String> order = new ArrayList<>();
+
+    final Map<String, FeatureColourI> colours = new HashMap<>();
+
+    final List<String> visible = new ArrayList<>();
+
+    final List<String> hiddenGroups = new ArrayList<>();
+
+    float transparency = 1f;
+
+    SnapshotFeatureSettings(FeatureRenderer fr)
+    {
+      if (fr == null)
+      {
+        return;
+      }
+      if (fr instanceof FeatureRendererModel)
+      {
+        order.addAll(((FeatureRendererModel) fr).getRenderOrder());
+      }
+      else
+      {
+        order.addAll(fr.getFeatureColours().keySet());
+      }
+      colours.putAll(fr.getFeatureColours());
+      hiddenGroups.addAll(fr.getGroups(false));
+      transparency = fr.getTransparency();
+    }
+
+    @Override
+    public boolean isFeatureDisplayed(String type)
+    {
+      return visible.contains(type);
+    }
+
+    @Override
+    public boolean isFeatureHidden(String type)
+    {
+      return order.contains(type) && !visible.contains(type);
+    }
+
+    @Override
+    public boolean isGroupDisplayed(String group)
+    {
+      return !hiddenGroups.contains(group);
+    }
+
+    @Override
+    public FeatureColourI getFeatureColour(String type)
+    {
+      return colours.get(type);
+    }
+
+    @Override
+    public float getTransparency()
+    {
+      return transparency;
+    }
+
+    /**
+     * Orders feature types as they were saved; any not in the snapshot are
+     * placed first
+     */
+    @Override
+    public int compare(String feature1, String feature2)
+    {
+      return Integer.compare(order.indexOf(feature1),
+              order.indexOf(feature2));
+    }
+  }
+}
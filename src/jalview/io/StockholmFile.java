@@ -1077,12 +1077,10 @@ public class StockholmFile extends AlignFile
           out.append(new Format("%-" + maxid + "s").form(
                   "#=GR " + printId(seq, jvSuffix) + " " + key + " "));
           ann = alAnot[j].annotations;
-          String sseq = "";
           for (int k = 0, nk = ann.length; k < nk; k++)
           {
-            sseq += outputCharacter(key, k, isrna, ann, seq);
+            out.append(outputCharacter(key, k, isrna, ann, seq));
           }
-          out.append(sseq);
           out.append(newline);
         }
       }
@@ -1091,6 +1089,7 @@ public class StockholmFile extends AlignFile
               .form(printId(seq, jvSuffix) + " "));
       out.append(seq.getSequenceAsString());
       out.append(newline);
+      flushOutput(out);
       i++;
     }
 
@@ -1106,7 +1105,6 @@ public class StockholmFile extends AlignFile
         {
           continue;
         }
-        String sseq = "";
         String label;
         String key = "";
         if (aa.label.equals("seq"))
@@ -1136,10 +1134,10 @@ public class StockholmFile extends AlignFile
         boolean isrna = aa.isValidStruc();
         for (int j = 0, nj = aa.annotations.length; j < nj; j++)
         {
-          sseq += outputCharacter(key, j, isrna, aa.annotations, null);
+          out.append(outputCharacter(key, j, isrna, aa.annotations, null));
         }
-        out.append(sseq);
         out.append(newline);
+        flushOutput(out);
       }
     }
 
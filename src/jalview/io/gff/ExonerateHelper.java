@@ -81,8 +81,7 @@ public class ExonerateHelper extends Gff2Helper
           AlignmentI align, List<SequenceI> newseqs,
           boolean relaxedIdMatching)
   {
-    String attr = gffColumns[ATTRIBUTES_COL];
-    Map<String, List<String>> set = parseNameValuePairs(attr);
+    Map<String, List<String>> set = parseAttributes(gffColumns);
 
     try
     {
@@ -41,6 +41,12 @@ public class Gff2Helper extends GffHelperBase
     return parseNameValuePairs(text, ";", ' ', ",");
   }
 
+  @Override
+  protected Map<String, List<String>> parseAttributeColumn(String text)
+  {
+    return parseNameValuePairs(text);
+  }
+
   /**
    * Default processing if not overridden is just to construct a sequence
    * feature
@@ -50,12 +56,7 @@ public class Gff2Helper extends GffHelperBase
           AlignmentI align, List<SequenceI> newseqs,
           boolean relaxedIdMatching) throws IOException
   {
-    Map<String, List<String>> attributes = null;
-    if (gff.length > ATTRIBUTES_COL)
-    {
-      attributes = parseNameValuePairs(gff[ATTRIBUTES_COL]);
-    }
-    return buildSequenceFeature(gff, attributes);
+    return buildSequenceFeature(gff, parseAttributes(gff));
   }
 
 }
@@ -59,6 +59,12 @@ public class Gff3Helper extends GffHelperBase
     return parseNameValuePairs(text, ";", '=', ",");
   }
 
+  @Override
+  protected Map<String, List<String>> parseAttributeColumn(String text)
+  {
+    return parseNameValuePairs(text);
+  }
+
   /**
    * Process one GFF feature line (as modelled by SequenceFeature)
    * 
@@ -88,8 +94,7 @@ public class Gff3Helper extends GffHelperBase
     if (gff.length == 9)
     {
       String soTerm = gff[TYPE_COL];
-      String atts = gff[ATTRIBUTES_COL];
-      Map<String, List<String>> attributes = parseNameValuePairs(atts);
+      Map<String, List<String>> attributes = parseAttributes(gff);
 
       SequenceOntologyI so = SequenceOntologyFactory.getInstance();
       if (so.isA(soTerm, SequenceOntologyI.PROTEIN_MATCH))
@@ -76,6 +76,14 @@ public abstract class GffHelperBase implements GffHelperI
 
   private SequenceIdMatcher matcher = null;
 
+  /*
+   * the column data of the line whose attributes were last parsed, and the
+   * parsed attributes
+   */
+  private String[] parsedColumns;
+
+  private Map<String, List<String>> parsedAttributes;
+
   /**
    * Constructs and returns a mapping, or null if data appear invalid
    * 
@@ -264,6 +272,29 @@ public abstract class GffHelperBase implements GffHelperI
     return match;
   }
 
+  @Override
+  public Map<String, List<String>> parseAttributes(String[] gff)
+  {
+    if (gff != parsedColumns)
+    {
+      parsedAttributes = gff.length > ATTRIBUTES_COL
+              ? parseAttributeColumn(gff[ATTRIBUTES_COL])
+              : null;
+      parsedColumns = gff;
+    }
+    return parsedAttributes;
+  }
+
+  /**
+   * Parses GFF column 9 to a map of name / value(s) pairs, using the name-value
+   * separator of the GFF flavour handled
+   * 
+   * @param text
+   * @return
+   */
+  protected abstract Map<String, List<String>> parseAttributeColumn(
+          String text);
+
   /**
    * Parses the input line to a map of name / value(s) pairs. For example the
    * line
@@ -298,64 +329,158 @@ public abstract class GffHelperBase implements GffHelperI
           String valuesDelimiter)
   {
     Map<String, List<String>> map = new HashMap<>();
-    if (text == null || text.trim().length() == 0)
+    if (text == null)
     {
       return map;
     }
 
     /*
-     * split by major delimiter (; for GFF3)
+     * scan for the major delimiter (; for GFF3) rather than splitting on it,
+     * so only names and values are extracted as new strings
      */
-    for (String nameValuePair : text.trim().split(namesDelimiter))
+    char delimiter = asLiteralChar(namesDelimiter);
+    if (delimiter == 0)
     {
-      nameValuePair = nameValuePair.trim();
-      if (nameValuePair.length() == 0)
+      for (String nameValuePair : text.split(namesDelimiter))
       {
-        continue;
+        addNameValuePair(map, nameValuePair, 0, nameValuePair.length(),
+                nameValueSeparator, valuesDelimiter);
       }
-
-      /*
-       * find name/value separator (= for GFF3)
-       */
-      int sepPos = nameValuePair.indexOf(nameValueSeparator);
-      if (sepPos == -1)
+      return map;
+    }
+    int length = text.length();
+    int pairStart = 0;
+    while (pairStart < length)
+    {
+      int pairEnd = text.indexOf(delimiter, pairStart);
+      if (pairEnd == -1)
       {
-        // no name=value found
-        continue;
+        pairEnd = length;
       }
+      addNameValuePair(map, text, pairStart, pairEnd, nameValueSeparator,
+              valuesDelimiter);
+      pairStart = pairEnd + 1;
+    }
 
-      String name = nameValuePair.substring(0, sepPos).trim();
-      String values = nameValuePair.substring(sepPos + 1).trim();
-      if (values.isEmpty())
-      {
-        continue;
-      }
+    return map;
+  }
 
-      List<String> vals = map.get(name);
-      if (vals == null)
-      {
-        vals = new ArrayList<>();
-        map.put(name, vals);
-      }
+  /**
+   * Parses one name-value pair between the given positions of the text, and
+   * adds its value(s) to the map. Names and values are trimmed of whitespace,
+   * and pairs with no separator or no value are ignored.
+   * 
+   * @param map
+   * @param text
+   * @param from
+   * @param to
+   * @param nameValueSeparator
+   * @param valuesDelimiter
+   */
+  private static void addNameValuePair(Map<String, List<String>> map,
+          String text, int from, int to, char nameValueSeparator,
+          String valuesDelimiter)
+  {
+    from = skipWhitespace(text, from, to);
+    to = trimWhitespace(text, from, to);
 
-      /*
-       * if 'values' contains more name/value separators, parse as a map
-       * (nested sub-attribute values)
-       */
-      if (values.indexOf(nameValueSeparator) != -1)
-      {
-        vals.add(values);
-      }
-      else
+    /*
+     * find name/value separator (= for GFF3)
+     */
+    int sepPos = text.indexOf(nameValueSeparator, from);
+    if (sepPos == -1 || sepPos >= to)
+    {
+      // no name=value found
+      return;
+    }
+
+    int nameEnd = trimWhitespace(text, from, sepPos);
+    int valuesStart = skipWhitespace(text, sepPos + 1, to);
+    int valuesEnd = trimWhitespace(text, valuesStart, to);
+    if (valuesStart == valuesEnd)
+    {
+      return;
+    }
+    String name = text.substring(from, nameEnd);
+    String values = text.substring(valuesStart, valuesEnd);
+
+    List<String> vals = map.get(name);
+    if (vals == null)
+    {
+      vals = new ArrayList<>();
+      map.put(name, vals);
+    }
+
+    /*
+     * if 'values' contains more name/value separators, parse as a map
+     * (nested sub-attribute values)
+     */
+    if (values.indexOf(nameValueSeparator) != -1)
+    {
+      vals.add(values);
+    }
+    else
+    {
+      char delimiter = asLiteralChar(valuesDelimiter);
+      for (String val : delimiter == 0 ? values.split(valuesDelimiter)
+              : StringUtils.split(values, delimiter))
       {
-        for (String val : values.split(valuesDelimiter))
-        {
-          vals.add(val);
-        }
+        vals.add(val);
       }
     }
+  }
 
-    return map;
+  /**
+   * Answers the position of the first non-whitespace character at or after
+   * {@code from}, or {@code to} if there is none
+   * 
+   * @param text
+   * @param from
+   * @param to
+   * @return
+   */
+  private static int skipWhitespace(String text, int from, int to)
+  {
+    while (from < to && text.charAt(from) <= ' ')
+    {
+      from++;
+    }
+    return from;
+  }
+
+  /**
+   * Answers the position after the last non-whitespace character before
+   * {@code to}, or {@code from} if there is none
+   * 
+   * @param text
+   * @param from
+   * @param to
+   * @return
+   */
+  private static int trimWhitespace(String text, int from, int to)
+  {
+    while (to > from && text.charAt(to - 1) <= ' ')
+    {
+      to--;
+    }
+    return to;
+  }
+
+  /**
+   * Answers the delimiter character if the (regular expression) delimiter is a
+   * single literal character, else zero
+   * 
+   * @param delimiter
+   * @return
+   */
+  private static char asLiteralChar(String delimiter)
+  {
+    if (delimiter.length() == 1
+            && ".$|()[{^?*+\\".indexOf(delimiter.charAt(0)) == -1)
+    {
+      return delimiter.charAt(0);
+    }
+    return 0;
   }
 
   /**
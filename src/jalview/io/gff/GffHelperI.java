@@ -26,6 +26,7 @@ import jalview.datamodel.SequenceI;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 /**
  * An interface to described common functionality of different flavours of GFF
@@ -64,6 +65,17 @@ public interface GffHelperI
           AlignmentI align, List<SequenceI> newseqs,
           boolean relaxedIdMatching) throws IOException;
 
+  /**
+   * Parses the name-value pairs in column 9 of a GFF line. This may be called
+   * (on any thread) ahead of {@link #processGff} for the same column data, in
+   * which case the parsed attributes are reused rather than parsed again.
+   * 
+   * @param gffColumns
+   *          the GFF column data
+   * @return the attribute values by name, or null if there is no column 9
+   */
+  Map<String, List<String>> parseAttributes(String[] gffColumns);
+
   // java 8 will allow static methods in interfaces:
   // static boolean recognises(String [] columns);
 }
@@ -193,9 +193,9 @@ public class SequenceOntologyLite implements SequenceOntologyI
    */
   private void termFound(String term)
   {
-    if (!termsFound.contains(term))
+    synchronized (termsFound)
     {
-      synchronized (termsFound)
+      if (!termsFound.contains(term))
       {
         termsFound.add(term);
       }
@@ -57,6 +57,7 @@ import jalview.datamodel.GeneLociI;
 import jalview.datamodel.Mapping;
 import jalview.datamodel.SequenceFeature;
 import jalview.datamodel.SequenceI;
+import jalview.datamodel.features.FeatureAttributeMap;
 import jalview.datamodel.features.FeatureAttributeType;
 import jalview.datamodel.features.FeatureSource;
 import jalview.datamodel.features.FeatureSources;
@@ -721,13 +722,19 @@ public class VCFLoader
          */
         List<SequenceFeature> features = seq.getFeatures()
                 .getPositionalFeatures(SequenceOntologyI.SEQUENCE_VARIANT);
+        List<SequenceFeature> copies = new ArrayList<>();
         for (SequenceFeature sf : features)
         {
           if (FEATURE_GROUP_VCF.equals(sf.getFeatureGroup()))
           {
-            transferFeature(sf, mapTo, map);
+            SequenceFeature copy = mapFeature(sf, map);
+            if (copy != null)
+            {
+              copies.add(copy);
+            }
           }
         }
+        mapTo.addSequenceFeatures(copies);
       }
     }
   }
@@ -892,6 +899,11 @@ public class VCFLoader
      */
     int count = 0;
 
+    /*
+     * collect features to add to the sequence in one batch
+     */
+    List<SequenceFeature> features = new ArrayList<>();
+
     for (int[] range : map.map.getToRanges())
     {
       int vcfStart = Math.min(range[0], range[1]);
@@ -918,7 +930,7 @@ public class VCFLoader
                     - variant.getStart())
             {
               count += addAlleleFeatures(seq, variant, featureStart,
-                      featureEnd, forwardStrand);
+                      featureEnd, forwardStrand, features);
             }
           }
         }
@@ -933,6 +945,7 @@ public class VCFLoader
         Console.error(msg);
       }
     }
+    seq.addSequenceFeatures(features);
 
     return count;
   }
@@ -963,18 +976,21 @@ public class VCFLoader
   }
 
   /**
-   * Adds one variant feature for each allele in the VCF variant record, and
-   * returns the number of features added.
+   * Makes one variant feature for each allele in the VCF variant record, adds
+   * them to the list of features for the sequence, and returns the number of
+   * features made.
    * 
    * @param seq
    * @param variant
    * @param featureStart
    * @param featureEnd
    * @param forwardStrand
+   * @param features
    * @return
    */
   protected int addAlleleFeatures(SequenceI seq, VariantContext variant,
-          int featureStart, int featureEnd, boolean forwardStrand)
+          int featureStart, int featureEnd, boolean forwardStrand,
+          List<SequenceFeature> features)
   {
     int added = 0;
 
@@ -986,16 +1002,16 @@ public class VCFLoader
     for (int i = 0; i < altAlleleCount; i++)
     {
       added += addAlleleFeature(seq, variant, i, featureStart, featureEnd,
-              forwardStrand);
+              forwardStrand, features);
     }
     return added;
   }
 
   /**
-   * Inspects one allele and attempts to add a variant feature for it to the
-   * sequence. The additional data associated with this allele is extracted to
-   * store in the feature's key-value map. Answers the number of features added
-   * (0 or 1).
+   * Inspects one allele and attempts to make a variant feature for it, to add
+   * to the sequence's list of features. The additional data associated with
+   * this allele is extracted to store in the feature's key-value map. Answers
+   * the number of features made (0 or 1).
    * 
    * @param seq
    * @param variant
@@ -1004,11 +1020,12 @@ public class VCFLoader
    * @param featureStart
    * @param featureEnd
    * @param forwardStrand
+   * @param features
    * @return
    */
   protected int addAlleleFeature(SequenceI seq, VariantContext variant,
           int altAlleleIndex, int featureStart, int featureEnd,
-          boolean forwardStrand)
+          boolean forwardStrand, List<SequenceFeature> features)
   {
     String reference = variant.getReference().getBaseString();
     Allele alt = variant.getAlternateAllele(altAlleleIndex);
@@ -1078,7 +1095,7 @@ public class VCFLoader
 
     addAlleleProperties(variant, sf, altAlleleIndex, consequence);
 
-    seq.addSequenceFeature(sf);
+    features.add(sf);
 
     return 1;
   }
@@ -1465,7 +1482,7 @@ public class VCFLoader
      * inspect CSQ consequences; restrict to the consequence
      * associated with the current transcript (Feature)
      */
-    Map<String, String> csqValues = new HashMap<>();
+    Map<String, String> csqValues = new FeatureAttributeMap<>();
 
     for (String consequence : consequences)
     {
@@ -1633,29 +1650,27 @@ public class VCFLoader
   }
 
   /**
-   * Transfers the sequence feature to the target sequence, locating its start
-   * and end range based on the mapping. Features which do not overlap the
-   * target sequence are ignored.
+   * Answers a copy of the sequence feature with its start and end range
+   * located by the mapping, or null if the feature does not map to the target
+   * sequence
    * 
    * @param sf
-   * @param targetSequence
    * @param mapping
    *          mapping from the feature's coordinates to the target sequence
+   * @return
    */
-  protected void transferFeature(SequenceFeature sf,
-          SequenceI targetSequence, MapList mapping)
+  protected SequenceFeature mapFeature(SequenceFeature sf,
+          MapList mapping)
   {
     int[] mappedRange = mapping.locateInTo(sf.getBegin(), sf.getEnd());
-
-    if (mappedRange != null)
+    if (mappedRange == null)
     {
-      String group = sf.getFeatureGroup();
-      int newBegin = Math.min(mappedRange[0], mappedRange[1]);
-      int newEnd = Math.max(mappedRange[0], mappedRange[1]);
-      SequenceFeature copy = new SequenceFeature(sf, newBegin, newEnd,
-              group, sf.getScore());
-      targetSequence.addSequenceFeature(copy);
+      return null;
     }
+    String group = sf.getFeatureGroup();
+    int newBegin = Math.min(mappedRange[0], mappedRange[1]);
+    int newEnd = Math.max(mappedRange[0], mappedRange[1]);
+    return new SequenceFeature(sf, newBegin, newEnd, group, sf.getScore());
   }
 
   /**
@@ -59,6 +59,9 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 import java.util.jar.JarOutputStream;
@@ -67,6 +70,7 @@ import javax.swing.JInternalFrame;
 import javax.swing.SwingUtilities;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
@@ -85,6 +89,7 @@ import jalview.api.analysis.SimilarityParamsI;
 import jalview.api.structures.JalviewStructureDisplayI;
 import jalview.bin.Cache;
 import jalview.bin.Console;
+import jalview.bin.MemoryMonitor;
 import jalview.datamodel.AlignedCodonFrame;
 import jalview.datamodel.Alignment;
 import jalview.datamodel.AlignmentAnnotation;
@@ -139,6 +144,7 @@ import jalview.util.HttpUtils;
 import jalview.util.MessageManager;
 import jalview.util.Platform;
 import jalview.util.StringUtils;
+import jalview.util.ThreadPools;
 import jalview.util.jarInputStreamProvider;
 import jalview.util.matcher.Condition;
 import jalview.viewmodel.AlignmentViewport;
@@ -561,6 +567,16 @@ public class Jalview2XML
    */
   List<String> pdbfiles = null;
 
+  private static JAXBContext modelContext;
+
+  private static JAXBContext bindingContext;
+
+  /*
+   * dataset sequences whose features have been written to an earlier entry of
+   * the project being saved; null when not saving a whole project
+   */
+  private Set<SequenceI> featuresSaved = null;
+
   // SAVES SEVERAL ALIGNMENT WINDOWS TO SAME JARFILE
   public void saveState(File statefile)
   {
@@ -642,6 +658,9 @@ public class Jalview2XML
     // todo tidy up seqRefIds, seqsToIds initialisation / reset
     rnaSessions.clear();
     splitFrameCandidates.clear();
+    featuresSaved = Collections
+            .newSetFromMap(new IdentityHashMap<SequenceI, Boolean>());
+    Future<JalviewModel> next = null;
 
     try
     {
@@ -651,6 +670,8 @@ public class Jalview2XML
 
       List<String> shortNames = new ArrayList<>();
       List<String> viewIds = new ArrayList<>();
+      List<AlignmentPanel> panels = new ArrayList<>();
+      List<String> fileNames = new ArrayList<>();
 
       // REVERSE ORDER
       for (int i = frames.size() - 1; i > -1; i--)
@@ -676,8 +697,8 @@ public class Jalview2XML
           {
             fileName = fileName + ".xml";
           }
-
-          saveState(apanel, fileName, jout, viewIds);
+          panels.add(apanel);
+          fileNames.add(fileName);
 
           String dssid = getDatasetIdRef(
                   af.getViewport().getAlignment().getDataset());
@@ -688,6 +709,24 @@ public class Jalview2XML
         }
       }
 
+      /*
+       * each view's model is marshalled straight into its jar entry; meanwhile
+       * the next view's model may be built on another thread, if memory allows
+       * (models are built one at a time, as they share the sequence id maps)
+       */
+      for (int v = 0; v < panels.size(); v++)
+      {
+        JalviewModel model = next == null
+                ? createModel(panels.get(v), false, jout, viewIds)
+                : next.get();
+        next = null;
+        if (v + 1 < panels.size() && canBuildAhead())
+        {
+          next = buildAhead(panels.get(v + 1), jout, viewIds);
+        }
+        writeModel(jout, fileNames.get(v), model);
+      }
+
       writeDatasetFor(dsses, "" + jout.hashCode() + " " + uniqueSetSuffix,
               jout);
 
@@ -707,7 +746,68 @@ public class Jalview2XML
         errorMessage = "Couldn't write Jalview Archive - see error output for details";
       }
       ex.printStackTrace();
+    } finally
+    {
+      /*
+       * don't leave a model being built (and perhaps writing structure
+       * files to the jar) after this method returns
+       */
+      if (next != null)
+      {
+        try
+        {
+          next.get();
+        } catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+        } catch (ExecutionException e)
+        {
+          // already reported the first error
+        }
+      }
+      featuresSaved = null;
+    }
+  }
+
+  /**
+   * Answers true if the next view's model may be built on another thread
+   * while the current one is written, that is, if not in JalviewJS or already
+   * on a pool thread, and if memory is not under pressure (as two models are
+   * then held at once)
+   * 
+   * @return
+   */
+  private static boolean canBuildAhead()
+  {
+    if (Platform.isJS() || ThreadPools.isPoolThread())
+    {
+      return false;
     }
+    MemoryMonitor monitor = MemoryMonitor.getInstance();
+    monitor.check();
+    return monitor.getPressure() == MemoryMonitor.Pressure.NORMAL;
+  }
+
+  /**
+   * Starts building the model for a view on the compute pool
+   * 
+   * @param ap
+   * @param jout
+   * @param viewIds
+   * @return
+   */
+  private Future<JalviewModel> buildAhead(final AlignmentPanel ap,
+          final JarOutputStream jout, final List<String> viewIds)
+  {
+    return ThreadPools.getComputePool()
+            .submit(new Callable<JalviewModel>()
+            {
+              @Override
+              public JalviewModel call()
+              {
+                return createModel(ap, false, jout, viewIds);
+              }
+            });
   }
 
   /**
@@ -854,6 +954,34 @@ public class Jalview2XML
    */
   public JalviewModel saveState(AlignmentPanel ap, String fileName,
           boolean storeDS, JarOutputStream jout, List<String> viewIds)
+  {
+    JalviewModel object = createModel(ap, storeDS, jout, viewIds);
+    if (jout != null && fileName != null)
+    {
+      // We may not want to write the object to disk,
+      // eg we can copy the alignViewport to a new view object
+      // using save and then load
+      writeModel(jout, fileName, object);
+    }
+    return object;
+  }
+
+  /**
+   * Creates a JalviewModel from an alignment view. Any structure or RNA viewer
+   * files are added to the jar output stream, but the model itself is not.
+   * 
+   * @param ap
+   *          panel to create jalview model for
+   * @param storeDS
+   *          when true, only write the dataset for the alignment, not the data
+   *          associated with the view.
+   * @param jout
+   *          jar output stream
+   * @param viewIds
+   * @return
+   */
+  JalviewModel createModel(AlignmentPanel ap, boolean storeDS,
+          JarOutputStream jout, List<String> viewIds)
   {
     if (viewIds == null)
     {
@@ -1163,6 +1291,11 @@ public class Jalview2XML
       object.getJSeq().add(jseq);
     }
 
+    if (featuresSaved != null)
+    {
+      omitSavedFeatures(object.getJSeq(), rjal, vamsasSet);
+    }
+
     if (!storeDS && av.hasHiddenRows())
     {
       jal = av.getAlignment();
@@ -1673,31 +1806,64 @@ public class Jalview2XML
     // object.getVamsasModel().addSequenceSet(vamsasSet);
     object.getVamsasModel().getSequenceSet().add(vamsasSet);
 
-    if (jout != null && fileName != null)
+    return object;
+  }
+
+  /**
+   * Removes sequence features from a model where Jalview will not read them,
+   * so that features shared by many views are written once only. Features are
+   * ignored on loading if the model refers to any sequence defined in an
+   * earlier entry of the project; otherwise, they are added to the dataset,
+   * so need not be written if already added from an earlier entry.
+   * 
+   * @param jseqs
+   * @param rjal
+   *          the (full height) alignment the model was made from
+   * @param vamsasSet
+   */
+  private void omitSavedFeatures(List<JSeq> jseqs, AlignmentI rjal,
+          SequenceSet vamsasSet)
+  {
+    boolean featuresIgnored = vamsasSet.getSequence().size() < jseqs
+            .size();
+    List<SequenceI> seqs = rjal.getSequences();
+    for (int i = 0; i < jseqs.size(); i++)
+    {
+      SequenceI seq = seqs.get(i);
+      SequenceI dataset = seq.getDatasetSequence() == null ? seq
+              : seq.getDatasetSequence();
+      if (featuresIgnored || featuresSaved.contains(dataset))
+      {
+        jseqs.get(i).getFeatures().clear();
+      }
+      else
+      {
+        featuresSaved.add(dataset);
+      }
+    }
+  }
+
+  /**
+   * Marshals the model as XML straight into a new entry of the jar. The jar is
+   * locked while the entry is written, as structure files for the next view
+   * may be added to it concurrently.
+   * 
+   * @param jout
+   * @param fileName
+   * @param object
+   */
+  protected void writeModel(JarOutputStream jout, String fileName,
+          JalviewModel object)
+  {
+    fileName = fileName.replace('\\', '/');
+    synchronized (jout)
     {
-      // We may not want to write the object to disk,
-      // eg we can copy the alignViewport to a new view object
-      // using save and then load
       try
       {
-        fileName = fileName.replace('\\', '/');
         System.out.println("Writing jar entry " + fileName);
         JarEntry entry = new JarEntry(fileName);
         jout.putNextEntry(entry);
-        PrintWriter pout = new PrintWriter(
-                new OutputStreamWriter(jout, UTF_8));
-        JAXBContext jaxbContext = JAXBContext
-                .newInstance(JalviewModel.class);
-        Marshaller jaxbMarshaller = jaxbContext.createMarshaller();
-
-        // output pretty printed
-        // jaxbMarshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-        jaxbMarshaller.marshal(
-                new ObjectFactory().createJalviewModel(object), pout);
-
-        // jaxbMarshaller.marshal(object, pout);
-        // marshaller.marshal(object);
-        pout.flush();
+        marshalModel(object, jout);
         jout.closeEntry();
       } catch (Exception ex)
       {
@@ -1706,7 +1872,59 @@ public class Jalview2XML
         ex.printStackTrace();
       }
     }
-    return object;
+  }
+
+  /**
+   * Marshals the model as UTF-8 XML to the output stream (which is flushed
+   * but not closed)
+   * 
+   * @param model
+   * @param os
+   * @throws JAXBException
+   * @throws IOException
+   */
+  protected static void marshalModel(JalviewModel model, OutputStream os)
+          throws JAXBException, IOException
+  {
+    PrintWriter pout = new PrintWriter(new OutputStreamWriter(os, UTF_8));
+    Marshaller jaxbMarshaller = getModelContext().createMarshaller();
+
+    // output pretty printed
+    // jaxbMarshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+    jaxbMarshaller.marshal(new ObjectFactory().createJalviewModel(model),
+            pout);
+    pout.flush();
+  }
+
+  /**
+   * Answers the (cached) JAXB context for marshalling a JalviewModel. A
+   * JAXBContext is thread-safe, and expensive to create.
+   * 
+   * @return
+   * @throws JAXBException
+   */
+  static synchronized JAXBContext getModelContext() throws JAXBException
+  {
+    if (modelContext == null)
+    {
+      modelContext = JAXBContext.newInstance(JalviewModel.class);
+    }
+    return modelContext;
+  }
+
+  /**
+   * Answers the (cached) JAXB context for unmarshalling project XML
+   * 
+   * @return
+   * @throws JAXBException
+   */
+  static synchronized JAXBContext getBindingContext() throws JAXBException
+  {
+    if (bindingContext == null)
+    {
+      bindingContext = JAXBContext.newInstance("jalview.xml.binding.jalview");
+    }
+    return bindingContext;
   }
 
   /**
@@ -2016,11 +2234,14 @@ public class Jalview2XML
       File file = new File(infilePath);
       if (file.exists() && jout != null)
       {
-        System.out.println(
-                "Writing jar entry " + jarEntryName + " (" + msg + ")");
-        jout.putNextEntry(new JarEntry(jarEntryName));
-        copyAll(is, jout);
-        jout.closeEntry();
+        synchronized (jout)
+        {
+          System.out.println(
+                  "Writing jar entry " + jarEntryName + " (" + msg + ")");
+          jout.putNextEntry(new JarEntry(jarEntryName));
+          copyAll(is, jout);
+          jout.closeEntry();
+        }
         // dis = new DataInputStream(new FileInputStream(file));
         // byte[] data = new byte[(int) file.length()];
         // dis.readFully(data);
@@ -2882,8 +3103,7 @@ public class Jalview2XML
 
         if (jarentry != null && jarentry.getName().endsWith(".xml"))
         {
-          JAXBContext jc = JAXBContext
-                  .newInstance("jalview.xml.binding.jalview");
+          JAXBContext jc = getBindingContext();
           XMLStreamReader streamReader = XMLInputFactory.newInstance()
                   .createXMLStreamReader(jin);
           javax.xml.bind.Unmarshaller um = jc.createUnmarshaller();
@@ -30,6 +30,7 @@ import jalview.datamodel.Annotation;
 import jalview.datamodel.ColumnSelection;
 import jalview.datamodel.HiddenColumns;
 import jalview.datamodel.ProfilesI;
+import jalview.datamodel.StructureProfiles;
 import jalview.schemes.ColourSchemeI;
 import jalview.schemes.NucleotideColourScheme;
 import jalview.schemes.ResidueProperties;
@@ -82,7 +83,7 @@ public class AnnotationRenderer
 
   private Hashtable<String, Object>[] complementConsensus;
 
-  private Hashtable<String, Object>[] hStrucConsensus;
+  private StructureProfiles hStrucConsensus;
 
   private boolean av_ignoreGapsConsensus;
 
@@ -407,9 +408,9 @@ public class AnnotationRenderer
         // be stored
         if (aa.groupRef == null && aa.sequenceRef == null
                 && hStrucConsensus != null
-                && hStrucConsensus.length > column)
+                && hStrucConsensus.getWidth() > column)
         {
-          return StructureFrequency.extractProfile(hStrucConsensus[column],
+          return StructureFrequency.extractProfile(hStrucConsensus, column,
                   av_ignoreGapsConsensus);
         }
       }
@@ -54,6 +54,26 @@ public class FeatureRenderer extends FeatureRendererModel
     this.av = viewport;
   }
 
+  /**
+   * Answers a new renderer for the same viewport, with a copy of this
+   * renderer's display settings. As drawSequence is synchronized, each
+   * rendering thread should draw with its own copy.
+   *
+   * @return
+   */
+  public FeatureRenderer copyForThread()
+  {
+    /*
+     * make sure feature types are discovered now, so that the copy
+     * does not try to update the viewport's displayed features
+     */
+    updateFeatures();
+    FeatureRenderer copy = new FeatureRenderer(av);
+    copy.transferSettings(this);
+    copy.minmax = minmax;
+    return copy;
+  }
+
   /**
    * Renders the sequence using the given feature colour between the given start
    * and end columns. Returns true if at least one column is drawn, else false
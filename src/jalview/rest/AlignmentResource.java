@@ -0,0 +1,608 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.rest;
+
+import jalview.api.AlignViewportI;
+import jalview.api.AlignmentViewPanel;
+import jalview.datamodel.AlignmentAnnotation;
+import jalview.datamodel.AlignmentI;
+import jalview.datamodel.Annotation;
+import jalview.datamodel.ColumnSelection;
+import jalview.datamodel.HiddenColumns;
+import jalview.datamodel.SequenceFeature;
+import jalview.datamodel.SequenceGroup;
+import jalview.datamodel.SequenceI;
+import jalview.datamodel.features.SequenceFeaturesI;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.List;
+
+import org.json.JSONObject;
+
+/**
+ * Writes the data of an alignment view (sequences, profiles, features and
+ * selection) as JSON, or sequences as bytes, for the REST API. Output is
+ * written row by row (or column by column) so that large regions are streamed
+ * rather than built in memory.
+ */
+public class AlignmentResource
+{
+  /**
+   * profile type for the consensus annotation
+   */
+  public static final String CONSENSUS = "consensus";
+
+  /**
+   * profile type for the conservation annotation
+   */
+  public static final String CONSERVATION = "conservation";
+
+  /*
+   * number of rows (or columns) written between flushes of the output
+   */
+  private static final int FLUSH_ROWS = 100;
+
+  private final AlignmentViewPanel panel;
+
+  /**
+   * Constructor
+   *
+   * @param ap
+   */
+  public AlignmentResource(AlignmentViewPanel ap)
+  {
+    this.panel = ap;
+  }
+
+  /**
+   * Answers the id of the view, which is unique in the session
+   *
+   * @return
+   */
+  public String getId()
+  {
+    return panel.getAlignViewport().getViewId();
+  }
+
+  public AlignmentI getAlignment()
+  {
+    return panel.getAlignViewport().getAlignment();
+  }
+
+  /**
+   * Answers a token that changes whenever any of the data served for the view
+   * changes: sequences, features (including their locations, scores and
+   * descriptions), annotation values (including the consensus and
+   * conservation profiles), or the selection or hidden columns. It is a hash
+   * of the content, so may be used as an HTTP ETag for the view summary.
+   *
+   * @return
+   */
+  public String getVersion()
+  {
+    long hash = hashSummary();
+    hash = 31 * hash + hashSequences();
+    hash = 31 * hash + hashFeatures();
+    hash = 31 * hash + hashAnnotations();
+    hash = 31 * hash + hashSelection();
+    return Long.toHexString(hash);
+  }
+
+  /**
+   * Answers a token that changes whenever the data served for the given part
+   * of the view ("sequences", "features", "profile" or "selection") changes,
+   * so may be used as an HTTP ETag for that part. Any other part answers the
+   * version of the whole view.
+   *
+   * @param part
+   * @param profileType
+   *          the profile type, if part is "profile"
+   * @return
+   */
+  public String getVersion(String part, String profileType)
+  {
+    long hash = hashSummary();
+    switch (part)
+    {
+    case "sequences":
+      hash = 31 * hash + hashSequences();
+      break;
+    case "features":
+      hash = 31 * hash + hashFeatures();
+      break;
+    case "profile":
+      hash = 31 * hash + hashAnnotation(getProfile(profileType));
+      break;
+    case "selection":
+      hash = 31 * hash + hashSelection();
+      break;
+    default:
+      return getVersion();
+    }
+    return Long.toHexString(hash);
+  }
+
+  /**
+   * Hashes the view name, and size and type of the alignment
+   *
+   * @return
+   */
+  private long hashSummary()
+  {
+    AlignmentI al = getAlignment();
+    long hash = 17;
+    hash = 31 * hash + hash(panel.getViewName());
+    hash = 31 * hash + al.getHeight();
+    hash = 31 * hash + al.getWidth();
+    hash = 31 * hash + (al.isNucleotide() ? 1 : 0);
+    return hash;
+  }
+
+  /**
+   * Hashes the names, start and end positions and (by their change count)
+   * residues of the sequences
+   *
+   * @return
+   */
+  private long hashSequences()
+  {
+    AlignmentI al = getAlignment();
+    long hash = al.getGapCharacter();
+    List<SequenceI> seqs = al.getSequences();
+    synchronized (seqs)
+    {
+      for (SequenceI seq : seqs)
+      {
+        hash = 31 * hash + System.identityHashCode(seq);
+        hash = 31 * hash + seq.getChangeCount();
+        hash = 31 * hash + hash(seq.getName());
+        hash = 31 * hash + seq.getStart();
+        hash = 31 * hash + seq.getEnd();
+      }
+    }
+    return hash;
+  }
+
+  /**
+   * Hashes the identity and change count of the features of each sequence.
+   * Features are only read when served, not to compute the version.
+   *
+   * @return
+   */
+  private long hashFeatures()
+  {
+    long hash = 0;
+    List<SequenceI> seqs = getAlignment().getSequences();
+    synchronized (seqs)
+    {
+      for (SequenceI seq : seqs)
+      {
+        SequenceFeaturesI features = seq.getFeatures();
+        hash = 31 * hash + System.identityHashCode(features);
+        hash = 31 * hash
+                + (features == null ? 0 : features.getChangeCount());
+      }
+    }
+    return hash;
+  }
+
+  /**
+   * Hashes the identity and change count of all annotations on the alignment
+   *
+   * @return
+   */
+  private long hashAnnotations()
+  {
+    long hash = 0;
+    AlignmentAnnotation[] anns = getAlignment().getAlignmentAnnotation();
+    if (anns != null)
+    {
+      for (AlignmentAnnotation ann : anns)
+      {
+        hash = 31 * hash + hashAnnotation(ann);
+      }
+    }
+    return hash;
+  }
+
+  /**
+   * Hashes the label, the identity of its values array, and the change count
+   * of an annotation
+   *
+   * @param ann
+   * @return
+   */
+  private static long hashAnnotation(AlignmentAnnotation ann)
+  {
+    if (ann == null)
+    {
+      return 0;
+    }
+    long hash = hash(ann.label);
+    hash = 31 * hash + System.identityHashCode(ann);
+    hash = 31 * hash + System.identityHashCode(ann.annotations);
+    hash = 31 * hash + ann.getChangeCount();
+    return hash;
+  }
+
+  /**
+   * Hashes the selected region and sequences, the change count of the selected
+   * columns, and hidden columns
+   *
+   * @return
+   */
+  private long hashSelection()
+  {
+    AlignViewportI av = panel.getAlignViewport();
+    long hash = 0;
+    SequenceGroup sg = av.getSelectionGroup();
+    if (sg != null)
+    {
+      hash = 31 * hash + sg.getStartRes();
+      hash = 31 * hash + sg.getEndRes();
+      for (SequenceI seq : sg.getSequences())
+      {
+        hash = 31 * hash + System.identityHashCode(seq);
+      }
+    }
+    ColumnSelection cs = av.getColumnSelection();
+    if (cs != null)
+    {
+      hash = 31 * hash + System.identityHashCode(cs);
+      hash = 31 * hash + cs.getChangeCount();
+    }
+    HiddenColumns hidden = getAlignment().getHiddenColumns();
+    if (hidden != null)
+    {
+      hash = 31 * hash + hidden.hashCode();
+    }
+    return hash;
+  }
+
+  private static int hash(String s)
+  {
+    return s == null ? 0 : s.hashCode();
+  }
+
+  /**
+   * Answers the annotation for the given profile type, or null if not
+   * available
+   *
+   * @param type
+   * @return
+   * @throws IllegalArgumentException
+   *           if type is not a known profile type
+   */
+  public AlignmentAnnotation getProfile(String type)
+  {
+    AlignViewportI av = panel.getAlignViewport();
+    if (CONSENSUS.equals(type))
+    {
+      return av.getAlignmentConsensusAnnotation();
+    }
+    if (CONSERVATION.equals(type))
+    {
+      return av.getAlignmentConservationAnnotation();
+    }
+    throw new IllegalArgumentException("Unknown profile type " + type);
+  }
+
+  /**
+   * Writes a summary of the view as a JSON object
+   *
+   * @param out
+   * @throws IOException
+   */
+  public void writeSummary(Writer out) throws IOException
+  {
+    AlignmentI al = getAlignment();
+    out.write("{\"id\":" + JSONObject.quote(getId()));
+    out.write(",\"name\":" + JSONObject.quote(panel.getViewName()));
+    out.write(",\"height\":" + al.getHeight());
+    out.write(",\"width\":" + al.getWidth());
+    out.write(",\"nucleotide\":" + al.isNucleotide());
+    out.write(",\"version\":" + JSONObject.quote(getVersion()));
+    out.write("}");
+  }
+
+  /**
+   * Writes the sequences in the given (inclusive, 0-based) range of rows, with
+   * the characters in the given range of columns, as a JSON object
+   *
+   * @param out
+   * @param rows
+   *          first and last row
+   * @param columns
+   *          first and last column
+   * @throws IOException
+   */
+  public void writeSequences(Writer out, int[] rows, int[] columns)
+          throws IOException
+  {
+    SequenceI[] seqs = getRows(rows);
+    out.write("{\"rows\":[" + rows[0] + "," + rows[1] + "]");
+    out.write(",\"columns\":[" + columns[0] + "," + columns[1] + "]");
+    out.write(",\"sequences\":[");
+    boolean first = true;
+    for (int row = rows[0]; row <= rows[1]; row++)
+    {
+      SequenceI seq = seqs[row - rows[0]];
+      if (seq == null)
+      {
+        continue;
+      }
+      if (!first)
+      {
+        out.write(",");
+      }
+      first = false;
+      out.write("{\"row\":" + row);
+      out.write(",\"name\":" + JSONObject.quote(seq.getName()));
+      out.write(",\"start\":" + seq.getStart());
+      out.write(",\"end\":" + seq.getEnd());
+      out.write(",\"sequence\":" + JSONObject.quote(
+              new String(seq.getSequence(columns[0], columns[1] + 1))));
+      out.write("}");
+      flushEvery(out, row - rows[0]);
+    }
+    out.write("]}");
+  }
+
+  /**
+   * Writes the characters of the sequences in the given (inclusive, 0-based)
+   * range of rows and columns as bytes, one row after another. Each row is
+   * padded with gaps to the width of the range, so has
+   * <code>columns[1] - columns[0] + 1</code> bytes. A row deleted since the
+   * range was checked is written as all gaps.
+   *
+   * @param out
+   * @param rows
+   * @param columns
+   * @throws IOException
+   */
+  public void writeSequences(OutputStream out, int[] rows, int[] columns)
+          throws IOException
+  {
+    SequenceI[] seqs = getRows(rows);
+    int width = columns[1] - columns[0] + 1;
+    byte[] row = new byte[width];
+    byte gap = (byte) getAlignment().getGapCharacter();
+    for (SequenceI seq : seqs)
+    {
+      char[] chars = seq == null ? new char[0]
+              : seq.getSequence(columns[0], columns[1] + 1);
+      for (int i = 0; i < width; i++)
+      {
+        row[i] = i < chars.length ? (byte) chars[i] : gap;
+      }
+      out.write(row);
+    }
+  }
+
+  /**
+   * Writes the values (and display characters) of a profile annotation for
+   * the given (inclusive, 0-based) range of columns, as a JSON object
+   *
+   * @param out
+   * @param type
+   * @param columns
+   * @throws IOException
+   */
+  public void writeProfile(Writer out, String type, int[] columns)
+          throws IOException
+  {
+    AlignmentAnnotation profile = getProfile(type);
+    out.write("{\"type\":" + JSONObject.quote(type));
+    out.write(",\"columns\":[" + columns[0] + "," + columns[1] + "]");
+    if (profile == null || profile.annotations == null)
+    {
+      out.write(",\"values\":null}");
+      return;
+    }
+    out.write(",\"label\":" + JSONObject.quote(profile.label));
+    out.write(",\"values\":[");
+    Annotation[] annotations = profile.annotations;
+    for (int col = columns[0]; col <= columns[1]; col++)
+    {
+      if (col > columns[0])
+      {
+        out.write(",");
+      }
+      Annotation ann = col < annotations.length ? annotations[col] : null;
+      if (ann == null)
+      {
+        out.write("null");
+      }
+      else
+      {
+        out.write("{\"value\":" + toJson(ann.value));
+        out.write(",\"label\":" + JSONObject.quote(ann.displayCharacter));
+        out.write("}");
+      }
+      flushEvery(out, col - columns[0]);
+    }
+    out.write("]}");
+  }
+
+  /**
+   * Writes the features that overlap the given (inclusive, 0-based) range of
+   * columns, on sequences in the given range of rows, as a JSON object.
+   * Features may optionally be restricted to the given types.
+   *
+   * @param out
+   * @param rows
+   * @param columns
+   * @param types
+   * @throws IOException
+   */
+  public void writeFeatures(Writer out, int[] rows, int[] columns,
+          String... types) throws IOException
+  {
+    SequenceI[] seqs = getRows(rows);
+    out.write("{\"rows\":[" + rows[0] + "," + rows[1] + "]");
+    out.write(",\"columns\":[" + columns[0] + "," + columns[1] + "]");
+    out.write(",\"features\":[");
+    boolean first = true;
+    for (int row = rows[0]; row <= rows[1]; row++)
+    {
+      SequenceI seq = seqs[row - rows[0]];
+      if (seq == null)
+      {
+        continue;
+      }
+      List<SequenceFeature> features = seq.findFeatures(columns[0] + 1,
+              columns[1] + 1, types);
+      for (SequenceFeature sf : features)
+      {
+        if (!first)
+        {
+          out.write(",");
+        }
+        first = false;
+        out.write("{\"row\":" + row);
+        out.write(",\"sequence\":" + JSONObject.quote(seq.getName()));
+        out.write(",\"type\":" + JSONObject.quote(sf.getType()));
+        out.write(",\"begin\":" + sf.getBegin());
+        out.write(",\"end\":" + sf.getEnd());
+        out.write(",\"score\":" + toJson(sf.getScore()));
+        out.write(",\"group\":" + (sf.getFeatureGroup() == null ? "null"
+                : JSONObject.quote(sf.getFeatureGroup())));
+        out.write(",\"description\":" + (sf.getDescription() == null
+                ? "null"
+                : JSONObject.quote(sf.getDescription())));
+        out.write("}");
+      }
+      flushEvery(out, row - rows[0]);
+    }
+    out.write("]}");
+  }
+
+  /**
+   * Writes the selected sequences and region, selected columns and hidden
+   * columns of the view as a JSON object
+   *
+   * @param out
+   * @throws IOException
+   */
+  public void writeSelection(Writer out) throws IOException
+  {
+    AlignViewportI av = panel.getAlignViewport();
+    AlignmentI al = av.getAlignment();
+    SequenceGroup sg = av.getSelectionGroup();
+    out.write("{\"selection\":");
+    if (sg == null)
+    {
+      out.write("null");
+    }
+    else
+    {
+      out.write("{\"startColumn\":" + sg.getStartRes());
+      out.write(",\"endColumn\":" + sg.getEndRes());
+      out.write(",\"rows\":[");
+      boolean first = true;
+      for (SequenceI seq : sg.getSequences())
+      {
+        int row = al.findIndex(seq);
+        if (row > -1)
+        {
+          out.write((first ? "" : ",") + row);
+          first = false;
+        }
+      }
+      out.write("]}");
+    }
+
+    out.write(",\"columns\":[");
+    ColumnSelection cs = av.getColumnSelection();
+    if (cs != null)
+    {
+      boolean first = true;
+      for (int[] range : cs.getSelectedRanges())
+      {
+        out.write((first ? "" : ",") + "[" + range[0] + "," + range[1]
+                + "]");
+        first = false;
+      }
+    }
+    out.write("],\"hiddenColumns\":[");
+    HiddenColumns hidden = al.getHiddenColumns();
+    if (hidden != null)
+    {
+      boolean first = true;
+      Iterator<int[]> regions = hidden.iterator();
+      while (regions.hasNext())
+      {
+        int[] region = regions.next();
+        out.write((first ? "" : ",") + "[" + region[0] + "," + region[1]
+                + "]");
+        first = false;
+      }
+    }
+    out.write("]}");
+  }
+
+  /**
+   * Answers the sequences in the given (inclusive, 0-based) range of rows,
+   * copied while holding the lock on the alignment's sequences, so that a
+   * response can be written without holding the lock. Any row deleted since
+   * the range was checked is null.
+   *
+   * @param rows
+   * @return
+   */
+  private SequenceI[] getRows(int[] rows)
+  {
+    SequenceI[] seqs = new SequenceI[rows[1] - rows[0] + 1];
+    List<SequenceI> all = getAlignment().getSequences();
+    synchronized (all)
+    {
+      int last = Math.min(rows[1], all.size() - 1);
+      for (int row = rows[0]; row <= last; row++)
+      {
+        seqs[row - rows[0]] = all.get(row);
+      }
+    }
+    return seqs;
+  }
+
+  /**
+   * Formats a float as a JSON number, or null if it is not finite
+   *
+   * @param f
+   * @return
+   */
+  static String toJson(float f)
+  {
+    return Float.isNaN(f) || Float.isInfinite(f) ? "null"
+            : String.valueOf(f);
+  }
+
+  private static void flushEvery(Writer out, int count) throws IOException
+  {
+    if (count % FLUSH_ROWS == FLUSH_ROWS - 1)
+    {
+      out.flush();
+    }
+  }
+}
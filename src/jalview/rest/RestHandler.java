@@ -20,29 +20,88 @@
  */
 package jalview.rest;
 
+import jalview.api.AlignmentViewPanel;
+import jalview.gui.AlignFrame;
+import jalview.gui.Desktop;
 import jalview.httpserver.AbstractRequestHandler;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.BindException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 /**
- * A simple handler to process (or delegate) HTTP requests on /jalview/rest
+ * A handler to process HTTP requests on /jalview/rest. This serves a read-only
+ * API over the open alignment views:
+ * <ul>
+ * <li>alignments - a summary of each view</li>
+ * <li>alignments/{id} - a summary of one view</li>
+ * <li>alignments/{id}/sequences?rows=a-b&amp;columns=c-d[&amp;format=binary]
+ * - sequence characters for a region</li>
+ * <li>alignments/{id}/profile?type=consensus|conservation&amp;columns=c-d -
+ * profile values for columns</li>
+ * <li>alignments/{id}/features?rows=a-b&amp;columns=c-d[&amp;type=t...] -
+ * features overlapping a region</li>
+ * <li>alignments/{id}/selection - selected rows and columns, and hidden
+ * columns</li>
+ * </ul>
+ * Rows and columns are 0-based and inclusive, and default to the whole
+ * alignment. Responses are written on a small pool of threads of their own,
+ * off the server's (and the Swing event) threads, and are streamed as they
+ * are formatted. Each response has an ETag which changes when the alignment is
+ * modified, so a client may poll with If-None-Match and get a 304 (Not
+ * Modified) if there is no change.
  */
 public class RestHandler extends AbstractRequestHandler
 {
+  /**
+   * property key to start the REST server when Jalview starts
+   */
+  public static final String REST_SERVER = "REST_SERVER";
+
   private static final String MY_PATH = "rest";
 
   private static final String MY_NAME = "Rest";
 
+  private static final String ALIGNMENTS = "alignments";
+
+  private static final String JSON = "application/json;charset=UTF-8";
+
+  /*
+   * requests are served by this many threads of their own, so that clients
+   * polling the server neither delay nor are delayed by other I/O
+   */
+  private static final int SERVER_THREADS = 4;
+
+  /*
+   * requests beyond this many waiting to be served are refused with 503
+   * (Unavailable)
+   */
+  private static final int MAX_PENDING = 64;
+
+  private static final long KEEP_ALIVE = 60L;
+
   /**
    * Singleton instance of this class
    */
   private static RestHandler instance = null;
 
+  private static ExecutorService executor;
+
   /**
    * Returns the singleton instance of this class
    * 
@@ -61,6 +120,38 @@ public class RestHandler extends AbstractRequestHandler
     return instance;
   }
 
+  /**
+   * Answers the executor which serves requests, with a bounded queue, whose
+   * threads exit when idle
+   * 
+   * @return
+   */
+  private static synchronized ExecutorService getExecutor()
+  {
+    if (executor == null)
+    {
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(SERVER_THREADS,
+              SERVER_THREADS, KEEP_ALIVE, TimeUnit.SECONDS,
+              new ArrayBlockingQueue<Runnable>(MAX_PENDING),
+              new ThreadFactory()
+              {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                  Thread t = new Thread(r,
+                          "Jalview-rest-" + count.incrementAndGet());
+                  t.setDaemon(true);
+                  return t;
+                }
+              });
+      pool.allowCoreThreadTimeOut(true);
+      executor = pool;
+    }
+    return executor;
+  }
+
   /**
    * Private constructor enforces use of singleton
    * 
@@ -78,29 +169,306 @@ public class RestHandler extends AbstractRequestHandler
   }
 
   /**
-   * Handle a jalview/rest request
+   * Handle a jalview/rest request, by queueing it to be processed
+   * asynchronously
    * 
    * @throws IOException
    */
   @Override
-  protected void processRequest(HttpServletRequest request,
-          HttpServletResponse response) throws IOException
+  protected void processRequest(final HttpServletRequest request,
+          final HttpServletResponse response) throws IOException
   {
+    if (!"GET".equals(request.getMethod()))
+    {
+      response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+      return;
+    }
+
     /*
-     * Currently just echoes the request; add helper classes as required to
-     * process requests
+     * path info (relative to this context) and parameters must be read before
+     * the request leaves the context, on this thread
      */
-    final String queryString = request.getQueryString();
-    final String reply = "REST not yet implemented; received "
-            + request.getMethod() + ": " + request.getRequestURL()
-            + (queryString == null ? "" : "?" + queryString);
-    System.out.println(reply);
-
-    response.setHeader("Cache-Control", "no-cache/no-store");
-    response.setHeader("Content-type", "text/plain");
-    final PrintWriter writer = response.getWriter();
-    writer.write(reply);
-    writer.close();
+    final String path = request.getPathInfo();
+    request.getParameterMap();
+    final AsyncContext async = request.startAsync();
+    async.setTimeout(0L);
+    try
+    {
+      getExecutor().execute(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            serve(path, request, response);
+          } catch (Throwable t)
+          {
+            System.err.println("Exception handling request "
+                    + request.getRequestURI() + " : " + t.getMessage());
+            if (!response.isCommitted())
+            {
+              response.setStatus(
+                      HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+          } finally
+          {
+            async.complete();
+          }
+        }
+      });
+    } catch (RejectedExecutionException e)
+    {
+      response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      async.complete();
+    }
+  }
+
+  /**
+   * Routes a request to the resource it addresses, and writes the response
+   * 
+   * @param path
+   *          the request path relative to /jalview/rest
+   * @param request
+   * @param response
+   * @throws IOException
+   */
+  void serve(String path, HttpServletRequest request,
+          HttpServletResponse response) throws IOException
+  {
+    String[] tokens = path == null ? new String[0]
+            : path.replaceAll("^/+|/+$", "").split("/+");
+    if (tokens.length == 0 || !ALIGNMENTS.equals(tokens[0])
+            || tokens.length > 3)
+    {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return;
+    }
+
+    List<AlignmentResource> resources = getResources();
+    if (tokens.length == 1)
+    {
+      StringBuilder versions = new StringBuilder();
+      for (AlignmentResource resource : resources)
+      {
+        versions.append(resource.getId()).append(resource.getVersion());
+      }
+      if (isNotModified(request, response,
+              Integer.toHexString(versions.toString().hashCode())))
+      {
+        return;
+      }
+      PrintWriter out = getWriter(response);
+      out.write("[");
+      for (int i = 0; i < resources.size(); i++)
+      {
+        out.write(i > 0 ? "," : "");
+        resources.get(i).writeSummary(out);
+      }
+      out.write("]");
+      out.flush();
+      return;
+    }
+
+    AlignmentResource resource = null;
+    for (AlignmentResource r : resources)
+    {
+      if (r.getId().equals(tokens[1]))
+      {
+        resource = r;
+        break;
+      }
+    }
+    if (resource == null)
+    {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND,
+              "No alignment " + tokens[1]);
+      return;
+    }
+
+    String what = tokens.length == 2 ? "" : tokens[2];
+    if (!"".equals(what) && !"sequences".equals(what)
+            && !"profile".equals(what) && !"features".equals(what)
+            && !"selection".equals(what))
+    {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return;
+    }
+    int height = resource.getAlignment().getHeight();
+    int width = resource.getAlignment().getWidth();
+    int[] rows;
+    int[] columns;
+    try
+    {
+      rows = parseRange(request.getParameter("rows"), height);
+      columns = parseRange(request.getParameter("columns"), width);
+      if ("profile".equals(what))
+      {
+        resource.getProfile(getProfileType(request));
+      }
+    } catch (IllegalArgumentException e)
+    {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+              e.getMessage());
+      return;
+    }
+
+    if (isNotModified(request, response,
+            resource.getVersion(what, getProfileType(request))))
+    {
+      return;
+    }
+
+    if ("sequences".equals(what)
+            && "binary".equals(request.getParameter("format")))
+    {
+      response.setContentType("application/octet-stream");
+      response.setHeader("X-Jalview-Rows",
+              String.valueOf(rows[1] - rows[0] + 1));
+      response.setHeader("X-Jalview-Columns",
+              String.valueOf(columns[1] - columns[0] + 1));
+      OutputStream os = new BufferedOutputStream(
+              response.getOutputStream());
+      resource.writeSequences(os, rows, columns);
+      os.flush();
+      return;
+    }
+
+    PrintWriter out = getWriter(response);
+    switch (what)
+    {
+    case "sequences":
+      resource.writeSequences(out, rows, columns);
+      break;
+    case "profile":
+      resource.writeProfile(out, getProfileType(request), columns);
+      break;
+    case "features":
+      String[] types = request.getParameterValues("type");
+      resource.writeFeatures(out, rows, columns,
+              types == null ? new String[0] : types);
+      break;
+    case "selection":
+      resource.writeSelection(out);
+      break;
+    default:
+      resource.writeSummary(out);
+    }
+    out.flush();
+  }
+
+  /**
+   * Sets the ETag for the given version on the response, and answers true
+   * (having set status 304 Not Modified) if the request's If-None-Match header
+   * includes it
+   * 
+   * @param request
+   * @param response
+   * @param version
+   * @return
+   */
+  private static boolean isNotModified(HttpServletRequest request,
+          HttpServletResponse response, String version)
+  {
+    String etag = "\"" + version + "\"";
+    response.setHeader("ETag", etag);
+    response.setHeader("Cache-Control", "no-cache");
+    String match = request.getHeader("If-None-Match");
+    if (match != null && (match.trim().equals("*")
+            || match.contains(etag)))
+    {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return true;
+    }
+    return false;
+  }
+
+  private static PrintWriter getWriter(HttpServletResponse response)
+          throws IOException
+  {
+    response.setContentType(JSON);
+    return response.getWriter();
+  }
+
+  private static String getProfileType(HttpServletRequest request)
+  {
+    String type = request.getParameter("type");
+    return type == null ? AlignmentResource.CONSENSUS : type;
+  }
+
+  /**
+   * Parses a 0-based, inclusive range "a-b" (or a single position "a") of
+   * positions less than <code>size</code>, answering the whole range if
+   * <code>range</code> is null. The end of the range is truncated to the last
+   * position.
+   * 
+   * @param range
+   * @param size
+   * @return
+   * @throws IllegalArgumentException
+   *           if the range is not valid
+   */
+  static int[] parseRange(String range, int size)
+  {
+    if (range == null)
+    {
+      return new int[] { 0, size - 1 };
+    }
+    String[] tokens = range.split("-", -1);
+    int start;
+    int end;
+    try
+    {
+      if (tokens.length == 1)
+      {
+        start = end = Integer.parseInt(tokens[0].trim());
+      }
+      else if (tokens.length == 2)
+      {
+        start = Integer.parseInt(tokens[0].trim());
+        end = Integer.parseInt(tokens[1].trim());
+      }
+      else
+      {
+        throw new IllegalArgumentException("Invalid range " + range);
+      }
+    } catch (NumberFormatException e)
+    {
+      throw new IllegalArgumentException("Invalid range " + range);
+    }
+    if (start < 0 || start >= size || end < start)
+    {
+      throw new IllegalArgumentException(
+              "Range " + range + " out of bounds 0-" + (size - 1));
+    }
+    return new int[] { start, Math.min(end, size - 1) };
+  }
+
+  /**
+   * Answers a resource for each alignment view open in the Desktop
+   * 
+   * @return
+   */
+  static List<AlignmentResource> getResources()
+  {
+    List<AlignmentResource> resources = new ArrayList<>();
+    AlignFrame[] frames = Desktop.getAlignFrames();
+    if (frames == null)
+    {
+      return resources;
+    }
+    for (AlignFrame af : frames)
+    {
+      if (af == null)
+      {
+        continue;
+      }
+      for (AlignmentViewPanel ap : af.getAlignPanels())
+      {
+        resources.add(new AlignmentResource(ap));
+      }
+    }
+    return resources;
   }
 
   /**
@@ -26,8 +26,6 @@ import jalview.datamodel.AnnotatedCollectionI;
 import jalview.util.ColorUtils;
 
 import java.awt.Color;
-import java.util.Hashtable;
-import java.util.Map;
 
 /**
  * Became RNAHelicesColour.java. Placeholder for true covariation color scheme
@@ -37,9 +35,15 @@ import java.util.Map;
  */
 public class CovariationColourScheme extends ResidueColourScheme
 {
-  public Map<String, Color> helixcolorhash = new Hashtable<>();
+  /*
+   * a random colour for each helix number
+   */
+  private Color[] helixColours;
 
-  public Map<Integer, String> positionsToHelix = new Hashtable<>();
+  /*
+   * helix number for each alignment column, or -1 if not base paired
+   */
+  private int[] columnHelices;
 
   int numHelix = 0;
 
@@ -63,32 +67,17 @@ public class CovariationColourScheme extends ResidueColourScheme
   {
     this.annotation = annotation;
 
-    for (int x = 0; x < this.annotation._rnasecstr.length; x++)
+    columnHelices = RNAHelicesColour
+            .getColumnHelices(this.annotation._rnasecstr);
+    for (int helix : columnHelices)
     {
-      // System.out.println(this.annotation._rnasecstr[x] + " Begin" +
-      // this.annotation._rnasecstr[x].getBegin());
-      // System.out.println(this.annotation._rnasecstr[x].getFeatureGroup());
-      // pairs.put(this.annotation._rnasecstr[x].getBegin(),
-      // this.annotation._rnasecstr[x].getEnd());
-
-      positionsToHelix.put(this.annotation._rnasecstr[x].getBegin(),
-              this.annotation._rnasecstr[x].getFeatureGroup());
-      positionsToHelix.put(this.annotation._rnasecstr[x].getEnd(),
-              this.annotation._rnasecstr[x].getFeatureGroup());
-
-      if (Integer.parseInt(
-              this.annotation._rnasecstr[x].getFeatureGroup()) > numHelix)
-      {
-        numHelix = Integer
-                .parseInt(this.annotation._rnasecstr[x].getFeatureGroup());
-      }
-
+      numHelix = Math.max(numHelix, helix);
     }
 
+    helixColours = new Color[numHelix + 1];
     for (int j = 0; j <= numHelix; j++)
     {
-      helixcolorhash.put(String.valueOf(j),
-              ColorUtils.generateRandomColor(Color.white));
+      helixColours[j] = ColorUtils.generateRandomColor(Color.white);
     }
 
   }
@@ -122,20 +111,8 @@ public class CovariationColourScheme extends ResidueColourScheme
    */
   public Color findColour(char c, int j)
   {
-    Color currentColour = Color.white;
-    String currentHelix = null;
-    // System.out.println(c + " " + j);
-    currentHelix = positionsToHelix.get(j);
-    // System.out.println(positionsToHelix.get(j));
-
-    if (currentHelix != null)
-    {
-      currentColour = helixcolorhash.get(currentHelix);
-    }
-
-    // System.out.println(c + " " + j + " helix " + currentHelix + " " +
-    // currentColour);
-    return currentColour;
+    int helix = j >= 0 && j < columnHelices.length ? columnHelices[j] : -1;
+    return helix < 0 ? Color.white : helixColours[helix];
   }
 
   @Override
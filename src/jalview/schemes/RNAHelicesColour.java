@@ -25,10 +25,11 @@ import jalview.datamodel.AlignmentAnnotation;
 import jalview.datamodel.AlignmentI;
 import jalview.datamodel.AnnotatedCollectionI;
 import jalview.datamodel.SequenceCollectionI;
+import jalview.datamodel.SequenceFeature;
 import jalview.datamodel.SequenceI;
 
 import java.awt.Color;
-import java.util.Hashtable;
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -43,10 +44,11 @@ public class RNAHelicesColour extends ResidueColourScheme
 {
 
   /**
-   * Maps sequence positions to the RNA helix they belong to. Key: position,
-   * Value: helix TODO: Revise or drop in favour of annotation position numbers
+   * The RNA helix number for each alignment column, or -1 if the column is not
+   * base paired. This is rebuilt when the secondary structure changes, so that
+   * colouring a residue is an array lookup.
    */
-  public Hashtable<Integer, String> positionsToHelix = new Hashtable<>();
+  private volatile int[] columnHelices = new int[0];
 
   /**
    * Number of helices in the RNA secondary structure
@@ -121,47 +123,74 @@ public class RNAHelicesColour extends ResidueColourScheme
 
   }
 
-  private long lastrefresh = -1;
+  /*
+   * the secondary structure for which columnHelices was computed
+   */
+  private SequenceFeature[] lastStructure;
 
   public void refresh()
   {
 
     if (annotation != null && ((annotation._rnasecstr == null
-            || lastrefresh != annotation._rnasecstr.hashCode())
+            || lastStructure != annotation._rnasecstr)
             && annotation.isValidStruc()))
     {
       annotation.getRNAStruc();
-      lastrefresh = annotation._rnasecstr.hashCode();
+      lastStructure = annotation._rnasecstr;
+      int[] helices = getColumnHelices(lastStructure);
       numHelix = 0;
-      positionsToHelix = new Hashtable<>();
-
-      // Figure out number of helices
-      // Length of rnasecstr is the number of pairs of positions that base pair
-      // with each other in the secondary structure
-      for (int x = 0; x < this.annotation._rnasecstr.length; x++)
+      for (int helix : helices)
       {
-
-        /*
-         * System.out.println(this.annotation._rnasecstr[x] + " Begin" +
-         * this.annotation._rnasecstr[x].getBegin());
-         */
-        // System.out.println(this.annotation._rnasecstr[x].getFeatureGroup());
-
-        positionsToHelix.put(this.annotation._rnasecstr[x].getBegin(),
-                this.annotation._rnasecstr[x].getFeatureGroup());
-        positionsToHelix.put(this.annotation._rnasecstr[x].getEnd(),
-                this.annotation._rnasecstr[x].getFeatureGroup());
-
-        if (Integer.parseInt(
-                this.annotation._rnasecstr[x].getFeatureGroup()) > numHelix)
-        {
-          numHelix = Integer.parseInt(
-                  this.annotation._rnasecstr[x].getFeatureGroup());
-        }
-
+        numHelix = Math.max(numHelix, helix);
       }
       ColourSchemeProperty.initRnaHelicesShading(numHelix);
+      columnHelices = helices;
+    }
+  }
+
+  /**
+   * Answers an array holding, for each alignment column, the number of the
+   * helix (feature group) of any base pair at that column, or -1. The array
+   * length is one more than the last paired column.
+   * 
+   * @param basePairs
+   *          base pairs as computed for AlignmentAnnotation._rnasecstr
+   * @return
+   */
+  static int[] getColumnHelices(SequenceFeature[] basePairs)
+  {
+    int width = 0;
+    for (SequenceFeature pair : basePairs)
+    {
+      width = Math.max(width, Math.max(pair.getBegin(), pair.getEnd()) + 1);
+    }
+    int[] helices = new int[width];
+    Arrays.fill(helices, -1);
+    for (SequenceFeature pair : basePairs)
+    {
+      int helix = Integer.parseInt(pair.getFeatureGroup());
+      if (pair.getBegin() >= 0)
+      {
+        helices[pair.getBegin()] = helix;
+      }
+      if (pair.getEnd() >= 0)
+      {
+        helices[pair.getEnd()] = helix;
+      }
     }
+    return helices;
+  }
+
+  /**
+   * Answers the number of the RNA helix at the given column, or -1 if none
+   * 
+   * @param column
+   * @return
+   */
+  public int getHelix(int column)
+  {
+    int[] helices = columnHelices;
+    return column >= 0 && column < helices.length ? helices[column] : -1;
   }
 
   /**
@@ -195,15 +224,13 @@ public class RNAHelicesColour extends ResidueColourScheme
   public Color findColour(char c, int j, SequenceI seq)
   {
     refresh();
-    Color currentColour = Color.white;
-    String currentHelix = null;
-    currentHelix = positionsToHelix.get(j);
-    if (currentHelix != null)
+    int helix = getHelix(j);
+    Color[] colours = ColourSchemeProperty.rnaHelices;
+    if (helix < 0 || colours == null || helix >= colours.length)
     {
-      currentColour = ColourSchemeProperty.rnaHelices[Integer
-              .parseInt(currentHelix)];
+      return Color.white;
     }
-    return currentColour;
+    return colours[helix];
   }
 
   @Override
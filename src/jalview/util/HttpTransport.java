@@ -0,0 +1,466 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jalview.bin.Cache;
+import jalview.bin.Console;
+
+/**
+ * A shared transport for requests to REST services such as Ensembl. It
+ * <ul>
+ * <li>limits the number of concurrent requests to each host (preference
+ * HTTP_MAX_CONNECTIONS_PER_HOST, default 4)</li>
+ * <li>reads the rate limit headers of each response (X-RateLimit-Remaining,
+ * X-RateLimit-Reset and Retry-After), and holds back further requests to the
+ * host while its quota is exhausted</li>
+ * <li>retries requests refused with 429 (Too Many Requests) or 503 (Service
+ * Unavailable), after the delay requested by the server</li>
+ * <li>drains and closes each response when done with it, so that the
+ * underlying connection is returned to the JDK's keep-alive cache and reused
+ * for the next request to the same host</li>
+ * </ul>
+ * The response body is handed to the caller as a stream, to be parsed as it
+ * is read. In JalviewJS requests are made without limits or waits.
+ */
+public class HttpTransport
+{
+  /**
+   * Opens and configures a connection for a request (and writes any request
+   * body). This may be called more than once if the request is retried.
+   */
+  public interface Request
+  {
+    HttpURLConnection open() throws IOException;
+  }
+
+  public static final String MAX_CONNECTIONS_PER_HOST = "HTTP_MAX_CONNECTIONS_PER_HOST";
+
+  public static final int HTTP_OK = 200;
+
+  public static final int HTTP_OVERLOAD = 429;
+
+  public static final int HTTP_UNAVAILABLE = 503;
+
+  /*
+   * kept below the JDK's default limit of 5 idle keep-alive connections per
+   * host, so that every connection can be reused
+   */
+  private static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 4;
+
+  /*
+   * the longest we will wait before retrying a request, or before sending
+   * one while the host's quota is exhausted
+   */
+  static final long MAX_WAIT_MS = 10 * 1000L;
+
+  /*
+   * the delay before retrying, if the server does not say
+   */
+  private static final long DEFAULT_RETRY_MS = 1000L;
+
+  /*
+   * unread response content beyond this is not worth draining to keep the
+   * connection alive
+   */
+  private static final int DRAIN_LIMIT = 64 * 1024;
+
+  private static HttpTransport instance;
+
+  private final int maxPerHost;
+
+  private final Map<String, Host> hosts = new ConcurrentHashMap<>();
+
+  /**
+   * The state of requests to one host
+   */
+  static class Host
+  {
+    final Semaphore permits;
+
+    /*
+     * time (ms) before which no request should be sent
+     */
+    volatile long blockedUntil;
+
+    /*
+     * requests left in the current rate limit period, or -1 if not known
+     */
+    volatile int remaining = -1;
+
+    Host(int maxConnections)
+    {
+      permits = new Semaphore(maxConnections, true);
+    }
+  }
+
+  /**
+   * A response to a request. Closing the response (or its input stream)
+   * releases the connection for reuse.
+   */
+  public static class Response implements Closeable
+  {
+    private final HttpURLConnection connection;
+
+    private final int responseCode;
+
+    private final Host host;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private InputStream stream;
+
+    Response(HttpURLConnection connection, int responseCode, Host host)
+    {
+      this.connection = connection;
+      this.responseCode = responseCode;
+      this.host = host;
+    }
+
+    public int getResponseCode()
+    {
+      return responseCode;
+    }
+
+    public String getHeaderField(String name)
+    {
+      return connection.getHeaderField(name);
+    }
+
+    /**
+     * Answers the response body (or error body) as a stream. Closing the stream
+     * closes the response.
+     *
+     * @return
+     * @throws IOException
+     */
+    public synchronized InputStream getInputStream() throws IOException
+    {
+      if (stream == null)
+      {
+        InputStream in = responseCode < 400 ? connection.getInputStream()
+                : connection.getErrorStream();
+        stream = new FilterInputStream(
+                in == null ? new ByteArrayInputStream(new byte[0]) : in)
+        {
+          @Override
+          public void close() throws IOException
+          {
+            Response.this.close();
+          }
+        };
+      }
+      return stream;
+    }
+
+    /**
+     * Reads any remaining response content (up to a limit) and closes the
+     * stream, so that the connection may be reused, and releases the request
+     * permit for the host. Calls after the first have no effect.
+     */
+    @Override
+    public void close()
+    {
+      if (!closed.compareAndSet(false, true))
+      {
+        return;
+      }
+      try
+      {
+        discard(connection, responseCode);
+      } finally
+      {
+        if (!Platform.isJS())
+        {
+          host.permits.release();
+        }
+      }
+    }
+  }
+
+  /**
+   * Answers the transport shared by all clients
+   *
+   * @return
+   */
+  public static synchronized HttpTransport getInstance()
+  {
+    if (instance == null)
+    {
+      instance = new HttpTransport(Cache.getDefault(
+              MAX_CONNECTIONS_PER_HOST, DEFAULT_MAX_CONNECTIONS_PER_HOST));
+    }
+    return instance;
+  }
+
+  /**
+   * Constructor given the maximum number of concurrent requests per host
+   *
+   * @param maxPerHost
+   */
+  HttpTransport(int maxPerHost)
+  {
+    this.maxPerHost = Math.max(1, maxPerHost);
+  }
+
+  /**
+   * Sends a request to the host of the given URL, waiting if necessary for a
+   * free connection or for the host's rate limit to reset. Requests refused
+   * with 429 or 503 are retried (up to maxTries attempts in all) after the
+   * delay given by the Retry-After header, unless that is longer than
+   * MAX_WAIT_MS. The caller must close the response returned.
+   *
+   * @param url
+   * @param request
+   * @param maxTries
+   * @return
+   * @throws IOException
+   */
+  public Response execute(URL url, Request request, int maxTries)
+          throws IOException
+  {
+    Host host = getHost(url);
+    boolean js = Platform.isJS();
+    if (!js)
+    {
+      try
+      {
+        host.permits.acquire();
+      } catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted waiting to connect to " + url);
+      }
+    }
+
+    boolean handedOver = false;
+    try
+    {
+      int tries = 0;
+      while (true)
+      {
+        if (!js)
+        {
+          awaitQuota(host);
+        }
+        HttpURLConnection connection = request.open();
+        int responseCode = connection.getResponseCode();
+        long now = System.currentTimeMillis();
+        long retryMs = updateLimits(host, connection, responseCode, now);
+        boolean refused = responseCode == HTTP_OVERLOAD
+                || responseCode == HTTP_UNAVAILABLE;
+        if (refused && ++tries < maxTries && retryMs <= MAX_WAIT_MS)
+        {
+          Console.warn("Response code " + responseCode + " from "
+                  + url.getHost() + ", retrying after " + retryMs + "ms");
+          discard(connection, responseCode);
+          continue;
+        }
+        handedOver = true;
+        return new Response(connection, responseCode, host);
+      }
+    } finally
+    {
+      if (!handedOver && !js)
+      {
+        host.permits.release();
+      }
+    }
+  }
+
+  /**
+   * Answers the number of requests remaining in the host's current rate limit
+   * period, as last reported by it, or -1 if not known
+   *
+   * @param url
+   * @return
+   */
+  public int getRemainingRequests(URL url)
+  {
+    Host host = hosts.get(getHostKey(url));
+    return host == null ? -1 : host.remaining;
+  }
+
+  Host getHost(URL url)
+  {
+    String key = getHostKey(url);
+    Host host = hosts.get(key);
+    if (host == null)
+    {
+      hosts.putIfAbsent(key, new Host(maxPerHost));
+      host = hosts.get(key);
+    }
+    return host;
+  }
+
+  private static String getHostKey(URL url)
+  {
+    return url.getProtocol() + "://"
+            + url.getHost().toLowerCase(Locale.ROOT) + ":"
+            + (url.getPort() == -1 ? url.getDefaultPort() : url.getPort());
+  }
+
+  /**
+   * Sleeps until the host is no longer blocked (unless that would be longer
+   * than MAX_WAIT_MS, in which case the request is let through and left to the
+   * server to refuse)
+   *
+   * @param host
+   * @throws IOException
+   */
+  private static void awaitQuota(Host host) throws IOException
+  {
+    long wait = host.blockedUntil - System.currentTimeMillis();
+    if (wait > 0 && wait <= MAX_WAIT_MS)
+    {
+      try
+      {
+        Thread.sleep(wait);
+      } catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted waiting for rate limit");
+      }
+    }
+  }
+
+  /**
+   * Records the rate limit state reported by the response headers, and
+   * answers the delay in milliseconds (from now) before the host should be
+   * sent another request
+   *
+   * @param host
+   * @param connection
+   * @param responseCode
+   * @param now
+   * @return
+   */
+  static long updateLimits(Host host, HttpURLConnection connection,
+          int responseCode, long now)
+  {
+    long waitMs = 0L;
+    double remaining = parseSeconds(
+            connection.getHeaderField("X-RateLimit-Remaining"));
+    if (remaining >= 0)
+    {
+      host.remaining = (int) remaining;
+      if (remaining < 1)
+      {
+        double reset = parseSeconds(
+                connection.getHeaderField("X-RateLimit-Reset"));
+        waitMs = reset < 0 ? DEFAULT_RETRY_MS : (long) (reset * 1000);
+      }
+    }
+    double retryAfter = parseSeconds(
+            connection.getHeaderField("Retry-After"));
+    if (retryAfter >= 0)
+    {
+      waitMs = Math.max(waitMs, (long) (retryAfter * 1000));
+    }
+    else if ((responseCode == HTTP_OVERLOAD
+            || responseCode == HTTP_UNAVAILABLE) && waitMs == 0L)
+    {
+      waitMs = DEFAULT_RETRY_MS;
+    }
+    if (waitMs > 0)
+    {
+      host.blockedUntil = Math.max(host.blockedUntil, now + waitMs);
+    }
+    return waitMs;
+  }
+
+  /**
+   * Parses a header value in (possibly fractional) seconds, answering -1 if
+   * absent or not a number
+   *
+   * @param value
+   * @return
+   */
+  static double parseSeconds(String value)
+  {
+    if (value == null)
+    {
+      return -1;
+    }
+    try
+    {
+      double secs = Double.parseDouble(value.trim());
+      return secs < 0 || Double.isNaN(secs) ? -1 : secs;
+    } catch (NumberFormatException e)
+    {
+      return -1;
+    }
+  }
+
+  /**
+   * Reads and closes what is left of a response body (if not too long), so
+   * that the connection can be kept alive for reuse
+   *
+   * @param connection
+   * @param responseCode
+   */
+  static void discard(HttpURLConnection connection, int responseCode)
+  {
+    InputStream in = null;
+    try
+    {
+      in = responseCode < 400 ? connection.getInputStream()
+              : connection.getErrorStream();
+      if (in != null)
+      {
+        byte[] buffer = new byte[4096];
+        int total = 0;
+        int n;
+        while (total < DRAIN_LIMIT && (n = in.read(buffer)) != -1)
+        {
+          total += n;
+        }
+      }
+    } catch (IOException e)
+    {
+      // ignore - the connection will not be reused
+    } finally
+    {
+      if (in != null)
+      {
+        try
+        {
+          in.close();
+        } catch (IOException e)
+        {
+          // ignore
+        }
+      }
+    }
+  }
+}
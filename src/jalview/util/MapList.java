@@ -73,6 +73,13 @@ public class MapList
 
   private int toHighest;
 
+  /*
+   * lazily built indexes of fromShifts and toShifts for position lookup
+   */
+  private volatile RangeIndex fromIndex;
+
+  private volatile RangeIndex toIndex;
+
   /**
    * Constructor
    */
@@ -536,7 +543,7 @@ public class MapList
    */
   public int[] shiftFrom(int pos)
   {
-    return shift(pos, fromShifts, fromRatio, toShifts, toRatio);
+    return shift(pos, getFromIndex(), fromRatio, getToIndex(), toRatio);
   }
 
   /**
@@ -549,7 +556,69 @@ public class MapList
    */
   public int[] shiftTo(int pos)
   {
-    return shift(pos, toShifts, toRatio, fromShifts, fromRatio);
+    return shift(pos, getToIndex(), toRatio, getFromIndex(), fromRatio);
+  }
+
+  /**
+   * As for shift(int, List, int, List, int), but using range indexes
+   * 
+   * @param pos
+   * @param shiftTo
+   * @param fromRatio
+   * @param shiftFrom
+   * @param toRatio
+   * @return
+   */
+  private static int[] shift(int pos, RangeIndex shiftTo, int fromRatio,
+          RangeIndex shiftFrom, int toRatio)
+  {
+    int[] fromCount = shiftTo.countPositions(pos);
+    if (fromCount == null)
+    {
+      return null;
+    }
+    int fromRemainder = (fromCount[0] - 1) % fromRatio;
+    int toCount = 1 + (((fromCount[0] - 1) / fromRatio) * toRatio);
+    int[] toPos = shiftFrom.traverseToPosition(toCount);
+    if (toPos == null)
+    {
+      return null;
+    }
+    return new int[] { toPos[0], fromRemainder, toPos[1] };
+  }
+
+  /**
+   * Answers the index of fromShifts, building it if not yet done, or if the
+   * ranges have been modified since
+   * 
+   * @return
+   */
+  private RangeIndex getFromIndex()
+  {
+    RangeIndex index = fromIndex;
+    if (index == null || !index.isIndexOf(fromShifts))
+    {
+      index = new RangeIndex(fromShifts);
+      fromIndex = index;
+    }
+    return index;
+  }
+
+  /**
+   * Answers the index of toShifts, building it if not yet done, or if the
+   * ranges have been modified since
+   * 
+   * @return
+   */
+  private RangeIndex getToIndex()
+  {
+    RangeIndex index = toIndex;
+    if (index == null || !index.isIndexOf(toShifts))
+    {
+      index = new RangeIndex(toShifts);
+      toIndex = index;
+    }
+    return index;
   }
 
   /**
@@ -879,14 +948,33 @@ public class MapList
   }
 
   /**
+   * Answers a new MapList whose From range is this maplist's To Range, and
+   * vice versa. The inverse has its own copy of the ranges, as callers may
+   * store and extend it (see addMapList) without affecting this mapping or
+   * any other inverse of it.
    * 
-   * @return a MapList whose From range is this maplist's To Range, and vice
-   *         versa
+   * @return
    */
   public MapList getInverse()
   {
-    return new MapList(getToRanges(), getFromRanges(), getToRatio(),
-            getFromRatio());
+    return new MapList(copyRanges(toShifts), copyRanges(fromShifts),
+            getToRatio(), getFromRatio());
+  }
+
+  /**
+   * Answers a copy of a list of [start, end] ranges
+   * 
+   * @param ranges
+   * @return
+   */
+  private static List<int[]> copyRanges(List<int[]> ranges)
+  {
+    List<int[]> copy = new ArrayList<>(ranges.size());
+    for (int[] range : ranges)
+    {
+      copy.add(range.clone());
+    }
+    return copy;
   }
 
   /**
@@ -1159,7 +1247,22 @@ public class MapList
    */
   public int[] locateInFrom(int start, int end)
   {
-    return mapPositions(start, end, toShifts, fromShifts, toRatio,
+    return mapPositions(start, end, getToIndex(), getFromIndex(), toRatio,
+            fromRatio);
+  }
+
+  /**
+   * Returns the [start, end] ranges in the 'from' range that map to any
+   * positions in the given [start, end] ranges in the 'to' range. All ranges
+   * are mapped in one pass, and the result is in 'from' range order, with
+   * overlapping or adjacent results (within one 'from' range) merged.
+   * 
+   * @param ranges
+   * @return
+   */
+  public List<int[]> locateInFrom(List<int[]> ranges)
+  {
+    return mapRanges(ranges, getToIndex(), getFromIndex(), toRatio,
             fromRatio);
   }
 
@@ -1175,10 +1278,64 @@ public class MapList
    */
   public int[] locateInTo(int start, int end)
   {
-    return mapPositions(start, end, fromShifts, toShifts, fromRatio,
+    return mapPositions(start, end, getFromIndex(), getToIndex(),
+            fromRatio, toRatio);
+  }
+
+  /**
+   * Returns the [start, end] ranges in the 'to' range that map to any
+   * positions in the given [start, end] ranges in the 'from' range. All ranges
+   * are mapped in one pass, and the result is in 'to' range order, with
+   * overlapping or adjacent results (within one 'to' range) merged.
+   * 
+   * @param ranges
+   * @return
+   */
+  public List<int[]> locateInTo(List<int[]> ranges)
+  {
+    return mapRanges(ranges, getFromIndex(), getToIndex(), fromRatio,
             toRatio);
   }
 
+  /**
+   * As for mapPositions(int, int, List, List, int, int), but using range
+   * indexes
+   */
+  private static int[] mapPositions(int start, int end,
+          RangeIndex sourceRange, RangeIndex targetRange,
+          int sourceWordLength, int targetWordLength)
+  {
+    if (end < start)
+    {
+      int tmp = end;
+      end = start;
+      start = tmp;
+    }
+    BitSet offsets = new BitSet();
+    sourceRange.markOffsets(start, end, sourceWordLength, targetWordLength,
+            offsets);
+    List<int[]> mapped = targetRange.getPositionsForOffsets(offsets);
+    return mapped.isEmpty() ? null : MappingUtils.rangeListToArray(mapped);
+  }
+
+  /**
+   * Maps all of the given [start, end] ranges in one pass, marking mapped
+   * offsets for every range and then collecting the positions at them
+   */
+  private static List<int[]> mapRanges(List<int[]> ranges,
+          RangeIndex sourceRange, RangeIndex targetRange,
+          int sourceWordLength, int targetWordLength)
+  {
+    BitSet offsets = new BitSet();
+    for (int[] range : ranges)
+    {
+      sourceRange.markOffsets(Math.min(range[0], range[1]),
+              Math.max(range[0], range[1]), sourceWordLength,
+              targetWordLength, offsets);
+    }
+    return targetRange.getPositionsForOffsets(offsets);
+  }
+
   /**
    * Helper method that returns the [start1, end1, start2, end2, ...] positions
    * in {@code targetRange} that map to positions between {@code start} and
@@ -1263,72 +1420,91 @@ public class MapList
     for (int i = 0; i < s1; i++)
     {
       int[] range = sourceRange.get(i);
-      final int offset1 = offset;
-      int overlapStartOffset = -1;
-      int overlapEndOffset = -1;
+      markOverlap(range, offset, start, end, sourceWordLength,
+              targetWordLength, overlaps);
+      offset += 1 + Math.abs(range[1] - range[0]);
+    }
+    return overlaps;
+  }
+
+  /**
+   * Marks in {@code overlaps} the offsets of any positions of {@code range}
+   * (which starts at {@code offset} in its list) that lie between start and
+   * end inclusive, converted to whole words in the target range
+   * 
+   * @param range
+   * @param offset
+   * @param start
+   * @param end
+   * @param sourceWordLength
+   * @param targetWordLength
+   * @param overlaps
+   */
+  static void markOverlap(int[] range, int offset, int start, int end,
+          int sourceWordLength, int targetWordLength, BitSet overlaps)
+  {
+    int overlapStartOffset = -1;
+    int overlapEndOffset = -1;
 
-      if (range[1] >= range[0])
+    if (range[1] >= range[0])
+    {
+      /*
+       * forward direction range
+       */
+      if (start <= range[1] && end >= range[0])
       {
         /*
-         * forward direction range
+         * overlap
          */
-        if (start <= range[1] && end >= range[0])
-        {
-          /*
-           * overlap
-           */
-          int overlapStart = Math.max(start, range[0]);
-          overlapStartOffset = offset1 + overlapStart - range[0];
-          int overlapEnd = Math.min(end, range[1]);
-          overlapEndOffset = offset1 + overlapEnd - range[0];
-        }
+        int overlapStart = Math.max(start, range[0]);
+        overlapStartOffset = offset + overlapStart - range[0];
+        int overlapEnd = Math.min(end, range[1]);
+        overlapEndOffset = offset + overlapEnd - range[0];
       }
-      else
+    }
+    else
+    {
+      /*
+       * reverse direction range
+       */
+      if (start <= range[0] && end >= range[1])
       {
         /*
-         * reverse direction range
+         * overlap
          */
-        if (start <= range[0] && end >= range[1])
-        {
-          /*
-           * overlap
-           */
-          int overlapStart = Math.max(start, range[1]);
-          int overlapEnd = Math.min(end, range[0]);
-          overlapStartOffset = offset1 + range[0] - overlapEnd;
-          overlapEndOffset = offset1 + range[0] - overlapStart;
-        }
+        int overlapStart = Math.max(start, range[1]);
+        int overlapEnd = Math.min(end, range[0]);
+        overlapStartOffset = offset + range[0] - overlapEnd;
+        overlapEndOffset = offset + range[0] - overlapStart;
       }
+    }
 
-      if (overlapStartOffset > -1)
+    if (overlapStartOffset > -1)
+    {
+      /*
+       * found an overlap
+       */
+      if (sourceWordLength != targetWordLength)
       {
         /*
-         * found an overlap
+         * convert any overlap found to whole words in the target range
+         * (e.g. treat any partial codon overlap as if the whole codon)
          */
-        if (sourceWordLength != targetWordLength)
-        {
-          /*
-           * convert any overlap found to whole words in the target range
-           * (e.g. treat any partial codon overlap as if the whole codon)
-           */
-          overlapStartOffset -= overlapStartOffset % sourceWordLength;
-          overlapStartOffset = overlapStartOffset / sourceWordLength
-                  * targetWordLength;
-
-          /*
-           * similar calculation for range end, adding 
-           * (wordLength2 - 1) for end of mapped word
-           */
-          overlapEndOffset -= overlapEndOffset % sourceWordLength;
-          overlapEndOffset = overlapEndOffset / sourceWordLength
-                  * targetWordLength;
-          overlapEndOffset += targetWordLength - 1;
-        }
-        overlaps.set(overlapStartOffset, overlapEndOffset + 1);
+        overlapStartOffset -= overlapStartOffset % sourceWordLength;
+        overlapStartOffset = overlapStartOffset / sourceWordLength
+                * targetWordLength;
+
+        /*
+         * similar calculation for range end, adding 
+         * (wordLength2 - 1) for end of mapped word
+         */
+        overlapEndOffset -= overlapEndOffset % sourceWordLength;
+        overlapEndOffset = overlapEndOffset / sourceWordLength
+                * targetWordLength;
+        overlapEndOffset += targetWordLength - 1;
       }
-      offset += 1 + Math.abs(range[1] - range[0]);
+      overlaps.set(overlapStartOffset, overlapEndOffset + 1);
     }
-    return overlaps;
   }
 
   /**
@@ -1456,4 +1632,258 @@ public class MapList
 
     return overlaps == null ? null : locateInTo(overlaps[0], overlaps[1]);
   }
+
+  /**
+   * An index of a list of [start, end] ranges, holding the count of positions
+   * preceding each range, so that the range holding the n'th position can be
+   * found by binary search. If the ranges do not overlap, they are also
+   * indexed in order of lowest position, so that the range holding a given
+   * position can be found by binary search. Results are the same as for the
+   * linear scans in countPositions, traverseToPosition,
+   * getMappedOffsetsForPositions and getPositionsForOffsets.
+   * <p>
+   * The index is invalid if the list is modified (as by addMapList, which
+   * appends ranges or extends the last range).
+   */
+  private static final class RangeIndex
+  {
+    private final List<int[]> ranges;
+
+    private final int[] last;
+
+    private final int lastEnd;
+
+    private final int size;
+
+    private final int[][] rangeArray;
+
+    private final int[] starts;
+
+    private final int[] ends;
+
+    /*
+     * count of positions preceding each range, and (last) in total
+     */
+    private final int[] preceding;
+
+    /*
+     * range indices ordered by lowest position, or null if ranges overlap
+     */
+    private int[] byLowest;
+
+    private int[] lowest;
+
+    RangeIndex(List<int[]> list)
+    {
+      ranges = list;
+      size = list.size();
+      last = size == 0 ? null : list.get(size - 1);
+      lastEnd = size == 0 ? 0 : last[1];
+      rangeArray = list.toArray(new int[size][]);
+      starts = new int[size];
+      ends = new int[size];
+      preceding = new int[size + 1];
+      for (int i = 0; i < size; i++)
+      {
+        int[] range = list.get(i);
+        starts[i] = range[0];
+        ends[i] = range[1];
+        preceding[i + 1] = preceding[i] + Math.abs(range[1] - range[0])
+                + 1;
+      }
+      indexByPosition();
+    }
+
+    /**
+     * Sorts ranges by lowest position, provided that they do not overlap
+     */
+    private void indexByPosition()
+    {
+      long[] keys = new long[size];
+      for (int i = 0; i < size; i++)
+      {
+        keys[i] = ((long) Math.min(starts[i], ends[i]) << 32) | i;
+      }
+      Arrays.sort(keys);
+      int[] order = new int[size];
+      int[] lows = new int[size];
+      for (int k = 0; k < size; k++)
+      {
+        order[k] = (int) keys[k];
+        lows[k] = (int) (keys[k] >> 32);
+        if (k > 0 && lows[k] <= Math.max(starts[order[k - 1]],
+                ends[order[k - 1]]))
+        {
+          return;
+        }
+      }
+      byLowest = order;
+      lowest = lows;
+    }
+
+    /**
+     * Answers true if this is a (still valid) index of the given list
+     * 
+     * @param list
+     * @return
+     */
+    boolean isIndexOf(List<int[]> list)
+    {
+      return list == ranges && list.size() == size
+              && (size == 0 || list.get(size - 1) == last
+                      && last[1] == lastEnd);
+    }
+
+    /**
+     * Answers the index in byLowest of the last range whose lowest position is
+     * not greater than pos, or -1 if none
+     */
+    private int floorByLowest(int pos)
+    {
+      int lo = 0;
+      int hi = size - 1;
+      int found = -1;
+      while (lo <= hi)
+      {
+        int mid = (lo + hi) >>> 1;
+        if (lowest[mid] <= pos)
+        {
+          found = mid;
+          lo = mid + 1;
+        }
+        else
+        {
+          hi = mid - 1;
+        }
+      }
+      return found;
+    }
+
+    /**
+     * Answers the index of the range that holds the position at the given
+     * offset (base 0) from the start of the ranges
+     */
+    private int rangeForOffset(int offset)
+    {
+      int lo = 0;
+      int hi = size - 1;
+      while (lo < hi)
+      {
+        int mid = (lo + hi) >>> 1;
+        if (preceding[mid + 1] > offset)
+        {
+          hi = mid;
+        }
+        else
+        {
+          lo = mid + 1;
+        }
+      }
+      return lo;
+    }
+
+    /**
+     * As for MapList.countPositions
+     */
+    int[] countPositions(int pos)
+    {
+      if (byLowest == null)
+      {
+        for (int i = 0; i < size; i++)
+        {
+          int[] count = countInRange(i, pos);
+          if (count != null)
+          {
+            return count;
+          }
+        }
+        return null;
+      }
+      int k = floorByLowest(pos);
+      return k == -1 ? null : countInRange(byLowest[k], pos);
+    }
+
+    private int[] countInRange(int i, int pos)
+    {
+      if (starts[i] <= ends[i])
+      {
+        if (pos >= starts[i] && pos <= ends[i])
+        {
+          return new int[] { preceding[i] + pos - starts[i] + 1, +1 };
+        }
+      }
+      else if (pos >= ends[i] && pos <= starts[i])
+      {
+        return new int[] { preceding[i] + starts[i] - pos + 1, -1 };
+      }
+      return null;
+    }
+
+    /**
+     * As for MapList.traverseToPosition
+     */
+    int[] traverseToPosition(int count)
+    {
+      if (count < 1 || count > preceding[size])
+      {
+        return null;
+      }
+      int i = rangeForOffset(count - 1);
+      int steps = count - preceding[i] - 1;
+      return ends[i] >= starts[i] ? new int[] { starts[i] + steps, +1 }
+              : new int[] { starts[i] - steps, -1 };
+    }
+
+    /**
+     * As for MapList.getMappedOffsetsForPositions, but adds to the given
+     * BitSet
+     */
+    void markOffsets(int start, int end, int sourceWordLength,
+            int targetWordLength, BitSet overlaps)
+    {
+      if (byLowest == null)
+      {
+        for (int i = 0; i < size; i++)
+        {
+          markOverlap(rangeArray[i], preceding[i], start, end,
+                  sourceWordLength, targetWordLength, overlaps);
+        }
+        return;
+      }
+
+      /*
+       * only the last range starting at or before start, and any starting
+       * between start and end, can overlap start-end
+       */
+      for (int k = Math.max(0, floorByLowest(start)); k < size
+              && lowest[k] <= end; k++)
+      {
+        int i = byLowest[k];
+        markOverlap(rangeArray[i], preceding[i], start, end,
+                sourceWordLength, targetWordLength, overlaps);
+      }
+    }
+
+    /**
+     * As for MapList.getPositionsForOffsets, but starting from the range
+     * holding the first marked offset
+     */
+    List<int[]> getPositionsForOffsets(BitSet offsets)
+    {
+      List<int[]> mapped = new ArrayList<>();
+      if (offsets.isEmpty() || size == 0)
+      {
+        return mapped;
+      }
+      final int toAdd = offsets.cardinality();
+      int added = 0;
+      for (int i = rangeForOffset(offsets.nextSetBit(0)); added < toAdd
+              && i < size; i++)
+      {
+        added += addOffsetPositions(mapped, preceding[i], rangeArray[i],
+                offsets);
+      }
+      return mapped;
+    }
+  }
 }
@@ -0,0 +1,188 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ * 
+ * This file is part of Jalview.
+ * 
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *  
+ * Jalview is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The thread pools shared by all of Jalview's background tasks. There is one
+ * pool for computation, sized to the number of processors, one for blocking
+ * network and file operations, and one for scheduled (repeated or delayed)
+ * tasks. All are created when first asked for; their threads are daemon
+ * threads, which exit when they have been idle for a while.
+ * <p>
+ * Code which runs a task on a pool and waits for its result should first check
+ * {@link #isPoolThread()}, and do the work on the calling thread if it is
+ * already running on a pool thread, so that nested tasks can't deadlock a
+ * pool.
+ */
+public class ThreadPools
+{
+  private static final int COMPUTE_THREADS = Math.max(1,
+          Runtime.getRuntime().availableProcessors());
+
+  private static final int IO_THREADS = 8;
+
+  private static final int SCHEDULER_THREADS = 2;
+
+  /*
+   * seconds an idle pool thread waits for work before exiting
+   */
+  private static final long KEEP_ALIVE = 60L;
+
+  private static ExecutorService computePool;
+
+  private static ExecutorService ioPool;
+
+  private static ScheduledExecutorService scheduler;
+
+  /*
+   * a thread belonging to one of the shared pools
+   */
+  private static class PoolThread extends Thread
+  {
+    PoolThread(Runnable r, String name)
+    {
+      super(r, name);
+      setDaemon(true);
+    }
+  }
+
+  private ThreadPools()
+  {
+    // static methods only
+  }
+
+  /**
+   * Answers a factory for daemon threads named name-1, name-2 and so on
+   * 
+   * @param name
+   * @return
+   */
+  public static ThreadFactory newThreadFactory(final String name)
+  {
+    return new ThreadFactory()
+    {
+      private final AtomicInteger count = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable r)
+      {
+        return new PoolThread(r, name + "-" + count.incrementAndGet());
+      }
+    };
+  }
+
+  /**
+   * Answers true if the current thread was made by a factory from this class
+   * (including the threads of the shared pools)
+   * 
+   * @return
+   */
+  public static boolean isPoolThread()
+  {
+    return Thread.currentThread() instanceof PoolThread;
+  }
+
+  /**
+   * Answers the number of threads in the computation pool
+   * 
+   * @return
+   */
+  public static int getComputeThreads()
+  {
+    return COMPUTE_THREADS;
+  }
+
+  /**
+   * Answers the pool for computation (CPU bound) tasks, which has one thread
+   * per processor
+   * 
+   * @return
+   */
+  public static synchronized ExecutorService getComputePool()
+  {
+    if (computePool == null)
+    {
+      computePool = newPool(COMPUTE_THREADS, "Jalview-compute");
+    }
+    return computePool;
+  }
+
+  /**
+   * Answers the pool for tasks which spend most of their time waiting on
+   * network or file operations
+   * 
+   * @return
+   */
+  public static synchronized ExecutorService getIOPool()
+  {
+    if (ioPool == null)
+    {
+      ioPool = newPool(IO_THREADS, "Jalview-io");
+    }
+    return ioPool;
+  }
+
+  /**
+   * Answers the pool for delayed or periodic tasks. Tasks should be short, or
+   * hand any long running work to one of the other pools.
+   * 
+   * @return
+   */
+  public static synchronized ScheduledExecutorService getScheduler()
+  {
+    if (scheduler == null)
+    {
+      ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(
+              SCHEDULER_THREADS, newThreadFactory("Jalview-scheduler"));
+      pool.setRemoveOnCancelPolicy(true);
+      pool.setKeepAliveTime(KEEP_ALIVE, TimeUnit.SECONDS);
+      pool.allowCoreThreadTimeOut(true);
+      scheduler = pool;
+    }
+    return scheduler;
+  }
+
+  /**
+   * Answers a pool of up to the given number of threads, with an unbounded
+   * queue, whose threads exit when idle
+   * 
+   * @param threads
+   * @param name
+   * @return
+   */
+  private static ExecutorService newPool(int threads, String name)
+  {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+            KEEP_ALIVE, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), newThreadFactory(name));
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+}
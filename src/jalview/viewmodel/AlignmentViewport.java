@@ -29,6 +29,10 @@ import jalview.api.AlignViewportI;
 import jalview.api.AlignmentViewPanel;
 import jalview.api.FeaturesDisplayedI;
 import jalview.api.ViewStyleI;
+import jalview.bin.Cache;
+import jalview.bin.MemoryMonitor;
+import jalview.bin.MemoryMonitor.Pressure;
+import jalview.bin.MemoryMonitor.PressureListener;
 import jalview.commands.CommandI;
 import jalview.datamodel.AlignedCodonFrame;
 import jalview.datamodel.AlignmentAnnotation;
@@ -36,6 +40,7 @@ import jalview.datamodel.AlignmentExportData;
 import jalview.datamodel.AlignmentI;
 import jalview.datamodel.AlignmentView;
 import jalview.datamodel.Annotation;
+import jalview.datamodel.ProfileI;
 import jalview.datamodel.ColumnSelection;
 import jalview.datamodel.HiddenColumns;
 import jalview.datamodel.HiddenSequences;
@@ -45,6 +50,7 @@ import jalview.datamodel.Sequence;
 import jalview.datamodel.SequenceCollectionI;
 import jalview.datamodel.SequenceGroup;
 import jalview.datamodel.SequenceI;
+import jalview.datamodel.StructureProfiles;
 import jalview.renderer.ResidueShader;
 import jalview.renderer.ResidueShaderI;
 import jalview.schemes.ColourSchemeI;
@@ -55,8 +61,10 @@ import jalview.util.Comparison;
 import jalview.util.MapList;
 import jalview.util.MappingUtils;
 import jalview.util.MessageManager;
+import jalview.util.Platform;
 import jalview.viewmodel.styles.ViewStyle;
 import jalview.workers.AlignCalcManager;
+import jalview.workers.AlignCalcResultCache;
 import jalview.workers.ComplementConsensusThread;
 import jalview.workers.ConsensusThread;
 import jalview.workers.StrucConsensusThread;
@@ -65,13 +73,17 @@ import java.awt.Color;
 import java.beans.PropertyChangeSupport;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * base class holding visualization and analysis attributes and common logic for
@@ -104,10 +116,124 @@ public abstract class AlignmentViewport
    */
   protected AlignmentI alignment;
 
+  /**
+   * preference key for the number of undo steps kept when memory is critical
+   */
+  public static final String MEMORY_HISTORY_LIMIT = "MEMORY_HISTORY_LIMIT";
+
+  /*
+   * if false, consensus is computed without full symbol counts
+   * (so no sequence logo), to save memory
+   */
+  private boolean saveFullProfiles = true;
+
+  /*
+   * held here as the memory monitor only keeps weak references to listeners
+   */
+  private final PressureListener memoryListener = new PressureListener()
+  {
+    @Override
+    public void memoryPressureChanged(Pressure pressure)
+    {
+      releaseMemory(pressure);
+    }
+  };
+
   public AlignmentViewport(AlignmentI al)
   {
     setAlignment(al);
     ranges = new ViewportRanges(al);
+    if (!Platform.isJS())
+    {
+      MemoryMonitor.getInstance().addListener(memoryListener);
+    }
+  }
+
+  /**
+   * Releases memory according to the level of memory pressure:
+   * <ul>
+   * <li>HIGH: clear the redo list, and compute any further consensus without
+   * full profiles</li>
+   * <li>CRITICAL: also trim the undo list to the last MEMORY_HISTORY_LIMIT
+   * (default 10) commands, and discard full profiles from the current
+   * consensus</li>
+   * <li>NORMAL: resume saving full profiles</li>
+   * </ul>
+   * 
+   * @param pressure
+   */
+  public void releaseMemory(Pressure pressure)
+  {
+    if (isClosed())
+    {
+      return;
+    }
+    saveFullProfiles = pressure == Pressure.NORMAL;
+    if (pressure == Pressure.NORMAL)
+    {
+      return;
+    }
+    clearRedoList();
+    if (pressure == Pressure.CRITICAL)
+    {
+      trimHistoryList(Cache.getDefault(MEMORY_HISTORY_LIMIT, 10));
+      discardFullProfiles();
+    }
+  }
+
+  /**
+   * Removes the oldest commands from the undo list, leaving at most the given
+   * number
+   * 
+   * @param keep
+   */
+  public void trimHistoryList(int keep)
+  {
+    if (historyList != null)
+    {
+      while (historyList.size() > Math.max(0, keep))
+      {
+        historyList.removeLast();
+      }
+    }
+  }
+
+  /**
+   * Discards the symbol counts held in the current consensus profiles; the
+   * modal residue and percentage identity are kept
+   */
+  protected void discardFullProfiles()
+  {
+    ProfilesI profiles = hconsensus;
+    if (profiles != null)
+    {
+      for (int col = profiles.getStartColumn(); col <= profiles
+              .getEndColumn(); col++)
+      {
+        ProfileI profile = profiles.get(col);
+        if (profile != null)
+        {
+          profile.setCounts(null);
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean isSaveFullProfiles()
+  {
+    return saveFullProfiles;
+  }
+
+  /**
+   * Answers an estimate of the memory used by this view's alignment, history
+   * and consensus
+   * 
+   * @return
+   */
+  public MemoryFootprint getMemoryFootprint()
+  {
+    return MemoryFootprint.estimate(this);
   }
 
   /**
@@ -716,7 +842,7 @@ public abstract class AlignmentViewport
    * results of secondary structure base pair consensus for visible portion of
    * view
    */
-  protected Hashtable<String, Object>[] hStrucConsensus = null;
+  protected StructureProfiles hStrucConsensus = null;
 
   protected Conservation hconservation = null;
 
@@ -764,14 +890,14 @@ public abstract class AlignmentViewport
   }
 
   @Override
-  public Hashtable<String, Object>[] getRnaStructureConsensusHash()
+  public StructureProfiles getRnaStructureConsensusHash()
   {
     return hStrucConsensus;
   }
 
   @Override
   public void setRnaStructureConsensusHash(
-          Hashtable<String, Object>[] hStrucConsensus)
+          StructureProfiles hStrucConsensus)
   {
     this.hStrucConsensus = hStrucConsensus;
 
@@ -941,6 +1067,8 @@ public abstract class AlignmentViewport
   @Override
   public void dispose()
   {
+    AlignCalcResultCache.release(getSequenceSetId());
+
     /*
      * defensively null out references to large objects in case
      * this object is not garbage collected (as if!)
@@ -955,6 +1083,7 @@ public abstract class AlignmentViewport
     hconsensus = null;
     hconservation = null;
     hcomplementConsensus = null;
+    MemoryMonitor.getInstance().removeListener(memoryListener);
     gapcounts = null;
     calculator = null;
     residueShading = null; // may hold a reference to Consensus
@@ -1488,11 +1617,8 @@ public abstract class AlignmentViewport
 
     if (seq != null)
     {
-      for (int i = 0; i < seq.length; i++)
-      {
-        alignment.getHiddenSequences().hideSequence(seq[i]);
-        setSequenceAnnotationsVisible(seq[i], false);
-      }
+      alignment.getHiddenSequences().hideSequences(seq);
+      setSequenceAnnotationsVisible(seq, false);
       ranges.setStartSeq(startSeq);
       firePropertyChange("alignment", null, alignment.getSequences());
     }
@@ -1552,6 +1678,31 @@ public abstract class AlignmentViewport
     }
   }
 
+  /**
+   * Set visibility for any annotations for the given sequences.
+   * 
+   * @param sequences
+   * @param visible
+   */
+  protected void setSequenceAnnotationsVisible(SequenceI[] sequences,
+          boolean visible)
+  {
+    AlignmentAnnotation[] anns = alignment.getAlignmentAnnotation();
+    if (anns != null)
+    {
+      Set<SequenceI> seqs = Collections
+              .newSetFromMap(new IdentityHashMap<SequenceI, Boolean>());
+      seqs.addAll(Arrays.asList(sequences));
+      for (AlignmentAnnotation ann : anns)
+      {
+        if (ann.sequenceRef != null && seqs.contains(ann.sequenceRef))
+        {
+          ann.visible = visible;
+        }
+      }
+    }
+  }
+
   public void hideRepSequences(SequenceI repSequence, SequenceGroup sg)
   {
     int sSize = sg.getSize();
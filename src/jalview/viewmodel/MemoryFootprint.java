@@ -0,0 +1,315 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.viewmodel;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+
+import jalview.bin.MemorySetting;
+import jalview.commands.CommandI;
+import jalview.commands.EditCommand;
+import jalview.commands.EditCommand.Edit;
+import jalview.datamodel.AlignmentAnnotation;
+import jalview.datamodel.AlignmentI;
+import jalview.datamodel.ProfileI;
+import jalview.datamodel.ProfilesI;
+import jalview.datamodel.SequenceI;
+
+/**
+ * An estimate of the heap used by one alignment view, broken down into
+ * sequences, features, annotations, undo/redo history and cached consensus
+ * profiles. Figures are approximate (based on typical object sizes for a 64
+ * bit JVM with compressed references), and are intended for comparing
+ * alignments and spotting what is using memory, not for exact accounting.
+ */
+public class MemoryFootprint
+{
+  /*
+   * approximate shallow size of a Sequence object and its fixed fields
+   */
+  static final int SEQUENCE_BYTES = 160;
+
+  /*
+   * approximate size of a SequenceFeature including its store entry
+   */
+  static final int FEATURE_BYTES = 120;
+
+  /*
+   * approximate size of an Annotation object (excluding its strings)
+   */
+  static final int ANNOTATION_BYTES = 48;
+
+  static final int ANNOTATION_ROW_BYTES = 400;
+
+  static final int PROFILE_BYTES = 40;
+
+  /*
+   * a ResidueCount holds an int array of counts indexed by residue
+   */
+  static final int RESIDUE_COUNT_BYTES = 160;
+
+  static final int COMMAND_BYTES = 100;
+
+  static final int REFERENCE_BYTES = 4;
+
+  private long sequences;
+
+  private long features;
+
+  private long annotations;
+
+  private long history;
+
+  private long profiles;
+
+  /**
+   * Answers an estimate of the memory used by the viewport's alignment
+   * (including any hidden sequences and their dataset), its undo and redo
+   * history, and its consensus profiles
+   *
+   * @param av
+   * @return
+   */
+  public static MemoryFootprint estimate(AlignmentViewport av)
+  {
+    MemoryFootprint footprint = estimate(av.getAlignment());
+    footprint.history = estimateHistory(av.getHistoryList())
+            + estimateHistory(av.getRedoList());
+    footprint.profiles = estimateProfiles(av.getSequenceConsensusHash());
+    return footprint;
+  }
+
+  /**
+   * Answers an estimate of the memory used by the alignment's sequences,
+   * dataset sequences, features and annotations
+   *
+   * @param al
+   * @return
+   */
+  public static MemoryFootprint estimate(AlignmentI al)
+  {
+    MemoryFootprint footprint = new MemoryFootprint();
+    if (al == null)
+    {
+      return footprint;
+    }
+    SequenceI[] seqs = al.getHiddenSequences().getSize() > 0
+            ? al.getHiddenSequences().getFullAlignment()
+                    .getSequencesArray()
+            : al.getSequencesArray();
+
+    /*
+     * dataset sequences may be shared by several aligned sequences,
+     * so count each one only once
+     */
+    Set<SequenceI> datasets = Collections
+            .newSetFromMap(new IdentityHashMap<SequenceI, Boolean>());
+    for (SequenceI seq : seqs)
+    {
+      footprint.addSequence(seq);
+      SequenceI ds = seq.getDatasetSequence();
+      if (ds != null && datasets.add(ds))
+      {
+        footprint.addSequence(ds);
+      }
+    }
+
+    AlignmentAnnotation[] anns = al.getAlignmentAnnotation();
+    if (anns != null)
+    {
+      for (AlignmentAnnotation ann : anns)
+      {
+        footprint.annotations += estimateAnnotation(ann);
+      }
+    }
+    return footprint;
+  }
+
+  /**
+   * Adds the size of the sequence, its name and description, and its
+   * features
+   *
+   * @param seq
+   */
+  protected void addSequence(SequenceI seq)
+  {
+    sequences += SEQUENCE_BYTES + 2L * seq.getLength()
+            + 2L * length(seq.getName()) + 2L * length(seq.getDescription());
+    if (seq.getDatasetSequence() == null)
+    {
+      /*
+       * features are held on the dataset sequence
+       */
+      features += (long) FEATURE_BYTES
+              * seq.getFeatures().getFeatureCount(true);
+      features += (long) FEATURE_BYTES
+              * seq.getFeatures().getFeatureCount(false);
+    }
+  }
+
+  static long estimateAnnotation(AlignmentAnnotation ann)
+  {
+    long size = ANNOTATION_ROW_BYTES;
+    if (ann.annotations != null)
+    {
+      size += (long) REFERENCE_BYTES * ann.annotations.length;
+      for (int i = 0; i < ann.annotations.length; i++)
+      {
+        if (ann.annotations[i] != null)
+        {
+          size += ANNOTATION_BYTES
+                  + 2L * length(ann.annotations[i].displayCharacter)
+                  + 2L * length(ann.annotations[i].description);
+        }
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Estimates the memory held by a list of edit commands. For edits this
+   * counts the characters that may be held for undo (for example, cut
+   * residues).
+   *
+   * @param commands
+   * @return
+   */
+  static long estimateHistory(Collection<CommandI> commands)
+  {
+    if (commands == null)
+    {
+      return 0L;
+    }
+    long size = 0L;
+    for (CommandI command : commands)
+    {
+      size += COMMAND_BYTES;
+      if (command instanceof EditCommand)
+      {
+        Iterator<Edit> edits = ((EditCommand) command)
+                .getEditIterator(true);
+        while (edits.hasNext())
+        {
+          Edit edit = edits.next();
+          int nseqs = edit.getSequences() == null ? 0
+                  : edit.getSequences().length;
+          size += COMMAND_BYTES + (long) REFERENCE_BYTES * nseqs
+                  + 2L * nseqs * edit.getNumber();
+        }
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Estimates the memory held by consensus profiles, including any full
+   * symbol counts saved for sequence logos and tooltips
+   *
+   * @param profiles
+   * @return
+   */
+  static long estimateProfiles(ProfilesI profiles)
+  {
+    if (profiles == null)
+    {
+      return 0L;
+    }
+    long size = 0L;
+    for (int col = profiles.getStartColumn(); col <= profiles
+            .getEndColumn(); col++)
+    {
+      ProfileI profile = profiles.get(col);
+      if (profile != null)
+      {
+        size += PROFILE_BYTES + REFERENCE_BYTES;
+        if (profile.getCounts() != null)
+        {
+          size += RESIDUE_COUNT_BYTES;
+        }
+      }
+    }
+    return size;
+  }
+
+  private static int length(String s)
+  {
+    return s == null ? 0 : s.length();
+  }
+
+  public long getSequences()
+  {
+    return sequences;
+  }
+
+  public long getFeatures()
+  {
+    return features;
+  }
+
+  public long getAnnotations()
+  {
+    return annotations;
+  }
+
+  public long getHistory()
+  {
+    return history;
+  }
+
+  public long getProfiles()
+  {
+    return profiles;
+  }
+
+  /**
+   * Answers the estimated total size in bytes
+   *
+   * @return
+   */
+  public long getTotal()
+  {
+    return sequences + features + annotations + history + profiles;
+  }
+
+  /**
+   * Answers a one-line summary such as
+   *
+   * <pre>
+   * 12.4M (sequences 10.2M, features 1.0M, annotations 1.0M, history 100.0K, profiles 96.0K)
+   * </pre>
+   */
+  @Override
+  public String toString()
+  {
+    return format(getTotal()) + " (sequences " + format(sequences)
+            + ", features " + format(features) + ", annotations "
+            + format(annotations) + ", history " + format(history)
+            + ", profiles " + format(profiles) + ")";
+  }
+
+  static String format(long bytes)
+  {
+    return MemorySetting.memoryLongToString(bytes, "%.1f");
+  }
+}
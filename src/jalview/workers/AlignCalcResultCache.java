@@ -0,0 +1,277 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ * 
+ * This file is part of Jalview.
+ * 
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *  
+ * Jalview is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.workers;
+
+import jalview.datamodel.SequenceI;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A cache of calculation results (such as consensus or conservation) shared by
+ * the views of an alignment, that is, views with the same sequence set id.
+ * <p>
+ * A result is reused by another view if it was calculated from the same
+ * inputs: the same sequences (by identity, in the same order), unchanged since
+ * (by their change count), the same width, and the same parameters. The first
+ * view to ask for a result calculates it; any other view asking for it while
+ * it is being calculated waits for it, rather than calculating it again. Only
+ * the latest result of each calculation is kept for each sequence set.
+ */
+public class AlignCalcResultCache
+{
+  /**
+   * The inputs to a calculation
+   */
+  public static class Key
+  {
+    private final SequenceI[] sequences;
+
+    private final int[] changeCounts;
+
+    private final int width;
+
+    private final Object[] params;
+
+    private final int hash;
+
+    /**
+     * Constructor
+     * 
+     * @param sequences
+     *          the sequences the calculation is over
+     * @param width
+     *          the number of columns calculated
+     * @param params
+     *          any other inputs which affect the result (must implement
+     *          equals)
+     */
+    public Key(SequenceI[] sequences, int width, Object... params)
+    {
+      this.sequences = sequences.clone();
+      this.width = width;
+      this.params = params;
+      changeCounts = new int[sequences.length];
+      int h = width;
+      for (int i = 0; i < sequences.length; i++)
+      {
+        changeCounts[i] = sequences[i] == null ? 0
+                : sequences[i].getChangeCount();
+        h = 31 * h + System.identityHashCode(sequences[i]);
+        h = 31 * h + changeCounts[i];
+      }
+      hash = 31 * h + Arrays.hashCode(params);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+      if (!(obj instanceof Key))
+      {
+        return false;
+      }
+      Key that = (Key) obj;
+      if (hash != that.hash || width != that.width
+              || sequences.length != that.sequences.length
+              || !Arrays.equals(changeCounts, that.changeCounts)
+              || !Arrays.equals(params, that.params))
+      {
+        return false;
+      }
+      for (int i = 0; i < sequences.length; i++)
+      {
+        if (sequences[i] != that.sequences[i])
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /*
+   * a result being, or already, calculated, and its inputs
+   */
+  private static class Entry
+  {
+    final Key key;
+
+    final FutureTask<Object> task;
+
+    Entry(Key key, FutureTask<Object> task)
+    {
+      this.key = key;
+      this.task = task;
+    }
+  }
+
+  /*
+   * the latest result of each calculation, by sequence set id
+   */
+  private static Map<String, Map<String, Entry>> results = new HashMap<>();
+
+  private AlignCalcResultCache()
+  {
+    // static methods only
+  }
+
+  /**
+   * Returns the result of a calculation for the given inputs, either one
+   * already calculated (or being calculated) by another view of the sequence
+   * set, or by running the calculation on this thread. Any exception thrown by
+   * the calculation is rethrown.
+   * 
+   * @param sequenceSetId
+   *          the id of the sequence set (if null, the result is not shared)
+   * @param calcName
+   *          the name of the calculation
+   * @param key
+   *          the inputs to the calculation
+   * @param calculation
+   * @return
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> T getResult(String sequenceSetId, String calcName,
+          Key key, final Callable<T> calculation)
+  {
+    if (sequenceSetId == null)
+    {
+      return call(calculation);
+    }
+
+    Entry entry;
+    boolean calculate = false;
+    synchronized (results)
+    {
+      Map<String, Entry> setResults = results.get(sequenceSetId);
+      if (setResults == null)
+      {
+        setResults = new HashMap<>();
+        results.put(sequenceSetId, setResults);
+      }
+      entry = setResults.get(calcName);
+      if (entry == null || !entry.key.equals(key))
+      {
+        entry = new Entry(key, new FutureTask<Object>(new Callable<Object>()
+        {
+          @Override
+          public Object call() throws Exception
+          {
+            return calculation.call();
+          }
+        }));
+        setResults.put(calcName, entry);
+        calculate = true;
+      }
+    }
+
+    if (calculate)
+    {
+      entry.task.run();
+    }
+    try
+    {
+      return (T) entry.task.get();
+    } catch (ExecutionException e)
+    {
+      discard(sequenceSetId, calcName, entry);
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException)
+      {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error)
+      {
+        throw (Error) cause;
+      }
+      throw new RuntimeException(cause);
+    } catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      return call(calculation);
+    }
+  }
+
+  /**
+   * Removes all results for the sequence set, for example when a view of it is
+   * closed
+   * 
+   * @param sequenceSetId
+   */
+  public static void release(String sequenceSetId)
+  {
+    synchronized (results)
+    {
+      results.remove(sequenceSetId);
+    }
+  }
+
+  /**
+   * Removes the entry for a failed calculation, so that it is tried again next
+   * time it is asked for
+   * 
+   * @param sequenceSetId
+   * @param calcName
+   * @param entry
+   */
+  private static void discard(String sequenceSetId, String calcName,
+          Entry entry)
+  {
+    synchronized (results)
+    {
+      Map<String, Entry> setResults = results.get(sequenceSetId);
+      if (setResults != null && setResults.get(calcName) == entry)
+      {
+        setResults.remove(calcName);
+      }
+    }
+  }
+
+  /**
+   * Runs the calculation on this thread, rethrowing any unchecked exception
+   * 
+   * @param calculation
+   * @return
+   */
+  private static <T> T call(Callable<T> calculation)
+  {
+    try
+    {
+      return calculation.call();
+    } catch (RuntimeException e)
+    {
+      throw e;
+    } catch (Exception e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -30,6 +30,8 @@ import jalview.datamodel.ProfilesI;
 import jalview.datamodel.SequenceI;
 import jalview.renderer.ResidueShaderI;
 
+import java.util.concurrent.Callable;
+
 public class ConsensusThread extends AlignCalcWorker
 {
   public ConsensusThread(AlignViewportI alignViewport,
@@ -135,10 +137,26 @@ public class ConsensusThread extends AlignCalcWorker
   protected void computeConsensus(AlignmentI alignment)
   {
 
-    SequenceI[] aseqs = getSequences();
-    int width = alignment.getWidth();
-    ProfilesI hconsensus = AAFrequency.calculate(aseqs, width, 0, width,
-            true);
+    final SequenceI[] aseqs = getSequences();
+    final int width = alignment.getWidth();
+    final boolean saveFullProfiles = alignViewport.isSaveFullProfiles();
+
+    /*
+     * reuse the consensus calculated by another view of the alignment,
+     * if it was calculated from the same sequences
+     */
+    ProfilesI hconsensus = AlignCalcResultCache.getResult(
+            alignViewport.getSequenceSetId(), "Consensus",
+            new AlignCalcResultCache.Key(aseqs, width, saveFullProfiles),
+            new Callable<ProfilesI>()
+            {
+              @Override
+              public ProfilesI call()
+              {
+                return AAFrequency.calculate(aseqs, width, 0, width,
+                        saveFullProfiles);
+              }
+            });
 
     alignViewport.setSequenceConsensusHash(hconsensus);
     setColourSchemeConsensus(hconsensus);
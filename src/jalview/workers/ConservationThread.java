@@ -25,9 +25,12 @@ import jalview.api.AlignViewportI;
 import jalview.api.AlignmentViewPanel;
 import jalview.datamodel.AlignmentAnnotation;
 import jalview.datamodel.AlignmentI;
+import jalview.datamodel.SequenceI;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 public class ConservationThread extends AlignCalcWorker
 {
@@ -95,9 +98,29 @@ public class ConservationThread extends AlignCalcWorker
       }
       try
       {
-        cons = Conservation.calculateConservation("All",
-                alignment.getSequences(), 0, alWidth - 1, false,
-                ConsPercGaps, quality != null);
+        final SequenceI[] arr = alignment.getSequencesArray();
+        final int width = alWidth;
+        final int percGaps = ConsPercGaps;
+        final boolean calcQuality = quality != null;
+
+        /*
+         * reuse the conservation calculated by another view of the
+         * alignment, if it was calculated from the same sequences
+         */
+        cons = AlignCalcResultCache.getResult(
+                alignViewport.getSequenceSetId(), "Conservation",
+                new AlignCalcResultCache.Key(arr, width, percGaps,
+                        calcQuality),
+                new Callable<Conservation>()
+                {
+                  @Override
+                  public Conservation call()
+                  {
+                    return Conservation.calculateConservation("All",
+                            Arrays.asList(arr), 0, width - 1, false,
+                            percGaps, calcQuality);
+                  }
+                });
       } catch (IndexOutOfBoundsException x)
       {
         // probable race condition. just finish and return without any fuss.
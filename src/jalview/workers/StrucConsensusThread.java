@@ -27,8 +27,9 @@ import jalview.datamodel.AlignmentAnnotation;
 import jalview.datamodel.AlignmentI;
 import jalview.datamodel.Annotation;
 import jalview.datamodel.SequenceI;
+import jalview.datamodel.StructureProfiles;
 
-import java.util.Hashtable;
+import java.util.concurrent.Callable;
 
 public class StrucConsensusThread extends AlignCalcWorker
 {
@@ -40,7 +41,7 @@ public class StrucConsensusThread extends AlignCalcWorker
 
   AlignmentAnnotation strucConsensus;
 
-  Hashtable[] hStrucConsensus;
+  StructureProfiles hStrucConsensus;
 
   private long nseq = -1;
 
@@ -84,12 +85,9 @@ public class StrucConsensusThread extends AlignCalcWorker
         return;
       }
       strucConsensus = alignViewport.getAlignmentStrucConsensusAnnotation();
-      hStrucConsensus = alignViewport.getRnaStructureConsensusHash();
       strucConsensus.annotations = null;
       strucConsensus.annotations = new Annotation[aWidth];
 
-      hStrucConsensus = new Hashtable[aWidth];
-
       AlignmentAnnotation[] aa = alignViewport.getAlignment()
               .getAlignmentAnnotation();
       AlignmentAnnotation rnaStruc = null;
@@ -116,9 +114,31 @@ public class StrucConsensusThread extends AlignCalcWorker
       try
       {
         final SequenceI[] arr = alignment.getSequencesArray();
+        final int width = aWidth;
+        final AlignmentAnnotation structure = rnaStruc;
         nseq = arr.length;
-        jalview.analysis.StructureFrequency.calculate(arr, 0,
-                alignment.getWidth(), hStrucConsensus, true, rnaStruc);
+
+        /*
+         * reuse the structure consensus calculated by another view of the
+         * alignment, if it was calculated from the same sequences and
+         * secondary structure
+         */
+        hStrucConsensus = AlignCalcResultCache.getResult(
+                alignViewport.getSequenceSetId(), "StrucConsensus",
+                new AlignCalcResultCache.Key(arr, width, structure,
+                        structure.getRNAStruc()),
+                new Callable<StructureProfiles>()
+                {
+                  @Override
+                  public StructureProfiles call()
+                  {
+                    StructureProfiles profiles = new StructureProfiles(
+                            width, arr.length, true);
+                    StructureFrequency.calculate(arr, 0, width, profiles,
+                            structure);
+                    return profiles;
+                  }
+                });
       } catch (ArrayIndexOutOfBoundsException x)
       {
         calcMan.workerComplete(this);
@@ -161,7 +181,7 @@ public class StrucConsensusThread extends AlignCalcWorker
             && hStrucConsensus != null)
     {
       StructureFrequency.completeConsensus(strucConsensus, hStrucConsensus,
-              0, hStrucConsensus.length,
+              0, hStrucConsensus.getWidth(),
               alignViewport.isIgnoreGapsConsensus(),
               alignViewport.isShowSequenceLogo(), nseq);
     }
@@ -29,12 +29,15 @@ import jalview.datamodel.SequenceI;
 import jalview.gui.AlignFrame;
 import jalview.gui.WebserviceInfo;
 import jalview.util.MessageManager;
+import jalview.util.Platform;
 import jalview.viewmodel.seqfeatures.FeatureRendererSettings;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public abstract class AWSThread extends Thread
+        implements WSJobPoller.ClientI
 {
 
   /**
@@ -96,102 +99,147 @@ public abstract class AWSThread extends Thread
   private AlignFrame alignFrame;
 
   /**
-   * generic web service job/subjob poll loop
+   * Submits the jobs to be started and polled by the shared job poller, which
+   * calls back to <code>pollJobs</code> until all are complete, so no thread is
+   * blocked waiting for results. In JalviewJS, polls in this thread.
    */
   @Override
   public void run()
   {
-    JobStateSummary jstate = null;
     if (jobs == null)
     {
       jobComplete = true;
     }
-    while (!jobComplete)
+    if (jobComplete)
     {
-      jstate = new JobStateSummary();
-      for (int j = 0; j < jobs.length; j++)
+      finish();
+      return;
+    }
+    if (!Platform.isJS())
+    {
+      WSJobPoller.getInstance().submit(this, jobs);
+      return;
+    }
+    List<AWsJob> all = Arrays.asList(jobs);
+    while (!pollJobs(all))
+    {
+      try
+      {
+        Thread.sleep(5000);
+      } catch (InterruptedException e)
       {
+        Console.debug("Interrupted sleep waiting for next job poll.", e);
+      }
+    }
+  }
 
-        if (!jobs[j].submitted && jobs[j].hasValidInput())
-        {
-          StartJob(jobs[j]);
-        }
+  /**
+   * generic web service job/subjob poll step: starts any of the due jobs not
+   * yet submitted, polls those submitted, and updates the status of the whole
+   * set of jobs. When all jobs are complete, the results are processed.
+   *
+   * @param due
+   *          the jobs due a poll
+   * @return true if all jobs are complete
+   */
+  @Override
+  public boolean pollJobs(List<AWsJob> due)
+  {
+    for (AWsJob job : due)
+    {
+      if (!job.submitted && job.hasValidInput())
+      {
+        StartJob(job);
+      }
 
-        if (jobs[j].submitted && !jobs[j].subjobComplete)
+      if (job.submitted && !job.subjobComplete)
+      {
+        try
         {
-          try
+          pollJob(job);
+          if (!job.hasResponse())
           {
-            pollJob(jobs[j]);
-            if (!jobs[j].hasResponse())
-            {
-              throw (new Exception(
-                      "Timed out when communicating with server\nTry again later.\n"));
-            }
-            Console.debug("Job " + j + " Result state " + jobs[j].getState()
-                    + "(ServerError=" + jobs[j].isServerError() + ")");
-          } catch (Exception ex)
+            throw (new Exception(
+                    "Timed out when communicating with server\nTry again later.\n"));
+          }
+          Console.debug("Job " + job.jobnum + " Result state "
+                  + job.getState() + "(ServerError="
+                  + job.isServerError() + ")");
+        } catch (Exception ex)
+        {
+          // Deal with Transaction exceptions
+          wsInfo.appendProgressText(job.jobnum, MessageManager
+                  .formatMessage("info.server_exception", new Object[]
+                  { WebServiceName, ex.getMessage() }));
+          // always output the exception's stack trace to the log
+          Console.warn(WebServiceName + " job(" + job.jobnum
+                  + ") Server exception.");
+          // todo: could limit trace to cause if this is a SOAPFaultException.
+          ex.printStackTrace();
+
+          if (job.allowedServerExceptions > 0)
           {
-            // Deal with Transaction exceptions
-            wsInfo.appendProgressText(jobs[j].jobnum, MessageManager
-                    .formatMessage("info.server_exception", new Object[]
-                    { WebServiceName, ex.getMessage() }));
-            // always output the exception's stack trace to the log
-            Console.warn(WebServiceName + " job(" + jobs[j].jobnum
-                    + ") Server exception.");
-            // todo: could limit trace to cause if this is a SOAPFaultException.
-            ex.printStackTrace();
-
-            if (jobs[j].allowedServerExceptions > 0)
-            {
-              jobs[j].allowedServerExceptions--;
-              Console.debug("Sleeping after a server exception.");
-              try
-              {
-                Thread.sleep(5000);
-              } catch (InterruptedException ex1)
-              {
-              }
-            }
-            else
-            {
-              Console.warn("Dropping job " + j + " " + jobs[j].jobId);
-              jobs[j].subjobComplete = true;
-              wsInfo.setStatus(jobs[j].jobnum,
-                      WebserviceInfo.STATE_STOPPED_SERVERERROR);
-            }
-          } catch (OutOfMemoryError er)
+            // the poller backs off before polling this job again
+            job.allowedServerExceptions--;
+          }
+          else
           {
-            jobComplete = true;
-            jobs[j].subjobComplete = true;
-            jobs[j].clearResponse(); // may contain out of date result data
-            wsInfo.setStatus(jobs[j].jobnum,
-                    WebserviceInfo.STATE_STOPPED_ERROR);
-            Console.error("Out of memory when retrieving Job " + j + " id:"
-                    + WsUrl + "/" + jobs[j].jobId, er);
-            new jalview.gui.OOMWarning(
-                    "retrieving result for " + WebServiceName, er);
-            System.gc();
+            Console.warn("Dropping job " + job.jobnum + " " + job.jobId);
+            job.subjobComplete = true;
+            wsInfo.setStatus(job.jobnum,
+                    WebserviceInfo.STATE_STOPPED_SERVERERROR);
           }
+        } catch (OutOfMemoryError er)
+        {
+          jobComplete = true;
+          job.subjobComplete = true;
+          job.clearResponse(); // may contain out of date result data
+          wsInfo.setStatus(job.jobnum, WebserviceInfo.STATE_STOPPED_ERROR);
+          Console.error("Out of memory when retrieving Job " + job.jobnum
+                  + " id:" + WsUrl + "/" + job.jobId, er);
+          new jalview.gui.OOMWarning(
+                  "retrieving result for " + WebServiceName, er);
+          System.gc();
         }
-        jstate.updateJobPanelState(wsInfo, OutputHeader, jobs[j]);
       }
-      // Decide on overall state based on collected jobs[] states
-      updateGlobalStatus(jstate);
-      if (!jobComplete)
+    }
+
+    JobStateSummary jstate = new JobStateSummary();
+    for (int j = 0; j < jobs.length; j++)
+    {
+      jstate.updateJobPanelState(wsInfo, OutputHeader, jobs[j]);
+    }
+    // Decide on overall state based on collected jobs[] states
+    updateGlobalStatus(jstate);
+    if (jobComplete && !Platform.isJS())
+    {
+      /*
+       * results may take a while to collect, so don't hold up the poller
+       */
+      new Thread(new Runnable()
       {
-        try
+        @Override
+        public void run()
         {
-          Thread.sleep(5000);
-        } catch (InterruptedException e)
-        {
-          Console.debug("Interrupted sleep waiting for next job poll.", e);
+          finish();
         }
-        // System.out.println("I'm alive "+alTitle);
-      }
+      }, getName()).start();
     }
-    if (jobComplete && jobs != null)
+    else if (jobComplete)
+    {
+      finish();
+    }
+    return jobComplete;
+  }
+
+  /**
+   * tidy up and make results available to user
+   */
+  private void finish()
+  {
+    if (jobs != null)
     {
-      parseResult(); // tidy up and make results available to user
+      parseResult();
     }
     else
     {
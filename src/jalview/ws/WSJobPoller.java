@@ -0,0 +1,351 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.ws;
+
+import jalview.bin.Cache;
+import jalview.util.ThreadPools;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A scheduler that polls the outstanding jobs of all web service clients from
+ * a small shared pool of threads, rather than each client sleeping in its own
+ * polling loop.
+ * <p>
+ * Each job is polled with an adaptive backoff: the interval between polls
+ * starts at a minimum, doubles each time a poll finds the job's state
+ * unchanged, up to a maximum, and drops back to the minimum when the state
+ * changes. All of a client's jobs that are due are passed to the client in one
+ * call, so that services able to query the status of several jobs in one
+ * request may do so. Listeners are notified of job state changes, and when
+ * each client has finished.
+ */
+public class WSJobPoller
+{
+  /**
+   * A client with jobs to be polled
+   */
+  public interface ClientI
+  {
+    /**
+     * Polls the given jobs, which are all due a status query. Jobs which are
+     * not yet submitted may be submitted. Called on a poller thread, and never
+     * concurrently for the same client.
+     *
+     * @param due
+     * @return true if polling is finished for all of the client's jobs
+     */
+    boolean pollJobs(List<AWsJob> due);
+  }
+
+  /**
+   * A listener for changes to the state of polled jobs
+   */
+  public interface JobListenerI
+  {
+    /**
+     * Notifies that a poll found a change in the state of a job
+     *
+     * @param client
+     * @param job
+     */
+    void jobStateChanged(ClientI client, AWsJob job);
+
+    /**
+     * Notifies that a client has finished and will not be polled again
+     *
+     * @param client
+     */
+    void clientFinished(ClientI client);
+  }
+
+  /**
+   * property key for the minimum interval between polls of a job in
+   * milliseconds
+   */
+  public static final String WS_POLL_MIN_INTERVAL = "WS_POLL_MIN_INTERVAL";
+
+  /**
+   * property key for the maximum interval between polls of a job in
+   * milliseconds
+   */
+  public static final String WS_POLL_MAX_INTERVAL = "WS_POLL_MAX_INTERVAL";
+
+  private static final int DEFAULT_MIN_INTERVAL = 500;
+
+  private static final int DEFAULT_MAX_INTERVAL = 15000;
+
+  private static WSJobPoller instance;
+
+  /*
+   * polling schedule of each job being tracked
+   */
+  private class JobTimer
+  {
+    final AWsJob job;
+
+    String state;
+
+    volatile long interval = minInterval;
+
+    long due;
+
+    JobTimer(AWsJob job, long now)
+    {
+      this.job = job;
+      this.state = job.getState();
+      this.due = now;
+    }
+  }
+
+  /*
+   * the jobs being tracked for each client
+   */
+  private final Map<ClientI, List<JobTimer>> clients = new IdentityHashMap<>();
+
+  private final List<JobListenerI> listeners = new CopyOnWriteArrayList<>();
+
+  private final long minInterval;
+
+  private final long maxInterval;
+
+  /**
+   * Answers the poller shared by all web service clients
+   *
+   * @return
+   */
+  public static synchronized WSJobPoller getInstance()
+  {
+    if (instance == null)
+    {
+      instance = new WSJobPoller(
+              Cache.getDefault(WS_POLL_MIN_INTERVAL, DEFAULT_MIN_INTERVAL),
+              Cache.getDefault(WS_POLL_MAX_INTERVAL, DEFAULT_MAX_INTERVAL));
+    }
+    return instance;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param minInterval
+   *          milliseconds between polls of a job after a change of state
+   * @param maxInterval
+   *          the most milliseconds between polls of a job
+   */
+  public WSJobPoller(long minInterval, long maxInterval)
+  {
+    this.minInterval = Math.max(1L, minInterval);
+    this.maxInterval = Math.max(this.minInterval, maxInterval);
+  }
+
+  public void addListener(JobListenerI listener)
+  {
+    listeners.add(listener);
+  }
+
+  public void removeListener(JobListenerI listener)
+  {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Starts polling the jobs of a client. The first poll is made immediately,
+   * and thereafter until the client's pollJobs method answers true.
+   *
+   * @param client
+   * @param jobs
+   */
+  public void submit(ClientI client, AWsJob[] jobs)
+  {
+    long now = System.currentTimeMillis();
+    List<JobTimer> timers = new ArrayList<>();
+    for (AWsJob job : jobs)
+    {
+      timers.add(new JobTimer(job, now));
+    }
+    synchronized (clients)
+    {
+      clients.put(client, timers);
+    }
+    schedule(client, 0L);
+  }
+
+  /**
+   * Answers the number of clients with jobs still being polled
+   *
+   * @return
+   */
+  public int getClientCount()
+  {
+    synchronized (clients)
+    {
+      return clients.size();
+    }
+  }
+
+  /**
+   * Answers the current interval between polls of a job, or -1 if the job is
+   * not being tracked
+   *
+   * @param job
+   * @return
+   */
+  public long getPollInterval(AWsJob job)
+  {
+    synchronized (clients)
+    {
+      for (List<JobTimer> timers : clients.values())
+      {
+        for (JobTimer timer : timers)
+        {
+          if (timer.job == job)
+          {
+            return timer.interval;
+          }
+        }
+      }
+    }
+    return -1L;
+  }
+
+  /**
+   * Schedules a poll of the client after the given delay. The (network bound)
+   * poll itself is run on the shared I/O pool, so that slow services don't
+   * hold up other scheduled tasks.
+   *
+   * @param client
+   * @param delay
+   */
+  private void schedule(final ClientI client, long delay)
+  {
+    final Runnable poller = new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        poll(client);
+      }
+    };
+    ThreadPools.getScheduler().schedule(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        ThreadPools.getIOPool().execute(poller);
+      }
+    }, delay, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Polls those of a client's outstanding jobs that are due, adjusts their
+   * poll intervals, and schedules the next poll of the client (unless it has
+   * finished)
+   *
+   * @param client
+   */
+  void poll(ClientI client)
+  {
+    List<JobTimer> timers;
+    synchronized (clients)
+    {
+      timers = clients.get(client);
+    }
+    if (timers == null)
+    {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    List<AWsJob> due = new ArrayList<>();
+    List<JobTimer> polled = new ArrayList<>();
+    for (JobTimer timer : timers)
+    {
+      if (timer.due <= now && !timer.job.isSubjobComplete())
+      {
+        due.add(timer.job);
+        polled.add(timer);
+      }
+    }
+
+    boolean finished;
+    try
+    {
+      finished = client.pollJobs(due);
+    } catch (RuntimeException e)
+    {
+      System.err.println("Exception polling web service jobs: " + e);
+      e.printStackTrace();
+      finished = false;
+    }
+
+    now = System.currentTimeMillis();
+    for (JobTimer timer : polled)
+    {
+      String state = timer.job.getState();
+      if (state == null ? timer.state != null : !state.equals(timer.state))
+      {
+        timer.state = state;
+        timer.interval = minInterval;
+        for (JobListenerI listener : listeners)
+        {
+          listener.jobStateChanged(client, timer.job);
+        }
+      }
+      else
+      {
+        timer.interval = Math.min(maxInterval, timer.interval * 2);
+      }
+      timer.due = now + timer.interval;
+    }
+
+    if (finished)
+    {
+      synchronized (clients)
+      {
+        clients.remove(client);
+      }
+      for (JobListenerI listener : listeners)
+      {
+        listener.clientFinished(client);
+      }
+      return;
+    }
+
+    /*
+     * poll again when the next outstanding job is due (or after the
+     * longest interval if no job is outstanding)
+     */
+    long next = now + maxInterval;
+    for (JobTimer timer : timers)
+    {
+      if (!timer.job.isSubjobComplete())
+      {
+        next = Math.min(next, timer.due);
+      }
+    }
+    schedule(client, Math.max(0L, next - now));
+  }
+}
@@ -159,7 +159,8 @@ public class EBIAlfaFold extends EbiFileRetrievedProxy
     try
     {
       File tmpFile = File.createTempFile(id, ".cif");
-      UrlDownloadClient.download(alphaFoldCif, tmpFile);
+      UrlDownloadClient.download(getDbSource(), alphaFoldCif,
+              alphaFoldCif, tmpFile);
 
       // may not need this check ?
       file = tmpFile.getAbsolutePath();
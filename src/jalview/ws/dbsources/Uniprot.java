@@ -34,6 +34,7 @@ import jalview.datamodel.SequenceI;
 import jalview.schemes.ResidueProperties;
 import jalview.util.StringUtils;
 import jalview.ws.seqfetcher.DbSourceProxyImpl;
+import jalview.ws.utils.ResponseCache;
 import jalview.xml.binding.uniprot.DbReferenceType;
 import jalview.xml.binding.uniprot.Entry;
 import jalview.xml.binding.uniprot.FeatureType;
@@ -41,6 +42,9 @@ import jalview.xml.binding.uniprot.LocationType;
 import jalview.xml.binding.uniprot.PositionType;
 import jalview.xml.binding.uniprot.PropertyType;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
@@ -146,15 +150,18 @@ public class Uniprot extends DbSourceProxyImpl
 
       String downloadstring = getDomain() + "/uniprot/" + queries + ".xml";
 
-      URL url = new URL(downloadstring);
-      HttpURLConnection urlconn = (HttpURLConnection) url.openConnection();
-      // anything other than 200 means we don't have data
-      // TODO: JAL-3882 reuse the EnsemblRestClient's fair
-      // use/backoff logic to retry when the server tells us to go away
-      if (urlconn.getResponseCode() == 200)
+      InputStream istr = openResponse(queries, downloadstring);
+      // null means we don't have data
+      if (istr != null)
       {
-        InputStream istr = urlconn.getInputStream();
-        List<Entry> entries = getUniprotEntries(istr);
+        List<Entry> entries;
+        try
+        {
+          entries = getUniprotEntries(istr);
+        } finally
+        {
+          istr.close();
+        }
         if (entries != null)
         {
           List<SequenceI> seqs = new ArrayList<>();
@@ -177,6 +184,44 @@ public class Uniprot extends DbSourceProxyImpl
     }
   }
 
+  /**
+   * Answers a stream of the Uniprot XML for the query, from the local response
+   * cache if it is enabled, else from the server; or null if there is no data
+   * 
+   * @param queries
+   * @param downloadstring
+   * @return
+   * @throws IOException
+   */
+  private InputStream openResponse(String queries, String downloadstring)
+          throws IOException
+  {
+    ResponseCache cache = ResponseCache.getInstance();
+    if (cache != null)
+    {
+      File cached = cache.getFile(getDbSource(), downloadstring,
+              downloadstring);
+      if (cached == null)
+      {
+        return null;
+      }
+      try
+      {
+        return new FileInputStream(cached);
+      } finally
+      {
+        cache.release(cached);
+      }
+    }
+    URL url = new URL(downloadstring);
+    HttpURLConnection urlconn = (HttpURLConnection) url.openConnection();
+    // anything other than 200 means we don't have data
+    // TODO: JAL-3882 reuse the EnsemblRestClient's fair
+    // use/backoff logic to retry when the server tells us to go away
+    return urlconn.getResponseCode() == 200 ? urlconn.getInputStream()
+            : null;
+  }
+
   /**
    * Converts an Entry object (bound from Uniprot XML) to a Jalview Sequence
    * 
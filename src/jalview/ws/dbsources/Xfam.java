@@ -20,6 +20,8 @@
  */
 package jalview.ws.dbsources;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Locale;
 
 import jalview.bin.Console;
@@ -29,6 +31,7 @@ import jalview.io.DataSourceType;
 import jalview.io.FileFormat;
 import jalview.io.FormatAdapter;
 import jalview.ws.seqfetcher.DbSourceProxyImpl;
+import jalview.ws.utils.ResponseCache;
 
 /**
  * Acts as a superclass for the Rfam and Pfam classes
@@ -67,8 +70,33 @@ public abstract class Xfam extends DbSourceProxyImpl
 
     Console.debug("XFAM URL for retrieval is: " + xfamUrl);
 
-    AlignmentI rcds = new FormatAdapter().readFile(xfamUrl,
-            DataSourceType.URL, FileFormat.Stockholm);
+    /*
+     * read from the local response cache if it is enabled
+     */
+    ResponseCache cache = ResponseCache.getInstance();
+    File cached = cache == null ? null
+            : cache.getFile(getDbSource(), xfamUrl, xfamUrl);
+    if (cache != null && cached == null)
+    {
+      throw new IOException("No data found at " + xfamUrl);
+    }
+    AlignmentI rcds;
+    if (cached == null)
+    {
+      rcds = new FormatAdapter().readFile(xfamUrl, DataSourceType.URL,
+              FileFormat.Stockholm);
+    }
+    else
+    {
+      try
+      {
+        rcds = new FormatAdapter().readFile(cached.getPath(),
+                DataSourceType.FILE, FileFormat.Stockholm);
+      } finally
+      {
+        cache.release(cached);
+      }
+    }
 
     for (int s = 0, sNum = rcds.getHeight(); s < sNum; s++)
     {
@@ -25,6 +25,7 @@ import java.util.Locale;
 import jalview.datamodel.DBRefSource;
 import jalview.util.MessageManager;
 import jalview.util.Platform;
+import jalview.ws.utils.ResponseCache;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -33,6 +34,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.StringTokenizer;
@@ -207,6 +210,27 @@ public class EBIFetchClient
     BufferedReader br = null;
     try
     {
+      ResponseCache cache = outFile == null ? null
+              : ResponseCache.getInstance();
+      if (cache != null)
+      {
+        /*
+         * copy from (or via) the local response cache
+         */
+        File cached = cache.getFile(database, url, url);
+        if (cached != null)
+        {
+          try
+          {
+            Files.copy(cached.toPath(), outFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+          } finally
+          {
+            cache.release(cached);
+          }
+        }
+        return null;
+      }
       URL rcall = new URL(url);
       HttpURLConnection conn = (HttpURLConnection) rcall.openConnection();
       int responseCode = conn.getResponseCode();
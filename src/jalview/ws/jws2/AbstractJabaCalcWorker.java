@@ -54,6 +54,12 @@ import compbio.metadata.ResultNotAvailableException;
 
 public abstract class AbstractJabaCalcWorker extends AlignCalcWorker
 {
+  /*
+   * bounds (in milliseconds) of the interval between job status queries
+   */
+  private static final long MIN_POLL_INTERVAL = 100L;
+
+  private static final long MAX_POLL_INTERVAL = 5000L;
 
   protected Jws2Instance service;
 
@@ -244,6 +250,7 @@ public abstract class AbstractJabaCalcWorker extends AlignCalcWorker
       }
       boolean finished = false;
       long rpos = 0;
+      long pollInterval = MIN_POLL_INTERVAL;
       do
       {
         JobStatus status = getJobStatus(rslt);
@@ -273,6 +280,7 @@ public abstract class AbstractJabaCalcWorker extends AlignCalcWorker
           rslt = "CANCELLED JOB";
           return;
         }
+        long polledFrom = rpos;
         long cpos;
         ChunkHolder stats = null;
         do
@@ -324,11 +332,16 @@ public abstract class AbstractJabaCalcWorker extends AlignCalcWorker
           }
         } while (stats != null && rpos > cpos);
 
-        if (!finished && status.equals(JobStatus.FAILED))
+        if (!finished)
         {
+          /*
+           * back off between status queries while the job makes no progress
+           */
+          pollInterval = rpos > polledFrom ? MIN_POLL_INTERVAL
+                  : Math.min(MAX_POLL_INTERVAL, pollInterval * 2);
           try
           {
-            Thread.sleep(200);
+            Thread.sleep(pollInterval);
           } catch (InterruptedException x)
           {
           }
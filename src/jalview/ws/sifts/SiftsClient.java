@@ -23,7 +23,6 @@ package jalview.ws.sifts;
 import java.util.Locale;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -42,15 +41,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.TreeMap;
-import java.util.zip.GZIPInputStream;
-
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBElement;
-import javax.xml.bind.Unmarshaller;
-import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.XMLStreamReader;
 
 import jalview.analysis.AlignSeq;
 import jalview.analysis.scoremodels.ScoreMatrix;
@@ -68,13 +59,6 @@ import jalview.util.Comparison;
 import jalview.util.DBRefUtils;
 import jalview.util.Format;
 import jalview.util.Platform;
-import jalview.xml.binding.sifts.Entry;
-import jalview.xml.binding.sifts.Entry.Entity;
-import jalview.xml.binding.sifts.Entry.Entity.Segment;
-import jalview.xml.binding.sifts.Entry.Entity.Segment.ListMapRegion.MapRegion;
-import jalview.xml.binding.sifts.Entry.Entity.Segment.ListResidue.Residue;
-import jalview.xml.binding.sifts.Entry.Entity.Segment.ListResidue.Residue.CrossRefDb;
-import jalview.xml.binding.sifts.Entry.Entity.Segment.ListResidue.Residue.ResidueDetail;
 import mc_view.Atom;
 import mc_view.PDBChain;
 
@@ -86,7 +70,7 @@ public class SiftsClient implements SiftsClientI
    */
   private static File mockSiftsFile;
 
-  private Entry siftsEntry;
+  private SiftsIndex siftsEntry;
 
   private StructureFile pdb;
 
@@ -114,8 +98,6 @@ public class SiftsClient implements SiftsClientI
 
   private static final int PDBE_POS = 2;
 
-  private static final String NOT_OBSERVED = "Not_Observed";
-
   private static final String SIFTS_FTP_BASE_URL = "http://ftp.ebi.ac.uk/pub/databases/msd/sifts/xml/";
 
   private final static String NEWLINE = System.lineSeparator();
@@ -141,24 +123,6 @@ public class SiftsClient implements SiftsClientI
     }
   };
 
-  private enum ResidueDetailType
-  {
-    NAME_SEC_STRUCTURE("nameSecondaryStructure"),
-    CODE_SEC_STRUCTURE("codeSecondaryStructure"), ANNOTATION("Annotation");
-
-    private String code;
-
-    private ResidueDetailType(String code)
-    {
-      this.code = code;
-    }
-
-    public String getCode()
-    {
-      return code;
-    }
-  };
-
   /**
    * Fetch SIFTs file for the given PDBfile and construct an instance of
    * SiftsClient
@@ -175,31 +139,20 @@ public class SiftsClient implements SiftsClientI
   }
 
   /**
-   * Parse the given SIFTs File and return a JAXB POJO of parsed data
+   * Read the mapping content of the given SIFTs File, from its saved index if
+   * up to date, else by streaming through the XML (and saving the index next
+   * to downloaded files)
    * 
    * @param siftFile
    *          - the GZipped SIFTs XML file to parse
    * @return
-   * @throws Exception
+   * @throws SiftsException
    *           if a problem occurs while parsing the SIFTs XML
    */
-  private Entry parseSIFTs(File siftFile) throws SiftsException
+  private SiftsIndex parseSIFTs(File siftFile) throws SiftsException
   {
-    try (InputStream in = new FileInputStream(siftFile);
-            GZIPInputStream gzis = new GZIPInputStream(in);)
-    {
-      // System.out.println("File : " + siftFile.getAbsolutePath());
-      JAXBContext jc = JAXBContext.newInstance("jalview.xml.binding.sifts");
-      XMLStreamReader streamReader = XMLInputFactory.newInstance()
-              .createXMLStreamReader(gzis);
-      Unmarshaller um = jc.createUnmarshaller();
-      JAXBElement<Entry> jbe = um.unmarshal(streamReader, Entry.class);
-      return jbe.getValue();
-    } catch (Exception e)
-    {
-      e.printStackTrace();
-      throw new SiftsException(e.getMessage());
-    }
+    return SiftsIndex.load(siftFile,
+            mockSiftsFile == null && !Platform.isJS());
   }
 
   /**
@@ -359,6 +312,7 @@ public class SiftsClient implements SiftsClientI
   {
     File siftsFile = new File(SiftsSettings.getSiftDownloadDirectory()
             + pdbId.toLowerCase(Locale.ROOT) + ".xml.gz");
+    SiftsIndex.getIndexFile(siftsFile).delete();
     if (siftsFile.exists())
     {
       return siftsFile.delete();
@@ -421,23 +375,7 @@ public class SiftsClient implements SiftsClientI
   @Override
   public HashSet<String> getAllMappingAccession()
   {
-    HashSet<String> accessions = new HashSet<String>();
-    List<Entity> entities = siftsEntry.getEntity();
-    for (Entity entity : entities)
-    {
-      List<Segment> segments = entity.getSegment();
-      for (Segment segment : segments)
-      {
-        List<MapRegion> mapRegions = segment.getListMapRegion()
-                .getMapRegion();
-        for (MapRegion mapRegion : mapRegions)
-        {
-          accessions.add(mapRegion.getDb().getDbAccessionId()
-                  .toLowerCase(Locale.ROOT));
-        }
-      }
-    }
-    return accessions;
+    return new HashSet<String>(siftsEntry.getMappingAccessions());
   }
 
   @Override
@@ -484,8 +422,7 @@ public class SiftsClient implements SiftsClientI
     List<Integer> omitNonObserved = new ArrayList<>();
     int nonObservedShiftIndex = 0, pdbeNonObserved = 0;
     // System.out.println("Generating mappings for : " + entityId);
-    Entity entity = null;
-    entity = getEntityById(entityId);
+    SiftsIndex.Entity entity = getEntityById(entityId);
     String originalSeq = AlignSeq.extractGaps(
             jalview.util.Comparison.GapChars, seq.getSequenceAsString());
     HashMap<Integer, int[]> mapping = new HashMap<Integer, int[]>();
@@ -513,10 +450,9 @@ public class SiftsClient implements SiftsClientI
     curSourceDBRef = sourceDBRef.getAccessionId();
 
     TreeMap<Integer, String> resNumMap = new TreeMap<Integer, String>();
-    List<Segment> segments = entity.getSegment();
     SegmentHelperPojo shp = new SegmentHelperPojo(seq, mapping, resNumMap,
             omitNonObserved, nonObservedShiftIndex, pdbeNonObserved);
-    processSegments(segments, shp);
+    processSegments(entity, shp);
     try
     {
       populateAtomPositions(entityId, mapping);
@@ -642,7 +578,7 @@ public class SiftsClient implements SiftsClientI
     return mapping;
   }
 
-  void processSegments(List<Segment> segments, SegmentHelperPojo shp)
+  void processSegments(SiftsIndex.Entity entity, SegmentHelperPojo shp)
   {
     SequenceI seq = shp.getSeq();
     HashMap<Integer, int[]> mapping = shp.getMapping();
@@ -651,108 +587,93 @@ public class SiftsClient implements SiftsClientI
     int nonObservedShiftIndex = shp.getNonObservedShiftIndex();
     int pdbeNonObservedCount = shp.getPdbeNonObserved();
     int firstPDBResNum = UNASSIGNED;
-    for (Segment segment : segments)
+    String coordSysName = seqCoordSys.getName();
+    for (int r = 0, n = entity.getResidueCount(); r < n; r++)
     {
-      // System.out.println("Mapping segments : " + segment.getSegId() + "\\"s
-      // + segStartEnd);
-      List<Residue> residues = segment.getListResidue().getResidue();
-      for (Residue residue : residues)
+      boolean isObserved = entity.observed[r];
+      int pdbeIndex = entity.resNum[r];
+      int currSeqIndex = UNASSIGNED;
+      int pdbRefDb = -1;
+      for (int c = entity.refStart[r]; c < entity.refStart[r + 1]; c++)
       {
-        boolean isObserved = isResidueObserved(residue);
-        int pdbeIndex = getLeadingIntegerValue(residue.getDbResNum(),
-                UNASSIGNED);
-        int currSeqIndex = UNASSIGNED;
-        List<CrossRefDb> cRefDbs = residue.getCrossRefDb();
-        CrossRefDb pdbRefDb = null;
-        for (CrossRefDb cRefDb : cRefDbs)
+        if (DBRefSource.PDB.equalsIgnoreCase(
+                siftsEntry.getString(entity.refSource[c])))
         {
-          if (cRefDb.getDbSource().equalsIgnoreCase(DBRefSource.PDB))
+          pdbRefDb = c;
+          if (firstPDBResNum == UNASSIGNED)
           {
-            pdbRefDb = cRefDb;
-            if (firstPDBResNum == UNASSIGNED)
-            {
-              firstPDBResNum = getLeadingIntegerValue(cRefDb.getDbResNum(),
-                      UNASSIGNED);
-            }
-            else
-            {
-              if (isObserved)
-              {
-                // after we find the first observed residue we just increment
-                firstPDBResNum++;
-              }
-            }
+            firstPDBResNum = entity.refResNum[c];
           }
-          if (cRefDb.getDbCoordSys().equalsIgnoreCase(seqCoordSys.getName())
-                  && isAccessionMatched(cRefDb.getDbAccessionId()))
+          else
           {
-            currSeqIndex = getLeadingIntegerValue(cRefDb.getDbResNum(),
-                    UNASSIGNED);
-            if (pdbRefDb != null)
+            if (isObserved)
             {
-              break;// exit loop if pdb and uniprot are already found
+              // after we find the first observed residue we just increment
+              firstPDBResNum++;
             }
           }
         }
-        if (!isObserved)
+        if (coordSysName.equalsIgnoreCase(
+                siftsEntry.getString(entity.refCoordSys[c]))
+                && isAccessionMatched(
+                        siftsEntry.getString(entity.refAccession[c])))
         {
-          ++pdbeNonObservedCount;
-        }
-        if (seqCoordSys == seqCoordSys.PDB) // FIXME: is seqCoordSys ever PDBe
-                                            // ???
-        {
-          // if the sequence has a primary reference to the PDB, then we are
-          // dealing with a sequence extracted directly from the PDB. In that
-          // case, numbering is PDBe - non-observed residues
-          currSeqIndex = seq.getStart() - 1 + pdbeIndex;
-        }
-        if (!isObserved)
-        {
-          if (seqCoordSys != CoordinateSys.UNIPROT) // FIXME: PDB or PDBe only
-                                                    // here
+          currSeqIndex = entity.refResNum[c];
+          if (pdbRefDb != -1)
           {
-            // mapping to PDB or PDBe so we need to bookkeep for the
-            // non-observed
-            // SEQRES positions
-            omitNonObserved.add(currSeqIndex);
-            ++nonObservedShiftIndex;
+            break;// exit loop if pdb and uniprot are already found
           }
         }
-        if (currSeqIndex == UNASSIGNED)
+      }
+      if (!isObserved)
+      {
+        ++pdbeNonObservedCount;
+      }
+      if (seqCoordSys == seqCoordSys.PDB) // FIXME: is seqCoordSys ever PDBe
+                                          // ???
+      {
+        // if the sequence has a primary reference to the PDB, then we are
+        // dealing with a sequence extracted directly from the PDB. In that
+        // case, numbering is PDBe - non-observed residues
+        currSeqIndex = seq.getStart() - 1 + pdbeIndex;
+      }
+      if (!isObserved)
+      {
+        if (seqCoordSys != CoordinateSys.UNIPROT) // FIXME: PDB or PDBe only
+                                                  // here
         {
-          // change in logic - unobserved residues with no currSeqIndex
-          // corresponding are still counted in both nonObservedShiftIndex and
-          // pdbeIndex...
-          continue;
+          // mapping to PDB or PDBe so we need to bookkeep for the
+          // non-observed
+          // SEQRES positions
+          omitNonObserved.add(currSeqIndex);
+          ++nonObservedShiftIndex;
         }
-        // if (currSeqIndex >= seq.getStart() && currSeqIndex <= seqlength) //
-        // true
-        // numbering
-        // is
-        // not
-        // up
-        // to
-        // seq.getEnd()
-        {
-
-          int resNum = (pdbRefDb == null)
-                  ? getLeadingIntegerValue(residue.getDbResNum(),
-                          UNASSIGNED)
-                  : getLeadingIntegerValue(pdbRefDb.getDbResNum(),
-                          UNASSIGNED);
+      }
+      if (currSeqIndex == UNASSIGNED)
+      {
+        // change in logic - unobserved residues with no currSeqIndex
+        // corresponding are still counted in both nonObservedShiftIndex and
+        // pdbeIndex...
+        continue;
+      }
+      // if (currSeqIndex >= seq.getStart() && currSeqIndex <= seqlength) //
+      // true numbering is not up to seq.getEnd()
+      {
+        int resNum = (pdbRefDb == -1) ? entity.resNum[r]
+                : entity.refResNum[pdbRefDb];
 
-          if (isObserved)
-          {
-            char resCharCode = ResidueProperties
-                    .getSingleCharacterCode(ResidueProperties
-                            .getCanonicalAminoAcid(residue.getDbResName()));
-            resNumMap.put(currSeqIndex, String.valueOf(resCharCode));
+        if (isObserved)
+        {
+          char resCharCode = ResidueProperties
+                  .getSingleCharacterCode(ResidueProperties
+                          .getCanonicalAminoAcid(siftsEntry
+                                  .getString(entity.resName[r])));
+          resNumMap.put(currSeqIndex, String.valueOf(resCharCode));
 
-            int[] mappingcols = new int[] { Integer.valueOf(resNum),
-                UNASSIGNED, isObserved ? firstPDBResNum : UNASSIGNED };
+          int[] mappingcols = new int[] { Integer.valueOf(resNum),
+              UNASSIGNED, isObserved ? firstPDBResNum : UNASSIGNED };
 
-            mapping.put(currSeqIndex - nonObservedShiftIndex, mappingcols);
-          }
+          mapping.put(currSeqIndex - nonObservedShiftIndex, mappingcols);
         }
       }
     }
@@ -844,52 +765,6 @@ public class SiftsClient implements SiftsClientI
     return UNASSIGNED;
   }
 
-  /**
-   * Checks if the residue instance is marked 'Not_observed' or not
-   * 
-   * @param residue
-   * @return
-   */
-  private boolean isResidueObserved(Residue residue)
-  {
-    Set<String> annotations = getResidueAnnotaitons(residue,
-            ResidueDetailType.ANNOTATION);
-    if (annotations == null || annotations.isEmpty())
-    {
-      return true;
-    }
-    for (String annotation : annotations)
-    {
-      if (annotation.equalsIgnoreCase(NOT_OBSERVED))
-      {
-        return false;
-      }
-    }
-    return true;
-  }
-
-  /**
-   * Get annotation String for a given residue and annotation type
-   * 
-   * @param residue
-   * @param type
-   * @return
-   */
-  private Set<String> getResidueAnnotaitons(Residue residue,
-          ResidueDetailType type)
-  {
-    HashSet<String> foundAnnotations = new HashSet<String>();
-    List<ResidueDetail> resDetails = residue.getResidueDetail();
-    for (ResidueDetail resDetail : resDetails)
-    {
-      if (resDetail.getProperty().equalsIgnoreCase(type.getCode()))
-      {
-        foundAnnotations.add(resDetail.getContent());
-      }
-    }
-    return foundAnnotations;
-  }
-
   @Override
   public boolean isAccessionMatched(String accession)
   {
@@ -901,9 +776,8 @@ public class SiftsClient implements SiftsClientI
 
   private boolean isFoundInSiftsEntry(String accessionId)
   {
-    Set<String> siftsDBRefs = getAllMappingAccession();
-    return accessionId != null
-            && siftsDBRefs.contains(accessionId.toLowerCase(Locale.ROOT));
+    return accessionId != null && siftsEntry.getMappingAccessions()
+            .contains(accessionId.toLowerCase(Locale.ROOT));
   }
 
   /**
@@ -934,11 +808,11 @@ public class SiftsClient implements SiftsClientI
   }
 
   @Override
-  public Entity getEntityById(String id) throws SiftsException
+  public SiftsIndex.Entity getEntityById(String id) throws SiftsException
   {
     // Determines an entity to process by performing a heuristic matching of all
     // Entities with the given chainId and choosing the best matching Entity
-    Entity entity = getEntityByMostOptimalMatchedId(id);
+    SiftsIndex.Entity entity = getEntityByMostOptimalMatchedId(id);
     if (entity != null)
     {
       return entity;
@@ -954,37 +828,31 @@ public class SiftsClient implements SiftsClientI
    * @param chainId
    * @return
    */
-  public Entity getEntityByMostOptimalMatchedId(String chainId)
+  public SiftsIndex.Entity getEntityByMostOptimalMatchedId(String chainId)
   {
     // System.out.println("---> advanced greedy entityId matching block
     // entered..");
-    List<Entity> entities = siftsEntry.getEntity();
-    SiftsEntitySortPojo[] sPojo = new SiftsEntitySortPojo[entities.size()];
+    SiftsIndex.Entity[] entities = siftsEntry.getEntities();
+    SiftsEntitySortPojo[] sPojo = new SiftsEntitySortPojo[entities.length];
     int count = 0;
-    for (Entity entity : entities)
+    for (SiftsIndex.Entity entity : entities)
     {
       sPojo[count] = new SiftsEntitySortPojo();
       sPojo[count].entityId = entity.getEntityId();
 
-      List<Segment> segments = entity.getSegment();
-      for (Segment segment : segments)
+      int refs = entity.refStart[entity.getResidueCount()];
+      for (int c = 0; c < refs; c++)
       {
-        List<Residue> residues = segment.getListResidue().getResidue();
-        for (Residue residue : residues)
+        if (!"PDB".equalsIgnoreCase(
+                siftsEntry.getString(entity.refSource[c])))
         {
-          List<CrossRefDb> cRefDbs = residue.getCrossRefDb();
-          for (CrossRefDb cRefDb : cRefDbs)
-          {
-            if (!cRefDb.getDbSource().equalsIgnoreCase("PDB"))
-            {
-              continue;
-            }
-            ++sPojo[count].resCount;
-            if (cRefDb.getDbChainId().equalsIgnoreCase(chainId))
-            {
-              ++sPojo[count].chainIdFreq;
-            }
-          }
+          continue;
+        }
+        ++sPojo[count].resCount;
+        if (siftsEntry.getString(entity.refChain[c])
+                .equalsIgnoreCase(chainId))
+        {
+          ++sPojo[count].chainIdFreq;
         }
       }
       sPojo[count].pid = (100 * sPojo[count].chainIdFreq)
@@ -1001,7 +869,7 @@ public class SiftsClient implements SiftsClientI
       {
         return null;
       }
-      for (Entity entity : entities)
+      for (SiftsIndex.Entity entity : entities)
       {
         if (!entity.getEntityId().equalsIgnoreCase(sPojo[0].entityId))
         {
@@ -1257,7 +1125,7 @@ public class SiftsClient implements SiftsClientI
   @Override
   public int getEntityCount()
   {
-    return siftsEntry.getEntity().size();
+    return siftsEntry.getEntities().length;
   }
 
   @Override
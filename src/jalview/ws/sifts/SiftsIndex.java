@@ -0,0 +1,650 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.ws.sifts;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The residue level content of a SIFTS entry that is needed to map sequences
+ * to structure, held in compact arrays. This is read from the gzipped SIFTS
+ * XML with a streaming (StAX) parser, skipping everything else, and saved as a
+ * small binary index file next to the SIFTS file, so that opening the same
+ * entry again only reads the index.
+ * <p>
+ * For each entity, residues are held in document order (across segments),
+ * with the PDBe residue number, residue name and Not_Observed status of each,
+ * and the residue's crossRefDb elements (source, coordinate system,
+ * accession, chain and leading integer of the residue number) in the order
+ * given. Attribute values are shared through a string table.
+ */
+public class SiftsIndex
+{
+  /**
+   * The residues of one SIFTS entity
+   */
+  public static class Entity
+  {
+    private final String entityId;
+
+    /*
+     * per residue: leading integer of dbResNum (or UNASSIGNED), index of
+     * dbResName in the string table, observed flag, and offset of its
+     * cross-references in the ref arrays (with a final entry for the end)
+     */
+    final int[] resNum;
+
+    final int[] resName;
+
+    final boolean[] observed;
+
+    final int[] refStart;
+
+    /*
+     * per cross-reference: string table indices of dbSource, dbCoordSys,
+     * dbAccessionId and dbChainId (-1 for absent), and leading integer of
+     * dbResNum (or UNASSIGNED)
+     */
+    final int[] refSource;
+
+    final int[] refCoordSys;
+
+    final int[] refAccession;
+
+    final int[] refChain;
+
+    final int[] refResNum;
+
+    Entity(String entityId, int[] resNum, int[] resName,
+            boolean[] observed, int[] refStart, int[] refSource,
+            int[] refCoordSys, int[] refAccession, int[] refChain,
+            int[] refResNum)
+    {
+      this.entityId = entityId;
+      this.resNum = resNum;
+      this.resName = resName;
+      this.observed = observed;
+      this.refStart = refStart;
+      this.refSource = refSource;
+      this.refCoordSys = refCoordSys;
+      this.refAccession = refAccession;
+      this.refChain = refChain;
+      this.refResNum = refResNum;
+    }
+
+    public String getEntityId()
+    {
+      return entityId;
+    }
+
+    public int getResidueCount()
+    {
+      return resNum.length;
+    }
+  }
+
+  /*
+   * identifies (and versions) the binary index format
+   */
+  private static final int MAGIC = 0x53494658;
+
+  private static final int FORMAT_VERSION = 1;
+
+  static final String INDEX_SUFFIX = ".idx";
+
+  private static final String NOT_OBSERVED = "Not_Observed";
+
+  private static final String ANNOTATION = "Annotation";
+
+  private String dbAccessionId;
+
+  private String dbCoordSys;
+
+  private String dbSource;
+
+  private String dbVersion;
+
+  private String[] strings;
+
+  /*
+   * lower-cased accession ids of mapRegion db elements
+   */
+  private Set<String> mappingAccessions;
+
+  private Entity[] entities;
+
+  private SiftsIndex()
+  {
+  }
+
+  /**
+   * Answers the index of the SIFTS file, reading the saved index file if it is
+   * up to date, else parsing the SIFTS XML (and saving its index if
+   * saveIndex is true)
+   *
+   * @param siftsFile
+   *          gzipped SIFTS XML
+   * @param saveIndex
+   * @return
+   * @throws SiftsException
+   */
+  public static SiftsIndex load(File siftsFile, boolean saveIndex)
+          throws SiftsException
+  {
+    File indexFile = getIndexFile(siftsFile);
+    if (indexFile.isFile())
+    {
+      try
+      {
+        SiftsIndex index = read(indexFile, siftsFile);
+        if (index != null)
+        {
+          return index;
+        }
+      } catch (IOException e)
+      {
+        System.err.println("Ignoring unreadable SIFTS index " + indexFile
+                + ": " + e.getMessage());
+      }
+    }
+
+    SiftsIndex index;
+    try (InputStream in = new GZIPInputStream(
+            new FileInputStream(siftsFile), 32 * 1024))
+    {
+      index = parse(in);
+    } catch (IOException | XMLStreamException e)
+    {
+      throw new SiftsException(e.getMessage());
+    }
+    if (saveIndex)
+    {
+      try
+      {
+        index.write(indexFile, siftsFile);
+      } catch (IOException e)
+      {
+        System.err.println("Error saving SIFTS index " + indexFile + ": "
+                + e.getMessage());
+      }
+    }
+    return index;
+  }
+
+  static File getIndexFile(File siftsFile)
+  {
+    return new File(siftsFile.getPath() + INDEX_SUFFIX);
+  }
+
+  /**
+   * Reads SIFTS XML from the stream, keeping only the content needed for
+   * mapping
+   *
+   * @param in
+   * @return
+   * @throws XMLStreamException
+   */
+  static SiftsIndex parse(InputStream in) throws XMLStreamException
+  {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+            false);
+    XMLStreamReader reader = factory.createXMLStreamReader(in);
+
+    SiftsIndex index = new SiftsIndex();
+    StringTable table = new StringTable();
+    index.mappingAccessions = new LinkedHashSet<>();
+    List<Entity> entities = new ArrayList<>();
+    EntityBuilder entity = null;
+    boolean inMapRegion = false;
+    boolean inResidue = false;
+    boolean inAnnotation = false;
+    StringBuilder text = new StringBuilder();
+
+    while (reader.hasNext())
+    {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT)
+      {
+        String name = reader.getLocalName();
+        if ("entry".equals(name))
+        {
+          index.dbAccessionId = attribute(reader, "dbAccessionId");
+          index.dbCoordSys = attribute(reader, "dbCoordSys");
+          index.dbSource = attribute(reader, "dbSource");
+          index.dbVersion = attribute(reader, "dbVersion");
+        }
+        else if ("entity".equals(name))
+        {
+          entity = new EntityBuilder(attribute(reader, "entityId"));
+        }
+        else if ("residue".equals(name) && entity != null)
+        {
+          inResidue = true;
+          entity.addResidue(
+                  SiftsClient.getLeadingIntegerValue(
+                          attribute(reader, "dbResNum"),
+                          SiftsClient.UNASSIGNED),
+                  table.indexOf(attribute(reader, "dbResName")));
+        }
+        else if ("crossRefDb".equals(name) && inResidue)
+        {
+          entity.addCrossRef(table.indexOf(attribute(reader, "dbSource")),
+                  table.indexOf(attribute(reader, "dbCoordSys")),
+                  table.indexOf(attribute(reader, "dbAccessionId")),
+                  table.indexOf(attribute(reader, "dbChainId")),
+                  SiftsClient.getLeadingIntegerValue(
+                          attribute(reader, "dbResNum"),
+                          SiftsClient.UNASSIGNED));
+        }
+        else if ("residueDetail".equals(name) && inResidue)
+        {
+          inAnnotation = ANNOTATION
+                  .equalsIgnoreCase(attribute(reader, "property"));
+          text.setLength(0);
+        }
+        else if ("mapRegion".equals(name))
+        {
+          inMapRegion = true;
+        }
+        else if ("db".equals(name) && inMapRegion)
+        {
+          String acc = attribute(reader, "dbAccessionId");
+          if (acc != null)
+          {
+            index.mappingAccessions.add(acc.toLowerCase(Locale.ROOT));
+          }
+        }
+      }
+      else if (inAnnotation && (event == XMLStreamConstants.CHARACTERS
+              || event == XMLStreamConstants.CDATA))
+      {
+        text.append(reader.getText());
+      }
+      else if (event == XMLStreamConstants.END_ELEMENT)
+      {
+        String name = reader.getLocalName();
+        if ("residueDetail".equals(name) && inAnnotation)
+        {
+          if (NOT_OBSERVED.equalsIgnoreCase(text.toString()))
+          {
+            entity.setNotObserved();
+          }
+          inAnnotation = false;
+        }
+        else if ("residue".equals(name))
+        {
+          inResidue = false;
+        }
+        else if ("mapRegion".equals(name))
+        {
+          inMapRegion = false;
+        }
+        else if ("entity".equals(name) && entity != null)
+        {
+          entities.add(entity.build());
+          entity = null;
+        }
+      }
+    }
+    reader.close();
+
+    index.entities = entities.toArray(new Entity[entities.size()]);
+    index.strings = table.toArray();
+    return index;
+  }
+
+  private static String attribute(XMLStreamReader reader, String name)
+  {
+    return reader.getAttributeValue(null, name);
+  }
+
+  /**
+   * Reads an index file, answering null if it is not for the current version
+   * of the SIFTS file
+   *
+   * @param indexFile
+   * @param siftsFile
+   * @return
+   * @throws IOException
+   */
+  static SiftsIndex read(File indexFile, File siftsFile) throws IOException
+  {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+            new FileInputStream(indexFile), 64 * 1024)))
+    {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION
+              || in.readLong() != siftsFile.length()
+              || in.readLong() != siftsFile.lastModified())
+      {
+        return null;
+      }
+      SiftsIndex index = new SiftsIndex();
+      index.dbAccessionId = readString(in);
+      index.dbCoordSys = readString(in);
+      index.dbSource = readString(in);
+      index.dbVersion = readString(in);
+      index.strings = new String[in.readInt()];
+      for (int i = 0; i < index.strings.length; i++)
+      {
+        index.strings[i] = in.readUTF();
+      }
+      int accessions = in.readInt();
+      index.mappingAccessions = new LinkedHashSet<>();
+      for (int i = 0; i < accessions; i++)
+      {
+        index.mappingAccessions.add(in.readUTF());
+      }
+      index.entities = new Entity[in.readInt()];
+      for (int e = 0; e < index.entities.length; e++)
+      {
+        String id = readString(in);
+        int[] resNum = readInts(in);
+        int[] resName = readInts(in);
+        boolean[] observed = new boolean[resNum.length];
+        for (int i = 0; i < observed.length; i++)
+        {
+          observed[i] = in.readBoolean();
+        }
+        index.entities[e] = new Entity(id, resNum, resName, observed,
+                readInts(in), readInts(in), readInts(in), readInts(in),
+                readInts(in), readInts(in));
+      }
+      return index;
+    }
+  }
+
+  /**
+   * Writes the index to file (via a temporary file, so that a partly written
+   * index is never read), recording the length and modified time of the SIFTS
+   * file it was made from
+   *
+   * @param indexFile
+   * @param siftsFile
+   * @throws IOException
+   */
+  void write(File indexFile, File siftsFile) throws IOException
+  {
+    File temp = new File(indexFile.getPath() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(temp),
+                    64 * 1024)))
+    {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeLong(siftsFile.length());
+      out.writeLong(siftsFile.lastModified());
+      writeString(out, dbAccessionId);
+      writeString(out, dbCoordSys);
+      writeString(out, dbSource);
+      writeString(out, dbVersion);
+      out.writeInt(strings.length);
+      for (String s : strings)
+      {
+        out.writeUTF(s);
+      }
+      out.writeInt(mappingAccessions.size());
+      for (String s : mappingAccessions)
+      {
+        out.writeUTF(s);
+      }
+      out.writeInt(entities.length);
+      for (Entity entity : entities)
+      {
+        writeString(out, entity.entityId);
+        writeInts(out, entity.resNum);
+        writeInts(out, entity.resName);
+        for (boolean b : entity.observed)
+        {
+          out.writeBoolean(b);
+        }
+        writeInts(out, entity.refStart);
+        writeInts(out, entity.refSource);
+        writeInts(out, entity.refCoordSys);
+        writeInts(out, entity.refAccession);
+        writeInts(out, entity.refChain);
+        writeInts(out, entity.refResNum);
+      }
+    }
+    Files.move(temp.toPath(), indexFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static void writeString(DataOutputStream out, String s)
+          throws IOException
+  {
+    out.writeBoolean(s != null);
+    if (s != null)
+    {
+      out.writeUTF(s);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException
+  {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static void writeInts(DataOutputStream out, int[] values)
+          throws IOException
+  {
+    out.writeInt(values.length);
+    for (int v : values)
+    {
+      out.writeInt(v);
+    }
+  }
+
+  private static int[] readInts(DataInputStream in) throws IOException
+  {
+    int[] values = new int[in.readInt()];
+    for (int i = 0; i < values.length; i++)
+    {
+      values[i] = in.readInt();
+    }
+    return values;
+  }
+
+  /**
+   * Answers the string with the given index in the string table, or null for
+   * -1
+   *
+   * @param i
+   * @return
+   */
+  public String getString(int i)
+  {
+    return i < 0 ? null : strings[i];
+  }
+
+  public Entity[] getEntities()
+  {
+    return entities;
+  }
+
+  /**
+   * Answers the (lower-cased) accession ids of the sequences that the entry's
+   * segments are mapped to
+   *
+   * @return
+   */
+  public Set<String> getMappingAccessions()
+  {
+    return mappingAccessions;
+  }
+
+  public String getDbAccessionId()
+  {
+    return dbAccessionId;
+  }
+
+  public String getDbCoordSys()
+  {
+    return dbCoordSys;
+  }
+
+  public String getDbSource()
+  {
+    return dbSource;
+  }
+
+  public String getDbVersion()
+  {
+    return dbVersion;
+  }
+
+  /**
+   * Assigns each distinct string an index, in order of first occurrence
+   */
+  private static class StringTable
+  {
+    private final Map<String, Integer> indices = new HashMap<>();
+
+    private final List<String> values = new ArrayList<>();
+
+    int indexOf(String s)
+    {
+      if (s == null)
+      {
+        return -1;
+      }
+      Integer i = indices.get(s);
+      if (i == null)
+      {
+        i = values.size();
+        indices.put(s, i);
+        values.add(s);
+      }
+      return i;
+    }
+
+    String[] toArray()
+    {
+      return values.toArray(new String[values.size()]);
+    }
+  }
+
+  /**
+   * Accumulates the residues of an entity in growable arrays
+   */
+  private static class EntityBuilder
+  {
+    private final String entityId;
+
+    private int residues;
+
+    private int refs;
+
+    private int[] resNum = new int[256];
+
+    private int[] resName = new int[256];
+
+    private boolean[] observed = new boolean[256];
+
+    private int[] refStart = new int[257];
+
+    private int[][] refData = new int[5][512];
+
+    EntityBuilder(String entityId)
+    {
+      this.entityId = entityId;
+    }
+
+    void addResidue(int num, int name)
+    {
+      if (residues == resNum.length)
+      {
+        int size = residues * 2;
+        resNum = Arrays.copyOf(resNum, size);
+        resName = Arrays.copyOf(resName, size);
+        observed = Arrays.copyOf(observed, size);
+        refStart = Arrays.copyOf(refStart, size + 1);
+      }
+      resNum[residues] = num;
+      resName[residues] = name;
+      observed[residues] = true;
+      refStart[residues] = refs;
+      residues++;
+      refStart[residues] = refs;
+    }
+
+    void setNotObserved()
+    {
+      observed[residues - 1] = false;
+    }
+
+    void addCrossRef(int source, int coordSys, int accession, int chain,
+            int num)
+    {
+      if (refs == refData[0].length)
+      {
+        for (int i = 0; i < refData.length; i++)
+        {
+          refData[i] = Arrays.copyOf(refData[i], refs * 2);
+        }
+      }
+      refData[0][refs] = source;
+      refData[1][refs] = coordSys;
+      refData[2][refs] = accession;
+      refData[3][refs] = chain;
+      refData[4][refs] = num;
+      refs++;
+      refStart[residues] = refs;
+    }
+
+    Entity build()
+    {
+      return new Entity(entityId, Arrays.copyOf(resNum, residues),
+              Arrays.copyOf(resName, residues),
+              Arrays.copyOf(observed, residues),
+              Arrays.copyOf(refStart, residues + 1),
+              Arrays.copyOf(refData[0], refs),
+              Arrays.copyOf(refData[1], refs),
+              Arrays.copyOf(refData[2], refs),
+              Arrays.copyOf(refData[3], refs),
+              Arrays.copyOf(refData[4], refs));
+    }
+  }
+}
@@ -0,0 +1,639 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.ws.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import jalview.bin.Cache;
+import jalview.bin.Console;
+import jalview.util.HttpTransport;
+import jalview.util.MessageManager;
+import jalview.util.Platform;
+
+/**
+ * A local disk cache of responses from database fetchers (Uniprot, EMBL,
+ * Pfam, Rfam, PDB, AlphaFold, Ensembl), so that re-opening the same data costs
+ * no network time.
+ * <p>
+ * Entries are keyed by source and query (for example UNIPROT and P12345), and
+ * stored under a file name derived from a SHA-256 hash of the two, with a
+ * properties file recording when the entry was fetched and its ETag and
+ * Last-Modified validators. Preferences:
+ * <ul>
+ * <li>RESPONSE_CACHE - set true to enable the cache (default false)</li>
+ * <li>RESPONSE_CACHE_DIR - where to store entries (default
+ * ~/.jalview_cache/responses)</li>
+ * <li>RESPONSE_CACHE_MAX_MB - when entries exceed this total size, the least
+ * recently used are deleted (default 256)</li>
+ * <li>RESPONSE_CACHE_TTL_HOURS - how long an entry is used without checking
+ * with the server (default 48); may be overridden for a source by
+ * RESPONSE_CACHE_TTL_HOURS.SOURCE, for example
+ * RESPONSE_CACHE_TTL_HOURS.UNIPROT. Expired entries are revalidated with a
+ * conditional request where the server gave a validator, and are still used if
+ * the server can't be reached.</li>
+ * <li>OFFLINE_MODE - set true to serve only from the cache</li>
+ * </ul>
+ * The cache is not used in JalviewJS.
+ */
+public class ResponseCache
+{
+  public static final String RESPONSE_CACHE = "RESPONSE_CACHE";
+
+  public static final String RESPONSE_CACHE_DIR = "RESPONSE_CACHE_DIR";
+
+  public static final String RESPONSE_CACHE_MAX_MB = "RESPONSE_CACHE_MAX_MB";
+
+  public static final String RESPONSE_CACHE_TTL_HOURS = "RESPONSE_CACHE_TTL_HOURS";
+
+  public static final String OFFLINE_MODE = "OFFLINE_MODE";
+
+  private static final int DEFAULT_MAX_MB = 256;
+
+  private static final int DEFAULT_TTL_HOURS = 48;
+
+  private static final String DATA = ".data";
+
+  private static final String META = ".meta";
+
+  private static final String FETCHED = "fetched";
+
+  private static final String ETAG = "etag";
+
+  private static final String LAST_MODIFIED = "lastModified";
+
+  private static final int MAX_TRIES = 3;
+
+  private static ResponseCache instance;
+
+  private final File directory;
+
+  private final long maxBytes;
+
+  /*
+   * total size of data files, or -1 if not yet measured
+   */
+  private long totalBytes = -1;
+
+  /*
+   * the number of callers given each data file and not yet done with it;
+   * these files are not evicted
+   */
+  private final Map<File, Integer> readers = new HashMap<>();
+
+  /**
+   * A cached response
+   */
+  public static class Entry
+  {
+    private final File data;
+
+    private final File meta;
+
+    private final long fetched;
+
+    private final String etag;
+
+    private final String lastModified;
+
+    Entry(File data, File meta, Properties props)
+    {
+      this.data = data;
+      this.meta = meta;
+      long time = 0L;
+      try
+      {
+        time = Long.parseLong(props.getProperty(FETCHED, "0"));
+      } catch (NumberFormatException e)
+      {
+        // treat as expired
+      }
+      this.fetched = time;
+      this.etag = props.getProperty(ETAG);
+      this.lastModified = props.getProperty(LAST_MODIFIED);
+    }
+
+    public File getFile()
+    {
+      return data;
+    }
+
+    public long getFetched()
+    {
+      return fetched;
+    }
+  }
+
+  /**
+   * Answers the shared cache, or null if the cache has not been enabled (or
+   * in JalviewJS)
+   *
+   * @return
+   */
+  public static synchronized ResponseCache getInstance()
+  {
+    if (Platform.isJS() || !Cache.getDefault(RESPONSE_CACHE, false))
+    {
+      return null;
+    }
+    File dir = new File(Cache.getDefault(RESPONSE_CACHE_DIR,
+            System.getProperty("user.home") + File.separator
+                    + ".jalview_cache" + File.separator + "responses"));
+    long max = Cache.getDefault(RESPONSE_CACHE_MAX_MB, DEFAULT_MAX_MB)
+            * 1024L * 1024L;
+    if (instance == null || !instance.directory.equals(dir)
+            || instance.maxBytes != max)
+    {
+      instance = new ResponseCache(dir, max);
+    }
+    return instance;
+  }
+
+  /**
+   * Answers true if fetchers should serve only from the cache
+   *
+   * @return
+   */
+  public static boolean isOffline()
+  {
+    return Cache.getDefault(OFFLINE_MODE, false);
+  }
+
+  /**
+   * Constructor given the cache directory and maximum total size in bytes
+   *
+   * @param directory
+   * @param maxBytes
+   */
+  ResponseCache(File directory, long maxBytes)
+  {
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Answers the file holding the response for the GET request to the URL,
+   * fetching it if it is not cached or is out of date, or null (with a
+   * warning logged) if the server has no data for it. The file should not be
+   * modified or deleted by the caller, and is not evicted from the cache until
+   * the caller has passed it to release().
+   *
+   * @param source
+   *          the database source, for example UNIPROT
+   * @param key
+   *          the query, for example an accession id
+   * @param url
+   * @return
+   * @throws IOException
+   *           if the request fails and there is no cached response, or if in
+   *           offline mode and there is no cached response
+   */
+  public File getFile(String source, String key, final String url)
+          throws IOException
+  {
+    final Entry entry = lookup(source, key);
+    if (entry != null && (isOffline() || isFresh(entry, source)))
+    {
+      return accessed(entry);
+    }
+    File file = null;
+    try
+    {
+      file = fetch(source, key, url, entry);
+      return file;
+    } finally
+    {
+      /*
+       * the entry's file is kept for the caller if it is reused; a new
+       * response answered by put holds a reader count of its own
+       */
+      if (entry != null && file != entry.data)
+      {
+        release(entry.data);
+      }
+    }
+  }
+
+  /**
+   * Answers the file holding the response for the request, fetched from the
+   * server, or revalidated or (if the server can't be reached) reused from the
+   * cached entry if there is one
+   *
+   * @param source
+   * @param key
+   * @param url
+   * @param entry
+   *          the cached entry, or null
+   * @return
+   * @throws IOException
+   */
+  private File fetch(String source, String key, final String url,
+          final Entry entry) throws IOException
+  {
+    checkOnline(source, key);
+
+    HttpTransport.Response response;
+    try
+    {
+      response = HttpTransport.getInstance().execute(new URL(url),
+              new HttpTransport.Request()
+              {
+                @Override
+                public HttpURLConnection open() throws IOException
+                {
+                  HttpURLConnection connection = (HttpURLConnection) new URL(
+                          url).openConnection();
+                  if (entry != null && entry.etag != null)
+                  {
+                    connection.setRequestProperty("If-None-Match",
+                            entry.etag);
+                  }
+                  if (entry != null && entry.lastModified != null)
+                  {
+                    connection.setRequestProperty("If-Modified-Since",
+                            entry.lastModified);
+                  }
+                  return connection;
+                }
+              }, MAX_TRIES);
+    } catch (IOException e)
+    {
+      if (entry == null)
+      {
+        throw e;
+      }
+      Console.warn("Using cached " + source + " " + key + " as "
+              + e.getMessage());
+      return accessed(entry);
+    }
+
+    try
+    {
+      int responseCode = response.getResponseCode();
+      if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED
+              && entry != null)
+      {
+        return revalidated(entry);
+      }
+      if (responseCode == HttpURLConnection.HTTP_OK)
+      {
+        return put(source, key, response.getInputStream(),
+                response.getHeaderField("ETag"),
+                response.getHeaderField("Last-Modified"));
+      }
+      if (entry != null && responseCode >= 500)
+      {
+        return accessed(entry);
+      }
+      Console.warn("Warning: response code " + responseCode + " for " + url);
+      return null;
+    } finally
+    {
+      response.close();
+    }
+  }
+
+  /**
+   * Throws an IOException if in offline mode (when the query is not cached)
+   *
+   * @param source
+   * @param key
+   * @throws IOException
+   */
+  public static void checkOnline(String source, String key)
+          throws IOException
+  {
+    if (isOffline())
+    {
+      throw new IOException(MessageManager.formatMessage(
+              "exception.offline_not_cached", source, key));
+    }
+  }
+
+  /**
+   * Answers the cached entry for the source and key, or null if there is none.
+   * The entry's file is not evicted from the cache until it has been passed to
+   * release().
+   *
+   * @param source
+   * @param key
+   * @return
+   */
+  public synchronized Entry lookup(String source, String key)
+  {
+    String name = getName(source, key);
+    File data = new File(directory, name + DATA);
+    File meta = new File(directory, name + META);
+    if (!data.isFile() || !meta.isFile())
+    {
+      return null;
+    }
+    Properties props = new Properties();
+    try (InputStream is = new FileInputStream(meta))
+    {
+      props.load(is);
+    } catch (IOException e)
+    {
+      return null;
+    }
+    acquire(data);
+    return new Entry(data, meta, props);
+  }
+
+  /**
+   * Records that the caller has finished reading a file answered by getFile,
+   * put or lookup, so that it may be evicted
+   *
+   * @param data
+   */
+  public synchronized void release(File data)
+  {
+    Integer count = data == null ? null : readers.get(data);
+    if (count == null)
+    {
+      return;
+    }
+    if (count > 1)
+    {
+      readers.put(data, count - 1);
+    }
+    else
+    {
+      readers.remove(data);
+    }
+  }
+
+  private synchronized void acquire(File data)
+  {
+    Integer count = readers.get(data);
+    readers.put(data, count == null ? 1 : count + 1);
+  }
+
+  /**
+   * Answers true if the entry was fetched (or revalidated) within the time to
+   * live for its source
+   *
+   * @param entry
+   * @param source
+   * @return
+   */
+  public boolean isFresh(Entry entry, String source)
+  {
+    long ttlHours = Cache.getDefault(
+            RESPONSE_CACHE_TTL_HOURS + "."
+                    + source.toUpperCase(Locale.ROOT),
+            Cache.getDefault(RESPONSE_CACHE_TTL_HOURS, DEFAULT_TTL_HOURS));
+    return System.currentTimeMillis() - entry.fetched < ttlHours * 3600000L;
+  }
+
+  /**
+   * Saves the content of the stream as the response for the source and key,
+   * and answers the cache file holding it, which the caller should pass to
+   * release() when it has read it. Least recently used entries are then
+   * deleted if the cache has grown too large.
+   *
+   * @param source
+   * @param key
+   * @param content
+   * @param etag
+   *          may be null
+   * @param lastModified
+   *          may be null
+   * @return
+   * @throws IOException
+   */
+  public File put(String source, String key, InputStream content,
+          String etag, String lastModified) throws IOException
+  {
+    String name = getName(source, key);
+    if (!directory.isDirectory() && !directory.mkdirs())
+    {
+      throw new IOException("Can't create " + directory);
+    }
+
+    /*
+     * write to a temporary file first, so a failed download
+     * never replaces a good entry
+     */
+    File temp = File.createTempFile(name, ".tmp", directory);
+    try
+    {
+      try (OutputStream os = new FileOutputStream(temp))
+      {
+        byte[] buffer = new byte[32 * 1024];
+        int n;
+        while ((n = content.read(buffer)) != -1)
+        {
+          os.write(buffer, 0, n);
+        }
+      }
+      Properties props = new Properties();
+      props.setProperty("source", source);
+      props.setProperty("key", key);
+      props.setProperty(FETCHED, String.valueOf(System.currentTimeMillis()));
+      if (etag != null)
+      {
+        props.setProperty(ETAG, etag);
+      }
+      if (lastModified != null)
+      {
+        props.setProperty(LAST_MODIFIED, lastModified);
+      }
+
+      File data = new File(directory, name + DATA);
+      synchronized (this)
+      {
+        long oldLength = data.length();
+        Files.move(temp.toPath(), data.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        writeMeta(new File(directory, name + META), props);
+        if (totalBytes >= 0)
+        {
+          totalBytes += data.length() - oldLength;
+        }
+        acquire(data);
+        evict();
+      }
+      return data;
+    } finally
+    {
+      temp.delete();
+    }
+  }
+
+  /**
+   * Deletes the least recently used entries, other than those still being
+   * read, until the cache is no larger than its maximum size
+   */
+  private synchronized void evict()
+  {
+    File[] files = directory.listFiles();
+    if (files == null)
+    {
+      return;
+    }
+    if (totalBytes < 0)
+    {
+      totalBytes = 0L;
+      for (File f : files)
+      {
+        if (f.getName().endsWith(DATA))
+        {
+          totalBytes += f.length();
+        }
+      }
+    }
+    if (totalBytes <= maxBytes)
+    {
+      return;
+    }
+
+    /*
+     * data file last modified times record when entries were last used
+     */
+    List<File> dataFiles = new ArrayList<>();
+    for (File f : files)
+    {
+      if (f.getName().endsWith(DATA) && !readers.containsKey(f))
+      {
+        dataFiles.add(f);
+      }
+    }
+    File[] data = dataFiles.toArray(new File[dataFiles.size()]);
+    final long[] used = new long[data.length];
+    Integer[] order = new Integer[data.length];
+    for (int i = 0; i < data.length; i++)
+    {
+      used[i] = data[i].lastModified();
+      order[i] = i;
+    }
+    Arrays.sort(order, new Comparator<Integer>()
+    {
+      @Override
+      public int compare(Integer o1, Integer o2)
+      {
+        return Long.compare(used[o1], used[o2]);
+      }
+    });
+    for (int i = 0; i < order.length && totalBytes > maxBytes; i++)
+    {
+      File f = data[order[i]];
+      long length = f.length();
+      String path = f.getPath();
+      new File(path.substring(0, path.length() - DATA.length()) + META)
+              .delete();
+      if (f.delete())
+      {
+        totalBytes -= length;
+      }
+    }
+  }
+
+  /**
+   * Records that an entry has been used, for least recently used eviction, and
+   * returns its file
+   *
+   * @param entry
+   * @return
+   */
+  private static File accessed(Entry entry)
+  {
+    entry.data.setLastModified(System.currentTimeMillis());
+    return entry.data;
+  }
+
+  /**
+   * Records that the server has confirmed an entry is up to date, and returns
+   * its file
+   *
+   * @param entry
+   * @return
+   * @throws IOException
+   */
+  private synchronized File revalidated(Entry entry) throws IOException
+  {
+    Properties props = new Properties();
+    try (InputStream is = new FileInputStream(entry.meta))
+    {
+      props.load(is);
+    }
+    props.setProperty(FETCHED, String.valueOf(System.currentTimeMillis()));
+    writeMeta(entry.meta, props);
+    return accessed(entry);
+  }
+
+  private static void writeMeta(File meta, Properties props)
+          throws IOException
+  {
+    try (OutputStream os = new FileOutputStream(meta))
+    {
+      props.store(os, null);
+    }
+  }
+
+  /**
+   * Answers the name of the cache files for the source and key (a hex SHA-256
+   * hash)
+   *
+   * @param source
+   * @param key
+   * @return
+   */
+  static String getName(String source, String key)
+  {
+    try
+    {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      byte[] hash = md.digest((source.toUpperCase(Locale.ROOT) + "\u0000"
+              + key).getBytes(StandardCharsets.UTF_8));
+      StringBuilder sb = new StringBuilder(hash.length * 2);
+      for (byte b : hash)
+      {
+        sb.append(Character.forDigit((b >> 4) & 0xf, 16))
+                .append(Character.forDigit(b & 0xf, 16));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e)
+    {
+      // SHA-256 is required of every Java platform
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -116,4 +116,42 @@ public class UrlDownloadClient
       download(urlstring, tempFile.toString());
     }
   }
+
+  /**
+   * Download and save a file from a URL, using the local response cache if it
+   * is enabled (so that a recent download of the same query is reused)
+   * 
+   * @param source
+   *          the database source, for example ALPHAFOLD
+   * @param key
+   *          the query, for example an accession id
+   * @param urlstring
+   *          url to download from, as string
+   * @param tempFile
+   *          the file to save the download to
+   * @throws IOException
+   */
+  public static void download(String source, String key, String urlstring,
+          File tempFile) throws IOException
+  {
+    ResponseCache cache = ResponseCache.getInstance();
+    if (cache == null)
+    {
+      download(urlstring, tempFile);
+      return;
+    }
+    File cached = cache.getFile(source, key, urlstring);
+    if (cached == null)
+    {
+      throw new IOException("No data found at " + urlstring);
+    }
+    try
+    {
+      Files.copy(cached.toPath(), tempFile.toPath(),
+              StandardCopyOption.REPLACE_EXISTING);
+    } finally
+    {
+      cache.release(cached);
+    }
+  }
 }
@@ -24,6 +24,8 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
 import static org.testng.internal.junit.ArrayAsserts.assertArrayEquals;
 
+import java.util.Random;
+
 import jalview.datamodel.Sequence;
 import jalview.gui.JvOptionPane;
 
@@ -76,4 +78,74 @@ public class AlignSeqTest
     String s = "aArRnNzZxX *.-?";
     assertArrayEquals(expected, as.indexEncode(s));
   }
+
+  @Test(groups = { "Functional" })
+  public void testTraceCode()
+  {
+    assertEquals(AlignSeq.traceCode(10f, 5f, 2f), AlignSeq.CODE_DIAG);
+    assertEquals(AlignSeq.traceCode(10f, 10f, 2f), AlignSeq.CODE_LEFT);
+    assertEquals(AlignSeq.traceCode(10f, 12f, 12f), AlignSeq.CODE_LEFT);
+    assertEquals(AlignSeq.traceCode(10f, 5f, 12f), AlignSeq.CODE_UP);
+    assertEquals(AlignSeq.traceCode(10f, 5f, 10f), AlignSeq.CODE_TIE);
+
+    assertEquals(AlignSeq.resolveTrace(AlignSeq.CODE_TIE, -1), -1);
+    assertEquals(AlignSeq.resolveTrace(AlignSeq.CODE_TIE, 0), 0);
+    assertEquals(AlignSeq.resolveTrace(AlignSeq.CODE_TIE, 1), 0);
+    assertEquals(AlignSeq.resolveTrace(AlignSeq.CODE_LEFT, -1), 1);
+  }
+
+  @Test(groups = { "Functional" })
+  public void testDoGlobalNWAlignment()
+  {
+    AlignSeq as = AlignSeq.doGlobalNWAlignment(
+            new Sequence("s1", "ACDEFGHIKLMNPQ"),
+            new Sequence("s2", "ACDEFHIKLMNPQ"), AlignSeq.PEP);
+    assertEquals(as.getAStr1(), "ACDEFGHIKLMNPQ");
+    assertEquals(as.getAStr2(), "ACDEF-HIKLMNPQ");
+    assertEquals(as.getSeq1Start(), 1);
+    assertEquals(as.getSeq1End(), 14);
+    assertEquals(as.getSeq2Start(), 1);
+    assertEquals(as.getSeq2End(), 13);
+  }
+
+  /**
+   * Alignments computed with checkpointed rows (as used for long sequences)
+   * must match those computed keeping the full trace matrix
+   */
+  @Test(groups = { "Functional" })
+  public void testCalcScoreMatrix_checkpointed()
+  {
+    Random r = new Random(7);
+    String residues = "ACDEFGHIKLMNPQRSTVWY";
+    for (int test = 0; test < 50; test++)
+    {
+      StringBuilder sb1 = new StringBuilder();
+      StringBuilder sb2 = new StringBuilder();
+      for (int i = 0, n = 1 + r.nextInt(80); i < n; i++)
+      {
+        sb1.append(residues.charAt(r.nextInt(6)));
+      }
+      for (int i = 0, m = 1 + r.nextInt(80); i < m; i++)
+      {
+        sb2.append(residues.charAt(r.nextInt(6)));
+      }
+      Sequence s1 = new Sequence("s1", sb1.toString());
+      Sequence s2 = new Sequence("s2", sb2.toString());
+
+      AlignSeq full = new AlignSeq(s1, s2, AlignSeq.PEP);
+      full.calcScoreMatrix();
+      full.traceAlignment();
+
+      AlignSeq checkpointed = new AlignSeq(s1, s2, AlignSeq.PEP);
+      checkpointed.fullTraceCells = 0;
+      checkpointed.calcScoreMatrix();
+      checkpointed.traceAlignment();
+
+      assertEquals(checkpointed.getAStr1(), full.getAStr1());
+      assertEquals(checkpointed.getAStr2(), full.getAStr2());
+      assertEquals(checkpointed.getMaxScore(), full.getMaxScore());
+      assertEquals(checkpointed.getSeq1Start(), full.getSeq1Start());
+      assertEquals(checkpointed.getSeq2Start(), full.getSeq2Start());
+    }
+  }
 }
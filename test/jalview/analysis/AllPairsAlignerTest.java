@@ -0,0 +1,198 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.analysis;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import jalview.datamodel.Sequence;
+import jalview.datamodel.SequenceI;
+import jalview.gui.JvOptionPane;
+
+public class AllPairsAlignerTest
+{
+  @BeforeClass(alwaysRun = true)
+  public void setUpJvOptionPane()
+  {
+    JvOptionPane.setInteractiveMode(false);
+    JvOptionPane.setMockResponse(JvOptionPane.CANCEL_OPTION);
+  }
+
+  @Test(groups = "Functional")
+  public void testLowerTriangle()
+  {
+    List<int[]> pairs = AllPairsAligner.lowerTriangle(3, false);
+    assertEquals(pairs.size(), 3);
+    assertEquals(pairs.get(0), new int[] { 1, 0 });
+    assertEquals(pairs.get(1), new int[] { 2, 0 });
+    assertEquals(pairs.get(2), new int[] { 2, 1 });
+
+    pairs = AllPairsAligner.lowerTriangle(3, true);
+    assertEquals(pairs.size(), 6);
+    assertEquals(pairs.get(0), new int[] { 0, 0 });
+    assertEquals(pairs.get(5), new int[] { 2, 2 });
+  }
+
+  /**
+   * Parallel alignment (with reused buffers) gives the same results as
+   * aligning each pair separately
+   */
+  @Test(groups = "Functional")
+  public void testAlign()
+  {
+    SequenceI[] seqs = makeSequences(20, 11);
+    List<int[]> pairs = AllPairsAligner.lowerTriangle(seqs.length, true);
+    final String[][] aligned = new String[seqs.length][seqs.length];
+    AllPairsAligner aligner = new AllPairsAligner(seqs, null,
+            AlignSeq.PEP);
+    assertTrue(aligner.align(pairs, new AllPairsAligner.PairConsumer()
+    {
+      @Override
+      public void aligned(int i, int j, AlignSeq as)
+      {
+        aligned[i][j] = as.getAStr1() + "/" + as.getAStr2() + "/"
+                + as.getMaxScore();
+      }
+    }));
+    assertEquals(aligner.getCompleted(), pairs.size());
+    assertEquals(aligner.getTotal(), pairs.size());
+
+    for (int[] pair : pairs)
+    {
+      AlignSeq as = AlignSeq.doGlobalNWAlignment(seqs[pair[0]],
+              seqs[pair[1]], AlignSeq.PEP);
+      assertEquals(aligned[pair[0]][pair[1]], as.getAStr1() + "/"
+              + as.getAStr2() + "/" + as.getMaxScore());
+    }
+  }
+
+  @Test(groups = "Functional")
+  public void testAlign_cancelled()
+  {
+    SequenceI[] seqs = makeSequences(10, 3);
+    List<int[]> pairs = AllPairsAligner.lowerTriangle(seqs.length, false);
+    final AllPairsAligner aligner = new AllPairsAligner(seqs, null,
+            AlignSeq.PEP);
+    final int[] count = new int[1];
+    boolean done = aligner.align(pairs, new AllPairsAligner.PairConsumer()
+    {
+      @Override
+      public void aligned(int i, int j, AlignSeq as)
+      {
+        synchronized (count)
+        {
+          count[0]++;
+        }
+        aligner.cancel();
+      }
+    });
+    assertFalse(done);
+    assertTrue(aligner.isCancelled());
+    assertTrue(count[0] < pairs.size());
+  }
+
+  /**
+   * The asynchronous align returns without waiting, and runs its callback
+   * once all pairs are aligned
+   * 
+   * @throws InterruptedException
+   */
+  @Test(groups = "Functional")
+  public void testAlign_whenDone() throws InterruptedException
+  {
+    SequenceI[] seqs = makeSequences(20, 10);
+    List<int[]> pairs = AllPairsAligner.lowerTriangle(seqs.length, false);
+    AllPairsAligner aligner = new AllPairsAligner(seqs, null,
+            AlignSeq.PEP);
+    final AtomicInteger count = new AtomicInteger();
+    final CountDownLatch done = new CountDownLatch(1);
+    aligner.align(pairs, new AllPairsAligner.PairConsumer()
+    {
+      @Override
+      public void aligned(int i, int j, AlignSeq as)
+      {
+        count.incrementAndGet();
+      }
+    }, new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        done.countDown();
+      }
+    });
+    assertTrue(done.await(60, TimeUnit.SECONDS));
+    assertEquals(count.get(), pairs.size());
+    assertEquals(aligner.getCompleted(), pairs.size());
+    assertFalse(aligner.isCancelled());
+  }
+
+  /**
+   * Pairs including an all-gapped sequence are skipped
+   */
+  @Test(groups = "Functional")
+  public void testAlign_gapped()
+  {
+    SequenceI[] seqs = new SequenceI[] { new Sequence("s1", "AC-DE"),
+        new Sequence("s2", "---") };
+    final int[] count = new int[1];
+    AllPairsAligner aligner = new AllPairsAligner(seqs, null,
+            AlignSeq.PEP);
+    aligner.align(AllPairsAligner.lowerTriangle(2, false),
+            new AllPairsAligner.PairConsumer()
+            {
+              @Override
+              public void aligned(int i, int j, AlignSeq as)
+              {
+                count[0]++;
+              }
+            });
+    assertEquals(count[0], 0);
+    assertEquals(aligner.getCompleted(), 1);
+  }
+
+  private SequenceI[] makeSequences(int count, int seed)
+  {
+    Random r = new Random(seed);
+    String residues = "ACDEFGHIKLMNPQRSTVWY";
+    SequenceI[] seqs = new SequenceI[count];
+    for (int i = 0; i < count; i++)
+    {
+      StringBuilder sb = new StringBuilder();
+      for (int k = 0, len = 5 + r.nextInt(60); k < len; k++)
+      {
+        sb.append(residues.charAt(r.nextInt(residues.length())));
+      }
+      seqs[i] = new Sequence("seq" + i, sb.toString());
+    }
+    return seqs;
+  }
+}
@@ -46,7 +46,10 @@ import jalview.ws.params.InvalidArgumentException;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -664,16 +667,13 @@ public class CrossRefTest
     x07547.addDBRef(dbref8);
 
     /*
-     * mock sequence fetcher to 'return' the EMBL sequences
-     * TODO: Mockito would allow .thenReturn().thenReturn() here, 
-     * and also capture and verification of the parameters
-     * passed in calls to getSequences() - important to verify that
-     * duplicate sequence fetches are not requested
+     * mock sequence fetcher to 'return' the EMBL sequences; cross-references
+     * of both Uniprot sequences are fetched together, each only once
      */
+    final List<String> fetched = Collections
+            .synchronizedList(new ArrayList<String>());
     SequenceFetcher mockFetcher = new SequenceFetcher()
     {
-      int call = 0;
-
       @Override
       public boolean isFetchable(String source)
       {
@@ -683,19 +683,22 @@ public class CrossRefTest
       @Override
       public SequenceI[] getSequences(List<DBRefEntry> refs, boolean dna)
       {
-        call++;
-        if (call == 1)
-        {
-          assertEquals("Expected 3 embl seqs in first fetch", 3,
-                  refs.size());
-          return new SequenceI[] { j03321, x06707, m19487 };
-        }
-        else
+        List<SequenceI> seqs = new ArrayList<>();
+        for (DBRefEntry ref : refs)
         {
-          assertEquals("Expected 1 embl seq in second fetch", 1,
-                  refs.size());
-          return new SequenceI[] { x07547 };
+          assertFalse("Duplicate fetch of " + ref,
+                  fetched.contains(ref.getAccessionId()));
+          fetched.add(ref.getAccessionId());
+          for (SequenceI seq : new SequenceI[] { j03321, x06707, m19487,
+              x07547 })
+          {
+            if (seq.getName().endsWith(ref.getAccessionId()))
+            {
+              seqs.add(seq);
+            }
+          }
         }
+        return seqs.toArray(new SequenceI[seqs.size()]);
       }
     };
     SequenceFetcherFactory.setSequenceFetcher(mockFetcher);
@@ -766,4 +769,88 @@ public class CrossRefTest
             CrossRef.sameSequence(seq1, new Sequence("seq2", "ABCDE-F")));
     assertFalse(CrossRef.sameSequence(seq1, new Sequence("seq2", "BCDEF")));
   }
+
+  /**
+   * Test that cross-references of several sequences are each fetched only
+   * once, and that a sequence fetched for one sequence resolves the same
+   * cross-reference of a later sequence
+   */
+  @Test(groups = "Functional")
+  public void testFindXrefSequences_fetchOnce()
+  {
+    SequenceI p1 = new Sequence("UNIPROT|P1", "KPFG");
+    p1.addDBRef(new DBRefEntry("EMBL", "0", "E1"));
+    SequenceI p2 = new Sequence("UNIPROT|P2", "PFGK");
+    p2.addDBRef(new DBRefEntry("EMBL", "0", "E1"));
+    p2.addDBRef(new DBRefEntry("EMBL", "0", "E2"));
+
+    /*
+     * EMBL sequences to be 'fetched', with mapped dbrefs to their products
+     */
+    final SequenceI e1 = new Sequence("EMBL|E1", "AAACCCTTTGGGAAAA");
+    MapList mapList = new MapList(new int[] { 1, 12 }, new int[] { 1, 4 },
+            3, 1);
+    DBRefEntry dbref = new DBRefEntry("UNIPROT", "0", "P1");
+    dbref.setMap(new Mapping(new Sequence("UNIPROT|P1", "KPFG"), mapList));
+    e1.addDBRef(dbref);
+    dbref = new DBRefEntry("UNIPROT", "0", "P2");
+    dbref.setMap(new Mapping(new Sequence("UNIPROT|P2", "PFGK"),
+            new MapList(new int[]
+            { 4, 15 }, new int[] { 1, 4 }, 3, 1)));
+    e1.addDBRef(dbref);
+    final SequenceI e2 = new Sequence("EMBL|E2", "cccAAACCCTTTGGG");
+    dbref = new DBRefEntry("UNIPROT", "0", "P2");
+    dbref.setMap(new Mapping(new Sequence("UNIPROT|P2", "PFGK"),
+            new MapList(new int[]
+            { 4, 15 }, new int[] { 1, 4 }, 3, 1)));
+    e2.addDBRef(dbref);
+
+    final Map<String, Integer> fetchCounts = Collections
+            .synchronizedMap(new HashMap<String, Integer>());
+    SequenceFetcher mockFetcher = new SequenceFetcher()
+    {
+      @Override
+      public boolean isFetchable(String source)
+      {
+        return true;
+      }
+
+      @Override
+      public SequenceI[] getSequences(List<DBRefEntry> refs, boolean dna)
+      {
+        List<SequenceI> seqs = new ArrayList<>();
+        for (DBRefEntry ref : refs)
+        {
+          String acc = ref.getAccessionId();
+          Integer count = fetchCounts.get(acc);
+          fetchCounts.put(acc, count == null ? 1 : count + 1);
+          seqs.add("E1".equals(acc) ? e1 : e2);
+        }
+        return seqs.toArray(new SequenceI[seqs.size()]);
+      }
+    };
+    SequenceFetcherFactory.setSequenceFetcher(mockFetcher);
+
+    SequenceI[] seqs = new SequenceI[] { p1, p2 };
+    AlignmentI al = new Alignment(seqs);
+    Alignment xrefs = new CrossRef(seqs, al).findXrefSequences("EMBL",
+            false);
+
+    assertEquals(2, fetchCounts.size());
+    assertEquals(1, fetchCounts.get("E1").intValue());
+    assertEquals(1, fetchCounts.get("E2").intValue());
+    assertNotNull(xrefs);
+    assertEquals(2, xrefs.getHeight());
+    assertSame(e1, xrefs.getSequenceAt(0));
+    assertSame(e2, xrefs.getSequenceAt(1));
+    assertTrue(al.getSequences().contains(e1));
+    assertTrue(al.getSequences().contains(e2));
+
+    /*
+     * the fetched sequences' dbrefs are mapped to the original sequences
+     */
+    assertSame(p1, e1.getDBRefs().get(0).getMap().getTo());
+    assertSame(p2, e1.getDBRefs().get(1).getMap().getTo());
+    assertSame(p2, e2.getDBRefs().get(0).getMap().getTo());
+  }
 }
@@ -0,0 +1,100 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.analysis;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import jalview.datamodel.Alignment;
+import jalview.datamodel.AlignmentI;
+import jalview.datamodel.DBRefEntry;
+import jalview.datamodel.Sequence;
+import jalview.datamodel.SequenceI;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+public class DBRefIndexTest
+{
+  @Test(groups = "Functional")
+  public void testFindSequences()
+  {
+    SequenceI seq1 = new Sequence("seq1", "ACGT");
+    seq1.addDBRef(new DBRefEntry("UNIPROT", "0", "P12345"));
+    SequenceI seq2 = new Sequence("seq2", "ACGT");
+    seq2.addDBRef(new DBRefEntry("EMBL", "0", "X12345"));
+    SequenceI seq3 = new Sequence("seq3", "ACGT");
+    seq3.addDBRef(new DBRefEntry("UniProtKB/Swiss-Prot", "0", "P12345"));
+    AlignmentI al = new Alignment(new SequenceI[] { seq1, seq2, seq3 });
+
+    DBRefIndex index = new DBRefIndex(al);
+    List<SequenceI> found = index.findSequences("UNIPROT", "P12345");
+    assertEquals(2, found.size());
+    assertSame(seq1, found.get(0));
+    assertSame(seq3, found.get(1));
+    assertTrue(index.findSequences("UNIPROT", "p12345").isEmpty());
+    assertTrue(index.findSequences("EMBL", "P12345").isEmpty());
+
+    /*
+     * a dbref added to a sequence is found in dataset order
+     */
+    DBRefEntry ref = new DBRefEntry("EMBL", "0", "X12345");
+    seq1.addDBRef(ref);
+    index.add(seq1, ref);
+    found = index.findSequences("EMBL", "X12345");
+    assertEquals(2, found.size());
+    assertSame(seq1, found.get(0));
+    assertSame(seq2, found.get(1));
+
+    /*
+     * sequences added to the dataset are indexed on refresh
+     */
+    SequenceI seq4 = new Sequence("seq4", "ACGT");
+    seq4.addDBRef(new DBRefEntry("EMBL", "0", "X12345"));
+    al.addSequence(seq4);
+    assertEquals(2, index.findSequences("EMBL", "X12345").size());
+    index.refresh();
+    found = index.findSequences("EMBL", "X12345");
+    assertEquals(3, found.size());
+    assertSame(seq4, found.get(2));
+  }
+
+  @Test(groups = "Functional")
+  public void testFindSequencesByName()
+  {
+    SequenceI seq1 = new Sequence("UNIPROT|P12345|extra", "ACGT");
+    SequenceI seq2 = new Sequence("P12345", "ACGT");
+    SequenceI seq3 = new Sequence("UNIPROT|P123456", "ACGT");
+    SequenceI seq4 = new Sequence("UNIPROT|P1234", "ACGT");
+    AlignmentI al = new Alignment(
+            new SequenceI[]
+            { seq1, seq2, seq3, seq4 });
+
+    List<SequenceI> found = new DBRefIndex(al)
+            .findSequencesByName("P12345", "UNIPROT|P12345");
+    assertEquals(3, found.size());
+    assertSame(seq1, found.get(0));
+    assertSame(seq2, found.get(1));
+    assertSame(seq3, found.get(2));
+  }
+}
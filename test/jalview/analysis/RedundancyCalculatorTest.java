@@ -0,0 +1,165 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.analysis;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import jalview.analysis.scoremodels.PIDModel;
+import jalview.analysis.scoremodels.SimilarityParams;
+import jalview.util.Comparison;
+
+public class RedundancyCalculatorTest
+{
+  @Test(groups = "Functional")
+  public void testPid()
+  {
+    assertEquals(RedundancyCalculator.pid(10, 0), 100f);
+    assertEquals(RedundancyCalculator.pid(10, 3), 70f);
+    assertEquals(RedundancyCalculator.pid(3, 1),
+            (float) (100D * 2 / 3));
+  }
+
+  @Test(groups = "Functional")
+  public void testMismatchLimit()
+  {
+    /*
+     * 70% identity over 10 columns is 3 mismatches
+     */
+    assertEquals(RedundancyCalculator.mismatchLimit(10, 70f), 3);
+    assertEquals(RedundancyCalculator.mismatchLimit(10, 69.9f), 4);
+    assertEquals(RedundancyCalculator.mismatchLimit(10, 0f), 10);
+    assertEquals(RedundancyCalculator.mismatchLimit(10, 100f), 0);
+    for (int length = 1; length < 50; length++)
+    {
+      for (int mm = 0; mm <= length; mm++)
+      {
+        float pid = RedundancyCalculator.pid(length, mm);
+        assertEquals(RedundancyCalculator.mismatchLimit(length, pid), mm);
+      }
+    }
+  }
+
+  @Test(groups = "Functional")
+  public void testMismatchLowerBound()
+  {
+    RedundancyCalculator calc = new RedundancyCalculator(
+            new String[]
+            { "AAAACCCC", "aaaaGGGG", "AAAA----", "AAA" }, false);
+    // 8 residue pairs, at most 4 (A) identities
+    assertEquals(calc.mismatchLowerBound(0, 1, 8), 4);
+    // 4 residue pairs, could all be identical
+    assertEquals(calc.mismatchLowerBound(0, 2, 8), 0);
+    // different lengths - no bound
+    assertEquals(calc.mismatchLowerBound(0, 3, 3), 0);
+  }
+
+  /**
+   * The redundancy vector matches that from computing the PID of every pair
+   * of sequences
+   */
+  @Test(groups = "Functional")
+  public void testCompute()
+  {
+    Random r = new Random(37);
+    for (int trial = 0; trial < 10; trial++)
+    {
+      String[] seqs = makeSequences(r, 20 + r.nextInt(60),
+              5 + r.nextInt(40));
+      assertEquals(new RedundancyCalculator(seqs, false).compute(),
+              naiveRedundancy(seqs, false));
+      assertEquals(new RedundancyCalculator(seqs, true).compute(),
+              naiveRedundancy(seqs, true));
+    }
+  }
+
+  /**
+   * Makes families of related sequences (mutated and gapped copies of a few
+   * ancestors), with some lower case and some of differing length
+   */
+  private static String[] makeSequences(Random r, int count, int width)
+  {
+    String residues = "ACDEFGHIKLMNPQRSTVWYX";
+    String[] ancestors = new String[1 + count / 8];
+    for (int a = 0; a < ancestors.length; a++)
+    {
+      StringBuilder sb = new StringBuilder();
+      for (int k = 0; k < width; k++)
+      {
+        sb.append(residues.charAt(r.nextInt(residues.length())));
+      }
+      ancestors[a] = sb.toString();
+    }
+    String[] seqs = new String[count];
+    for (int i = 0; i < count; i++)
+    {
+      char[] chars = ancestors[r.nextInt(ancestors.length)].toCharArray();
+      for (int k = 0; k < chars.length; k++)
+      {
+        int dice = r.nextInt(20);
+        if (dice == 0)
+        {
+          chars[k] = '-';
+        }
+        else if (dice == 1)
+        {
+          chars[k] = residues.charAt(r.nextInt(residues.length()));
+        }
+        else if (dice == 2)
+        {
+          chars[k] = Character.toLowerCase(chars[k]);
+        }
+      }
+      String seq = new String(chars);
+      seqs[i] = r.nextInt(10) == 0 ? seq.substring(r.nextInt(width))
+              : seq;
+    }
+    return seqs;
+  }
+
+  private static float[] naiveRedundancy(String[] seqs, boolean ungapped)
+  {
+    SimilarityParams params = new SimilarityParams(true, true, true, true);
+    float[] redundancy = new float[seqs.length];
+    int[] lengths = new int[seqs.length];
+    String[] compared = new String[seqs.length];
+    for (int i = 0; i < seqs.length; i++)
+    {
+      String ug = AlignSeq.extractGaps(Comparison.GapChars, seqs[i]);
+      lengths[i] = ug.length();
+      compared[i] = ungapped ? ug : seqs[i];
+    }
+    for (int i = 0; i < seqs.length; i++)
+    {
+      for (int j = 0; j < i; j++)
+      {
+        float pid = (float) PIDModel.computePID(compared[i], compared[j],
+                params);
+        int target = lengths[j] < lengths[i] ? j : i;
+        redundancy[target] = Math.max(redundancy[target], pid);
+      }
+    }
+    return redundancy;
+  }
+}
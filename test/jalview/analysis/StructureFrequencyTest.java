@@ -0,0 +1,149 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.analysis;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import jalview.datamodel.AlignmentAnnotation;
+import jalview.datamodel.Annotation;
+import jalview.datamodel.Sequence;
+import jalview.datamodel.SequenceFeature;
+import jalview.datamodel.SequenceI;
+import jalview.datamodel.StructureProfiles;
+
+public class StructureFrequencyTest
+{
+  /**
+   * Makes an RNA secondary structure annotation from a dot-bracket string
+   */
+  private static AlignmentAnnotation makeStructure(String dotBracket)
+  {
+    Annotation[] anns = new Annotation[dotBracket.length()];
+    for (int i = 0; i < anns.length; i++)
+    {
+      char c = dotBracket.charAt(i);
+      anns[i] = new Annotation(String.valueOf(c), "", c, 0f);
+    }
+    return new AlignmentAnnotation("SS", "secondary structure", anns);
+  }
+
+  @Test(groups = "Functional")
+  public void testFindPairs()
+  {
+    SequenceFeature[] pairs = new SequenceFeature[] {
+        new SequenceFeature("RNA helix", "", 1, 6, null),
+        new SequenceFeature("RNA helix", "", 2, 5, null),
+        new SequenceFeature("RNA helix", "", 2, 4, null) };
+    int[] partners = StructureFrequency.findPairs(pairs, 8);
+    assertEquals(partners, new int[] { -1, 6, 5, -1, -1, -1, -1, -1 });
+    for (int i = 0; i < 8; i++)
+    {
+      assertEquals(partners[i], StructureFrequency.findPair(pairs, i));
+    }
+  }
+
+  @Test(groups = "Functional")
+  public void testCalculate()
+  {
+    SequenceI[] seqs = new SequenceI[] { new Sequence("s1", "GAAAC"),
+        new Sequence("s2", "gaaau"), new Sequence("s3", "AGGGU"),
+        new Sequence("s4", "G-AAC"), new Sequence("s5", "-AAAC") };
+    AlignmentAnnotation rna = makeStructure("(...)");
+    assertTrue(rna.isValidStruc());
+
+    StructureProfiles profiles = new StructureProfiles(5, seqs.length,
+            true);
+    StructureFrequency.calculate(seqs, 0, 5, profiles, rna);
+
+    /*
+     * 3 canonical pairs (GC, GC, AU) and one wobble pair (GU);
+     * one sequence gapped
+     */
+    assertEquals(profiles.getMaxResidue(0), '(');
+    assertEquals(profiles.getMaxResidue(4), ')');
+    assertEquals(profiles.getCount(0), 4);
+    assertEquals(profiles.getCount(4), 4);
+    assertEquals(profiles.getGappedCount(0), 1);
+    assertEquals(profiles.getPercentageIdentity(0, false), 80f);
+    assertEquals(profiles.getPercentageIdentity(4, true), 100f);
+    int[] counts = profiles.getPairCounts(0);
+    assertEquals(counts[StructureProfiles.getPairIndex('G', 'C')], 2);
+    assertEquals(counts[StructureProfiles.getPairIndex('G', 'U')], 1);
+    assertEquals(counts[StructureProfiles.getPairIndex('A', 'U')], 1);
+    assertEquals(profiles.getPairCounts(4), counts);
+
+    /*
+     * unpaired columns
+     */
+    assertEquals(profiles.getMaxResidue(2), '-');
+    assertEquals(profiles.getCount(2), 0);
+    assertNull(profiles.getPairCounts(2));
+
+    /*
+     * profile for logo: 3 distinct pairs, percentages of non-gapped
+     */
+    int[] profile = StructureFrequency.extractProfile(profiles, 0, true);
+    assertEquals(profile[0], AlignmentAnnotation.STRUCTURE_PROFILE);
+    assertEquals(profile[1], 3);
+    assertEquals(profile[3], 'G');
+    assertEquals(profile[4], 'C');
+    assertEquals(profile[5], 50);
+
+    AlignmentAnnotation consensus = new AlignmentAnnotation("cons", "",
+            new Annotation[5]);
+    StructureFrequency.completeConsensus(consensus, profiles, 0, 5, false,
+            false, seqs.length);
+    assertEquals(consensus.annotations[0].displayCharacter, "(");
+    assertEquals(consensus.annotations[0].value, 80f);
+    assertEquals(consensus.annotations[4].displayCharacter, ")");
+    assertEquals(consensus.annotations[2].displayCharacter, "-");
+  }
+
+  /**
+   * Without pair counts, the consensus is the same but no profile is
+   * available
+   */
+  @Test(groups = "Functional")
+  public void testCalculate_noPairCounts()
+  {
+    SequenceI[] seqs = new SequenceI[] { new Sequence("s1", "GAAAG"),
+        new Sequence("s2", "GAAAA"), new Sequence("s3", "GCCCU") };
+    StructureProfiles profiles = new StructureProfiles(5, seqs.length,
+            false);
+    StructureFrequency.calculate(seqs, 0, 5, profiles,
+            makeStructure("(...)"));
+
+    /*
+     * 2 other pairs (GG, GA) outnumber one wobble pair
+     */
+    assertEquals(profiles.getMaxResidue(0), '{');
+    assertEquals(profiles.getMaxResidue(4), '}');
+    assertEquals(profiles.getCount(0), 1);
+    assertFalse(profiles.hasPairCounts());
+    assertNull(profiles.getPairCounts(0));
+    assertNull(StructureFrequency.extractProfile(profiles, 0, false));
+  }
+}
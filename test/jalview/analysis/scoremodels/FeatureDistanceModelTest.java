@@ -39,8 +39,10 @@ import jalview.io.FileLoader;
 import jalview.math.MatrixI;
 
 import java.util.Arrays;
+import java.util.concurrent.CancellationException;
 
 import org.testng.Assert;
+import org.testng.SkipException;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
@@ -316,6 +318,71 @@ public class FeatureDistanceModelTest
     assertEquals(distances.getValue(0, 1), 6d / 6);// should be 6d/6
   }
 
+  /**
+   * Verify that an interrupted (parallel) calculation is abandoned rather than
+   * answering a partly filled matrix
+   */
+  @Test(groups = "Functional")
+  public void testFindDistances_interrupted()
+  {
+    if (Runtime.getRuntime().availableProcessors() < 2)
+    {
+      throw new SkipException("needs more than one processor");
+    }
+    SequenceI[] seqs = new SequenceI[200];
+    for (int i = 0; i < seqs.length; i++)
+    {
+      seqs[i] = new Sequence("s" + i, "FRKSFRKSFRKS");
+      seqs[i].addSequenceFeature(new SequenceFeature("domain", null,
+              1 + i % 5, 8, 0f, null));
+    }
+    AlignFrame af = new AlignFrame(new Alignment(seqs), 300, 300);
+    af.setShowSeqFeatures(true);
+    af.getFeatureRenderer().findAllFeatures(true);
+    AlignmentView view = af.getViewport().getAlignmentView(false);
+    ScoreModelI sm = ScoreModels.getInstance().getScoreModel(
+            new FeatureDistanceModel().getName(), af.alignPanel);
+
+    Thread.currentThread().interrupt();
+    try
+    {
+      sm.findDistances(view, SimilarityParams.Jalview);
+      Assert.fail("expected CancellationException");
+    } catch (CancellationException e)
+    {
+      assertTrue(Thread.currentThread().isInterrupted());
+    } finally
+    {
+      Thread.interrupted();
+    }
+  }
+
+  /**
+   * Test the count of feature types on one sequence but not the other, over
+   * bitsets of two words per residue
+   */
+  @Test(groups = "Functional")
+  public void testCountDisjunction()
+  {
+    /*
+     * columns: residue-residue, gap-residue, gap-gap, residue-gap
+     * bits1 residues: {0, 1, 33}, {32}
+     * bits2 residues: {1}, {0, 40}, {1, 33, 34}
+     */
+    int[] rows1 = new int[] { 0, -1, -1, 1 };
+    int[] bits1 = new int[] { 0x3, 0x2, 0, 0x1 };
+    int[] rows2 = new int[] { 0, 1, -1, -1 };
+    int[] bits2 = new int[] { 0x2, 0, 0x1, 0x100, 0x2, 0x6 };
+
+    /*
+     * scores 2 + 2 + 0 + 1
+     */
+    assertEquals(FeatureDistanceModel.countDisjunction(rows1, bits1, rows2,
+            bits2, 2, true), 5);
+    assertEquals(FeatureDistanceModel.countDisjunction(rows1, bits1, rows2,
+            bits2, 2, false), 2);
+  }
+
   /**
    * <pre>
    * Set up
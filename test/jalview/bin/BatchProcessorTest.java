@@ -0,0 +1,121 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ * 
+ * This file is part of Jalview.
+ * 
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *  
+ * Jalview is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.bin;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import jalview.gui.JvOptionPane;
+
+public class BatchProcessorTest
+{
+  @BeforeClass(alwaysRun = true)
+  public void setUp()
+  {
+    JvOptionPane.setInteractiveMode(false);
+    JvOptionPane.setMockResponse(JvOptionPane.CANCEL_OPTION);
+    Cache.loadProperties("test/jalview/io/testProps.jvprops");
+  }
+
+  @Test(groups = "Functional")
+  public void testSubstitute()
+  {
+    assertEquals(BatchProcessor.substitute("out/{name}.fa",
+            "data/PF00111.sto"), "out/PF00111.fa");
+    assertEquals(BatchProcessor.substitute("{name}_{name}.gff",
+            "C:\\data\\a.b.fa"), "a.b_a.b.gff");
+    assertEquals(BatchProcessor.substitute("out/{name}.fa", "noext"),
+            "out/noext.fa");
+    assertEquals(BatchProcessor.substitute("fixed.fa", "data/x.fa"),
+            "fixed.fa");
+  }
+
+  @Test(groups = "Functional")
+  public void testResolveInputs() throws IOException
+  {
+    File dir = Files.createTempDirectory("batch").toFile();
+    dir.deleteOnExit();
+    File f1 = new File(dir, "b.fa");
+    File f2 = new File(dir, "a.fa");
+    File f3 = new File(dir, "c.txt");
+    for (File f : new File[] { f1, f2, f3 })
+    {
+      f.createNewFile();
+      f.deleteOnExit();
+    }
+
+    List<String> inputs = BatchProcessor
+            .resolveInputs(new File(dir, "*.fa").getPath());
+    assertEquals(inputs, Arrays.asList(f2.getPath(), f1.getPath()));
+
+    File manifest = new File(dir, "manifest.txt");
+    manifest.deleteOnExit();
+    try (PrintWriter pw = new PrintWriter(manifest))
+    {
+      pw.println("# inputs");
+      pw.println(f1.getPath());
+      pw.println();
+      pw.println("  " + f3.getPath() + " ");
+    }
+    inputs = BatchProcessor.resolveInputs(manifest.getPath());
+    assertEquals(inputs, Arrays.asList(f1.getPath(), f3.getPath()));
+  }
+
+  @Test(groups = "Functional")
+  public void testProcess() throws IOException
+  {
+    File dir = Files.createTempDirectory("batchout").toFile();
+    dir.deleteOnExit();
+    String outTemplate = new File(dir, "{name}.pir").getPath();
+    BatchProcessor batch = new BatchProcessor(new ArgsParser(
+            new String[]
+            { "-colour", "clustal", "-pir",
+                outTemplate }));
+
+    List<BatchProcessor.BatchResult> results = batch.process(
+            Arrays.asList("examples/uniref50.fa", "examples/PF00111_seed.stk",
+                    "examples/no_such_file.fa"));
+
+    assertEquals(results.size(), 3);
+    assertTrue(results.get(0).isSuccess());
+    assertTrue(results.get(1).isSuccess());
+    assertFalse(results.get(2).isSuccess());
+    assertEquals(results.get(2).input, "examples/no_such_file.fa");
+
+    File out1 = new File(dir, "uniref50.pir");
+    File out2 = new File(dir, "PF00111_seed.pir");
+    out1.deleteOnExit();
+    out2.deleteOnExit();
+    assertTrue(out1.length() > 0);
+    assertTrue(out2.length() > 0);
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.bin;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.awt.EventQueue;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import jalview.bin.MemoryMonitor.Pressure;
+import jalview.bin.MemoryMonitor.PressureListener;
+
+public class MemoryMonitorTest
+{
+  @AfterMethod(alwaysRun = true)
+  public void tearDown()
+  {
+    MemoryMonitor.getInstance().setPressure(Pressure.NORMAL);
+  }
+
+  @Test(groups = "Functional")
+  public void testGetPressure()
+  {
+    assertSame(MemoryMonitor.getPressure(0, 80, 92), Pressure.NORMAL);
+    assertSame(MemoryMonitor.getPressure(79, 80, 92), Pressure.NORMAL);
+    assertSame(MemoryMonitor.getPressure(80, 80, 92), Pressure.HIGH);
+    assertSame(MemoryMonitor.getPressure(91, 80, 92), Pressure.HIGH);
+    assertSame(MemoryMonitor.getPressure(92, 80, 92), Pressure.CRITICAL);
+    assertSame(MemoryMonitor.getPressure(100, 80, 92), Pressure.CRITICAL);
+  }
+
+  @Test(groups = "Functional")
+  public void testSetPressure_notifiesListeners()
+          throws InvocationTargetException, InterruptedException
+  {
+    final List<Pressure> notified = new ArrayList<>();
+    PressureListener listener = new PressureListener()
+    {
+      @Override
+      public void memoryPressureChanged(Pressure pressure)
+      {
+        notified.add(pressure);
+      }
+    };
+    MemoryMonitor monitor = MemoryMonitor.getInstance();
+    monitor.addListener(listener);
+
+    monitor.setPressure(Pressure.HIGH);
+    monitor.setPressure(Pressure.HIGH); // no change - not notified
+    monitor.setPressure(Pressure.CRITICAL);
+    monitor.setPressure(Pressure.NORMAL);
+    flushEventQueue();
+    assertEquals(notified.size(), 3);
+    assertSame(notified.get(0), Pressure.HIGH);
+    assertSame(notified.get(1), Pressure.CRITICAL);
+    assertSame(notified.get(2), Pressure.NORMAL);
+
+    monitor.removeListener(listener);
+    monitor.setPressure(Pressure.HIGH);
+    flushEventQueue();
+    assertEquals(notified.size(), 3);
+    assertSame(monitor.getPressure(), Pressure.HIGH);
+    assertTrue(monitor.getStatus().endsWith("pressure HIGH"));
+  }
+
+  private void flushEventQueue()
+          throws InvocationTargetException, InterruptedException
+  {
+    EventQueue.invokeAndWait(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+      }
+    });
+  }
+}
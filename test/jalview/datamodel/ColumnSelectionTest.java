@@ -361,6 +361,79 @@ public class ColumnSelectionTest
     assertEquals("[3, 21, 1]", selected.toString());
   }
 
+  /**
+   * Test that selection order is kept through removing and re-adding columns,
+   * including in runs, and after many changes
+   */
+  @Test(groups = { "Functional" })
+  public void testGetSelected_order()
+  {
+    ColumnSelection cs = new ColumnSelection();
+    cs.addElement(5);
+    cs.addElement(6);
+    cs.addElement(7);
+    cs.addElement(3);
+    cs.addElement(2);
+    cs.addElement(6); // already selected - no change
+    assertEquals("[5, 6, 7, 3, 2]", cs.getSelected().toString());
+
+    cs.removeElement(6);
+    cs.addElement(8);
+    cs.addElement(6);
+    cs.removeElement(2);
+    assertEquals("[5, 7, 3, 8, 6]", cs.getSelected().toString());
+
+    /*
+     * toggle a column many times; order is kept
+     */
+    for (int i = 0; i < 1000; i++)
+    {
+      cs.removeElement(5);
+      cs.addElement(5);
+    }
+    assertEquals("[7, 3, 8, 6, 5]", cs.getSelected().toString());
+    assertEquals(5, cs.getSelected().size());
+    assertEquals(5, cs.getMax() - cs.getMin());
+  }
+
+  /**
+   * Test inverting and marking a large number of columns
+   */
+  @Test(groups = { "Functional" })
+  public void testInvertColumnSelection_manyColumns()
+  {
+    AlignmentGenerator gen = new AlignmentGenerator(false);
+    AlignmentI al = gen.generate(50, 20, 123, 5, 5);
+    int width = 2000000;
+    ColumnSelection cs = new ColumnSelection();
+    cs.addElement(10);
+    cs.addElement(5);
+    al.getHiddenColumns().hideColumns(100, 199);
+
+    cs.invertColumnSelection(0, width, al);
+    assertEquals(width - 102, cs.getSelected().size());
+    assertFalse(cs.contains(5));
+    assertFalse(cs.contains(150));
+    assertTrue(cs.contains(200));
+    List<int[]> ranges = cs.getSelectedRanges();
+    assertEquals(4, ranges.size());
+    assertEquals("[11, 99]", Arrays.toString(ranges.get(2)));
+    assertEquals("[200, 1999999]", Arrays.toString(ranges.get(3)));
+    assertEquals(Integer.valueOf(0), cs.getSelected().get(0));
+    assertEquals(Integer.valueOf(width - 1),
+            cs.getSelected().get(width - 103));
+
+    cs.invertColumnSelection(0, width, al);
+    assertEquals("[5, 10]", cs.getSelected().toString());
+
+    BitSet marked = new BitSet();
+    marked.set(0, width, true);
+    assertTrue(cs.markColumns(marked, 0, width - 1, false, true, true));
+    assertEquals(width - 2, cs.getSelected().size());
+    assertFalse(cs.contains(5));
+    assertFalse(cs.contains(10));
+  }
+
   /**
    * Test to verify that the list returned by getSelection cannot be modified
    */
@@ -32,7 +32,10 @@ import static org.testng.internal.junit.ArrayAsserts.assertArrayEquals;
 import jalview.gui.AlignViewport;
 import jalview.gui.JvOptionPane;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeTest;
@@ -113,13 +116,13 @@ public class HiddenSequencesTest
     HiddenSequences hs = al.getHiddenSequences();
     // initially does nothing
     hs.adjustHeightSequenceAdded();
-    assertNull(hs.hiddenSequences);
+    assertEquals(0, hs.getRowCount());
 
     // hide one sequence
     hs.hideSequence(seqs[3]);
     assertEquals(1, hs.getSize());
     assertEquals(SEQ_COUNT - 1, al.getHeight());
-    assertEquals(SEQ_COUNT, hs.hiddenSequences.length);
+    assertEquals(SEQ_COUNT, hs.getRowCount());
 
     /*
      * add a sequence to the alignment
@@ -130,7 +133,7 @@ public class HiddenSequencesTest
     al.addSequence(new Sequence("a", "b"));
     assertEquals(1, hs.getSize());
     assertEquals(SEQ_COUNT, al.getHeight());
-    assertEquals(SEQ_COUNT + 1, hs.hiddenSequences.length);
+    assertEquals(SEQ_COUNT + 1, hs.getRowCount());
   }
 
   /**
@@ -147,7 +150,7 @@ public class HiddenSequencesTest
     HiddenSequences hs = al.getHiddenSequences();
     // initially does nothing
     hs.adjustHeightSequenceAdded();
-    assertNull(hs.hiddenSequences);
+    assertEquals(0, hs.getRowCount());
 
     // hide two sequences
     hs.hideSequence(seqs[3]);
@@ -156,7 +159,7 @@ public class HiddenSequencesTest
     assertTrue(hs.isHidden(seqs[3]));
     assertTrue(hs.isHidden(seqs[5]));
     assertEquals(SEQ_COUNT - 2, al.getHeight());
-    assertEquals(SEQ_COUNT, hs.hiddenSequences.length);
+    assertEquals(SEQ_COUNT, hs.getRowCount());
 
     /*
      * delete a visible sequence from the alignment
@@ -169,7 +172,7 @@ public class HiddenSequencesTest
     // the visible alignment is unchanged:
     assertEquals(SEQ_COUNT - 3, al.getHeight());
     // sequences array size has decremented:
-    assertEquals(SEQ_COUNT - 1, hs.hiddenSequences.length);
+    assertEquals(SEQ_COUNT - 1, hs.getRowCount());
   }
 
   /**
@@ -345,6 +348,29 @@ public class HiddenSequencesTest
     assertSame(seqs[3], hs.getHiddenSequence(3));
     assertNull(hs.getHiddenSequence(2));
     assertNull(hs.getHiddenSequence(4));
+    assertNull(hs.getHiddenSequence(-1));
+    assertNull(hs.getHiddenSequence(SEQ_COUNT));
+  }
+
+  @Test(groups = "Functional")
+  public void testGetHiddenSequencesInOrder()
+  {
+    AlignmentI al = new Alignment(seqs);
+    HiddenSequences hs = al.getHiddenSequences();
+    assertTrue(hs.getHiddenSequencesInOrder().isEmpty());
+    hs.hideSequence(seqs[5]);
+    hs.hideSequence(seqs[2]);
+    List<SequenceI> hidden = hs.getHiddenSequencesInOrder();
+    assertEquals(2, hidden.size());
+    assertSame(seqs[2], hidden.get(0));
+    assertSame(seqs[5], hidden.get(1));
+
+    /*
+     * the list is a copy
+     */
+    hidden.clear();
+    assertEquals(2, hs.getSize());
+    assertTrue(hs.isHidden(2));
   }
 
   @Test(groups = "Functional")
@@ -537,4 +563,172 @@ public class HiddenSequencesTest
     assertTrue(sg.getSequences().contains(seqs[2]));
     assertFalse(sg.getSequences().contains(seqs[3]));
   }
+
+  /**
+   * Test that hiding sequences in one batch gives the same result as hiding
+   * them one at a time
+   */
+  @Test(groups = "Functional")
+  public void testHideSequences()
+  {
+    AlignmentI al = new Alignment(seqs);
+    HiddenSequences hs = al.getHiddenSequences();
+    hs.hideSequence(seqs[4]);
+    hs.hideSequences(new SequenceI[] { seqs[9], seqs[1], seqs[2], null,
+        seqs[9], seqs[4], seqs[24] });
+
+    assertEquals(5, hs.getSize());
+    assertEquals(SEQ_COUNT - 5, al.getHeight());
+    assertEquals(SEQ_COUNT, hs.getRowCount());
+    for (int i = 0; i < SEQ_COUNT; i++)
+    {
+      boolean hidden = i == 1 || i == 2 || i == 4 || i == 9 || i == 24;
+      assertEquals(hidden ? seqs[i] : null, hs.getHiddenSequence(i));
+    }
+    assertSame(seqs[0], al.getSequenceAt(0));
+    assertSame(seqs[3], al.getSequenceAt(1));
+    assertSame(seqs[5], al.getSequenceAt(2));
+    assertSame(seqs[10], al.getSequenceAt(6));
+    assertSame(seqs[23], al.getSequenceAt(19));
+    assertEquals(3, hs.adjustForHiddenSeqs(1));
+    assertEquals(10, hs.adjustForHiddenSeqs(6));
+
+    hs.showAll(null);
+    assertEquals(0, hs.getSize());
+    assertEquals(SEQ_COUNT, al.getHeight());
+    for (int i = 0; i < SEQ_COUNT; i++)
+    {
+      assertSame(seqs[i], al.getSequenceAt(i));
+    }
+  }
+
+  /**
+   * Test that conversions between visible and absolute rows agree with
+   * counting hidden rows one by one, for random hidden rows
+   */
+  @Test(groups = "Functional")
+  public void testRowConversions_randomHidden()
+  {
+    Random random = new Random(107L);
+    for (int trial = 0; trial < 20; trial++)
+    {
+      AlignmentI al = new Alignment(seqs);
+      HiddenSequences hs = al.getHiddenSequences();
+      for (int i = 0; i < SEQ_COUNT; i++)
+      {
+        if (random.nextInt(3) == 0)
+        {
+          hs.hideSequence(seqs[i]);
+        }
+      }
+      if (trial % 2 == 1 && al.getHeight() > 1)
+      {
+        hs.showSequence(random.nextInt(al.getHeight()), null);
+      }
+
+      if (hs.getRowCount() == 0)
+      {
+        continue;
+      }
+      SequenceI[] hidden = new SequenceI[hs.getRowCount()];
+      for (int i = 0; i < hidden.length; i++)
+      {
+        hidden[i] = hs.getHiddenSequence(i);
+      }
+      for (int row = -2; row < SEQ_COUNT + 3; row++)
+      {
+        /*
+         * absolute to visible: subtract hidden rows up to row
+         */
+        int last = Math.min(row, hidden.length - 1);
+        int count = 0;
+        for (int i = 0; i <= last; i++)
+        {
+          count += hidden[i] == null ? 0 : 1;
+        }
+        assertEquals(row - count, hs.findIndexWithoutHiddenSeqs(row));
+
+        /*
+         * visible to absolute: skip hidden rows
+         */
+        int abs = row;
+        for (int i = 0; i <= abs && i < hidden.length; i++)
+        {
+          abs += hidden[i] == null ? 0 : 1;
+        }
+        assertEquals(abs, hs.adjustForHiddenSeqs(row));
+
+        /*
+         * n visible rows up from row
+         */
+        for (int n = 0; n < 8; n++)
+        {
+          int index = Math.min(row, hidden.length - 1);
+          int visible = 0;
+          while (index > -1 && visible < n)
+          {
+            visible += hidden[index] == null ? 1 : 0;
+            index--;
+          }
+          assertEquals(index, hs.subtractVisibleRows(n, row));
+        }
+      }
+    }
+  }
+
+  /**
+   * Test the method that reveals the hidden sequences above several visible
+   * rows in one pass
+   */
+  @Test(groups = "Functional")
+  public void testShowSequences()
+  {
+    AlignmentI al = new Alignment(seqs);
+    HiddenSequences hs = al.getHiddenSequences();
+    hs.hideSequences(new SequenceI[] { seqs[1], seqs[2], seqs[5], seqs[6],
+        seqs[SEQ_COUNT - 1] });
+    assertEquals(SEQ_COUNT - 5, al.getHeight());
+    assertSame(seqs[3], al.getSequenceAt(1));
+
+    /*
+     * reveal above seqs[3] (a representative) and after the last visible row;
+     * out of range indices are ignored
+     */
+    Map<SequenceI, SequenceCollectionI> reps = new HashMap<>();
+    reps.put(seqs[3], new SequenceGroup());
+    List<SequenceI> revealed = hs.showSequences(
+            new int[]
+            { 1, al.getHeight(), -1, al.getHeight() + 1 }, reps);
+    assertEquals(4, revealed.size());
+    assertTrue(revealed.contains(seqs[1]));
+    assertTrue(revealed.contains(seqs[2]));
+    assertTrue(revealed.contains(seqs[3]));
+    assertTrue(revealed.contains(seqs[SEQ_COUNT - 1]));
+    assertTrue(reps.isEmpty());
+
+    assertEquals(2, hs.getSize());
+    assertEquals(SEQ_COUNT - 2, al.getHeight());
+    assertEquals(SEQ_COUNT, hs.getRowCount());
+    assertSame(seqs[5], hs.getHiddenSequence(5));
+    assertSame(seqs[6], hs.getHiddenSequence(6));
+    assertEquals(7, hs.adjustForHiddenSeqs(5));
+    for (int i = 0, row = 0; i < SEQ_COUNT; i++)
+    {
+      if (i != 5 && i != 6)
+      {
+        assertSame(seqs[i], al.getSequenceAt(row++));
+      }
+    }
+
+    /*
+     * reveal the rest
+     */
+    revealed = hs.showAll(null);
+    assertEquals(2, revealed.size());
+    assertEquals(0, hs.getSize());
+    for (int i = 0; i < SEQ_COUNT; i++)
+    {
+      assertSame(seqs[i], al.getSequenceAt(i));
+    }
+  }
 }
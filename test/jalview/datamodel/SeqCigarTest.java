@@ -66,6 +66,37 @@ public class SeqCigarTest
     }
   }
 
+  @Test(groups = { "Functional" })
+  public void testFindPositions()
+  {
+    SequenceI oseq = new Sequence("MySeq", "ASD---ASD---ASD", 37, 45);
+    oseq.createDatasetSequence();
+    SeqCigar cs = new SeqCigar(oseq);
+    int[] positions = cs.findPositions(-1, oseq.getLength());
+    assertEquals(oseq.getLength() + 2, positions.length);
+    for (int c = -1; c <= oseq.getLength(); c++)
+    {
+      assertEquals("Position for column " + c, cs.findPosition(c),
+              positions[c + 1]);
+    }
+
+    /*
+     * sub-range, and a cigar with deletions
+     */
+    positions = cs.findPositions(4, 7);
+    assertEquals(-1, positions[0]);
+    assertEquals(-1, positions[1]);
+    assertEquals(40, positions[2]);
+    assertEquals(41, positions[3]);
+    cs.deleteRange(1, 2);
+    positions = cs.findPositions(0, 12);
+    for (int c = 0; c <= 12; c++)
+    {
+      assertEquals("Position for column " + c, cs.findPosition(c),
+              positions[c]);
+    }
+  }
+
   /*
    * refactored 'as is' from main method
    * 
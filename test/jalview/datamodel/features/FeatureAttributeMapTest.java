@@ -0,0 +1,158 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.datamodel.features;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.testng.annotations.Test;
+import junit.extensions.PA;
+
+public class FeatureAttributeMapTest
+{
+  @Test(groups = "Functional")
+  public void testPutGet()
+  {
+    Map<String, Object> map = new FeatureAttributeMap<>();
+    Map<String, Object> expected = new LinkedHashMap<>();
+    assertTrue(map.isEmpty());
+    for (int i = 0; i < 20; i++)
+    {
+      assertNull(map.put("key" + i, "value" + i));
+      expected.put("key" + i, "value" + i);
+    }
+    assertEquals(map.size(), 20);
+    assertEquals(map.get("key3"), "value3");
+    assertEquals(map.get("key17"), "value17");
+    assertNull(map.get("key20"));
+    assertNull(map.get(null));
+    assertTrue(map.containsKey("key19"));
+    assertFalse(map.containsKey("Key19"));
+
+    assertEquals(map.put("key3", 3), "value3");
+    expected.put("key3", 3);
+    assertEquals(map.get("key3"), 3);
+
+    /*
+     * equal to a LinkedHashMap with the same entries, and iterates in the
+     * same (insertion) order
+     */
+    assertEquals(map, expected);
+    assertEquals(expected, map);
+    assertEquals(map.hashCode(), expected.hashCode());
+    assertEquals(map.toString(), expected.toString());
+  }
+
+  @Test(groups = "Functional")
+  public void testRemove()
+  {
+    Map<String, Object> map = new FeatureAttributeMap<>();
+    map.put("a", "1");
+    map.put("b", "2");
+    map.put("c", "3");
+    assertEquals(map.remove("b"), "2");
+    assertNull(map.remove("b"));
+    assertEquals(map.toString(), "{a=1, c=3}");
+
+    Iterator<Entry<String, Object>> it = map.entrySet().iterator();
+    it.next();
+    it.remove();
+    assertEquals(it.next().getKey(), "c");
+    assertFalse(it.hasNext());
+    assertEquals(map.toString(), "{c=3}");
+
+    map.entrySet().iterator().next().setValue("4");
+    assertEquals(map.get("c"), "4");
+    map.clear();
+    assertTrue(map.isEmpty());
+  }
+
+  /**
+   * Maps with the same names added in the same order share their schema, and
+   * string values are interned
+   */
+  @Test(groups = "Functional")
+  public void testSharing()
+  {
+    FeatureAttributeMap<Object> map1 = new FeatureAttributeMap<>();
+    map1.put("AF", new String("0.5"));
+    map1.put("Consequence", "missense_variant");
+    FeatureAttributeMap<Object> map2 = new FeatureAttributeMap<>();
+    map2.put("AF", new String("0.5"));
+    map2.put("Consequence", "synonymous_variant");
+    assertSame(PA.getValue(map1, "schema"), PA.getValue(map2, "schema"));
+    assertSame(map1.get("AF"), map2.get("AF"));
+
+    FeatureAttributeMap<Object> map3 = new FeatureAttributeMap<>(map1);
+    assertEquals(map3, map1);
+    assertSame(PA.getValue(map3, "schema"), PA.getValue(map1, "schema"));
+    map3.put("AF", "0.6");
+    assertEquals(map1.get("AF"), "0.5");
+
+    map2.remove("AF");
+    map2.put("AF", "0.5");
+    assertEquals(map2.keySet().iterator().next(), "Consequence");
+  }
+
+  /**
+   * Schemas are shared as long as a map uses them (including via a longer
+   * schema), but are not held once no map uses them
+   */
+  @Test(groups = "Functional")
+  public void testSharing_weakSchemas()
+  {
+    FeatureAttributeMap<Object> map1 = new FeatureAttributeMap<>();
+    map1.put("weak1", "a");
+    map1.put("weak2", "b");
+    map1.put("weak3", "c");
+    FeatureAttributeMap<Object> map2 = new FeatureAttributeMap<>();
+    map2.put("weak1", "d");
+    map2.put("unused", "e");
+    WeakReference<Object> unused = new WeakReference<>(
+            PA.getValue(map2, "schema"));
+    map2 = null;
+
+    for (int i = 0; i < 10 && unused.get() != null; i++)
+    {
+      System.gc();
+    }
+    assertNull(unused.get());
+
+    /*
+     * the intermediate schema [weak1, weak2] is still shared, as map1's
+     * schema extends it
+     */
+    FeatureAttributeMap<Object> map3 = new FeatureAttributeMap<>();
+    map3.put("weak1", "a");
+    map3.put("weak2", "b");
+    map3.put("weak3", "c");
+    assertSame(PA.getValue(map3, "schema"), PA.getValue(map1, "schema"));
+  }
+}
@@ -28,7 +28,9 @@ import static org.testng.Assert.assertTrue;
 import jalview.datamodel.SequenceFeature;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import org.testng.annotations.Test;
@@ -374,6 +376,78 @@ public class FeatureStoreTest
     assertEquals(fs.getFeatureCount(false), 1); // no change
   }
 
+  /**
+   * Adding features in batches gives the same result as adding them one at a
+   * time, including omitting duplicates
+   */
+  @Test(groups = "Functional")
+  public void testAddFeatures()
+  {
+    Random r = new Random(7);
+    List<SequenceFeature> toAdd = new ArrayList<>();
+    for (int i = 0; i < 2000; i++)
+    {
+      int begin = 1 + r.nextInt(500);
+      int end = begin + r.nextInt(50);
+      String group = "group" + r.nextInt(3);
+      float score = r.nextInt(4) == 0 ? Float.NaN : r.nextInt(100);
+      int kind = r.nextInt(10);
+      if (kind == 0)
+      {
+        toAdd.add(new SequenceFeature("Metal", "", 0, 0, score, group));
+      }
+      else if (kind == 1)
+      {
+        toAdd.add(new SequenceFeature("disulphide bond", "", begin, end,
+                score, group));
+      }
+      else
+      {
+        toAdd.add(new SequenceFeature("Metal", "", begin, end, score,
+                group));
+      }
+    }
+    // duplicates within the batch
+    toAdd.addAll(toAdd.subList(0, 100));
+
+    FeatureStore fs1 = new FeatureStore();
+    int added = 0;
+    for (SequenceFeature sf : toAdd)
+    {
+      added += fs1.addFeature(sf) ? 1 : 0;
+    }
+
+    /*
+     * add a large batch (rebuilding the store), a smaller one (inserting
+     * into it), and one of features already stored
+     */
+    FeatureStore fs2 = new FeatureStore();
+    assertEquals(fs2.addFeatures(toAdd.subList(0, 1900))
+            + fs2.addFeatures(toAdd.subList(1900, 2000))
+            + fs2.addFeatures(toAdd.subList(2000, toAdd.size())), added);
+    assertEquals(fs2.addFeatures(toAdd), 0);
+
+    assertEquals(fs2.getFeatureCount(true), fs1.getFeatureCount(true));
+    assertEquals(fs2.getFeatureCount(false), fs1.getFeatureCount(false));
+    assertEquals(fs2.getTotalFeatureLength(), fs1.getTotalFeatureLength());
+    assertEquals(fs2.getFeatureGroups(true), fs1.getFeatureGroups(true));
+    assertEquals(fs2.getFeatureGroups(false), fs1.getFeatureGroups(false));
+    assertEquals(fs2.getMinimumScore(true), fs1.getMinimumScore(true));
+    assertEquals(fs2.getMaximumScore(true), fs1.getMaximumScore(true));
+    assertEquals(fs2.getMinimumScore(false), fs1.getMinimumScore(false));
+    assertEquals(fs2.getMaximumScore(false), fs1.getMaximumScore(false));
+    for (int from = 0; from < 560; from += 7)
+    {
+      assertEquals(
+              new HashSet<>(fs2.findOverlappingFeatures(from, from + 10)),
+              new HashSet<>(fs1.findOverlappingFeatures(from, from + 10)));
+    }
+    for (SequenceFeature sf : toAdd)
+    {
+      assertTrue(fs2.contains(sf));
+    }
+  }
+
   @Test(groups = "Functional")
   public void testIsEmpty()
   {
@@ -69,6 +69,39 @@ public class SequenceFeaturesTest
     assertFalse(store.add(sf3)); // already contained
   }
 
+  @Test(groups = "Functional")
+  public void testAddFeatures()
+  {
+    SequenceFeaturesI store = new SequenceFeatures();
+    SequenceFeature sf1 = new SequenceFeature("Metal", "desc", 10, 20,
+            Float.NaN, null);
+    store.add(sf1);
+
+    List<SequenceFeature> features = new ArrayList<>();
+    features.add(sf1); // already stored
+    SequenceFeature sf2 = new SequenceFeature("Metal", "desc", 15, 18, 2f,
+            "grp");
+    features.add(sf2);
+    features.add(new SequenceFeature(sf2)); // duplicate in batch
+    SequenceFeature sf3 = new SequenceFeature("Pfam", "desc2", 0, 0,
+            Float.NaN, null);
+    features.add(sf3);
+    SequenceFeature sf4 = new SequenceFeature("Cath", "desc3", 5, 30, 4f,
+            null);
+    features.add(sf4);
+    features.add(new SequenceFeature(null, "desc", 1, 2, null));
+
+    assertEquals(store.addFeatures(features), 3);
+    assertEquals(store.getFeatureCount(true), 3);
+    assertEquals(store.getFeatureCount(false), 1);
+    assertEquals(store.getFeatureTypes().size(), 3);
+    assertEquals(store.findFeatures(16, 16, "Metal").size(), 2);
+    assertEquals(store.getFeatureGroups(true, "Metal").size(), 2);
+    assertEquals(store.getMinimumScore("Metal", true), 2f);
+    assertEquals(store.getMaximumScore("Cath", true), 4f);
+    assertEquals(store.getTotalFeatureLength(), 11 + 4 + 26);
+  }
+
   @Test(groups = "Functional")
   public void testGetPositionalFeatures()
   {
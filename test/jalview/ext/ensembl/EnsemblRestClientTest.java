@@ -20,17 +20,26 @@
  */
 package jalview.ext.ensembl;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
 import jalview.datamodel.AlignmentI;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
 public class EnsemblRestClientTest
 {
   private EnsemblRestClient sf;
@@ -90,4 +99,45 @@ public class EnsemblRestClientTest
       assertTrue(sf.checkEnsembl(), "Error on " + (i + 1) + "th ping");
     }
   }
+
+  /**
+   * Pings a local fake Ensembl server which refuses the first request with a
+   * 429 (Too Many Requests) response
+   */
+  @Test(groups = "Functional")
+  public void testCheckEnsembl_retryAfter() throws IOException
+  {
+    final AtomicInteger requests = new AtomicInteger();
+    HttpServer server = HttpServer
+            .create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/info/ping", new HttpHandler()
+    {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException
+      {
+        boolean refuse = requests.incrementAndGet() == 1;
+        byte[] body = (refuse ? "{}" : "{\"ping\":1}").getBytes();
+        if (refuse)
+        {
+          exchange.getResponseHeaders().add("Retry-After", "0.1");
+        }
+        exchange.sendResponseHeaders(refuse ? 429 : 200, body.length);
+        OutputStream os = exchange.getResponseBody();
+        os.write(body);
+        os.close();
+      }
+    });
+    server.start();
+    try
+    {
+      EnsemblRestClient client = new EnsemblXref(
+              "http://localhost:" + server.getAddress().getPort(),
+              "ENSEMBL", "1");
+      assertTrue(client.checkEnsembl());
+      assertEquals(requests.get(), 2);
+    } finally
+    {
+      server.stop(0);
+    }
+  }
 }
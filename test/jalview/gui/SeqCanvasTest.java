@@ -20,8 +20,13 @@
  */
 package jalview.gui;
 
+import java.awt.Color;
 import java.awt.Font;
 import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import javax.swing.SwingUtilities;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -390,4 +395,119 @@ public class SeqCanvasTest
     assertNull(av.getSearchResults(),
             "No higlighted search results should be present after deselecting all.");
   }
+
+  /**
+   * Verify that drawing in parallel tiles gives the same image as drawing
+   * serially
+   */
+  @Test(groups = "Functional")
+  public void testDrawPanel_tiled()
+  {
+    AlignViewport av = af.getViewport();
+    av.antiAlias = false;
+    av.setShowSequenceFeatures(true);
+    SeqCanvas testee = af.alignPanel.getSeqPanel().seqCanvas;
+    int endRes = av.getAlignment().getWidth() - 1;
+    int endSeq = av.getAlignment().getHeight() - 1;
+
+    Cache.applicationProperties.setProperty(
+            SeqCanvasTileRenderer.PARALLEL_RENDERING,
+            Boolean.FALSE.toString());
+    BufferedImage serial = drawPanel(testee, endRes, endSeq);
+
+    Cache.applicationProperties.setProperty(
+            SeqCanvasTileRenderer.PARALLEL_RENDERING,
+            Boolean.TRUE.toString());
+    SeqCanvasTileRenderer tiler = (SeqCanvasTileRenderer) PA
+            .getValue(testee, "tileRenderer");
+    PA.setValue(tiler, "minTiledCells", 1);
+    BufferedImage tiled = drawPanel(testee, endRes, endSeq);
+
+    for (int x = 0; x < serial.getWidth(); x++)
+    {
+      for (int y = 0; y < serial.getHeight(); y++)
+      {
+        assertEquals(tiled.getRGB(x, y), serial.getRGB(x, y),
+                "at " + x + "," + y);
+      }
+    }
+  }
+
+  /**
+   * Verify that a repaint does not wait for tiles to be rendered, but is
+   * incomplete until they are ready, and then draws the same image as drawing
+   * serially
+   * 
+   * @throws Exception
+   */
+  @Test(groups = "Functional")
+  public void testDrawPanel_tiledRepaint() throws Exception
+  {
+    AlignViewport av = af.getViewport();
+    av.antiAlias = false;
+    SeqCanvas testee = af.alignPanel.getSeqPanel().seqCanvas;
+    int endRes = av.getAlignment().getWidth() - 1;
+    int endSeq = av.getAlignment().getHeight() - 1;
+
+    Cache.applicationProperties.setProperty(
+            SeqCanvasTileRenderer.PARALLEL_RENDERING,
+            Boolean.FALSE.toString());
+    BufferedImage serial = drawPanel(testee, endRes, endSeq);
+
+    Cache.applicationProperties.setProperty(
+            SeqCanvasTileRenderer.PARALLEL_RENDERING,
+            Boolean.TRUE.toString());
+    final SeqCanvasTileRenderer tiler = (SeqCanvasTileRenderer) PA
+            .getValue(testee, "tileRenderer");
+    PA.setValue(tiler, "minTiledCells", 1);
+
+    tiler.beginRepaint();
+    drawPanel(testee, endRes, endSeq);
+    assertFalse(tiler.endRepaint());
+
+    /*
+     * tiles are handed to the event thread when ready
+     */
+    final boolean[] rendering = new boolean[] { true };
+    long timeout = System.currentTimeMillis() + 60000;
+    while (rendering[0] && System.currentTimeMillis() < timeout)
+    {
+      Thread.sleep(10);
+      SwingUtilities.invokeAndWait(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          rendering[0] = (Boolean) PA.getValue(tiler, "rendering");
+        }
+      });
+    }
+    assertFalse(rendering[0]);
+
+    tiler.beginRepaint();
+    BufferedImage tiled = drawPanel(testee, endRes, endSeq);
+    assertTrue(tiler.endRepaint());
+    for (int x = 0; x < serial.getWidth(); x++)
+    {
+      for (int y = 0; y < serial.getHeight(); y++)
+      {
+        assertEquals(tiled.getRGB(x, y), serial.getRGB(x, y),
+                "at " + x + "," + y);
+      }
+    }
+  }
+
+  private BufferedImage drawPanel(SeqCanvas canvas, int endRes, int endSeq)
+  {
+    AlignViewport av = canvas.av;
+    BufferedImage image = new BufferedImage(
+            (endRes + 1) * av.getCharWidth(),
+            (endSeq + 1) * av.getCharHeight(), BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = image.createGraphics();
+    g.setColor(Color.white);
+    g.fillRect(0, 0, image.getWidth(), image.getHeight());
+    canvas.drawPanelForPrinting(g, 0, endRes, 0, endSeq);
+    g.dispose();
+    return image;
+  }
 }
@@ -21,6 +21,7 @@
 package jalview.io;
 
 import java.io.File;
+import java.io.FilenameFilter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -107,6 +108,90 @@ public class BackupFilesTest
     Assert.assertTrue(backupFiles.length == 0);
   }
 
+  // a failed save with backupfiles disabled leaves the existing file alone
+  @Test(groups = { "Functional" })
+  public void noBackupsEnabledFailedSaveTest() throws Exception
+  {
+    setBackupFilesOptions(false, true, true);
+    initNewFileForTesting();
+    byte[] before = Files.readAllBytes(Paths.get(newFile));
+
+    /*
+     * a format whose writer fails
+     */
+    FileFormatI failing = new FileFormatI()
+    {
+      @Override
+      public AlignmentFileReaderI getReader(FileParse source)
+      {
+        return null;
+      }
+
+      @Override
+      public AlignmentFileWriterI getWriter(AlignmentI al)
+      {
+        throw new IllegalStateException("failed to write");
+      }
+
+      @Override
+      public boolean isComplexAlignFile()
+      {
+        return false;
+      }
+
+      @Override
+      public String getName()
+      {
+        return "Failing";
+      }
+
+      @Override
+      public String getExtensions()
+      {
+        return "fail";
+      }
+
+      @Override
+      public boolean isReadable()
+      {
+        return false;
+      }
+
+      @Override
+      public boolean isWritable()
+      {
+        return true;
+      }
+
+      @Override
+      public boolean isTextFormat()
+      {
+        return true;
+      }
+
+      @Override
+      public boolean isStructureFile()
+      {
+        return false;
+      }
+    };
+    af.saveAlignment(newFile, failing);
+
+    Assert.assertFalse(af.isSaveAlignmentSuccessful());
+    Assert.assertEquals(Files.readAllBytes(Paths.get(newFile)), before);
+
+    // no temporary file left behind
+    File[] temps = new File(testDir).listFiles(new FilenameFilter()
+    {
+      @Override
+      public boolean accept(File dir, String name)
+      {
+        return name.startsWith(newFilename) && name.endsWith(".tmp");
+      }
+    });
+    Assert.assertEquals(temps.length, 0);
+  }
+
   // save with no numbers in the backup file names
   @Test(groups = { "Functional" })
   public void backupsEnabledSingleFileBackupTest() throws Exception
@@ -322,6 +322,55 @@ public class FeaturesFileTest
     assertEquals(3f, sf.getScore(), 0.001f);
   }
 
+  /**
+   * Test parsing a GFF3 file long enough to be tokenised in several chunks,
+   * with pragmas and comments between features
+   * 
+   * @throws Exception
+   */
+  @Test(groups = { "Functional" })
+  public void testParse_gff3ManyChunks() throws Exception
+  {
+    File f = new File("examples/uniref50.fa");
+    AlignmentI al = readAlignmentFile(f);
+    Map<String, FeatureColourI> colours = new HashMap<>();
+    StringBuilder gffData = new StringBuilder("##gff-version 3\n");
+    int count = 10000;
+    for (int i = 0; i < count; i++)
+    {
+      if (i % 3000 == 0)
+      {
+        gffData.append("###\n# a comment\n\n");
+      }
+      String seqId = i % 2 == 0 ? "FER_CAPAA" : "FER1_SOLLC";
+      int pos = 1 + i % 40;
+      gffData.append(seqId).append("\tsource").append(i % 5)
+              .append("\tMETAL\t").append(pos).append("\t")
+              .append(pos + 5).append("\t").append(i)
+              .append("\t.\t.\tNote=note ").append(i)
+              .append(";evidence=ECO%3B").append(i).append("\n");
+    }
+    FeaturesFile featuresFile = new FeaturesFile(gffData.toString(),
+            DataSourceType.PASTE);
+    assertTrue("Failed to parse features file",
+            featuresFile.parse(al.getDataset(), colours, true));
+
+    List<SequenceFeature> sfs = al.getSequenceAt(0).getDatasetSequence()
+            .getSequenceFeatures();
+    assertEquals(count / 2, sfs.size());
+    sfs = al.getSequenceAt(2).getDatasetSequence().getSequenceFeatures();
+    assertEquals(count / 2, sfs.size());
+    for (SequenceFeature sf : sfs)
+    {
+      int i = (int) sf.getScore();
+      assertEquals(1, i % 2);
+      assertEquals("note " + i, sf.getDescription());
+      assertEquals("ECO;" + i, sf.getValue("evidence"));
+      assertEquals("source" + (i % 5), sf.getFeatureGroup());
+      assertEquals(1 + i % 40, sf.getBegin());
+    }
+  }
+
   /**
    * Test parsing a features file with Jalview format features (but no colour
    * descriptors or startgroup to give the hint not to parse as GFF)
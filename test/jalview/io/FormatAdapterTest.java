@@ -22,13 +22,17 @@ package jalview.io;
 
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertTrue;
 import static org.testng.AssertJUnit.fail;
 
+import jalview.datamodel.Alignment;
 import jalview.datamodel.AlignmentI;
+import jalview.datamodel.Sequence;
 import jalview.datamodel.SequenceI;
 import jalview.gui.JvOptionPane;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -96,6 +100,38 @@ public class FormatAdapterTest
     }
   }
 
+  /**
+   * Test that writing an alignment to a Writer gives the same output as
+   * formatting it as a String, including when output is large enough to be
+   * flushed as it is generated
+   * 
+   * @throws IOException
+   */
+  @Test(groups = { "Functional" }, dataProvider = "formats")
+  public void testFormatSequences_toWriter(FileFormatI format)
+          throws IOException
+  {
+    AlignmentI al = new FormatAdapter().readFile("examples/uniref50.fa",
+            DataSourceType.FILE, FileFormat.Fasta);
+    List<SequenceI> seqs = new ArrayList<>();
+    for (int copy = 0; copy < 40; copy++)
+    {
+      for (SequenceI seq : al.getSequences())
+      {
+        seqs.add(new Sequence(seq.getName() + "_" + copy,
+                seq.getSequenceAsString(), seq.getStart(), seq.getEnd()));
+      }
+    }
+    AlignmentI big = new Alignment(seqs.toArray(new SequenceI[0]));
+
+    String formatted = new FormatAdapter().formatSequences(format, big,
+            false);
+    StringWriter out = new StringWriter();
+    assertTrue(new FormatAdapter().formatSequences(format, big, false,
+            out));
+    assertEquals(format.getName(), formatted, out.toString());
+  }
+
   /**
    * Optionally change the gap character in the string to the given character,
    * depending on the sequence file format
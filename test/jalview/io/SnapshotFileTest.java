@@ -0,0 +1,415 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.io;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import jalview.datamodel.Alignment;
+import jalview.datamodel.AlignmentAnnotation;
+import jalview.datamodel.AlignmentI;
+import jalview.datamodel.Annotation;
+import jalview.datamodel.DBRefEntry;
+import jalview.datamodel.Mapping;
+import jalview.datamodel.PDBEntry;
+import jalview.datamodel.Sequence;
+import jalview.datamodel.SequenceFeature;
+import jalview.datamodel.SequenceGroup;
+import jalview.datamodel.SequenceI;
+import jalview.gui.AlignFrame;
+import jalview.gui.AlignViewport;
+import jalview.gui.JvOptionPane;
+import jalview.schemes.FeatureColour;
+import jalview.util.MapList;
+
+public class SnapshotFileTest
+{
+  @BeforeClass(alwaysRun = true)
+  public void setUpJvOptionPane()
+  {
+    JvOptionPane.setInteractiveMode(false);
+    JvOptionPane.setMockResponse(JvOptionPane.CANCEL_OPTION);
+  }
+
+  @Test(groups = "Functional")
+  public void testIdentify() throws IOException, FileFormatException
+  {
+    File f = writeSnapshot(makeFrame());
+    assertSame(new IdentifyFile().identify(f.getPath(),
+            DataSourceType.FILE), FileFormat.JalviewSnapshot);
+  }
+
+  /**
+   * Saves and reloads a view with features, annotation, groups and hidden
+   * regions, and verifies they are restored
+   *
+   * @throws IOException
+   */
+  @Test(groups = "Functional")
+  public void testRoundTrip() throws IOException
+  {
+    AlignFrame af = makeFrame();
+    File f = writeSnapshot(af);
+
+    AlignFrame af2 = new FileLoader(false).LoadFileWaitTillLoaded(
+            f.getPath(), DataSourceType.FILE, FileFormat.JalviewSnapshot);
+    assertNotNull(af2);
+    AlignViewport av2 = af2.getViewport();
+    AlignmentI al2 = av2.getAlignment();
+
+    /*
+     * sequence 'seq2' was hidden
+     */
+    assertEquals(al2.getHeight(), 2);
+    assertEquals(al2.getHiddenSequences().getSize(), 1);
+    AlignmentI full = al2.getHiddenSequences().getFullAlignment();
+    assertEquals(full.getSequenceAt(0).getName(), "seq1");
+    assertEquals(full.getSequenceAt(0).getSequenceAsString(),
+            "A-BCDE-FG");
+    assertEquals(full.getSequenceAt(1).getName(), "seq2");
+    assertEquals(full.getSequenceAt(1).getStart(), 4);
+    assertEquals(full.getSequenceAt(1).getEnd(), 11);
+    assertEquals(full.getSequenceAt(2).getDescription(), "third one");
+
+    SequenceI seq1 = al2.getSequenceAt(0);
+    SequenceI ds1 = seq1.getDatasetSequence();
+    assertNotNull(ds1);
+    assertEquals(ds1.getSequenceAsString(), "ABCDEFG");
+    assertEquals(seq1.getDBRefs().size(), 1);
+    assertEquals(seq1.getDBRefs().get(0).getAccessionId(), "P12345");
+
+    /*
+     * features with attributes
+     */
+    List<SequenceFeature> features = seq1.getSequenceFeatures();
+    assertEquals(features.size(), 2);
+    SequenceFeature sf = seq1.getFeatures().getAllFeatures("Metal")
+            .get(0);
+    assertEquals(sf.getBegin(), 2);
+    assertEquals(sf.getEnd(), 4);
+    assertEquals(sf.getScore(), 1.5f);
+    assertEquals(sf.getFeatureGroup(), "uniprot");
+    assertEquals(sf.getDescription(), "metal binding");
+    assertEquals(sf.getValue("evidence"), "ECO:0000255");
+    assertEquals(sf.getValueAsString("CSQ", "Consequence"),
+            "missense_variant");
+    assertEquals(sf.links.get(0), "Uniprot|http://uniprot.org");
+    sf = seq1.getFeatures().getAllFeatures("Pfam").get(0);
+    assertTrue(sf.isNonPositional());
+    assertEquals(sf.getScore(), 0f);
+    assertNull(sf.getFeatureGroup());
+
+    /*
+     * feature display settings
+     */
+    assertTrue(av2.isShowSequenceFeatures());
+    assertTrue(av2.getFeaturesDisplayed().isVisible("Metal"));
+    assertEquals(af2.getFeatureRenderer().getFeatureStyle("Metal")
+            .getColour(), Color.magenta);
+
+    /*
+     * hidden columns
+     */
+    assertEquals(al2.getHiddenColumns().getNumberOfRegions(), 1);
+    assertFalse(al2.getHiddenColumns().isVisible(6));
+    assertTrue(al2.getHiddenColumns().isVisible(5));
+
+    /*
+     * annotation (ignoring auto-calculated rows)
+     */
+    AlignmentAnnotation ann = null;
+    AlignmentAnnotation seqAnn = null;
+    for (AlignmentAnnotation aa : al2.getAlignmentAnnotation())
+    {
+      if ("Scores".equals(aa.label))
+      {
+        ann = aa;
+      }
+      if ("SS".equals(aa.label))
+      {
+        seqAnn = aa;
+      }
+    }
+    assertNotNull(ann);
+    assertEquals(ann.graph, AlignmentAnnotation.BAR_GRAPH);
+    assertEquals(ann.annotations.length, 9);
+    assertEquals(ann.annotations[2].value, 3f);
+    assertEquals(ann.annotations[2].colour, Color.red);
+    assertNull(ann.annotations[3]);
+    assertEquals(ann.getProperty("source"), "test");
+    assertNotNull(seqAnn);
+    assertSame(seqAnn.sequenceRef, seq1);
+    assertEquals(seqAnn.annotations[0].secondaryStructure, 'H');
+
+    /*
+     * group
+     */
+    assertEquals(al2.getGroups().size(), 1);
+    SequenceGroup sg = al2.getGroups().get(0);
+    assertEquals(sg.getName(), "grp");
+    assertEquals(sg.getStartRes(), 1);
+    assertEquals(sg.getEndRes(), 3);
+    assertEquals(sg.getSize(), 2);
+    assertEquals(sg.getOutlineColour(), Color.blue);
+
+    assertEquals(al2.getProperty("key"), "value");
+  }
+
+  /**
+   * Verifies that feature attribute values keep their types, including nested
+   * attribute maps
+   *
+   * @throws IOException
+   */
+  @Test(groups = "Functional")
+  public void testRoundTrip_attributeTypes() throws IOException
+  {
+    AlignFrame af = makeFrame();
+    SequenceI seq3 = af.getViewport().getAlignment().findName("seq3");
+    SequenceFeature sf = new SequenceFeature("Variant", "snp", 3, 3,
+            "test");
+    Map<String, Object> inner = new HashMap<>();
+    inner.put("depth", 2);
+    Map<String, Object> nested = new HashMap<>();
+    nested.put("inner", inner);
+    nested.put("label", "x");
+    sf.setValue("nested", nested);
+    sf.setValue("count", 3);
+    sf.setValue("total", 12345678901L);
+    sf.setValue("ratio", 0.25d);
+    sf.setValue("weight", 1.5f);
+    sf.setValue("flag", Boolean.TRUE);
+    seq3.addSequenceFeature(sf);
+    File f = writeSnapshot(af);
+
+    AlignFrame af2 = new FileLoader(false).LoadFileWaitTillLoaded(
+            f.getPath(), DataSourceType.FILE, FileFormat.JalviewSnapshot);
+    SequenceI seq = af2.getViewport().getAlignment().findName("seq3");
+    SequenceFeature sf2 = seq.getFeatures().getAllFeatures("Variant")
+            .get(0);
+    assertEquals(sf2.getValue("count"), Integer.valueOf(3));
+    assertEquals(sf2.getValue("total"), Long.valueOf(12345678901L));
+    assertEquals(sf2.getValue("ratio"), Double.valueOf(0.25d));
+    assertEquals(sf2.getValue("weight"), Float.valueOf(1.5f));
+    assertEquals(sf2.getValue("flag"), Boolean.TRUE);
+    Object value = sf2.getValue("nested");
+    assertTrue(value instanceof Map);
+    assertEquals(value, nested);
+    Object innerValue = ((Map<?, ?>) value).get("inner");
+    assertTrue(innerValue instanceof Map);
+    assertEquals(((Map<?, ?>) innerValue).get("depth"), Integer.valueOf(2));
+  }
+
+  /**
+   * Verifies that database reference mappings (including to a sequence not in
+   * the alignment) and PDB entry properties are preserved
+   *
+   * @throws IOException
+   */
+  @Test(groups = "Functional")
+  public void testRoundTrip_references() throws IOException
+  {
+    SequenceI seq = new Sequence("seq1", "ABCDEFG");
+    SequenceI protein = new Sequence("P12345", "MK");
+    Mapping map = new Mapping(protein,
+            new MapList(new int[]
+            { 1, 6 }, new int[] { 1, 2 }, 3, 1));
+    map.setMappedFromId("seq1");
+    DBRefEntry dbref = new DBRefEntry("UNIPROT", "0", "P12345", map);
+    seq.addDBRef(dbref);
+    PDBEntry pdb = new PDBEntry("1abc", "A", PDBEntry.Type.PDB,
+            "/tmp/1abc.pdb");
+    pdb.setProperty("method", "X-RAY");
+    pdb.setProperty("models", Integer.valueOf(2));
+    seq.addPDBId(pdb);
+    seq.createDatasetSequence();
+
+    SnapshotFile writer = new SnapshotFile();
+    writer.setSeqs(new SequenceI[] { seq });
+    File f = File.createTempFile("snapshot", ".jvs");
+    f.deleteOnExit();
+    try (FileOutputStream fos = new FileOutputStream(f))
+    {
+      writer.write(fos);
+    }
+
+    SnapshotFile reader = new SnapshotFile(f.getPath(),
+            DataSourceType.FILE);
+    SequenceI[] read = reader.getSeqsAsArray();
+    assertEquals(read.length, 1);
+    SequenceI ds = read[0].getDatasetSequence();
+    assertEquals(ds.getDBRefs().size(), 1);
+    DBRefEntry dbref2 = ds.getDBRefs().get(0);
+    assertEquals(dbref2.getAccessionId(), "P12345");
+    Mapping map2 = dbref2.getMap();
+    assertNotNull(map2);
+    assertEquals(map2.getMappedFromId(), "seq1");
+    assertEquals(map2.getTo().getName(), "P12345");
+    assertEquals(map2.getTo().getSequenceAsString(), "MK");
+    MapList ml = map2.getMap();
+    assertEquals(ml.getFromRatio(), 3);
+    assertEquals(ml.getToRatio(), 1);
+    assertEquals(ml.getFromRanges().size(), 1);
+    assertTrue(Arrays.equals(ml.getFromRanges().get(0), new int[] { 1, 6 }));
+    assertEquals(ml.getToRanges().size(), 1);
+    assertTrue(Arrays.equals(ml.getToRanges().get(0), new int[] { 1, 2 }));
+
+    PDBEntry pdb2 = ds.getAllPDBEntries().get(0);
+    assertEquals(pdb2.getId(), "1abc");
+    assertEquals(pdb2.getChainCode(), "A");
+    assertEquals(pdb2.getProperty("method"), "X-RAY");
+    assertEquals(pdb2.getProperty("models"), Integer.valueOf(2));
+  }
+
+  /**
+   * Verifies reading of sections written as many chunks
+   *
+   * @throws IOException
+   */
+  @Test(groups = "Functional")
+  public void testRoundTrip_large() throws IOException
+  {
+    int width = SnapshotFile.CHUNK_SIZE * 2;
+    char[] residues = new char[width];
+    Arrays.fill(residues, 'A');
+    SequenceI[] seqs = new SequenceI[10];
+    for (int i = 0; i < seqs.length; i++)
+    {
+      seqs[i] = new Sequence("seq" + i, residues, 1, width);
+      seqs[i].createDatasetSequence();
+      seqs[i].addSequenceFeature(new SequenceFeature("Domain", "dom",
+              i + 1, i + 10, 0f, null));
+    }
+    SnapshotFile writer = new SnapshotFile();
+    writer.setSeqs(seqs);
+    File f = File.createTempFile("snapshot", ".jvs");
+    f.deleteOnExit();
+    try (FileOutputStream fos = new FileOutputStream(f))
+    {
+      writer.write(fos);
+    }
+    assertTrue(f.length() > SnapshotFile.CHUNK_SIZE * 10);
+
+    SnapshotFile reader = new SnapshotFile(f.getPath(),
+            DataSourceType.FILE);
+    SequenceI[] read = reader.getSeqsAsArray();
+    assertEquals(read.length, 10);
+    for (int i = 0; i < read.length; i++)
+    {
+      assertEquals(read[i].getName(), "seq" + i);
+      assertEquals(read[i].getLength(), width);
+      assertEquals(read[i].getSequenceFeatures().get(0).getBegin(), i + 1);
+    }
+  }
+
+  @Test(groups = "Functional", expectedExceptions = IOException.class)
+  public void testParse_notSnapshot() throws IOException
+  {
+    new SnapshotFile("examples/uniref50.fa", DataSourceType.FILE);
+  }
+
+  private File writeSnapshot(AlignFrame af) throws IOException
+  {
+    File f = File.createTempFile("snapshot", ".jvs");
+    f.deleteOnExit();
+    SnapshotFile snapshot = new SnapshotFile();
+    snapshot.configureForView(af.alignPanel);
+    try (FileOutputStream fos = new FileOutputStream(f))
+    {
+      snapshot.write(fos);
+    }
+    return f;
+  }
+
+  private AlignFrame makeFrame()
+  {
+    SequenceI seq1 = new Sequence("seq1", "A-BCDE-FG");
+    SequenceI seq2 = new Sequence("seq2", "HIJ-KLMNO", 4, 11);
+    SequenceI seq3 = new Sequence("seq3", "PQRSTUVWX");
+    seq3.setDescription("third one");
+    AlignmentI al = new Alignment(new SequenceI[] { seq1, seq2, seq3 });
+    al.setDataset(null);
+    al.setProperty("key", "value");
+
+    seq1.addDBRef(new DBRefEntry("UNIPROT", "0", "P12345"));
+    SequenceFeature sf = new SequenceFeature("Metal", "metal binding", 2,
+            4, 1.5f, "uniprot");
+    sf.setValue("evidence", "ECO:0000255");
+    Map<String, String> csq = new HashMap<>();
+    csq.put("Consequence", "missense_variant");
+    sf.setValue("CSQ", csq);
+    sf.addLink("Uniprot|http://uniprot.org");
+    seq1.addSequenceFeature(sf);
+    seq1.addSequenceFeature(
+            new SequenceFeature("Pfam", "domain", 0, 0, null));
+
+    Annotation[] anns = new Annotation[9];
+    anns[2] = new Annotation("C", "three", ' ', 3f);
+    anns[2].colour = Color.red;
+    AlignmentAnnotation aa = new AlignmentAnnotation("Scores", "test",
+            anns, 0f, 3f, AlignmentAnnotation.BAR_GRAPH);
+    aa.setProperty("source", "test");
+    al.addAnnotation(aa);
+
+    Annotation[] ss = new Annotation[] {
+        new Annotation("", "helix", 'H', 0f) };
+    AlignmentAnnotation ssAnn = new AlignmentAnnotation("SS", "ss", ss);
+    ssAnn.createSequenceMapping(seq1, 1, true);
+    seq1.addAlignmentAnnotation(ssAnn);
+    al.addAnnotation(ssAnn);
+
+    List<SequenceI> members = new ArrayList<>();
+    members.add(seq1);
+    members.add(seq3);
+    SequenceGroup sg = new SequenceGroup(members, "grp", null, true, true,
+            false, 1, 3);
+    sg.setOutlineColour(Color.blue);
+    al.addGroup(sg);
+
+    AlignFrame af = new AlignFrame(al, AlignFrame.DEFAULT_WIDTH,
+            AlignFrame.DEFAULT_HEIGHT);
+    AlignViewport av = af.getViewport();
+    av.setShowSequenceFeatures(true);
+    af.getFeatureRenderer().findAllFeatures(true);
+    af.getFeatureRenderer().setColour("Metal",
+            new FeatureColour(Color.magenta));
+    av.hideColumns(6, 6);
+    av.hideSequence(new SequenceI[] { seq2 });
+    return af;
+  }
+}
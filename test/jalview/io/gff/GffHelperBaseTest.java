@@ -93,6 +93,35 @@ public class GffHelperBaseTest
     assertEquals(map.get("CSQ").get(0), csqValue);
   }
 
+  /**
+   * GFF2 style attributes (space separator) with padding around delimiters
+   */
+  @Test(groups = { "Functional" })
+  public void testParseNameValuePairs_gff2()
+  {
+    Map<String, List<String>> map = GffHelperBase.parseNameValuePairs(
+            " Align 3 4 5 ;  Query  Q12345 ;; Note ; Note a,b ", ";", ' ',
+            ",");
+    assertEquals(map.size(), 3);
+    assertEquals(map.get("Align").size(), 1);
+    assertEquals(map.get("Align").get(0), "3 4 5"); // nested values
+    assertEquals(map.get("Note").size(), 2);
+    assertEquals(map.get("Note").get(0), "a");
+    assertEquals(map.get("Note").get(1), "b");
+    assertEquals(map.get("Query").size(), 1);
+    assertEquals(map.get("Query").get(0), "Q12345");
+
+    /*
+     * a regular expression delimiter is still supported
+     */
+    map = GffHelperBase.parseNameValuePairs("a=1|b=2, 3", "\\|", '=',
+            ", ");
+    assertEquals(map.size(), 2);
+    assertEquals(map.get("a").get(0), "1");
+    assertEquals(map.get("b").size(), 2);
+    assertEquals(map.get("b").get(1), "3");
+  }
+
   /**
    * Test for the method that tries to trim mappings to equivalent lengths
    */
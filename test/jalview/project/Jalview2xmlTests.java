@@ -29,14 +29,20 @@ import static org.testng.Assert.assertTrue;
 
 import java.awt.Color;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
 
 import javax.swing.JInternalFrame;
+import javax.xml.bind.JAXBElement;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
 
 import org.testng.Assert;
 import org.testng.AssertJUnit;
@@ -91,6 +97,7 @@ import jalview.util.MapList;
 import jalview.util.matcher.Condition;
 import jalview.viewmodel.AlignmentViewport;
 import jalview.viewmodel.seqfeatures.FeatureRendererModel;
+import jalview.xml.binding.jalview.JalviewModel;
 
 @Test(singleThreaded = true)
 public class Jalview2xmlTests extends Jalview2xmlBase
@@ -1274,4 +1281,57 @@ public class Jalview2xmlTests extends Jalview2xmlBase
     assertTrue(dbRef instanceof GeneLocus);
     assertEquals(dbRef, dbref3);
   }
+
+  /**
+   * Test that when views are marshalled concurrently, their XML is still
+   * written to the project in view order (before the dataset), and can be
+   * read back
+   */
+  @Test(groups = { "Functional" })
+  public void testSaveMultipleViews_entryOrder() throws Exception
+  {
+    Desktop.instance.closeAll_actionPerformed(null);
+    AlignFrame af = new FileLoader().LoadFileWaitTillLoaded(
+            "examples/uniref50.fa", DataSourceType.FILE);
+    af.newView_actionPerformed(null);
+    af.newView_actionPerformed(null);
+    af.newView_actionPerformed(null);
+    int viewCount = af.getAlignPanels().size();
+    assertEquals(viewCount, 4);
+
+    File tfile = File.createTempFile("JalviewTest", ".jvp");
+    tfile.deleteOnExit();
+    af.saveAlignment(tfile.getAbsolutePath(), FileFormat.Jalview);
+    assertTrue(af.isSaveAlignmentSuccessful());
+
+    List<String> entries = new ArrayList<>();
+    try (JarInputStream jin = new JarInputStream(
+            new FileInputStream(tfile)))
+    {
+      JarEntry entry;
+      while ((entry = jin.getNextJarEntry()) != null)
+      {
+        entries.add(entry.getName());
+        XMLStreamReader reader = XMLInputFactory.newInstance()
+                .createXMLStreamReader(jin);
+        JAXBElement<JalviewModel> model = Jalview2XML.getBindingContext()
+                .createUnmarshaller().unmarshal(reader, JalviewModel.class);
+        assertNotNull(model.getValue());
+      }
+    }
+    assertEquals(entries.size(), viewCount + 1);
+    for (int i = 0; i < viewCount; i++)
+    {
+      assertTrue(entries.get(i).startsWith(String.valueOf(i)),
+              entries.get(i));
+    }
+    assertTrue(entries.get(viewCount).contains(" Dataset for "));
+
+    af.closeMenuItem_actionPerformed(true);
+    af = new FileLoader().LoadFileWaitTillLoaded(tfile.getAbsolutePath(),
+            DataSourceType.FILE);
+    assertNotNull(af);
+    assertEquals(Desktop.getAlignmentPanels(
+            af.getViewport().getSequenceSetId()).length, viewCount);
+  }
 }
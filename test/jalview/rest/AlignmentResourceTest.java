@@ -0,0 +1,329 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.rest;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+import jalview.datamodel.Alignment;
+import jalview.datamodel.AlignmentAnnotation;
+import jalview.datamodel.AlignmentI;
+import jalview.datamodel.Annotation;
+import jalview.datamodel.Sequence;
+import jalview.datamodel.SequenceFeature;
+import jalview.datamodel.SequenceGroup;
+import jalview.datamodel.SequenceI;
+import jalview.gui.AlignFrame;
+import jalview.gui.JvOptionPane;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class AlignmentResourceTest
+{
+  private AlignFrame af;
+
+  private AlignmentResource resource;
+
+  @BeforeClass(alwaysRun = true)
+  public void setUpJvOptionPane()
+  {
+    JvOptionPane.setInteractiveMode(false);
+    JvOptionPane.setMockResponse(JvOptionPane.CANCEL_OPTION);
+  }
+
+  @BeforeMethod(alwaysRun = true)
+  public void setUp()
+  {
+    SequenceI seq1 = new Sequence("seq1", "AC-DEFG");
+    SequenceI seq2 = new Sequence("seq2", "ACKDE--");
+    SequenceI seq3 = new Sequence("seq3", "-CKDEFG");
+    seq1.addSequenceFeature(
+            new SequenceFeature("Domain", "desc", 2, 4, 1.5f, "grp"));
+    seq3.addSequenceFeature(
+            new SequenceFeature("Metal", null, 5, 5, Float.NaN, null));
+    AlignmentI al = new Alignment(new SequenceI[] { seq1, seq2, seq3 });
+    af = new AlignFrame(al, 300, 300);
+    resource = new AlignmentResource(af.alignPanel);
+  }
+
+  @Test(groups = "Functional")
+  public void testGetVersion()
+  {
+    String version = resource.getVersion();
+    assertEquals(resource.getVersion(), version);
+
+    /*
+     * editing a sequence changes the version
+     */
+    AlignmentI al = resource.getAlignment();
+    al.getSequenceAt(1).setSequence("ACKDEF-");
+    String version2 = resource.getVersion();
+    assertNotEquals(version2, version);
+
+    /*
+     * adding a feature changes the version
+     */
+    al.getSequenceAt(1).addSequenceFeature(
+            new SequenceFeature("Metal", null, 1, 1, null));
+    String version3 = resource.getVersion();
+    assertNotEquals(version3, version2);
+
+    /*
+     * selecting sequences changes the version
+     */
+    SequenceGroup sg = new SequenceGroup();
+    sg.addSequence(al.getSequenceAt(0), false);
+    sg.setStartRes(1);
+    sg.setEndRes(3);
+    af.getViewport().setSelectionGroup(sg);
+    String version4 = resource.getVersion();
+    assertNotEquals(version4, version3);
+
+    /*
+     * selecting a column changes the selection version
+     */
+    String selectionVersion = resource.getVersion("selection", null);
+    af.getViewport().getColumnSelection().addElement(2);
+    assertNotEquals(resource.getVersion("selection", null),
+            selectionVersion);
+    assertNotEquals(resource.getVersion(), version4);
+  }
+
+  @Test(groups = "Functional")
+  public void testGetVersion_featureEdits()
+  {
+    SequenceI seq = resource.getAlignment().getSequenceAt(1);
+    SequenceFeature sf = new SequenceFeature("Metal", "desc", 1, 2, 1f,
+            null);
+    seq.addSequenceFeature(sf);
+    String version = resource.getVersion();
+    String featuresVersion = resource.getVersion("features", null);
+
+    /*
+     * amending a feature's description (by replacing it, as the feature
+     * editor does) changes the version
+     */
+    seq.deleteFeature(sf);
+    sf = new SequenceFeature(sf, sf.getBegin(), sf.getEnd(),
+            sf.getFeatureGroup(), sf.getScore());
+    sf.setDescription("new desc");
+    seq.addSequenceFeature(sf);
+    String version2 = resource.getVersion();
+    assertNotEquals(version2, version);
+    assertNotEquals(resource.getVersion("features", null),
+            featuresVersion);
+
+    /*
+     * replacing a feature with a different score changes the version
+     */
+    seq.deleteFeature(sf);
+    sf = new SequenceFeature(sf, sf.getBegin(), sf.getEnd(),
+            sf.getFeatureGroup(), 2f);
+    seq.addSequenceFeature(sf);
+    String version3 = resource.getVersion();
+    assertNotEquals(version3, version2);
+
+    /*
+     * replacing a feature with a different location changes the version
+     */
+    seq.deleteFeature(sf);
+    sf = new SequenceFeature(sf, 2, 3, sf.getFeatureGroup(),
+            sf.getScore());
+    seq.addSequenceFeature(sf);
+    assertNotEquals(resource.getVersion(), version3);
+
+    /*
+     * sequences are unchanged
+     */
+    String seqsVersion = resource.getVersion("sequences", null);
+    sf.setDescription("another desc");
+    assertEquals(resource.getVersion("sequences", null), seqsVersion);
+  }
+
+  @Test(groups = "Functional")
+  public void testGetVersion_annotationEdits()
+  {
+    AlignmentI al = resource.getAlignment();
+    Annotation[] anns = new Annotation[al.getWidth()];
+    anns[0] = new Annotation("A", "", ' ', 1f);
+    AlignmentAnnotation ann = new AlignmentAnnotation("label", "desc",
+            anns);
+    al.addAnnotation(ann);
+    String version = resource.getVersion();
+
+    /*
+     * changing an annotation value (and recording the change) changes the
+     * version
+     */
+    anns[0].value = 2f;
+    ann.annotationsChanged();
+    String version2 = resource.getVersion();
+    assertNotEquals(version2, version);
+
+    /*
+     * changing a profile value changes the profile (and overall) version
+     */
+    String profileVersion = resource.getVersion("profile",
+            AlignmentResource.CONSENSUS);
+    AlignmentAnnotation consensus = resource
+            .getProfile(AlignmentResource.CONSENSUS);
+    Annotation a = consensus.annotations[0];
+    if (a == null)
+    {
+      consensus.annotations[0] = new Annotation("X", "", ' ', 99f);
+    }
+    else
+    {
+      a.value = a.value + 1f;
+      a.displayCharacter = "X";
+    }
+    consensus.annotationsChanged();
+    assertNotEquals(resource.getVersion("profile",
+            AlignmentResource.CONSENSUS), profileVersion);
+    assertNotEquals(resource.getVersion(), version2);
+  }
+
+  @Test(groups = "Functional")
+  public void testWriteSequences() throws IOException, JSONException
+  {
+    StringWriter sw = new StringWriter();
+    resource.writeSequences(sw, new int[] { 1, 2 }, new int[] { 2, 5 });
+    JSONObject json = new JSONObject(sw.toString());
+    JSONArray seqs = json.getJSONArray("sequences");
+    assertEquals(seqs.length(), 2);
+    assertEquals(seqs.getJSONObject(0).getString("name"), "seq2");
+    assertEquals(seqs.getJSONObject(0).getInt("row"), 1);
+    assertEquals(seqs.getJSONObject(0).getString("sequence"), "KDE-");
+    assertEquals(seqs.getJSONObject(1).getString("sequence"), "KDEF");
+
+    /*
+     * binary output pads each row to the width of the range
+     */
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    resource.writeSequences(bos, new int[] { 0, 2 }, new int[] { 2, 5 });
+    assertEquals(new String(bos.toByteArray()), "-DEFKDE-KDEF");
+
+    /*
+     * rows deleted after the range was checked are skipped, or written as
+     * gaps in binary output
+     */
+    sw = new StringWriter();
+    resource.writeSequences(sw, new int[] { 1, 3 }, new int[] { 2, 5 });
+    seqs = new JSONObject(sw.toString()).getJSONArray("sequences");
+    assertEquals(seqs.length(), 2);
+    assertEquals(seqs.getJSONObject(1).getInt("row"), 2);
+    bos = new ByteArrayOutputStream();
+    resource.writeSequences(bos, new int[] { 2, 3 }, new int[] { 2, 5 });
+    assertEquals(new String(bos.toByteArray()), "KDEF----");
+  }
+
+  @Test(groups = "Functional")
+  public void testWriteFeatures() throws IOException, JSONException
+  {
+    StringWriter sw = new StringWriter();
+    resource.writeFeatures(sw, new int[] { 0, 2 }, new int[] { 0, 6 });
+    JSONArray features = new JSONObject(sw.toString())
+            .getJSONArray("features");
+    assertEquals(features.length(), 2);
+    JSONObject sf = features.getJSONObject(0);
+    assertEquals(sf.getString("type"), "Domain");
+    assertEquals(sf.getInt("row"), 0);
+    assertEquals(sf.getInt("begin"), 2);
+    assertEquals(sf.getDouble("score"), 1.5d);
+    assertEquals(sf.getString("group"), "grp");
+    sf = features.getJSONObject(1);
+    assertEquals(sf.getString("type"), "Metal");
+    assertTrue(sf.isNull("score"));
+    assertTrue(sf.isNull("description"));
+
+    /*
+     * restrict by feature type, or region
+     */
+    sw = new StringWriter();
+    resource.writeFeatures(sw, new int[] { 0, 2 }, new int[] { 0, 6 },
+            "Metal");
+    features = new JSONObject(sw.toString()).getJSONArray("features");
+    assertEquals(features.length(), 1);
+    assertEquals(features.getJSONObject(0).getInt("row"), 2);
+
+    sw = new StringWriter();
+    resource.writeFeatures(sw, new int[] { 0, 1 }, new int[] { 5, 6 });
+    features = new JSONObject(sw.toString()).getJSONArray("features");
+    assertEquals(features.length(), 0);
+  }
+
+  @Test(groups = "Functional")
+  public void testWriteSelection() throws IOException, JSONException
+  {
+    AlignmentI al = resource.getAlignment();
+    SequenceGroup sg = new SequenceGroup();
+    sg.addSequence(al.getSequenceAt(2), false);
+    sg.addSequence(al.getSequenceAt(0), false);
+    sg.setStartRes(1);
+    sg.setEndRes(3);
+    af.getViewport().setSelectionGroup(sg);
+    af.getViewport().getColumnSelection().addElement(4);
+    af.getViewport().getColumnSelection().addElement(5);
+    al.getHiddenColumns().hideColumns(6, 6);
+
+    StringWriter sw = new StringWriter();
+    resource.writeSelection(sw);
+    JSONObject json = new JSONObject(sw.toString());
+    JSONObject selection = json.getJSONObject("selection");
+    assertEquals(selection.getInt("startColumn"), 1);
+    assertEquals(selection.getInt("endColumn"), 3);
+    assertEquals(selection.getJSONArray("rows").toString(), "[2,0]");
+    assertEquals(json.getJSONArray("columns").toString(), "[[4,5]]");
+    assertEquals(json.getJSONArray("hiddenColumns").toString(), "[[6,6]]");
+  }
+
+  @Test(groups = "Functional")
+  public void testWriteProfile() throws IOException, JSONException
+  {
+    StringWriter sw = new StringWriter();
+    resource.writeProfile(sw, AlignmentResource.CONSENSUS,
+            new int[] { 0, 3 });
+    JSONObject json = new JSONObject(sw.toString());
+    assertEquals(json.getString("type"), AlignmentResource.CONSENSUS);
+    if (!json.isNull("values"))
+    {
+      assertEquals(json.getJSONArray("values").length(), 4);
+    }
+  }
+
+  @Test(
+    groups = "Functional",
+    expectedExceptions = IllegalArgumentException.class)
+  public void testGetProfile_unknownType()
+  {
+    resource.getProfile("hydrophobicity");
+  }
+}
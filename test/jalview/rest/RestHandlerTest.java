@@ -0,0 +1,53 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.rest;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+import org.testng.annotations.Test;
+
+public class RestHandlerTest
+{
+  @Test(groups = "Functional")
+  public void testParseRange()
+  {
+    assertEquals(RestHandler.parseRange(null, 10), new int[] { 0, 9 });
+    assertEquals(RestHandler.parseRange("3", 10), new int[] { 3, 3 });
+    assertEquals(RestHandler.parseRange("2-5", 10), new int[] { 2, 5 });
+    // end is truncated to the last position
+    assertEquals(RestHandler.parseRange("2-50", 10), new int[] { 2, 9 });
+    assertEquals(RestHandler.parseRange(null, 0), new int[] { 0, -1 });
+
+    for (String bad : new String[] { "", "a-b", "5-2", "-1", "10", "1-2-3",
+        "10-12" })
+    {
+      try
+      {
+        RestHandler.parseRange(bad, 10);
+        fail("Expected exception for " + bad);
+      } catch (IllegalArgumentException e)
+      {
+        // expected
+      }
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.schemes;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+import java.awt.Color;
+
+import org.testng.annotations.Test;
+
+import jalview.datamodel.AlignmentAnnotation;
+import jalview.datamodel.Annotation;
+import jalview.datamodel.SequenceFeature;
+
+public class RNAHelicesColourTest
+{
+  private static AlignmentAnnotation makeStructure(String dotBracket)
+  {
+    Annotation[] anns = new Annotation[dotBracket.length()];
+    for (int i = 0; i < anns.length; i++)
+    {
+      char c = dotBracket.charAt(i);
+      anns[i] = new Annotation(String.valueOf(c), "", c, 0f);
+    }
+    return new AlignmentAnnotation("SS", "secondary structure", anns);
+  }
+
+  @Test(groups = "Functional")
+  public void testGetColumnHelices()
+  {
+    SequenceFeature[] pairs = new SequenceFeature[] {
+        new SequenceFeature("RNA helix", "", 1, 6, "0"),
+        new SequenceFeature("RNA helix", "", 2, 5, "0"),
+        new SequenceFeature("RNA helix", "", 8, 10, "1") };
+    assertEquals(RNAHelicesColour.getColumnHelices(pairs),
+            new int[]
+            { -1, 0, 0, -1, -1, 0, 0, -1, 1, -1, 1 });
+    assertEquals(
+            RNAHelicesColour.getColumnHelices(new SequenceFeature[0]).length,
+            0);
+  }
+
+  @Test(groups = "Functional")
+  public void testFindColour()
+  {
+    /*
+     * two helices: columns 0-1 with 4-5, and 8-9 with 12-13
+     */
+    AlignmentAnnotation ann = makeStructure("((..))..((..))");
+    RNAHelicesColour scheme = new RNAHelicesColour(ann);
+    int helix1 = scheme.getHelix(0);
+    int helix2 = scheme.getHelix(8);
+    assertEquals(scheme.getHelix(5), helix1);
+    assertEquals(scheme.getHelix(13), helix2);
+    assertNotEquals(helix1, helix2);
+    assertEquals(scheme.getHelix(2), -1);
+    assertEquals(scheme.getHelix(14), -1);
+    assertEquals(scheme.getHelix(-1), -1);
+
+    assertEquals(scheme.findColour('G', 0, null),
+            ColourSchemeProperty.rnaHelices[helix1]);
+    assertEquals(scheme.findColour('C', 12, null),
+            ColourSchemeProperty.rnaHelices[helix2]);
+    assertEquals(scheme.findColour('A', 2, null), Color.white);
+    assertEquals(scheme.findColour('A', 20, null), Color.white);
+
+    CovariationColourScheme covariation = new CovariationColourScheme(
+            ann);
+    assertEquals(covariation.findColour('G', 0),
+            covariation.findColour('C', 5));
+    assertEquals(covariation.findColour('A', 2), Color.white);
+  }
+}
@@ -0,0 +1,255 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class HttpTransportTest
+{
+  private HttpServer server;
+
+  private AtomicInteger requests;
+
+  private AtomicInteger active;
+
+  private AtomicInteger maxActive;
+
+  /*
+   * headers and response code for the first (refused) response, if any
+   */
+  private volatile int refuseCode;
+
+  private volatile String[] firstHeaders;
+
+  @BeforeMethod(alwaysRun = true)
+  public void setUp() throws IOException
+  {
+    requests = new AtomicInteger();
+    active = new AtomicInteger();
+    maxActive = new AtomicInteger();
+    refuseCode = 0;
+    firstHeaders = new String[0];
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/", new HttpHandler()
+    {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException
+      {
+        int n = requests.incrementAndGet();
+        int now = active.incrementAndGet();
+        synchronized (maxActive)
+        {
+          maxActive.set(Math.max(maxActive.get(), now));
+        }
+        try
+        {
+          Thread.sleep(50);
+        } catch (InterruptedException e)
+        {
+          // ignore
+        }
+        active.decrementAndGet();
+        if (n == 1)
+        {
+          for (int i = 0; i < firstHeaders.length; i += 2)
+          {
+            exchange.getResponseHeaders().add(firstHeaders[i],
+                    firstHeaders[i + 1]);
+          }
+        }
+        int code = n == 1 && refuseCode != 0 ? refuseCode : 200;
+        byte[] body = ("response " + n).getBytes();
+        exchange.sendResponseHeaders(code, body.length);
+        OutputStream os = exchange.getResponseBody();
+        os.write(body);
+        os.close();
+      }
+    });
+    server.start();
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void tearDown()
+  {
+    server.stop(0);
+  }
+
+  private URL getUrl() throws IOException
+  {
+    return new URL(
+            "http://localhost:" + server.getAddress().getPort() + "/test");
+  }
+
+  private static HttpTransport.Request get(final URL url)
+  {
+    return new HttpTransport.Request()
+    {
+      @Override
+      public HttpURLConnection open() throws IOException
+      {
+        return (HttpURLConnection) url.openConnection();
+      }
+    };
+  }
+
+  private static String read(HttpTransport.Response response)
+          throws IOException
+  {
+    BufferedReader br = new BufferedReader(
+            new InputStreamReader(response.getInputStream()));
+    try
+    {
+      return br.readLine();
+    } finally
+    {
+      br.close();
+    }
+  }
+
+  @Test(groups = "Functional")
+  public void testExecute_retryAfter() throws IOException
+  {
+    refuseCode = 429;
+    firstHeaders = new String[] { "Retry-After", "0.3" };
+    HttpTransport transport = new HttpTransport(2);
+    long start = System.currentTimeMillis();
+    HttpTransport.Response response = transport.execute(getUrl(),
+            get(getUrl()), 3);
+    assertEquals(response.getResponseCode(), 200);
+    assertEquals(read(response), "response 2");
+    assertTrue(System.currentTimeMillis() - start >= 300);
+    assertEquals(requests.get(), 2);
+  }
+
+  @Test(groups = "Functional")
+  public void testExecute_unavailableNoRetries() throws IOException
+  {
+    refuseCode = 503;
+    firstHeaders = new String[] { "Retry-After", "0" };
+    HttpTransport transport = new HttpTransport(2);
+    HttpTransport.Response response = transport.execute(getUrl(),
+            get(getUrl()), 1);
+    assertEquals(response.getResponseCode(), 503);
+    response.close();
+    assertEquals(requests.get(), 1);
+  }
+
+  /**
+   * A Retry-After longer than we are prepared to wait is not retried
+   */
+  @Test(groups = "Functional")
+  public void testExecute_retryAfterTooLong() throws IOException
+  {
+    refuseCode = 429;
+    firstHeaders = new String[] { "Retry-After", "3600" };
+    HttpTransport transport = new HttpTransport(2);
+    HttpTransport.Response response = transport.execute(getUrl(),
+            get(getUrl()), 3);
+    assertEquals(response.getResponseCode(), 429);
+    response.close();
+    assertEquals(requests.get(), 1);
+  }
+
+  /**
+   * When the rate limit is reported as exhausted, the next request waits for
+   * the reset
+   */
+  @Test(groups = "Functional")
+  public void testExecute_rateLimitExhausted() throws IOException
+  {
+    firstHeaders = new String[] { "X-RateLimit-Remaining", "0",
+        "X-RateLimit-Reset", "0.4" };
+    HttpTransport transport = new HttpTransport(2);
+    HttpTransport.Response response = transport.execute(getUrl(),
+            get(getUrl()), 3);
+    assertEquals(read(response), "response 1");
+    assertEquals(transport.getRemainingRequests(getUrl()), 0);
+
+    long start = System.currentTimeMillis();
+    response = transport.execute(getUrl(), get(getUrl()), 3);
+    assertEquals(read(response), "response 2");
+    assertTrue(System.currentTimeMillis() - start >= 300);
+  }
+
+  @Test(groups = "Functional")
+  public void testExecute_maxPerHost() throws Exception
+  {
+    final HttpTransport transport = new HttpTransport(2);
+    final URL url = getUrl();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 6; i++)
+    {
+      Thread t = new Thread(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            read(transport.execute(url, get(url), 3));
+          } catch (IOException e)
+          {
+            throw new RuntimeException(e);
+          }
+        }
+      });
+      threads.add(t);
+      t.start();
+    }
+    for (Thread t : threads)
+    {
+      t.join();
+    }
+    assertEquals(requests.get(), 6);
+    assertTrue(maxActive.get() <= 2, "max active " + maxActive.get());
+  }
+
+  @Test(groups = "Functional")
+  public void testParseSeconds()
+  {
+    assertEquals(HttpTransport.parseSeconds(null), -1d);
+    assertEquals(HttpTransport.parseSeconds("x"), -1d);
+    assertEquals(HttpTransport.parseSeconds("-2"), -1d);
+    assertEquals(HttpTransport.parseSeconds(" 40.5 "), 40.5d);
+  }
+}
@@ -22,6 +22,7 @@ package jalview.util;
 
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotSame;
 import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertSame;
 import static org.testng.AssertJUnit.assertTrue;
@@ -32,6 +33,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
+import java.util.Random;
 
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -678,6 +680,21 @@ public class MapListTest
             prettyPrint(ml2.getToRanges()));
     assertEquals(prettyPrint(ml.getToRanges()),
             prettyPrint(ml2.getFromRanges()));
+
+    /*
+     * each call answers a new inverse, so that extending one holder's
+     * inverse leaves other holders' unchanged
+     */
+    MapList ml3 = ml.getInverse();
+    assertNotSame(ml2, ml3);
+    ml3.addMapList(new MapList(new int[] { 7, 7 }, new int[] { 20, 22 }, 1,
+            3));
+    assertEquals(prettyPrint(ml.getFromRanges()),
+            prettyPrint(ml2.getToRanges()));
+    assertEquals(prettyPrint(ml.getFromRanges()),
+            prettyPrint(ml.getInverse().getToRanges()));
+    assertFalse(prettyPrint(ml3.getToRanges())
+            .equals(prettyPrint(ml2.getToRanges())));
   }
 
   @Test(groups = { "Functional" })
@@ -1515,4 +1532,89 @@ public class MapListTest
     assertTrue(overlaps.get(7));
     assertTrue(overlaps.get(8));
   }
+
+  /**
+   * Position lookups (which use an index of the ranges) give the same results
+   * as scanning the ranges, including for reverse strand, overlapping and
+   * modified ranges
+   */
+  @Test(groups = { "Functional" })
+  public void testShiftAndLocate_indexed()
+  {
+    Random r = new Random(17);
+    for (int trial = 0; trial < 200; trial++)
+    {
+      List<int[]> from = new ArrayList<>();
+      int pos = r.nextInt(50);
+      boolean overlapping = trial % 5 == 0;
+      int fromCount = 0;
+      for (int i = 1 + r.nextInt(6); i > 0; i--)
+      {
+        int length = 1 + r.nextInt(20);
+        int start = overlapping ? r.nextInt(100) : pos + r.nextInt(10);
+        from.add(trial % 3 == 0 ? new int[] { start + length - 1, start }
+                : new int[]
+                { start, start + length - 1 });
+        pos = start + length;
+        fromCount += length;
+      }
+      int toCount = fromCount / 3 + r.nextInt(3);
+      List<int[]> to = new ArrayList<>();
+      to.add(new int[] { 5, 5 + toCount / 2 });
+      to.add(new int[] { 100 + toCount, 100 + toCount / 2 + 1 });
+      MapList ml = new MapList(from, to, 3, 1);
+      if (trial % 7 == 0)
+      {
+        ml.shiftFrom(1); // build the index, then modify the ranges
+        ml.addMapList(new MapList(new int[] { 500, 505 },
+                new int[]
+                { 300, 301 }, 3, 1));
+      }
+
+      for (int p = -2; p < 320; p++)
+      {
+        assertArrayEquals(MapList.shift(p, ml.getFromRanges(), 3,
+                ml.getToRanges(), 1), ml.shiftFrom(p));
+        assertArrayEquals(MapList.shift(p, ml.getToRanges(), 1,
+                ml.getFromRanges(), 3), ml.shiftTo(p));
+        int q = p + r.nextInt(30);
+        assertArrayEquals(MapList.mapPositions(p, q, ml.getFromRanges(),
+                ml.getToRanges(), 3, 1), ml.locateInTo(p, q));
+        assertArrayEquals(MapList.mapPositions(q, p, ml.getToRanges(),
+                ml.getFromRanges(), 1, 3), ml.locateInFrom(q, p));
+      }
+    }
+  }
+
+  @Test(groups = { "Functional" })
+  public void testLocateInTo_ranges()
+  {
+    /*
+     * exons 11-20, 50-31 (reverse), 61-66 mapped to peptide 1-12
+     */
+    MapList ml = new MapList(new int[] { 11, 20, 50, 31, 61, 66 },
+            new int[]
+            { 1, 12 }, 3, 1);
+    List<int[]> ranges = new ArrayList<>();
+    ranges.add(new int[] { 11, 13 }); // codon 1
+    ranges.add(new int[] { 20, 20 }); // part codon 4
+    ranges.add(new int[] { 62, 62 }); // part codon 11
+    List<int[]> mapped = ml.locateInTo(ranges);
+    assertEquals("{[1, 1], [4, 4], [11, 11]}", prettyPrint(mapped));
+
+    ranges.add(new int[] { 47, 50 }); // codons 4-5 (reverse)
+    mapped = ml.locateInTo(ranges);
+    assertEquals("{[1, 1], [4, 5], [11, 11]}", prettyPrint(mapped));
+
+    /*
+     * peptide 2-3 maps to 14-19, 5 to 48-46
+     */
+    ranges.clear();
+    ranges.add(new int[] { 2, 3 });
+    ranges.add(new int[] { 5, 5 });
+    assertEquals("{[14, 19], [48, 46]}",
+            prettyPrint(ml.locateInFrom(ranges)));
+    assertTrue(ml.locateInFrom(Arrays.asList(new int[] { 13, 20 }))
+            .isEmpty());
+  }
 }
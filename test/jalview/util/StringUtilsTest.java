@@ -102,6 +102,21 @@ public class StringUtilsTest
             "file://localhost:8080/data/examples/file1.dat", "/"));
   }
 
+  /**
+   * split on a character gives the same result as String.split
+   */
+  @Test(groups = { "Functional" })
+  public void testSplit()
+  {
+    String[] texts = { "", "a", "\t", "\t\t", "a\tb", "\ta", "a\t",
+        "a\t\tb\t\t", "\t\ta\tbc\t\td" };
+    for (String text : texts)
+    {
+      assertTrue(text, Arrays.equals(text.split("\t"),
+              StringUtils.split(text, '\t')));
+    }
+  }
+
   @Test(groups = { "Functional" })
   public void testSeparatorListToArray()
   {
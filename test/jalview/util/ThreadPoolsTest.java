@@ -0,0 +1,76 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ * 
+ * This file is part of Jalview.
+ * 
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *  
+ * Jalview is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadFactory;
+
+import org.testng.annotations.Test;
+
+public class ThreadPoolsTest
+{
+  @Test(groups = "Functional")
+  public void testNewThreadFactory()
+  {
+    ThreadFactory factory = ThreadPools.newThreadFactory("Test");
+    Runnable r = new Runnable()
+    {
+      @Override
+      public void run()
+      {
+      }
+    };
+    Thread t1 = factory.newThread(r);
+    Thread t2 = factory.newThread(r);
+    assertTrue(t1.isDaemon());
+    assertEquals(t1.getName(), "Test-1");
+    assertEquals(t2.getName(), "Test-2");
+  }
+
+  @Test(groups = "Functional")
+  public void testGetPools()
+  {
+    assertSame(ThreadPools.getComputePool(), ThreadPools.getComputePool());
+    assertSame(ThreadPools.getIOPool(), ThreadPools.getIOPool());
+    assertSame(ThreadPools.getScheduler(), ThreadPools.getScheduler());
+  }
+
+  @Test(groups = "Functional")
+  public void testIsPoolThread() throws Exception
+  {
+    assertFalse(ThreadPools.isPoolThread());
+    Callable<Boolean> onPool = new Callable<Boolean>()
+    {
+      @Override
+      public Boolean call()
+      {
+        return ThreadPools.isPoolThread();
+      }
+    };
+    assertTrue(ThreadPools.getComputePool().submit(onPool).get());
+    assertTrue(ThreadPools.getIOPool().submit(onPool).get());
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.viewmodel;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import jalview.bin.MemoryMonitor.Pressure;
+import jalview.commands.EditCommand;
+import jalview.commands.EditCommand.Action;
+import jalview.datamodel.Alignment;
+import jalview.datamodel.AlignmentAnnotation;
+import jalview.datamodel.AlignmentI;
+import jalview.datamodel.Annotation;
+import jalview.datamodel.ProfilesI;
+import jalview.datamodel.Sequence;
+import jalview.datamodel.SequenceFeature;
+import jalview.datamodel.SequenceI;
+import jalview.gui.AlignFrame;
+import jalview.gui.AlignViewport;
+import jalview.gui.JvOptionPane;
+
+public class MemoryFootprintTest
+{
+  @BeforeClass(alwaysRun = true)
+  public void setUpJvOptionPane()
+  {
+    JvOptionPane.setInteractiveMode(false);
+    JvOptionPane.setMockResponse(JvOptionPane.CANCEL_OPTION);
+  }
+
+  @Test(groups = "Functional")
+  public void testEstimate_alignment()
+  {
+    SequenceI seq1 = new Sequence("s1", "ABCDEFGHIJ");
+    SequenceI seq2 = new Sequence("s2", "KLMNOPQRST");
+    AlignmentI al = new Alignment(new SequenceI[] { seq1, seq2 });
+    al.setDataset(null);
+
+    MemoryFootprint fp = MemoryFootprint.estimate(al);
+    assertEquals(fp.getFeatures(), 0L);
+    assertEquals(fp.getAnnotations(), 0L);
+    /*
+     * 2 aligned and 2 dataset sequences of 10 residues with 2 char names
+     */
+    long seqs = 4 * (MemoryFootprint.SEQUENCE_BYTES + 20 + 4);
+    assertEquals(fp.getSequences(), seqs);
+
+    seq1.addSequenceFeature(
+            new SequenceFeature("Metal", "desc", 2, 4, null));
+    seq1.addSequenceFeature(new SequenceFeature("Pfam", "desc", 0, 0,
+            null));
+    Annotation[] anns = new Annotation[10];
+    anns[3] = new Annotation("A", "", ' ', 1f);
+    al.addAnnotation(new AlignmentAnnotation("label", "desc", anns));
+
+    fp = MemoryFootprint.estimate(al);
+    assertEquals(fp.getFeatures(), 2 * MemoryFootprint.FEATURE_BYTES);
+    assertEquals(fp.getAnnotations(),
+            MemoryFootprint.ANNOTATION_ROW_BYTES
+                    + 10 * MemoryFootprint.REFERENCE_BYTES
+                    + MemoryFootprint.ANNOTATION_BYTES + 2);
+    assertEquals(fp.getTotal(),
+            seqs + fp.getFeatures() + fp.getAnnotations());
+
+    /*
+     * hidden sequences are still counted
+     */
+    al.getHiddenSequences().hideSequence(seq2);
+    assertEquals(MemoryFootprint.estimate(al).getSequences(), seqs);
+  }
+
+  @Test(groups = "Functional")
+  public void testEstimate_viewport()
+  {
+    AlignFrame af = makeFrame();
+    AlignViewport av = af.getViewport();
+    AlignmentI al = av.getAlignment();
+
+    MemoryFootprint fp = av.getMemoryFootprint();
+    assertEquals(fp.getHistory(), 0L);
+    assertTrue(fp.getProfiles() > 0L);
+    assertTrue(fp.getTotal() > fp.getSequences());
+    assertTrue(fp.toString().startsWith(
+            MemoryFootprint.format(fp.getTotal()) + " (sequences "));
+
+    av.addToHistoryList(new EditCommand("cut", Action.CUT,
+            al.getSequencesArray(), 2, 3, al));
+    assertEquals(av.getMemoryFootprint().getHistory(),
+            2 * MemoryFootprint.COMMAND_BYTES
+                    + 3 * MemoryFootprint.REFERENCE_BYTES + 2 * 3 * 3);
+  }
+
+  @Test(groups = "Functional")
+  public void testReleaseMemory()
+  {
+    AlignFrame af = makeFrame();
+    AlignViewport av = af.getViewport();
+    AlignmentI al = av.getAlignment();
+    for (int i = 0; i < 15; i++)
+    {
+      av.addToHistoryList(new EditCommand("cut", Action.CUT,
+              al.getSequencesArray(), 0, 1, al));
+    }
+    av.addToRedoList(new EditCommand("cut", Action.CUT,
+            al.getSequencesArray(), 0, 1, al));
+    ProfilesI profiles = av.getSequenceConsensusHash();
+    assertNotNull(profiles);
+    assertNotNull(profiles.get(0).getCounts());
+    assertTrue(av.isSaveFullProfiles());
+
+    av.releaseMemory(Pressure.HIGH);
+    assertFalse(av.isSaveFullProfiles());
+    assertTrue(av.getRedoList().isEmpty());
+    assertEquals(av.getHistoryList().size(), 15);
+    assertNotNull(profiles.get(0).getCounts());
+
+    av.releaseMemory(Pressure.CRITICAL);
+    assertEquals(av.getHistoryList().size(), 10);
+    assertNull(profiles.get(0).getCounts());
+
+    av.releaseMemory(Pressure.NORMAL);
+    assertTrue(av.isSaveFullProfiles());
+  }
+
+  private AlignFrame makeFrame()
+  {
+    SequenceI seq1 = new Sequence("s1", "ABCDEFGHIJ");
+    SequenceI seq2 = new Sequence("s2", "KLMNOPQRST");
+    SequenceI seq3 = new Sequence("s3", "KLMNOPQRST");
+    AlignmentI al = new Alignment(new SequenceI[] { seq1, seq2, seq3 });
+    al.setDataset(null);
+    AlignFrame af = new AlignFrame(al, AlignFrame.DEFAULT_WIDTH,
+            AlignFrame.DEFAULT_HEIGHT);
+    /*
+     * wait for consensus to be computed
+     */
+    long timeout = System.currentTimeMillis() + 5000;
+    while (af.getViewport().getSequenceConsensusHash() == null
+            && System.currentTimeMillis() < timeout)
+    {
+      try
+      {
+        Thread.sleep(50);
+      } catch (InterruptedException e)
+      {
+      }
+    }
+    return af;
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ * 
+ * This file is part of Jalview.
+ * 
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *  
+ * Jalview is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR 
+ * PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.workers;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+import jalview.datamodel.Sequence;
+import jalview.datamodel.SequenceI;
+
+import java.util.concurrent.Callable;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class AlignCalcResultCacheTest
+{
+  private static final String SET_ID = "AlignCalcResultCacheTest";
+
+  private int calls;
+
+  @AfterMethod(alwaysRun = true)
+  public void tearDown()
+  {
+    AlignCalcResultCache.release(SET_ID);
+  }
+
+  private Callable<String> newCalculation()
+  {
+    return new Callable<String>()
+    {
+      @Override
+      public String call()
+      {
+        calls++;
+        return "result" + calls;
+      }
+    };
+  }
+
+  @Test(groups = "Functional")
+  public void testGetResult_sameInputs()
+  {
+    calls = 0;
+    SequenceI[] seqs = new SequenceI[] { new Sequence("s1", "AC-GT"),
+        new Sequence("s2", "ACCGT") };
+
+    String result1 = AlignCalcResultCache.getResult(SET_ID, "Consensus",
+            new AlignCalcResultCache.Key(seqs, 5, true), newCalculation());
+    assertEquals(result1, "result1");
+
+    /*
+     * same sequences (in a new array), width and parameters: not recalculated
+     */
+    String result2 = AlignCalcResultCache.getResult(SET_ID, "Consensus",
+            new AlignCalcResultCache.Key(seqs.clone(), 5, true),
+            newCalculation());
+    assertSame(result2, result1);
+    assertEquals(calls, 1);
+
+    /*
+     * a different calculation is cached separately
+     */
+    String result3 = AlignCalcResultCache.getResult(SET_ID, "Conservation",
+            new AlignCalcResultCache.Key(seqs, 5, true), newCalculation());
+    assertEquals(result3, "result2");
+  }
+
+  @Test(groups = "Functional")
+  public void testGetResult_changedInputs()
+  {
+    calls = 0;
+    SequenceI[] seqs = new SequenceI[] { new Sequence("s1", "AC-GT"),
+        new Sequence("s2", "ACCGT") };
+    AlignCalcResultCache.getResult(SET_ID, "Consensus",
+            new AlignCalcResultCache.Key(seqs, 5, true), newCalculation());
+
+    /*
+     * a different parameter value
+     */
+    String result = AlignCalcResultCache.getResult(SET_ID, "Consensus",
+            new AlignCalcResultCache.Key(seqs, 5, false), newCalculation());
+    assertEquals(result, "result2");
+
+    /*
+     * an edited sequence
+     */
+    seqs[0].setSequence("ACTGT");
+    result = AlignCalcResultCache.getResult(SET_ID, "Consensus",
+            new AlignCalcResultCache.Key(seqs, 5, false), newCalculation());
+    assertEquals(result, "result3");
+
+    /*
+     * an equal but not identical sequence
+     */
+    SequenceI[] copy = new SequenceI[] { new Sequence(seqs[0]), seqs[1] };
+    result = AlignCalcResultCache.getResult(SET_ID, "Consensus",
+            new AlignCalcResultCache.Key(copy, 5, false), newCalculation());
+    assertEquals(result, "result4");
+
+    /*
+     * a different sequence set id
+     */
+    result = AlignCalcResultCache.getResult(SET_ID + "2", "Consensus",
+            new AlignCalcResultCache.Key(copy, 5, false), newCalculation());
+    assertEquals(result, "result5");
+    AlignCalcResultCache.release(SET_ID + "2");
+  }
+
+  @Test(groups = "Functional")
+  public void testGetResult_notShared()
+  {
+    calls = 0;
+    SequenceI[] seqs = new SequenceI[] { new Sequence("s1", "AC-GT") };
+    AlignCalcResultCache.Key key = new AlignCalcResultCache.Key(seqs, 5);
+    AlignCalcResultCache.getResult(null, "Consensus", key,
+            newCalculation());
+    String result = AlignCalcResultCache.getResult(null, "Consensus", key,
+            newCalculation());
+    assertEquals(result, "result2");
+  }
+
+  @Test(groups = "Functional")
+  public void testRelease()
+  {
+    calls = 0;
+    SequenceI[] seqs = new SequenceI[] { new Sequence("s1", "AC-GT") };
+    AlignCalcResultCache.Key key = new AlignCalcResultCache.Key(seqs, 5);
+    AlignCalcResultCache.getResult(SET_ID, "Consensus", key,
+            newCalculation());
+    AlignCalcResultCache.release(SET_ID);
+    String result = AlignCalcResultCache.getResult(SET_ID, "Consensus", key,
+            newCalculation());
+    assertEquals(result, "result2");
+  }
+
+  @Test(groups = "Functional")
+  public void testGetResult_failed()
+  {
+    calls = 0;
+    SequenceI[] seqs = new SequenceI[] { new Sequence("s1", "AC-GT") };
+    AlignCalcResultCache.Key key = new AlignCalcResultCache.Key(seqs, 5);
+    try
+    {
+      AlignCalcResultCache.getResult(SET_ID, "Consensus", key,
+              new Callable<String>()
+              {
+                @Override
+                public String call()
+                {
+                  throw new ArrayIndexOutOfBoundsException();
+                }
+              });
+      fail("expected exception");
+    } catch (ArrayIndexOutOfBoundsException e)
+    {
+      // expected
+    }
+
+    /*
+     * a failed calculation is not cached
+     */
+    String result = AlignCalcResultCache.getResult(SET_ID, "Consensus", key,
+            newCalculation());
+    assertEquals(result, "result1");
+  }
+}
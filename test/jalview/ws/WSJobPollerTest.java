@@ -0,0 +1,343 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.ws;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class WSJobPollerTest
+{
+  /*
+   * a stub job server: GET /status/n answers RUNNING for the first n queries
+   * of each job, then FINISHED
+   */
+  private HttpServer server;
+
+  private String url;
+
+  private Map<String, AtomicInteger> queries;
+
+  /**
+   * A minimal job whose state is set from the stub server's response
+   */
+  static class StubJob extends AWsJob
+  {
+    String state = "QUEUED";
+
+    final String path;
+
+    StubJob(String path)
+    {
+      this.path = path;
+      submitted = true;
+    }
+
+    @Override
+    public boolean hasResults()
+    {
+      return isFinished();
+    }
+
+    @Override
+    public boolean hasValidInput()
+    {
+      return true;
+    }
+
+    @Override
+    public boolean isRunning()
+    {
+      return "RUNNING".equals(state);
+    }
+
+    @Override
+    public boolean isQueued()
+    {
+      return "QUEUED".equals(state);
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+      return "FINISHED".equals(state);
+    }
+
+    @Override
+    public boolean isFailed()
+    {
+      return false;
+    }
+
+    @Override
+    public boolean isBroken()
+    {
+      return false;
+    }
+
+    @Override
+    public boolean isServerError()
+    {
+      return false;
+    }
+
+    @Override
+    public boolean hasStatus()
+    {
+      return true;
+    }
+
+    @Override
+    public String getStatus()
+    {
+      return state;
+    }
+
+    @Override
+    public boolean hasResponse()
+    {
+      return true;
+    }
+
+    @Override
+    public void clearResponse()
+    {
+    }
+
+    @Override
+    public String getState()
+    {
+      return state;
+    }
+  }
+
+  /**
+   * A client which queries the stub server for the state of each due job
+   */
+  class StubClient implements WSJobPoller.ClientI
+  {
+    final StubJob[] jobs;
+
+    final Set<String> threads = Collections
+            .synchronizedSet(new HashSet<String>());
+
+    int maxDue;
+
+    StubClient(StubJob... jobs)
+    {
+      this.jobs = jobs;
+    }
+
+    @Override
+    public boolean pollJobs(List<AWsJob> due)
+    {
+      threads.add(Thread.currentThread().getName());
+      maxDue = Math.max(maxDue, due.size());
+      for (AWsJob job : due)
+      {
+        StubJob j = (StubJob) job;
+        j.state = query(j.path);
+        j.subjobComplete = j.isFinished();
+      }
+      for (StubJob job : jobs)
+      {
+        if (!job.isSubjobComplete())
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  @BeforeMethod(alwaysRun = true)
+  public void setUp() throws IOException
+  {
+    queries = new ConcurrentHashMap<>();
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/status/", new HttpHandler()
+    {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException
+      {
+        String path = exchange.getRequestURI().getPath();
+        queries.putIfAbsent(path, new AtomicInteger());
+        int count = queries.get(path).incrementAndGet();
+        String[] tokens = path.split("/");
+        int runFor = Integer.parseInt(tokens[2]);
+        byte[] body = (count > runFor ? "FINISHED" : "RUNNING")
+                .getBytes();
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream os = exchange.getResponseBody();
+        os.write(body);
+        os.close();
+      }
+    });
+    server.start();
+    url = "http://localhost:" + server.getAddress().getPort() + "/status/";
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void tearDown()
+  {
+    server.stop(0);
+  }
+
+  private static String query(String url)
+  {
+    try
+    {
+      HttpURLConnection conn = (HttpURLConnection) new URL(url)
+              .openConnection();
+      BufferedReader in = new BufferedReader(
+              new InputStreamReader(conn.getInputStream()));
+      String response = in.readLine();
+      in.close();
+      return response;
+    } catch (IOException e)
+    {
+      return "QUEUED";
+    }
+  }
+
+  /**
+   * Many jobs of many clients are polled to completion on shared pool threads,
+   * and listeners are notified of each state change and finished client
+   */
+  @Test(groups = "Functional")
+  public void testSubmit_manyJobs() throws InterruptedException
+  {
+    WSJobPoller poller = new WSJobPoller(5L, 40L);
+    final int clientCount = 50;
+    final CountDownLatch done = new CountDownLatch(clientCount);
+    final AtomicInteger changes = new AtomicInteger();
+    poller.addListener(new WSJobPoller.JobListenerI()
+    {
+      @Override
+      public void jobStateChanged(WSJobPoller.ClientI client, AWsJob job)
+      {
+        changes.incrementAndGet();
+      }
+
+      @Override
+      public void clientFinished(WSJobPoller.ClientI client)
+      {
+        done.countDown();
+      }
+    });
+
+    List<StubClient> clients = new ArrayList<>();
+    for (int c = 0; c < clientCount; c++)
+    {
+      StubClient client = new StubClient(
+              new StubJob(url + (c % 3) + "/job" + c + "a"),
+              new StubJob(url + (c % 4) + "/job" + c + "b"));
+      clients.add(client);
+      poller.submit(client, client.jobs);
+    }
+    assertTrue(done.await(30, TimeUnit.SECONDS));
+    assertEquals(poller.getClientCount(), 0);
+
+    Set<String> threads = new HashSet<>();
+    for (StubClient client : clients)
+    {
+      threads.addAll(client.threads);
+      for (StubJob job : client.jobs)
+      {
+        assertTrue(job.isFinished());
+      }
+      /*
+       * both jobs are due for the first poll, and polled together
+       */
+      assertEquals(client.maxDue, 2);
+    }
+    /*
+     * polls run on the shared I/O pool, not a thread per client
+     */
+    for (String thread : threads)
+    {
+      assertTrue(thread.startsWith("Jalview-io-"), thread);
+    }
+
+    /*
+     * every job changed state at least once (QUEUED to FINISHED or RUNNING)
+     */
+    assertTrue(changes.get() >= 2 * clientCount);
+  }
+
+  /**
+   * The poll interval doubles while a job's state is unchanged, up to the
+   * maximum
+   */
+  @Test(groups = "Functional")
+  public void testPoll_backoff()
+  {
+    WSJobPoller poller = new WSJobPoller(10L, 45L);
+    StubJob job = new StubJob(url + "100/slowjob");
+    StubClient client = new StubClient(job);
+    poller.submit(client, new AWsJob[] { job });
+
+    /*
+     * wait for the job to start RUNNING, then poll it directly
+     */
+    long giveUp = System.currentTimeMillis() + 10000L;
+    while (!job.isRunning() && System.currentTimeMillis() < giveUp)
+    {
+      Thread.yield();
+    }
+    assertTrue(job.isRunning());
+    long interval = poller.getPollInterval(job);
+    assertTrue(interval >= 10L && interval <= 45L);
+    while (poller.getPollInterval(job) < 45L
+            && System.currentTimeMillis() < giveUp)
+    {
+      assertTrue(poller.getPollInterval(job) >= interval);
+      interval = poller.getPollInterval(job);
+      Thread.yield();
+    }
+    assertEquals(poller.getPollInterval(job), 45L);
+  }
+}
@@ -32,7 +32,7 @@ import jalview.datamodel.SequenceI;
 import jalview.gui.JvOptionPane;
 import jalview.io.DataSourceType;
 import jalview.structure.StructureMapping;
-import jalview.xml.binding.sifts.Entry.Entity;
+import jalview.ws.sifts.SiftsIndex.Entity;
 
 import java.io.File;
 import java.io.IOException;
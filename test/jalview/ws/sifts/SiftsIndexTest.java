@@ -0,0 +1,168 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.ws.sifts;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class SiftsIndexTest
+{
+  private static final String TEST_FILE = "test/jalview/io/1a70.xml.gz";
+
+  private File dir;
+
+  private File siftsFile;
+
+  @BeforeMethod(alwaysRun = true)
+  public void setUp() throws IOException
+  {
+    dir = Files.createTempDirectory("siftsindex").toFile();
+    siftsFile = new File(dir, "1a70.xml.gz");
+    Files.copy(new File(TEST_FILE).toPath(), siftsFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void tearDown()
+  {
+    for (File f : dir.listFiles())
+    {
+      f.delete();
+    }
+    dir.delete();
+  }
+
+  @Test(groups = "Functional")
+  public void testLoad() throws SiftsException
+  {
+    SiftsIndex index = SiftsIndex.load(siftsFile, false);
+    assertFalse(SiftsIndex.getIndexFile(siftsFile).exists());
+    assertEquals(index.getDbAccessionId(), "1a70");
+    assertEquals(index.getDbSource(), "PDBe");
+    assertTrue(index.getMappingAccessions().contains("p00221"));
+    assertTrue(index.getMappingAccessions().contains("pf00111"));
+
+    assertEquals(index.getEntities().length, 1);
+    SiftsIndex.Entity entity = index.getEntities()[0];
+    assertEquals(entity.getEntityId(), "A");
+    assertEquals(entity.getResidueCount(), 97);
+
+    /*
+     * first residue is PDBe 1, Ala, observed, mapped to PDB A 1 and
+     * UniProt P00221 51
+     */
+    assertEquals(entity.resNum[0], 1);
+    assertEquals(index.getString(entity.resName[0]), "ALA");
+    assertTrue(entity.observed[0]);
+    boolean uniprot = false;
+    for (int c = entity.refStart[0]; c < entity.refStart[1]; c++)
+    {
+      String source = index.getString(entity.refSource[c]);
+      if ("PDB".equals(source))
+      {
+        assertEquals(index.getString(entity.refChain[c]), "A");
+        assertEquals(entity.refResNum[c], 1);
+      }
+      else if ("UniProt".equals(source))
+      {
+        uniprot = true;
+        assertEquals(index.getString(entity.refAccession[c]), "P00221");
+        assertEquals(entity.refResNum[c], 51);
+      }
+    }
+    assertTrue(uniprot);
+  }
+
+  @Test(groups = "Functional")
+  public void testWriteRead() throws SiftsException, IOException
+  {
+    SiftsIndex parsed = SiftsIndex.load(siftsFile, true);
+    File indexFile = SiftsIndex.getIndexFile(siftsFile);
+    assertTrue(indexFile.exists());
+
+    SiftsIndex read = SiftsIndex.read(indexFile, siftsFile);
+    assertNotNull(read);
+    assertEquals(read.getDbAccessionId(), parsed.getDbAccessionId());
+    assertEquals(read.getDbCoordSys(), parsed.getDbCoordSys());
+    assertEquals(read.getDbSource(), parsed.getDbSource());
+    assertEquals(read.getDbVersion(), parsed.getDbVersion());
+    assertEquals(read.getMappingAccessions(),
+            parsed.getMappingAccessions());
+    assertEquals(read.getEntities().length, parsed.getEntities().length);
+    for (int e = 0; e < read.getEntities().length; e++)
+    {
+      SiftsIndex.Entity r = read.getEntities()[e];
+      SiftsIndex.Entity p = parsed.getEntities()[e];
+      assertEquals(r.getEntityId(), p.getEntityId());
+      assertEquals(r.resNum, p.resNum);
+      assertEquals(r.observed, p.observed);
+      assertEquals(r.refStart, p.refStart);
+      assertEquals(r.refResNum, p.refResNum);
+      for (int i = 0; i < r.resName.length; i++)
+      {
+        assertEquals(read.getString(r.resName[i]),
+                parsed.getString(p.resName[i]));
+      }
+      for (int c = 0; c < r.refSource.length; c++)
+      {
+        assertEquals(read.getString(r.refSource[c]),
+                parsed.getString(p.refSource[c]));
+        assertEquals(read.getString(r.refCoordSys[c]),
+                parsed.getString(p.refCoordSys[c]));
+        assertEquals(read.getString(r.refAccession[c]),
+                parsed.getString(p.refAccession[c]));
+        assertEquals(read.getString(r.refChain[c]),
+                parsed.getString(p.refChain[c]));
+      }
+    }
+  }
+
+  /**
+   * An index saved for an older version of the SIFTS file is not used
+   */
+  @Test(groups = "Functional")
+  public void testRead_stale() throws SiftsException, IOException
+  {
+    SiftsIndex.load(siftsFile, true);
+    File indexFile = SiftsIndex.getIndexFile(siftsFile);
+    siftsFile.setLastModified(siftsFile.lastModified() - 60000L);
+    assertNull(SiftsIndex.read(indexFile, siftsFile));
+
+    /*
+     * load rebuilds the index
+     */
+    SiftsIndex index = SiftsIndex.load(siftsFile, true);
+    assertEquals(index.getEntities().length, 1);
+    assertNotNull(SiftsIndex.read(indexFile, siftsFile));
+  }
+}
@@ -0,0 +1,322 @@
+/*
+ * Jalview - A Sequence Alignment Editor and Viewer (2.11.2.5)
+ * Copyright (C) 2022 The Jalview Authors
+ *
+ * This file is part of Jalview.
+ *
+ * Jalview is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Jalview is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Jalview.  If not, see <http://www.gnu.org/licenses/>.
+ * The Jalview Authors are detailed in the 'AUTHORS' file.
+ */
+package jalview.ws.utils;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import jalview.bin.Cache;
+
+public class ResponseCacheTest
+{
+  private HttpServer server;
+
+  private AtomicInteger requests;
+
+  private AtomicInteger notModified;
+
+  private File dir;
+
+  private String url;
+
+  @BeforeMethod(alwaysRun = true)
+  public void setUp() throws IOException
+  {
+    Cache.loadProperties("test/jalview/io/testProps.jvprops");
+    Cache.applicationProperties.remove(ResponseCache.OFFLINE_MODE);
+    Cache.applicationProperties
+            .remove(ResponseCache.RESPONSE_CACHE_TTL_HOURS);
+    requests = new AtomicInteger();
+    notModified = new AtomicInteger();
+    dir = Files.createTempDirectory("responsecache").toFile();
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", new HttpHandler()
+    {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException
+      {
+        requests.incrementAndGet();
+        if (exchange.getRequestURI().getPath().endsWith("missing"))
+        {
+          exchange.sendResponseHeaders(404, -1);
+          exchange.close();
+          return;
+        }
+        if ("\"v1\"".equals(
+                exchange.getRequestHeaders().getFirst("If-None-Match")))
+        {
+          notModified.incrementAndGet();
+          exchange.sendResponseHeaders(304, -1);
+          exchange.close();
+          return;
+        }
+        byte[] body = ("data for " + exchange.getRequestURI().getPath())
+                .getBytes();
+        exchange.getResponseHeaders().add("ETag", "\"v1\"");
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream os = exchange.getResponseBody();
+        os.write(body);
+        os.close();
+      }
+    });
+    server.start();
+    url = "http://localhost:" + server.getAddress().getPort() + "/entry/";
+  }
+
+  @AfterMethod(alwaysRun = true)
+  public void tearDown()
+  {
+    server.stop(0);
+    Cache.applicationProperties.remove(ResponseCache.OFFLINE_MODE);
+    Cache.applicationProperties
+            .remove(ResponseCache.RESPONSE_CACHE_TTL_HOURS);
+    File[] files = dir.listFiles();
+    if (files != null)
+    {
+      for (File f : files)
+      {
+        f.delete();
+      }
+    }
+    dir.delete();
+  }
+
+  private static String read(File f) throws IOException
+  {
+    return new String(Files.readAllBytes(f.toPath()));
+  }
+
+  /**
+   * The shared cache is only used once enabled in preferences
+   */
+  @Test(groups = "Functional")
+  public void testGetInstance()
+  {
+    Cache.applicationProperties.remove(ResponseCache.RESPONSE_CACHE);
+    assertNull(ResponseCache.getInstance());
+
+    Cache.applicationProperties.setProperty(ResponseCache.RESPONSE_CACHE,
+            "true");
+    Cache.applicationProperties.setProperty(
+            ResponseCache.RESPONSE_CACHE_DIR, dir.getPath());
+    try
+    {
+      assertNotNull(ResponseCache.getInstance());
+    } finally
+    {
+      Cache.applicationProperties.remove(ResponseCache.RESPONSE_CACHE);
+      Cache.applicationProperties
+              .remove(ResponseCache.RESPONSE_CACHE_DIR);
+    }
+  }
+
+  @Test(groups = "Functional")
+  public void testGetFile_cached() throws IOException
+  {
+    ResponseCache cache = new ResponseCache(dir, 1024 * 1024);
+    File f = cache.getFile("UNIPROT", "P12345", url + "P12345");
+    assertEquals(read(f), "data for /entry/P12345");
+    assertEquals(requests.get(), 1);
+
+    /*
+     * second fetch is served from the cache
+     */
+    f = cache.getFile("UNIPROT", "P12345", url + "P12345");
+    assertEquals(read(f), "data for /entry/P12345");
+    assertEquals(requests.get(), 1);
+
+    /*
+     * the same key for a different source is a different entry
+     */
+    cache.getFile("EMBL", "P12345", url + "P12345");
+    assertEquals(requests.get(), 2);
+  }
+
+  @Test(groups = "Functional")
+  public void testGetFile_revalidate() throws IOException
+  {
+    ResponseCache cache = new ResponseCache(dir, 1024 * 1024);
+    cache.getFile("UNIPROT", "P12345", url + "P12345");
+
+    /*
+     * with a TTL of zero, the entry is revalidated with its ETag
+     */
+    Cache.applicationProperties.setProperty(
+            ResponseCache.RESPONSE_CACHE_TTL_HOURS + ".UNIPROT", "0");
+    try
+    {
+      long fetched = cache.lookup("UNIPROT", "P12345").getFetched();
+      File f = cache.getFile("UNIPROT", "P12345", url + "P12345");
+      assertEquals(requests.get(), 2);
+      assertEquals(notModified.get(), 1);
+      assertEquals(read(f), "data for /entry/P12345");
+      assertTrue(
+              cache.lookup("UNIPROT", "P12345").getFetched() >= fetched);
+    } finally
+    {
+      Cache.applicationProperties.remove(
+              ResponseCache.RESPONSE_CACHE_TTL_HOURS + ".UNIPROT");
+    }
+  }
+
+  @Test(groups = "Functional")
+  public void testGetFile_notFound() throws IOException
+  {
+    ResponseCache cache = new ResponseCache(dir, 1024 * 1024);
+    assertNull(cache.getFile("UNIPROT", "missing", url + "missing"));
+    assertNull(cache.lookup("UNIPROT", "missing"));
+  }
+
+  @Test(groups = "Functional")
+  public void testGetFile_offline() throws IOException
+  {
+    ResponseCache cache = new ResponseCache(dir, 1024 * 1024);
+    cache.getFile("UNIPROT", "P12345", url + "P12345");
+    Cache.applicationProperties.setProperty(ResponseCache.OFFLINE_MODE,
+            "true");
+    Cache.applicationProperties
+            .setProperty(ResponseCache.RESPONSE_CACHE_TTL_HOURS, "0");
+
+    /*
+     * offline, cached entries are served even if expired
+     */
+    File f = cache.getFile("UNIPROT", "P12345", url + "P12345");
+    assertEquals(read(f), "data for /entry/P12345");
+    assertEquals(requests.get(), 1);
+
+    /*
+     * and uncached queries fail without a request
+     */
+    try
+    {
+      cache.getFile("UNIPROT", "Q99999", url + "Q99999");
+      fail("expected IOException");
+    } catch (IOException e)
+    {
+      assertTrue(e.getMessage().contains("Q99999"));
+    }
+    assertEquals(requests.get(), 1);
+  }
+
+  /**
+   * When the cache exceeds its maximum size, least recently used entries are
+   * deleted
+   */
+  @Test(groups = "Functional")
+  public void testPut_evictsLeastRecentlyUsed() throws IOException
+  {
+    ResponseCache cache = new ResponseCache(dir, 25);
+    put(cache, "a");
+    setUsed(cache, "a", 1000L);
+    put(cache, "b");
+    setUsed(cache, "b", 3000L);
+
+    /*
+     * a is used again, so b is now least recently used
+     */
+    setUsed(cache, "a", 5000L);
+    put(cache, "c");
+    assertNull(cache.lookup("S", "b"));
+    assertEquals(cache.lookup("S", "a").getFile().length(), 10);
+    assertEquals(cache.lookup("S", "c").getFile().length(), 10);
+  }
+
+  /**
+   * Entries are not evicted while a caller is still to read them
+   */
+  @Test(groups = "Functional")
+  public void testPut_keepsEntriesBeingRead() throws IOException
+  {
+    ResponseCache cache = new ResponseCache(dir, 25);
+    put(cache, "a");
+    setUsed(cache, "a", 1000L);
+    put(cache, "b");
+    setUsed(cache, "b", 3000L);
+
+    /*
+     * a is least recently used, but is being read, so b is evicted instead
+     */
+    File a = cache.lookup("S", "a").getFile();
+    put(cache, "c");
+    assertTrue(a.isFile());
+    assertNull(cache.lookup("S", "b"));
+
+    /*
+     * once a has been read, it may be evicted
+     */
+    cache.release(a);
+    setUsed(cache, "c", 5000L);
+    put(cache, "d");
+    assertFalse(a.exists());
+    assertNull(cache.lookup("S", "a"));
+  }
+
+  /**
+   * Saves 10 bytes to the cache for source S and the given key
+   */
+  private static void put(ResponseCache cache, String key)
+          throws IOException
+  {
+    cache.release(cache.put("S", key,
+            new ByteArrayInputStream(new byte[10]), null, null));
+  }
+
+  /**
+   * Sets the last used time of the cached entry for source S and the key
+   */
+  private static void setUsed(ResponseCache cache, String key, long time)
+  {
+    File file = cache.lookup("S", key).getFile();
+    file.setLastModified(time);
+    cache.release(file);
+  }
+
+  @Test(groups = "Functional")
+  public void testGetName()
+  {
+    String name = ResponseCache.getName("UNIPROT", "P12345");
+    assertEquals(name.length(), 64);
+    assertEquals(ResponseCache.getName("uniprot", "P12345"), name);
+    assertNotEquals(ResponseCache.getName("UNIPROT", "P12346"), name);
+    assertFalse(name.contains("P12345"));
+  }
+}